@@ -0,0 +1,273 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * <p>Reads or writes a property of objects through a public field, getter or setter, using a {@link MethodHandle}
+ * created once instead of core reflection, which checks access and wraps arguments in arrays on every call. Besides
+ * the general methods, working with boxed values, properties of primitive types can be read and written without
+ * boxing: {@link Accessor#getLong(Object)} and {@link Accessor#setLong(Object, long)} for integral types,
+ * {@link Accessor#getDouble(Object)} and {@link Accessor#getBoolean(Object)}.</p>
+ * <p>Failures are reported as core reflection does: an {@link IllegalAccessException} for members that can't be
+ * accessed, an {@link InvocationTargetException} wrapping whatever a getter or setter throws, and an
+ * {@link IllegalArgumentException} for values of the wrong type.</p>
+ */
+final class Accessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<?> type;
+    private final boolean reader;
+    private final boolean method;               // exceptions thrown by methods are wrapped
+    private final MethodHandle handle;          // (Object)Object or (Object, Object)void
+    private final MethodHandle longHandle;      // (Object)long or (Object, long)void, for integral types
+    private final MethodHandle doubleHandle;    // (Object)double or (Object, double)void, for floating point types
+    private final MethodHandle booleanHandle;   // (Object)boolean
+    private final IllegalAccessException inaccessible;
+
+    private Accessor(Class<?> type, boolean method, MethodHandle target, boolean reader, boolean isStatic) {
+        if(isStatic)
+            target = MethodHandles.dropArguments(target, 0, Object.class);
+        this.type = type;
+        this.reader = reader;
+        this.method = method;
+        this.inaccessible = null;
+        boolean integral = type == byte.class || type == short.class || type == int.class || type == long.class;
+        if(reader) {
+            handle = target.asType(GETTER);
+            longHandle = integral? cast(target, long.class): null;
+            doubleHandle = type == float.class || type == double.class? cast(target, double.class): null;
+            booleanHandle = type == boolean.class? cast(target, boolean.class): null;
+        } else {
+            handle = target.asType(SETTER);
+            longHandle = integral? cast(target, void.class, long.class): null;
+            doubleHandle = type == double.class? cast(target, void.class, double.class): null;
+            booleanHandle = null;
+        }
+    }
+
+    private Accessor(Class<?> type, IllegalAccessException inaccessible) {
+        this.type = type;
+        this.reader = false;
+        this.method = false;
+        this.handle = null;
+        this.longHandle = null;
+        this.doubleHandle = null;
+        this.booleanHandle = null;
+        this.inaccessible = inaccessible;
+    }
+
+    /**
+     * Creates an accessor reading a field.
+     * @param field the field.
+     * @return the accessor.
+     */
+    static Accessor reader(Field field) {
+        try {
+            return new Accessor(field.getType(), false, LOOKUP.unreflectGetter(field), true, isStatic(field));
+        } catch (IllegalAccessException e) {
+            return new Accessor(field.getType(), e);
+        }
+    }
+
+    /**
+     * Creates an accessor reading the value returned by a getter.
+     * @param getter the method, without parameters.
+     * @return the accessor.
+     */
+    static Accessor reader(Method getter) {
+        try {
+            return new Accessor(getter.getReturnType(), true, LOOKUP.unreflect(getter), true, isStatic(getter));
+        } catch (IllegalAccessException e) {
+            return new Accessor(getter.getReturnType(), e);
+        }
+    }
+
+    /**
+     * Creates an accessor writing a field.
+     * @param field the field, not final.
+     * @return the accessor.
+     */
+    static Accessor writer(Field field) {
+        try {
+            return new Accessor(field.getType(), false, LOOKUP.unreflectSetter(field), false, isStatic(field));
+        } catch (IllegalAccessException e) {
+            return new Accessor(field.getType(), e);
+        }
+    }
+
+    /**
+     * Creates an accessor writing through a setter.
+     * @param setter the method, with one parameter.
+     * @return the accessor.
+     */
+    static Accessor writer(Method setter) {
+        Class<?> type = setter.getParameterTypes()[0];
+        try {
+            return new Accessor(type, true, LOOKUP.unreflect(setter), false, isStatic(setter));
+        } catch (IllegalAccessException e) {
+            return new Accessor(type, e);
+        }
+    }
+
+    /**
+     * Gets the type of the property.
+     * @return the type of the field, the type returned by the getter or the type of the parameter of the setter.
+     */
+    Class<?> type() {
+        return type;
+    }
+
+    /**
+     * Tells whether values can be written with {@link Accessor#setLong(Object, long)}.
+     * @return true for writers of byte, short, int and long properties.
+     */
+    boolean writesLong() {
+        return !reader && longHandle != null;
+    }
+
+    /**
+     * Tells whether values can be written with {@link Accessor#setDouble(Object, double)}.
+     * @return true for writers of double properties.
+     */
+    boolean writesDouble() {
+        return !reader && doubleHandle != null;
+    }
+
+    Object get(Object bean) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        try {
+            return (Object)handle.invokeExact(bean);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    long getLong(Object bean) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        try {
+            return (long)longHandle.invokeExact(bean);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    double getDouble(Object bean) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        try {
+            return (double)doubleHandle.invokeExact(bean);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    boolean getBoolean(Object bean) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        try {
+            return (boolean)booleanHandle.invokeExact(bean);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    void set(Object bean, Object value) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        if(value == null? type.isPrimitive(): !wrapper(type).isInstance(value))
+            throw new IllegalArgumentException("value of type " + (value == null? "null": value.getClass().getName())
+                    + " can't be assigned to a property of type " + type.getName());
+        try {
+            handle.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Writes a value to a property of an integral type, with a narrowing conversion if the type is not long.
+     * @param bean the object.
+     * @param value the value, which the caller has already checked is within the range of the type.
+     */
+    void setLong(Object bean, long value) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        try {
+            longHandle.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    void setDouble(Object bean, double value) throws IllegalAccessException, InvocationTargetException {
+        verifyAccessible();
+        try {
+            doubleHandle.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    private void verifyAccessible() throws IllegalAccessException {
+        if(inaccessible != null)
+            throw inaccessible;
+    }
+
+    private InvocationTargetException failure(Throwable e) {
+        if(method)
+            return new InvocationTargetException(e);
+        if(e instanceof RuntimeException)
+            throw (RuntimeException)e;
+        if(e instanceof Error)
+            throw (Error)e;
+        throw new IllegalStateException(e);
+    }
+
+    private static boolean isStatic(Member member) {
+        return Modifier.isStatic(member.getModifiers());
+    }
+
+    private static MethodHandle cast(MethodHandle target, Class<?> returnType, Class<?>... parameterTypes) {
+        MethodType type = MethodType.methodType(returnType, Object.class, parameterTypes);
+        return MethodHandles.explicitCastArguments(target, type);
+    }
+
+    private static Class<?> wrapper(Class<?> type) {
+        if(!type.isPrimitive())
+            return type;
+        if(type == int.class) return Integer.class;
+        if(type == long.class) return Long.class;
+        if(type == double.class) return Double.class;
+        if(type == boolean.class) return Boolean.class;
+        if(type == float.class) return Float.class;
+        if(type == short.class) return Short.class;
+        if(type == byte.class) return Byte.class;
+        if(type == char.class) return Character.class;
+        return Void.class;
+    }
+
+}
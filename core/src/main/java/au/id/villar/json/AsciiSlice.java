@@ -0,0 +1,77 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable {@link CharSequence} over a range of a {@link java.nio.ByteBuffer} holding only ASCII characters, used to
+ * hand out strings read from UTF-8 input without decoding or copying them. The buffer is only read through absolute
+ * gets, its position is never changed.
+ */
+final class AsciiSlice implements CharSequence {
+
+    private ByteBuffer bytes;
+    private int offset;
+    private int length;
+
+    AsciiSlice() {}
+
+    private AsciiSlice(ByteBuffer bytes, int offset, int length) {
+        reset(bytes, offset, length);
+    }
+
+    AsciiSlice reset(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index: " + index);
+        return (char)bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+        return new AsciiSlice(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        if(bytes.hasArray())
+            return new String(bytes.array(), bytes.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+        byte[] copy = new byte[length];
+        for(int index = 0; index < length; index++)
+            copy[index] = bytes.get(offset + index);
+        return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+
+}
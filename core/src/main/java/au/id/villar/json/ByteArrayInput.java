@@ -0,0 +1,122 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link UTF8Input} reading from a byte array. The array is either a slice given by the user, in which case it is
+ * read in place, or an internal buffer refilled from an {@link java.io.InputStream}.
+ */
+final class ByteArrayInput extends UTF8Input {
+
+    private static final int BUFFER_LENGTH = 2048;
+
+    private InputStream stream;
+    private final byte[] buffer;
+    private final ByteBuffer words;
+    private final AsciiSlice slice = new AsciiSlice();
+    private int countedIndex;
+    private int bufferIndex;
+    private int bufferUsed;
+
+    ByteArrayInput(InputStream stream) {
+        this.stream = stream;
+        this.buffer = new byte[BUFFER_LENGTH];
+        this.words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Makes an input created to read from a stream read from another one, from its start, keeping the buffer.
+     * @param stream the new source of bytes, or null to just let go of the previous one.
+     */
+    void reuse(InputStream stream) {
+        this.stream = stream;
+        bufferIndex = 0;
+        bufferUsed = 0;
+        countedIndex = 0;
+        counter = null;
+        resetDecoder();
+    }
+
+    ByteArrayInput(byte[] data, int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > data.length)
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        this.stream = null;
+        this.buffer = data;
+        this.words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        this.bufferIndex = offset;
+        this.countedIndex = offset;
+        this.bufferUsed = offset + length;
+    }
+
+    @Override
+    int nextByte() throws IOException {
+        if(bufferIndex >= bufferUsed) {
+            if(stream == null) return -1;
+            if(counter != null)
+                counter.countUTF8(words, countedIndex, bufferIndex);
+            countedIndex = bufferIndex;
+            int read;
+            do { read = stream.read(buffer); } while(read == 0);
+            if(read == -1) return -1;
+            bufferUsed = read;
+            bufferIndex = 0;
+            countedIndex = 0;
+        }
+        return buffer[bufferIndex++] & 0xFF;
+    }
+
+    @Override
+    boolean countsPositions() {
+        return true;
+    }
+
+    @Override
+    void countConsumedBytes() {
+        counter.countUTF8(words, countedIndex, bufferIndex);
+        countedIndex = bufferIndex;
+    }
+
+    @Override
+    int readByteRun(StringBuilder builder, int kind) {
+        int length = Swar.runLength(words, bufferIndex, bufferUsed, kind);
+        if(builder != null)
+            for(int index = bufferIndex; index < bufferIndex + length; index++)
+                builder.append((char)buffer[index]);
+        bufferIndex += length;
+        return length;
+    }
+
+    @Override
+    CharSequence readAsciiString() {
+        int length = Swar.runLength(words, bufferIndex, bufferUsed, RUN_STRING);
+        int end = bufferIndex + length;
+        if(end >= bufferUsed || buffer[end] != '"')
+            return null;
+        slice.reset(words, bufferIndex, length);
+        bufferIndex = end + 1;
+        return slice;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link UTF8Input} reading the remaining bytes of a {@link java.nio.ByteBuffer}. Bytes are read in place (no copy is
+ * made, even for direct buffers) and the position of the buffer is advanced as they are consumed.
+ */
+final class ByteBufferInput extends UTF8Input {
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer words;     // same content, in the byte order needed by Swar
+    private final AsciiSlice slice = new AsciiSlice();
+    private int countedIndex;
+
+    ByteBufferInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.words = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.countedIndex = buffer.position();
+    }
+
+    @Override
+    int nextByte() {
+        return buffer.hasRemaining()? buffer.get() & 0xFF: -1;
+    }
+
+    @Override
+    boolean countsPositions() {
+        return true;
+    }
+
+    @Override
+    void countConsumedBytes() {
+        counter.countUTF8(words, countedIndex, buffer.position());
+        countedIndex = buffer.position();
+    }
+
+    @Override
+    int readByteRun(StringBuilder builder, int kind) {
+        int position = buffer.position();
+        int length = Swar.runLength(words, position, buffer.limit(), kind);
+        if(builder != null)
+            for(int index = position; index < position + length; index++)
+                builder.append((char)words.get(index));
+        buffer.position(position + length);
+        return length;
+    }
+
+    @Override
+    CharSequence readAsciiString() {
+        int position = buffer.position();
+        int length = Swar.runLength(words, position, buffer.limit(), RUN_STRING);
+        int end = position + length;
+        if(end >= buffer.limit() || words.get(end) != '"')
+            return null;
+        buffer.position(end + 1);
+        return slice.reset(words, position, length);
+    }
+
+}
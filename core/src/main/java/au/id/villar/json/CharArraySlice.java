@@ -0,0 +1,65 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+/** Reusable {@link CharSequence} over a range of a char array, used to hand out strings without copying them. */
+final class CharArraySlice implements CharSequence {
+
+    private char[] chars;
+    private int offset;
+    private int length;
+
+    CharArraySlice() {}
+
+    private CharArraySlice(char[] chars, int offset, int length) {
+        reset(chars, offset, length);
+    }
+
+    CharArraySlice reset(char[] chars, int offset, int length) {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index: " + index);
+        return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+        return new CharArraySlice(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+
+}
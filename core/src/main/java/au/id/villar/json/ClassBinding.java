@@ -0,0 +1,328 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>What {@link ObjectDeserializer} needs to know to bind JSON properties to instances of a class: for every property
+ * name, the public field or getter used to read it and the public field or setter used to write it, with their
+ * types. The public fields and methods of the class are looked up once, when the binding is created; properties are
+ * then resolved by name with map lookups, and kept, so binding a property already seen does no reflection lookups
+ * and throws no exceptions.</p>
+ * <p>Bindings are created on first use and kept for as long as their class (see {@link ClassValue}). They are thread
+ * safe.</p>
+ */
+final class ClassBinding {
+
+    private static final int MAX_UNKNOWN_PROPERTIES = 256;
+
+    private static final ClassValue<ClassBinding> BINDINGS = new ClassValue<ClassBinding>() {
+        @Override
+        protected ClassBinding computeValue(Class<?> type) {
+            return new ClassBinding(type);
+        }
+    };
+
+    private final TypeDescriptor descriptor;
+    private final Map<String, Field> fields = new HashMap<>();
+    private final Map<String, Method> getters = new HashMap<>();    // public methods without parameters
+    private final Map<String, Method> setters = new HashMap<>();    // public void methods with one parameter
+    private final ConcurrentMap<String, Property> properties = new ConcurrentHashMap<>();
+    private int unknownProperties;      // not exact under contention, it only needs to bound the map
+
+    /**
+     * Gets the binding of a class.
+     * @param type the class.
+     * @return its binding, created on first use.
+     */
+    static ClassBinding of(Class<?> type) {
+        return BINDINGS.get(type);
+    }
+
+    private ClassBinding(Class<?> type) {
+        this.descriptor = TypeDescriptor.of(type);
+        for(Field field: type.getFields())
+            if(!fields.containsKey(field.getName()))
+                fields.put(field.getName(), mostSpecificField(type, field));
+        for(Method method: type.getMethods()) {
+            Class<?>[] parameters = method.getParameterTypes();
+            if(parameters.length == 0) {
+                Method previous = getters.get(method.getName());
+                if(previous == null || previous.isBridge()
+                        || previous.getReturnType().isAssignableFrom(method.getReturnType()) && !method.isBridge())
+                    getters.put(method.getName(), method);
+            } else if(parameters.length == 1 && method.getReturnType() == void.class
+                    && !setters.containsKey(method.getName())) {
+                setters.put(method.getName(), method);
+            }
+        }
+    }
+
+    /**
+     * Gets a property. Names not matching any field, getter or setter give a property that can be neither read nor
+     * written; only a bounded number of those are kept, so unexpected names in the input can't make the binding grow
+     * without limit.
+     * @param name name of the property, as found in the JSON data.
+     * @return the property.
+     */
+    Property property(String name) {
+        Property property = properties.get(name);
+        if(property == null) {
+            property = new Property(name);
+            if(property.readable() || property.writable() || unknownProperties++ < MAX_UNKNOWN_PROPERTIES) {
+                Property previous = properties.putIfAbsent(name, property);
+                if(previous != null)
+                    property = previous;
+            }
+        }
+        return property;
+    }
+
+    /**
+     * Gets the class a type stands for: the type itself for classes, the raw type of parameterized types, and the
+     * (first) upper bound of type variables and wildcards.
+     * @param type the type.
+     * @return the class.
+     */
+    static Class<?> rawClass(Type type) {
+        if(type instanceof Class)
+            return (Class<?>)type;
+        if(type instanceof ParameterizedType)
+            return rawClass(((ParameterizedType)type).getRawType());
+        if(type instanceof GenericArrayType)
+            return Array.newInstance(rawClass(((GenericArrayType)type).getGenericComponentType()), 0).getClass();
+        if(type instanceof TypeVariable)
+            return rawClass(((TypeVariable<?>)type).getBounds()[0]);
+        if(type instanceof WildcardType)
+            return rawClass(((WildcardType)type).getUpperBounds()[0]);
+        return Object.class;
+    }
+
+    private static Field mostSpecificField(Class<?> type, Field field) {
+        try {
+            return type.getField(field.getName());
+        } catch (NoSuchFieldException e) {
+            return field;
+        }
+    }
+
+    private String capitalized(String prefix, String name) {
+        return name.isEmpty()? prefix: prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /** A property of the class, with the accessors used to read and write it. */
+    final class Property {
+
+        private final String name;
+        private final Field field;          // read through the field when not null, else through the getter
+        private final Method getter;
+        private final Accessor reader;
+        private final Accessor writer;      // through the field if public and not final, else through the setter
+        private TypeDescriptor typeDescriptor;
+
+        private Property(String name) {
+            this.name = name;
+            this.field = fields.get(name);
+            this.getter = field != null || name.isEmpty()? null: findGetter(name);
+            this.reader = field != null? Accessor.reader(field): getter != null? Accessor.reader(getter): null;
+            Method setter = null;
+            if((field == null || Modifier.isFinal(field.getModifiers())) && !name.isEmpty())
+                setter = setters.get(capitalized("set", name));
+            this.writer = field != null && !Modifier.isFinal(field.getModifiers())? Accessor.writer(field):
+                    setter != null? Accessor.writer(setter): null;
+        }
+
+        private Method findGetter(String name) {
+            Method method = getters.get(capitalized("get", name));
+            if(method != null)
+                return method;
+            method = getters.get(capitalized("is", name));
+            return method != null
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)?
+                    method: null;
+        }
+
+        boolean readable() {
+            return reader != null;
+        }
+
+        boolean writable() {
+            return writer != null;
+        }
+
+        /**
+         * Tells whether integral numbers can be written with {@link Property#setLong(Object, long)}: the property is
+         * read and written as a byte, short, int or long.
+         * @return true if integral numbers can be written without boxing.
+         */
+        boolean writesLong() {
+            return reader != null && writer != null && writer.writesLong() && reader.type() == writer.type();
+        }
+
+        /**
+         * Tells whether numbers can be written with {@link Property#setDouble(Object, double)}: the property is read
+         * and written as a double.
+         * @return true if numbers can be written as doubles without boxing.
+         */
+        boolean writesDouble() {
+            return reader != null && writer != null && writer.writesDouble() && reader.type() == writer.type();
+        }
+
+        /**
+         * Gets the type of the property, as read.
+         * @return the class of the field or of the value returned by the getter.
+         * @throws JSONReaderException if the property can't be read.
+         */
+        Class<?> type() throws JSONReaderException {
+            verifyReadable();
+            return reader.type();
+        }
+
+        /**
+         * Gets the generic type of the property, as read.
+         * @return the generic type of the field or of the value returned by the getter.
+         * @throws JSONReaderException if the property can't be read.
+         */
+        Type genericType() throws JSONReaderException {
+            verifyReadable();
+            return field != null? field.getGenericType(): getter.getGenericReturnType();
+        }
+
+        /**
+         * Gets the descriptor of the generic type of the property, as read, with the type variables of the class and
+         * its superclasses resolved as the class binds them (see {@link TypeDescriptor#member(Type)}). It is worked
+         * out on first use and kept.
+         * @return the descriptor of the type of the property.
+         * @throws JSONReaderException if the property can't be read.
+         */
+        TypeDescriptor descriptor() throws JSONReaderException {
+            TypeDescriptor typeDescriptor = this.typeDescriptor;
+            if(typeDescriptor == null)
+                this.typeDescriptor = typeDescriptor = descriptor.member(genericType());
+            return typeDescriptor;
+        }
+
+        /**
+         * Gets the type of the values written to the property.
+         * @return the class of the field or of the parameter of the setter.
+         * @throws JSONReaderException if the property can't be written.
+         */
+        Class<?> writeType() throws JSONReaderException {
+            verifyWritable();
+            return writer.type();
+        }
+
+        /**
+         * Reads the property.
+         * @param bean the instance to read it from.
+         * @return the value of the property.
+         * @throws JSONReaderException if the property can't be read.
+         */
+        Object get(Object bean) throws JSONReaderException {
+            verifyReadable();
+            try {
+                return reader.get(bean);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new JSONReaderException(notReadable());
+            }
+        }
+
+        /**
+         * Writes the property.
+         * @param bean the instance to write it to.
+         * @param value the new value of the property.
+         * @throws JSONReaderException if the property can't be written.
+         */
+        void set(Object bean, Object value) throws JSONReaderException {
+            verifyWritable();
+            try {
+                writer.set(bean, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new JSONReaderException(notWritable(), e);
+            }
+        }
+
+        /**
+         * Writes an integral number, without boxing it, to a property for which {@link Property#writesLong()} is true.
+         * @param bean the instance to write it to.
+         * @param value the number.
+         * @throws JSONReaderException if the number is out of the range of the property's type, or the property can't
+         * be written.
+         */
+        void setLong(Object bean, long value) throws JSONReaderException {
+            Class<?> type = writer.type();
+            if(type == int.class? value != (int)value: type == short.class? value != (short)value:
+                    type == byte.class && value != (byte)value)
+                throw new JSONReaderException("value \"" + value + "\" cannot be casted to type " + type.getName());
+            try {
+                writer.setLong(bean, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new JSONReaderException(notWritable(), e);
+            }
+        }
+
+        /**
+         * Writes a number, without boxing it, to a property for which {@link Property#writesDouble()} is true.
+         * @param bean the instance to write it to.
+         * @param value the number.
+         * @throws JSONReaderException if the property can't be written.
+         */
+        void setDouble(Object bean, double value) throws JSONReaderException {
+            try {
+                writer.setDouble(bean, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new JSONReaderException(notWritable(), e);
+            }
+        }
+
+        private void verifyReadable() throws JSONReaderException {
+            if(!readable())
+                throw new JSONReaderException(notReadable());
+        }
+
+        private void verifyWritable() throws JSONReaderException {
+            if(!writable())
+                throw new JSONReaderException(notWritable());
+        }
+
+        private String notReadable() {
+            return "neither a proper field or getter found to get object's property: " + name;
+        }
+
+        private String notWritable() {
+            return "error trying to set object's property: " + name;
+        }
+
+    }
+
+}
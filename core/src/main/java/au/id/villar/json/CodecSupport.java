@@ -0,0 +1,389 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Deque;
+
+/**
+ * Finds the {@link JSONCodec}s generated for classes marked with {@link CompiledJSON}, and holds the small pieces of
+ * conversion generated codecs are made of. Reading methods convert the current token of a {@link JSONReader} with the
+ * same rules used when binding through reflection; writing methods produce the same text {@link ObjectSerializer}
+ * does. Apart from {@link CodecSupport#find(Class)}, these methods are meant to be called by generated code only.
+ */
+public final class CodecSupport {
+
+    /** Appended to the name of a class (with '$' replaced by '_' for nested classes) to get its codec's name. */
+    public static final String CODEC_SUFFIX = "_JSONCodec";
+
+    private static final ClassValue<JSONCodec<?>> CODECS = new ClassValue<JSONCodec<?>>() {
+        @Override
+        protected JSONCodec<?> computeValue(Class<?> type) {
+            return loadCodec(type);
+        }
+    };
+
+    private CodecSupport() {
+    }
+
+    /**
+     * Gets the codec generated for a class. The codec is looked for once per class.
+     * @param clazz the class to convert.
+     * @param <T> the class to convert.
+     * @return the codec, or null if the class is not marked with {@link CompiledJSON} or its codec wasn't generated.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JSONCodec<T> find(Class<T> clazz) {
+        return (JSONCodec<T>)CODECS.get(clazz);
+    }
+
+    /* Same as find(Class), typed to write instances whose exact class is only known at runtime. */
+    @SuppressWarnings("unchecked")
+    static JSONCodec<Object> findForInstance(Class<?> clazz) {
+        return (JSONCodec<Object>)CODECS.get(clazz);
+    }
+
+    /**
+     * Gets the name of the codec generated for a class.
+     * @param className binary name of the class, as returned by {@link Class#getName()}.
+     * @return the binary name of its codec.
+     */
+    public static String codecName(String className) {
+        int simpleNameStart = className.lastIndexOf('.') + 1;
+        return className.substring(0, simpleNameStart) + className.substring(simpleNameStart).replace('$', '_')
+                + CODEC_SUFFIX;
+    }
+
+    private static JSONCodec<?> loadCodec(Class<?> type) {
+        if(!type.isAnnotationPresent(CompiledJSON.class))
+            return null;
+        String name = codecName(type.getName());
+        try {
+            Class<?> codecClass = Class.forName(name, true, type.getClassLoader());
+            return (JSONCodec<?>)codecClass.getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            // the annotation processor was not used, the reflective path is used instead
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("can't create codec " + name, e);
+        }
+    }
+
+    // --- writing ---
+
+    /**
+     * Registers an object about to be written, see {@link JSONCodec#write(Object, Writer, Deque)}.
+     * @param objectStack objects being written, or null if circular references are not checked.
+     * @param object the object about to be written.
+     * @throws RecursiveException if the object is already being written.
+     */
+    public static void enter(Deque<Object> objectStack, Object object) throws RecursiveException {
+        if(objectStack == null)
+            return;
+        for(Object item: objectStack)
+            if(item == object)
+                throw new RecursiveException();
+        objectStack.addFirst(object);
+    }
+
+    /**
+     * Unregisters the object last registered with {@link CodecSupport#enter(Deque, Object)}.
+     * @param objectStack objects being written, or null if circular references are not checked.
+     */
+    public static void exit(Deque<Object> objectStack) {
+        if(objectStack != null)
+            objectStack.removeFirst();
+    }
+
+    /**
+     * Writes a value whose class is only known at runtime (an instance of a subclass of the declared type), as
+     * {@link ObjectSerializer} does: through the codec of its class if it has one, otherwise through reflection.
+     * @param object the value.
+     * @param writer where the value is written.
+     * @param objectStack objects being written, or null if circular references are not checked.
+     * @throws RecursiveException if the object is already being written.
+     * @throws IOException if the writer fails.
+     */
+    public static void writeObject(Object object, Writer writer, Deque<Object> objectStack)
+            throws RecursiveException, IOException {
+        ObjectSerializer.writeToStream(object, writer, objectStack);
+    }
+
+    public static void writeLong(long value, Writer writer) throws IOException {
+        ObjectSerializer.writeToStream(value, writer);
+    }
+
+    public static void writeDouble(double value, Writer writer) throws IOException {
+        boolean notANumber = Double.isNaN(value) || Double.isInfinite(value);
+        if(notANumber) writer.write('"');
+        writer.write(Double.toString(value));
+        if(notANumber) writer.write('"');
+    }
+
+    public static void writeFloat(float value, Writer writer) throws IOException {
+        boolean notANumber = Float.isNaN(value) || Float.isInfinite(value);
+        if(notANumber) writer.write('"');
+        writer.write(Float.toString(value));
+        if(notANumber) writer.write('"');
+    }
+
+    public static void writeChar(char value, Writer writer) throws IOException {
+        if(needsEscaping(value)) {
+            writeString(String.valueOf(value), writer);
+        } else {
+            writer.write('"');
+            writer.write(value);
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Writes a string as a JSON string, escaping it if needed.
+     * @param value the string, or null to write a JSON null.
+     * @param writer where to write it to.
+     * @throws IOException if there is an error writing.
+     */
+    public static void writeString(String value, Writer writer) throws IOException {
+        if(value == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        int length = value.length();
+        int index = 0;
+        while(index < length && !needsEscaping(value.charAt(index)))
+            index++;
+        writer.write(index < length? ObjectSerializer.escapeString(value): value);
+        writer.write('"');
+    }
+
+    private static boolean needsEscaping(char ch) {
+        return ch < 32 || ch > 126 || ch == '"' || ch == '\\' || ch == '/';
+    }
+
+    // --- reading ---
+
+    /**
+     * Starts reading an object.
+     * @param reader the reader, positioned at the start of the value.
+     * @param type name of the class being read, for error messages.
+     * @return true if the value is an object, false if it is null.
+     * @throws JSONReaderException if the value is neither an object nor null.
+     */
+    public static boolean beginObject(JSONReader reader, String type) throws JSONReaderException {
+        return begin(reader, JSONReader.Token.START_OBJECT, type);
+    }
+
+    /**
+     * Moves to the next property of the object being read, whose name is then given by
+     * {@link JSONReader#currentName()}.
+     * @param reader the reader.
+     * @return false if the end of the object has been reached.
+     * @throws JSONReaderException if the input is not valid.
+     */
+    public static boolean nextProperty(JSONReader reader) throws JSONReaderException {
+        return next(reader) != JSONReader.Token.END_OBJECT;
+    }
+
+    /**
+     * Starts reading an array.
+     * @param reader the reader, positioned at the start of the value.
+     * @param type name of the type being read, for error messages.
+     * @return true if the value is an array, false if it is null.
+     * @throws JSONReaderException if the value is neither an array nor null.
+     */
+    public static boolean beginArray(JSONReader reader, String type) throws JSONReaderException {
+        return begin(reader, JSONReader.Token.START_ARRAY, type);
+    }
+
+    /**
+     * Moves to the next element of the array being read.
+     * @param reader the reader.
+     * @return false if the end of the array has been reached.
+     * @throws JSONReaderException if the input is not valid.
+     */
+    public static boolean nextElement(JSONReader reader) throws JSONReaderException {
+        return next(reader) != JSONReader.Token.END_ARRAY;
+    }
+
+    /**
+     * Creates the error for a property that can't be written.
+     * @param reader the reader, positioned at the value of the property.
+     * @return the exception to throw.
+     */
+    public static JSONReaderException notWritable(JSONReader reader) {
+        return new JSONReaderException("error trying to set object's property: " + reader.currentName());
+    }
+
+    public static boolean isNull(JSONReader reader) {
+        return reader.currentToken() == JSONReader.Token.NULL;
+    }
+
+    public static boolean readBoolean(JSONReader reader) throws JSONReaderException {
+        JSONReader.Token token = reader.currentToken();
+        boolean string = token == JSONReader.Token.STRING;
+        if(token == JSONReader.Token.TRUE || string && reader.getText().equalsIgnoreCase("true"))
+            return true;
+        if(token == JSONReader.Token.FALSE || string && reader.getText().equalsIgnoreCase("false"))
+            return false;
+        throw cannotCast(reader, "boolean");
+    }
+
+    public static byte readByte(JSONReader reader) throws JSONReaderException {
+        return (byte)readIntegral(reader, "byte", Byte.MIN_VALUE, Byte.MAX_VALUE);
+    }
+
+    public static short readShort(JSONReader reader) throws JSONReaderException {
+        return (short)readIntegral(reader, "short", Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    public static int readInt(JSONReader reader) throws JSONReaderException {
+        return (int)readIntegral(reader, "int", Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public static long readLong(JSONReader reader) throws JSONReaderException {
+        return readIntegral(reader, "long", Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public static float readFloat(JSONReader reader) throws JSONReaderException {
+        return readDecimal(reader, "float").floatValue();
+    }
+
+    public static double readDouble(JSONReader reader) throws JSONReaderException {
+        if(reader.currentToken() == JSONReader.Token.NUMBER)
+            return reader.getDouble();
+        return readDecimal(reader, "double").doubleValue();
+    }
+
+    public static char readChar(JSONReader reader) throws JSONReaderException {
+        JSONReader.Token token = reader.currentToken();
+        if(token == JSONReader.Token.STRING || token == JSONReader.Token.NUMBER) {
+            String text = reader.getText();
+            if(text.length() == 1)
+                return text.charAt(0);
+        }
+        throw cannotCast(reader, "char");
+    }
+
+    public static String readString(JSONReader reader) throws JSONReaderException {
+        switch(reader.currentToken()) {
+            case NULL: return null;
+            // numbers as the reflective path gives them: the text of their BigDecimal value (1E+3 for 1e3)
+            case NUMBER: return reader.currentDecimal().toString();
+            case STRING: case TRUE: case FALSE: return reader.getText();
+            default: throw cannotCast(reader, "java.lang.String");
+        }
+    }
+
+    public static BigInteger readBigInteger(JSONReader reader) throws JSONReaderException {
+        if(isNull(reader))
+            return null;
+        try {
+            return readDecimal(reader, "java.math.BigInteger").toBigIntegerExact();
+        } catch (ArithmeticException e) {
+            throw cannotCast(reader, "java.math.BigInteger");
+        }
+    }
+
+    public static BigDecimal readBigDecimal(JSONReader reader) throws JSONReaderException {
+        return isNull(reader)? null: readDecimal(reader, "java.math.BigDecimal");
+    }
+
+    /**
+     * Reads an enum constant, given either by its name or by its ordinal.
+     * @param reader the reader, positioned at the value.
+     * @param type the enum.
+     * @param constants the constants of the enum, in order.
+     * @param <E> the enum.
+     * @return the constant, or null if the value is null.
+     * @throws JSONReaderException if the value doesn't match a constant.
+     */
+    public static <E extends Enum<E>> E readEnum(JSONReader reader, Class<E> type, E[] constants)
+            throws JSONReaderException {
+        switch(reader.currentToken()) {
+            case NULL:
+                return null;
+            case STRING:
+                String name = reader.getText();
+                for(E constant: constants)
+                    if(constant.name().equals(name))
+                        return constant;
+                break;
+            case NUMBER:
+                return constants[(int)readIntegral(reader, type.getName(), 0, constants.length - 1)];
+        }
+        throw cannotCast(reader, type.getName());
+    }
+
+    private static boolean begin(JSONReader reader, JSONReader.Token start, String type) throws JSONReaderException {
+        JSONReader.Token token = reader.currentToken();
+        if(token == start)
+            return true;
+        if(token == JSONReader.Token.NULL)
+            return false;
+        if(token == null)
+            throw new JSONReaderException("unexpected end of input");
+        throw cannotCast(reader, type);
+    }
+
+    private static JSONReader.Token next(JSONReader reader) throws JSONReaderException {
+        JSONReader.Token token = reader.nextToken();
+        if(token == null)
+            throw new JSONReaderException("unexpected end of input");
+        return token;
+    }
+
+    private static long readIntegral(JSONReader reader, String type, long min, long max) throws JSONReaderException {
+        long value;
+        try {
+            value = reader.getLong();
+        } catch (JSONReaderException e) {
+            // not a plain integer, but numbers such as 1.0 or 1e3 (or given as strings) can still be converted
+            try {
+                value = readDecimal(reader, type).longValueExact();
+            } catch (ArithmeticException e1) {
+                throw cannotCast(reader, type);
+            }
+        }
+        if(value < min || value > max)
+            throw cannotCast(reader, type);
+        return value;
+    }
+
+    private static BigDecimal readDecimal(JSONReader reader, String type) throws JSONReaderException {
+        JSONReader.Token token = reader.currentToken();
+        if(token != JSONReader.Token.NUMBER && token != JSONReader.Token.STRING)
+            throw cannotCast(reader, type);
+        try {
+            return new BigDecimal(reader.getText());
+        } catch (NumberFormatException e) {
+            throw cannotCast(reader, type);
+        }
+    }
+
+    private static JSONReaderException cannotCast(JSONReader reader, String type) {
+        String text = reader.getText();
+        return new JSONReaderException("value \"" + (text != null? text: String.valueOf(reader.currentToken()))
+                + "\" cannot be casted to type " + type);
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a class whose conversion to and from JSON is compiled instead of worked out through reflection. When the
+ * annotation processor of the morgano-json-processor module is in the compiler's classpath, it generates for every
+ * class marked with this annotation a {@link JSONCodec} named after it (<code>Order_JSONCodec</code> for
+ * <code>Order</code>, <code>Outer_Inner_JSONCodec</code> for a nested class), which {@link ObjectSerializer} and
+ * {@link ObjectDeserializer} find and prefer automatically. Properties are the same as for the reflective path:
+ * public fields, getters and setters, leaving out what is marked with {@link TransientJSON} when writing. Without
+ * the processor, marked classes are simply converted through reflection.
+ * <p>{@link ObjectSerializer} uses a codec wherever an instance of a marked class is written. {@link ObjectDeserializer}
+ * uses it only when the marked class is the one asked for, e.g. <code>getFromReader(reader, Order.class)</code>:
+ * codecs pull tokens from the parser, while the reflective binding is fed its events, and can't hand the rest of the
+ * value over to them. Marked classes inside other types (a <code>List&lt;Order&gt;</code>, a property of a class not
+ * marked) are thus bound through reflection; properties of a marked class are read by their own codecs.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CompiledJSON {
+
+}
@@ -53,6 +53,9 @@ package au.id.villar.json;
  *     <li>simpleValue(null, "80")</li>
  *     <li>endArray()</li>
  * </ul>
+ * <p>Names are given in a StringBuilder that is reused for every field. Handlers that keep names can get them as
+ * canonical Strings, without allocating, from {@link JSONReader#currentName()} (or as integer ids from
+ * {@link JSONReader#currentSymbol()}) while the event is being handled.</p>
  */
 public interface ContentHandler {
 
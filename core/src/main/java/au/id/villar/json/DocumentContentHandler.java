@@ -0,0 +1,38 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+/**
+ * <p>Extension of {@link ContentHandler} for handlers that need to know where each document ends. It is mostly
+ * useful when reading several documents from the same input, either concatenated (see
+ * {@link JSONReader#setMultipleDocuments(boolean)} and {@link JSONReader#parseDocument()}) or one per line (see
+ * {@link JSONReader#parseLine()}), as the same handler receives the events of all of them.</p>
+ * <p>{@link DocumentContentHandler#endDocument()} is called right after the last event of every top-level value:
+ * after the {@link ContentHandler#endObject()} or {@link ContentHandler#endArray()} that closes it, or after its
+ * {@link ContentHandler#simpleValue(StringBuilder, StringBuilder, ValueType)} if it is a simple value.</p>
+ */
+public interface DocumentContentHandler extends ContentHandler {
+
+    /**
+     * Called by {@link JSONReader} when a top-level value has been completely read.
+     * @throws JSONReaderException
+     */
+    void endDocument() throws JSONReaderException;
+
+}
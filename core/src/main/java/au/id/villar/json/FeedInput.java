@@ -0,0 +1,130 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>{@link UTF8Input} fed with chunks of bytes as they become available. When the bytes of the current chunk run out
+ * and the end of the input has not been signaled, reading throws {@link FeedInput#UNDERFLOW} instead of blocking.</p>
+ * <p>Chunks are read in place. The reader marks the beginning of every token it starts to read, and the point reached
+ * in string values and numbers as they are read; when a chunk is released only the bytes from the last mark on are
+ * copied, so they can be read again once the next chunk arrives.</p>
+ */
+final class FeedInput extends UTF8Input {
+
+    /** Thrown when more bytes are needed to continue. It is shared and has no stack trace. */
+    static final IOException UNDERFLOW = new IOException("More input is needed") {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    };
+
+    private byte[] carry = new byte[64];
+    private int carryLength;
+    private byte[] chunk;
+    private ByteBuffer chunkBuffer;
+    private int chunkOffset;
+    private int chunkLength;
+    private int position;   // bytes [0, carryLength) are in carry, bytes after that are in the current chunk
+    private int mark;
+    private boolean ended;
+
+    void setChunk(byte[] chunk, int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > chunk.length)
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        this.chunk = chunk;
+        this.chunkBuffer = null;
+        this.chunkOffset = offset;
+        this.chunkLength = length;
+    }
+
+    void setChunk(ByteBuffer chunk) {
+        if(chunk.hasArray()) {
+            setChunk(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+        } else {
+            this.chunk = null;
+            this.chunkBuffer = chunk;
+            this.chunkOffset = chunk.position();
+            this.chunkLength = chunk.remaining();
+        }
+    }
+
+    void end() {
+        ended = true;
+    }
+
+    @Override
+    int nextByte() throws IOException {
+        if(position < carryLength)
+            return carry[position++] & 0xFF;
+        int index = position - carryLength;
+        if(index < chunkLength) {
+            position++;
+            return (chunk != null? chunk[chunkOffset + index]: chunkBuffer.get(chunkOffset + index)) & 0xFF;
+        }
+        if(ended)
+            return -1;
+        throw UNDERFLOW;
+    }
+
+    /** Marks the current position as the beginning of a token, or the point where a token is to be resumed. */
+    void mark() {
+        mark = position;
+    }
+
+    /** Goes back to the last mark. */
+    void rewind() {
+        position = mark;
+        resetDecoder();
+    }
+
+    /** Keeps the bytes from the mark on, so the current chunk can be given back to its owner. */
+    void releaseChunk() {
+        int total = carryLength + chunkLength;
+        int retained = total - mark;
+        if(retained > carry.length) {
+            byte[] newCarry = new byte[Math.max(retained, carry.length * 2)];
+            if(mark < carryLength)
+                System.arraycopy(carry, mark, newCarry, 0, carryLength - mark);
+            carry = newCarry;
+        } else if(mark < carryLength) {
+            System.arraycopy(carry, mark, carry, 0, carryLength - mark);
+        }
+        int fromChunk = Math.min(retained, chunkLength);
+        int chunkStart = chunkOffset + chunkLength - fromChunk;
+        if(chunk != null) {
+            System.arraycopy(chunk, chunkStart, carry, retained - fromChunk, fromChunk);
+        } else if(chunkBuffer != null) {
+            for(int index = 0; index < fromChunk; index++)
+                carry[retained - fromChunk + index] = chunkBuffer.get(chunkStart + index);
+        }
+        carryLength = retained;
+        position -= mark;
+        mark = 0;
+        chunk = null;
+        chunkBuffer = null;
+        chunkOffset = 0;
+        chunkLength = 0;
+    }
+
+}
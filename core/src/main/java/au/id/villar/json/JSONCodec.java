@@ -0,0 +1,53 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Deque;
+
+/**
+ * Converts instances of a class to and from JSON without reflection. Implementations are generated at compile time
+ * for classes marked with {@link CompiledJSON}, and are meant to be used through {@link ObjectSerializer} and
+ * {@link ObjectDeserializer} rather than directly. Implementations must be public, have a public constructor with no
+ * parameters and be thread safe.
+ * @param <T> the class converted.
+ */
+public interface JSONCodec<T> {
+
+    /**
+     * Writes an instance as a JSON object.
+     * @param object the instance to write, never null.
+     * @param writer where to write it to.
+     * @param objectStack objects being written that contain this one, to detect circular references (see
+     * {@link CodecSupport#enter(Deque, Object)}); null if they are not checked.
+     * @throws RecursiveException if a circular reference is found.
+     * @throws IOException if there is an error writing.
+     */
+    void write(T object, Writer writer, Deque<Object> objectStack) throws RecursiveException, IOException;
+
+    /**
+     * Reads an instance from the value the reader is positioned at, leaving the reader at its last token.
+     * @param reader a reader whose current token is the start of the value (see {@link JSONReader#currentToken()}).
+     * @return the instance read, or null if the value is a JSON null.
+     * @throws JSONReaderException if the value can't be converted or the input is not valid.
+     */
+    T read(JSONReader reader) throws JSONReaderException;
+
+}
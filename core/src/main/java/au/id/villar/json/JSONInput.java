@@ -0,0 +1,96 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+
+/**
+ * Source of characters for {@link JSONReader}. Implementations own their buffers and hand out one UTF-16 code unit
+ * at a time.
+ */
+abstract class JSONInput {
+
+    /** When not null, the input counts positions into it, see {@link JSONInput#countPosition()}. */
+    PositionCounter counter;
+
+    /**
+     * Runs inside string literals: they end at '"', '\\' and control characters, and for UTF-8 input also at non-ASCII
+     * characters.
+     */
+    static final int RUN_STRING = 0;
+
+    /**
+     * Runs outside string literals while skipping: they end at '"', brackets, braces and control characters, and for
+     * UTF-8 input also at non-ASCII characters.
+     */
+    static final int RUN_STRUCTURE = 1;
+
+    /**
+     * Reads the next character from the input.
+     * @return the next UTF-16 code unit, or -1 if the end of the input has been reached.
+     * @throws IOException if the underlying source fails or contains invalid data.
+     */
+    abstract int read() throws IOException;
+
+    /**
+     * Consumes in bulk the characters that {@link JSONInput#read()} would return next, up to the first one that ends a
+     * run of the given kind (which is left unread). Only characters already available are consumed, this method never
+     * blocks. Runs never contain line breaks. Implementations that can't do better than reading one character at a
+     * time keep this default, which consumes nothing.
+     * @param builder where the consumed characters are appended, or null if they are to be discarded.
+     * @param kind {@link JSONInput#RUN_STRING} or {@link JSONInput#RUN_STRUCTURE}.
+     * @return the number of characters consumed.
+     */
+    int readRun(StringBuilder builder, int kind) {
+        return 0;
+    }
+
+    /**
+     * Called right after the opening quote of a string literal. If the rest of the literal is already available, up
+     * to its closing quote, and it is a run of kind {@link JSONInput#RUN_STRING} (no escapes, nothing to decode), it
+     * is consumed (closing quote included) and a view of its content is returned. Otherwise nothing is consumed.
+     * @return a view, valid until the next call to any method of this input, or null.
+     */
+    CharSequence readPlainString() {
+        return null;
+    }
+
+    /**
+     * Tells whether this input can count positions by itself. If it can, once {@link JSONInput#counter} is set it
+     * counts the characters of every buffer it discards, and {@link JSONInput#countPosition()} can be called at any
+     * time to bring the counter up to date.
+     * @return true if this input can count positions.
+     */
+    boolean countsPositions() {
+        return false;
+    }
+
+    /** Counts into {@link JSONInput#counter} the characters consumed so far and not counted yet. */
+    void countPosition() {
+    }
+
+    /**
+     * Releases whatever this input holds besides the source given by the user, which is never closed. Called when the
+     * input is replaced, or when parsing stops because of an error.
+     */
+    void close() {
+    }
+
+}
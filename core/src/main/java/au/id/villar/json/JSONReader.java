@@ -0,0 +1,1476 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.util.concurrent.Executor;
+
+/**
+ * Object to parse JSON data from a {@link java.io.Reader}, or directly from UTF-8 encoded bytes given as a
+ * {@link java.io.InputStream}, a byte array, a {@link java.nio.ByteBuffer} or a memory mapped
+ * {@link java.nio.channels.FileChannel}. See {@link ContentHandler} and
+ * {@link ErrorHandler} for an example of how the input is processed.
+ */
+public class JSONReader {
+
+    /** Tokens returned by {@link JSONReader#nextToken()}. */
+    public enum Token {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        STRING,
+        NUMBER,
+        TRUE,
+        FALSE,
+        NULL
+    }
+
+    /** Result of feeding data to a JSONReader, see {@link JSONReader#feed(byte[], int, int)}. */
+    public enum Status {
+        /** All the data given so far has been processed and the document is not complete yet. */
+        NEED_MORE_INPUT,
+        /** The end of the input was signaled and the document was complete. */
+        FINISHED,
+        /** An error was found and reported to the {@link ErrorHandler}. */
+        ERROR
+    }
+
+    private static final int STATE_VALUE        = 0;    // a value (or the end of an array) is expected
+    private static final int STATE_OBJECT_START = 1;    // '{' was just read, a field name or '}' is expected
+    private static final int STATE_AFTER_VALUE  = 2;    // a value was just read, ',' or the end of its container next
+    private static final int STATE_END          = 3;
+    private static final int STATE_SKIP         = 4;    // inside an object or array that is being skipped
+
+    private static final int NO_CHAR = -2;
+    private static final int UNRESOLVED = -2;
+
+    private static final int NUMBER_LONG    = 0;    // integer that fits in a long
+    private static final int NUMBER_DOUBLE  = 1;    // decimal number whose value as a double is computed exactly
+    private static final int NUMBER_DECIMAL = 2;    // any other number whose significand fits in a long
+    private static final int NUMBER_TEXT    = 3;    // only the text of the number is available
+
+    private static final int PARTIAL_NONE   = 0;
+    private static final int PARTIAL_STRING = 1;    // a string value, in fieldValue up to the last character read
+    private static final int PARTIAL_NUMBER = 2;    // a number, in fieldValue and the number fields
+
+    private static final int MAX_EXPONENT = 100000;
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;  // larger buffers are not kept by reset()
+    private static final long MAX_EXACT_DOUBLE_INTEGER = 1L << 53;
+    private static final int MAX_EXACT_POWER_OF_TEN = 22;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private JSONInput input;
+    private ReaderInput readerInput;        // kept to reuse their buffers with the next Reader or InputStream
+    private ByteArrayInput streamInput;
+    private ContentHandler contentHandler;
+    private SelectiveContentHandler selectiveHandler;
+    private NumberContentHandler numberHandler;
+    private StringViewContentHandler stringViewHandler;
+    private DocumentContentHandler documentHandler;
+    private PathFilter filter;
+    private ErrorHandler errorHandler;
+
+    private StringBuilder charStack = new StringBuilder(10);
+    private StringBuilder fieldName = new StringBuilder(60);
+    private boolean fieldNameNull = true;
+    private int fieldSymbol = UNRESOLVED;
+    private SymbolTable symbols = new SymbolTable();
+    private StringBuilder fieldValue = new StringBuilder(60);
+    private CharSequence stringView;    // when not null, the value of the current string (instead of fieldValue)
+    private int state = STATE_VALUE;
+    private int pendingChar = NO_CHAR;
+    private Token currentToken;
+    private boolean lineMode;
+    private boolean multipleDocuments;
+    private boolean documentMode;
+
+    private boolean numberNegative;
+    private long numberSignificand;
+    private boolean numberOverflow;
+    private boolean numberDecimal;
+    private int numberFractionDigits;
+    private int numberExponent;
+    private boolean numberExponentNegative;
+    private int numberType;
+    private long numberLong;
+    private double numberDouble;
+    private int numberScale;
+
+    private FeedInput resumableInput;   // while reading a fed token, the input where it can be marked to resume
+    private int partialToken = PARTIAL_NONE;
+    private int partialLength;
+    private int partialNumberStatus;
+    private int partialLineNumber;
+    private int partialColumnNumber;
+    private int partialLastChar;
+
+    private int skipDepth;
+    private boolean skipInString;
+    private boolean skipEscaped;
+
+    private boolean lazyPositions;
+    private boolean trackPositions = true;     // false when the input counts positions by itself
+    private int lineNumber = 1;
+    private int columnNumber = 0;
+    private int lastChar = -1;
+
+    /**
+     * Get the current line number being parsed in the input.
+     * @return The current line number being parsed in the input.
+     */
+    public int getLineNumber() {
+        updatePosition();
+        return lineNumber;
+    }
+
+    /**
+     * Get the current column number being parsed in the input.
+     * @return The current column number being parsed in the input.
+     */
+    public int getColumnNumber() {
+        updatePosition();
+        return columnNumber;
+    }
+
+    /**
+     * <p>Chooses how the position (line and column numbers) in the input is kept. By default it is updated as every
+     * character is read. With lazy positions, only the input keeps track of how far it has gone; line and column
+     * numbers are worked out from the characters of its buffers, in bulk, when they are discarded or when the
+     * position is asked for (through {@link JSONReader#getLineNumber()}, {@link JSONReader#getColumnNumber()} or
+     * when building the message of an error). Positions and error messages are exactly the same in both modes.</p>
+     * <p>This applies to the inputs set from then on. Fed input ({@link JSONReader#feed(byte[], int, int)}) always
+     * keeps positions as it reads.</p>
+     * @param lazyPositions true to work out positions only when needed.
+     */
+    public void setLazyPositions(boolean lazyPositions) {
+        this.lazyPositions = lazyPositions;
+    }
+
+    /**
+     * Sets the {@link ContentHandler} used to handle the events generated when invoking {@link JSONReader#parse()} on
+     * this JSONReader. If the handler is a {@link SelectiveContentHandler}, objects and arrays it doesn't accept are
+     * skipped without generating events for them. If it is a {@link NumberContentHandler}, numbers are reported with
+     * their values whenever possible, and if it is a {@link StringViewContentHandler} strings are reported as views
+     * over the input buffer whenever possible. A {@link DocumentContentHandler} is also told where every document
+     * ends.
+     * @param contentHandler Handler that will handle events from this JSONReader.
+     */
+    public void setContentHandler(ContentHandler contentHandler) {
+        this.contentHandler = contentHandler;
+        this.selectiveHandler = contentHandler instanceof SelectiveContentHandler?
+                (SelectiveContentHandler)contentHandler: null;
+        this.numberHandler = contentHandler instanceof NumberContentHandler?
+                (NumberContentHandler)contentHandler: null;
+        this.stringViewHandler = contentHandler instanceof StringViewContentHandler?
+                (StringViewContentHandler)contentHandler: null;
+        this.documentHandler = contentHandler instanceof DocumentContentHandler?
+                (DocumentContentHandler)contentHandler: null;
+    }
+
+    /**
+     * <p>Allows the input to contain several JSON documents one after another, separated by whitespace or by nothing
+     * at all (for example <code>{"a": 1}{"a": 2} [3]</code>). By default anything but whitespace after the first
+     * value is an error. With multiple documents, {@link JSONReader#parse()}, {@link JSONReader#nextToken()} and
+     * {@link JSONReader#feed(byte[], int, int)} go on with the next document, keeping the same buffers; the end of
+     * each one is reported to a {@link DocumentContentHandler}.</p>
+     * <p>To handle one document at a time, use {@link JSONReader#parseDocument()} instead, which doesn't need this
+     * setting.</p>
+     * @param multipleDocuments true to read several documents from the same input.
+     */
+    public void setMultipleDocuments(boolean multipleDocuments) {
+        this.multipleDocuments = multipleDocuments;
+    }
+
+    /**
+     * <p>Restricts the events sent to the {@link ContentHandler} to the values found at the given paths. Paths are
+     * written in a subset of JSONPath: they start with <code>$</code> (the root value) followed by any number of
+     * <code>.name</code>, <code>['name']</code>, <code>[index]</code>, <code>.*</code> or <code>[*]</code> steps, for
+     * example <code>$.items[*].id</code> or <code>$.meta.version</code>.</p>
+     * <p>A selected value is reported with everything it contains, along with the start and end of the objects and
+     * arrays enclosing it, so the handler still sees a well formed (partial) document; elements of arrays that are not
+     * selected are left out, not replaced. Everything else is skipped without being tokenized, as with
+     * {@link SelectiveContentHandler}. The pull API ({@link JSONReader#nextToken()})
+     * is not affected by the paths.</p>
+     * @param paths paths of the values to report, or none to report the whole input again.
+     * @throws IllegalArgumentException if a path is not valid.
+     */
+    public void setPaths(String... paths) {
+        this.filter = paths != null && paths.length > 0? new PathFilter(paths): null;
+    }
+
+    /**
+     * Sets the table used to resolve field names to canonical Strings and ids (see
+     * {@link JSONReader#currentName()} and {@link JSONReader#currentSymbol()}). Every JSONReader starts with its own
+     * table, so setting one is only needed to share it, or to choose its size or content.
+     * @param symbols the symbol table, or null to go back to a new private one.
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols != null? symbols: new SymbolTable();
+        this.fieldSymbol = UNRESOLVED;
+    }
+
+    /**
+     * Gets the table used to resolve field names.
+     * @return the symbol table.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Sets the {@link ErrorHandler} used to handle the errors generated when invoking {@link JSONReader#parse()} on
+     * this JSONReader.
+     * @param errorHandler Handler that will handle errors from this JSONReader.
+     */
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Sets the input from where this JSONReader is going to read JSON data. The given {@link java.io.Reader input} is
+     * never closed.
+     * @param input input from where this JSONReader is going to read JSON data.
+     */
+    public void setInput(Reader input) {
+        if(input == null) {
+            replaceInput(null);
+        } else if(readerInput == null) {
+            replaceInput(readerInput = new ReaderInput(input));
+        } else {
+            replaceInput(null);
+            readerInput.reuse(input);
+            replaceInput(readerInput);
+        }
+    }
+
+    /**
+     * Sets the input from where this JSONReader is going to read UTF-8 encoded JSON data. Bytes are consumed without
+     * going through a charset decoder; only multi-byte sequences inside string literals are decoded. The given
+     * {@link java.io.InputStream input} is never closed.
+     * @param input input from where this JSONReader is going to read JSON data.
+     */
+    public void setInput(InputStream input) {
+        if(input == null) {
+            replaceInput(null);
+        } else if(streamInput == null) {
+            replaceInput(streamInput = new ByteArrayInput(input));
+        } else {
+            replaceInput(null);
+            streamInput.reuse(input);
+            replaceInput(streamInput);
+        }
+    }
+
+    /**
+     * <p>Same as {@link JSONReader#setInput(InputStream)}, but reading ahead: a background thread fills the next
+     * buffers from the stream while the current one is being parsed, so the time spent waiting for data, or
+     * decompressing it (e.g. in a {@link java.util.zip.GZIPInputStream}), overlaps with parsing instead of adding up
+     * to it. The buffers are allocated once and recycled.</p>
+     * <p>The background reading ends with the stream, when {@link JSONReader#parse()} stops because of an error, or
+     * when another input is set (setting one, even null, is the way to stop it when the rest of the input is not going
+     * to be read). A read from the stream already in progress is not interrupted: the background thread stops once it
+     * returns, and the stream itself is never closed.</p>
+     * @param input input from where this JSONReader is going to read JSON data.
+     * @param bufferSize size of each buffer, in bytes.
+     * @param buffers number of buffers (at least 2): one is being parsed while the others are filled or wait in line.
+     * @param executor runs the background reading (an executor of virtual threads, where available, is a good fit);
+     *                 if null, a new daemon thread is started.
+     */
+    public void setInput(InputStream input, int bufferSize, int buffers, Executor executor) {
+        replaceInput(input != null? new ReadAheadInput(input, bufferSize, buffers, executor): null);
+    }
+
+    /**
+     * Sets the input from where this JSONReader is going to read UTF-8 encoded JSON data. The given array is read in
+     * place, no copy of it is made.
+     * @param input array containing the JSON data.
+     * @param offset position in the array of the first byte to read.
+     * @param length number of bytes to read.
+     */
+    public void setInput(byte[] input, int offset, int length) {
+        replaceInput(input != null? new ByteArrayInput(input, offset, length): null);
+    }
+
+    /**
+     * Sets the input from where this JSONReader is going to read UTF-8 encoded JSON data. The remaining bytes of the
+     * given buffer are read in place, no copy of them is made, and its position is advanced as they are consumed.
+     * @param input buffer containing the JSON data.
+     */
+    public void setInput(ByteBuffer input) {
+        replaceInput(input != null? new ByteBufferInput(input): null);
+    }
+
+    /**
+     * Sets the input from where this JSONReader is going to read UTF-8 encoded JSON data. The file is read from the
+     * current position of the channel to its end through memory mapped windows of 64MB, so its content is parsed
+     * straight from the mapped pages, without being copied. The given {@link java.nio.channels.FileChannel channel}
+     * is never closed.
+     * @param input channel of the file containing the JSON data.
+     */
+    public void setInput(FileChannel input) {
+        setInput(input, MappedFileInput.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Same as {@link JSONReader#setInput(FileChannel)}, but specifying the size of the windows mapped in memory.
+     * @param input channel of the file containing the JSON data.
+     * @param windowSize maximum number of bytes mapped at any given time.
+     */
+    public void setInput(FileChannel input, int windowSize) {
+        replaceInput(input != null? new MappedFileInput(input, windowSize): null);
+    }
+
+    /**
+     * <p>Takes this JSONReader back to the state of a newly created one, so it can be used again for an unrelated
+     * input: the input is released (as when setting a null one), and handlers, paths and settings are cleared.
+     * Buffers are kept, so that reading the next input doesn't need to allocate them again, except those that grew
+     * beyond 16K characters with a long name or value, which are replaced by small ones; the symbol table is kept as
+     * well.</p>
+     * <p>See {@link JSONReaderPool} for a way to reuse JSONReaders across calls.</p>
+     */
+    public void reset() {
+        replaceInput(null);
+        setContentHandler(null);
+        errorHandler = null;
+        filter = null;
+        multipleDocuments = false;
+        lazyPositions = false;
+        if(fieldName.capacity() > MAX_RETAINED_CAPACITY)
+            fieldName = new StringBuilder(60);
+        if(fieldValue.capacity() > MAX_RETAINED_CAPACITY)
+            fieldValue = new StringBuilder(60);
+        if(charStack.capacity() > MAX_RETAINED_CAPACITY)
+            charStack = new StringBuilder(10);
+    }
+
+    /**
+     * Starts the process of parsing. It reads from the input (given through one of the setInput() methods) and
+     * calls methods in the given {@link ContentHandler} and {@link ErrorHandler} accordingly.
+     */
+    public void parse() {
+
+        verifyInputAndHandlersPresent();
+
+        try {
+            Token token;
+            while((token = readToken()) != null) {
+                fireEvent(token);
+            }
+        } catch (JSONReaderException e) {
+            input.close();
+            if(errorHandler != null) {
+                errorHandler.error(e);
+            }
+        } catch (IOException e) {
+            input.close();
+            if(errorHandler != null) {
+                errorHandler.error(new JSONReaderException(e));
+            }
+        }
+    }
+
+    /**
+     * <p>Parses the next line of newline-delimited JSON (NDJSON): a single value followed by the end of the line or
+     * of the input (a value can't span several lines). Empty lines are skipped. Events are sent to the
+     * {@link ContentHandler} as with {@link JSONReader#parse()}, so calling this method repeatedly processes a stream
+     * of records reusing this JSONReader and its buffers.</p>
+     * <p>An error in a line is reported to the {@link ErrorHandler} and the rest of that line is skipped, so the next
+     * call continues with the following record.</p>
+     * @return true if a line was processed (successfully or not), false if the end of the input has been reached.
+     */
+    public boolean parseLine() {
+
+        verifyInputAndHandlersPresent();
+
+        try {
+            int readChar;
+            do {
+                readChar = read();
+            } while(readChar == ' ' || readChar == '\n' || readChar == '\r' || readChar == '\t');
+            if(readChar == -1)
+                return false;
+            try {
+                lineMode = true;
+                fireEvent(currentToken = readValue(readChar));
+                while(charStack.length() > 0) {
+                    if(state == STATE_SKIP)
+                        skipContainer(null);
+                    else
+                        fireEvent(readToken());
+                }
+                readToEndOfLine();
+            } catch (JSONReaderException e) {
+                errorHandler.error(e);
+                skipRestOfLine();
+            } catch (CharacterCodingException e) {
+                errorHandler.error(new JSONReaderException(e));
+                skipRestOfLine();
+            } finally {
+                lineMode = false;
+                resetDocumentState();
+            }
+            return true;
+        } catch (IOException e) {
+            errorHandler.error(new JSONReaderException(e));
+            return false;
+        }
+    }
+
+    /**
+     * <p>Parses the next document of an input containing several of them, one after another (see
+     * {@link JSONReader#setMultipleDocuments(boolean)}): a single value, optionally preceded by whitespace. Events are
+     * sent to the {@link ContentHandler} as with {@link JSONReader#parse()}, but this method returns as soon as the
+     * value is complete, without reading further. Calling it repeatedly processes an unbounded stream of documents
+     * reusing this JSONReader and its buffers.</p>
+     * <p>As there is no way to tell where the next document starts after an invalid one, an error is reported to the
+     * {@link ErrorHandler} and ends the processing of the input: this and any later call return false.</p>
+     * @return true if a document was processed, false if the end of the input has been reached or an error was found.
+     */
+    public boolean parseDocument() {
+
+        verifyInputAndHandlersPresent();
+
+        if(state == STATE_END)
+            return false;
+        try {
+            int readChar = pendingChar == NO_CHAR? read(): pendingChar;
+            pendingChar = NO_CHAR;
+            while(readChar == ' ' || readChar == '\n' || readChar == '\r' || readChar == '\t')
+                readChar = read();
+            if(readChar == -1) {
+                state = STATE_END;
+                return false;
+            }
+            if(filter != null)
+                filter.reset();
+            documentMode = true;
+            fireEvent(currentToken = readValue(readChar));
+            while(charStack.length() > 0) {
+                if(state == STATE_SKIP)
+                    skipContainer(null);
+                else
+                    fireEvent(readToken());
+            }
+            state = STATE_VALUE;
+            return true;
+        } catch (JSONReaderException e) {
+            errorHandler.error(e);
+        } catch (IOException e) {
+            errorHandler.error(new JSONReaderException(e));
+        } finally {
+            documentMode = false;
+        }
+        state = STATE_END;
+        return false;
+    }
+
+    /**
+     * <p>Feeds a chunk of UTF-8 encoded JSON data to this JSONReader, for callers that receive the input piece by
+     * piece and can't block waiting for it (e.g. NIO servers). All the events that can be completed with the data
+     * given so far are sent to the {@link ContentHandler} before this method returns.</p>
+     * <p>The first call starts a new document, replacing any input previously set. The chunk is read in place; once
+     * this method returns, the array can be reused by the caller: only a token left incomplete at the end of the chunk
+     * is copied. String values and numbers are resumed where they were left, so one arriving in many small chunks is
+     * read only once; field names, literals and escape sequences are short and are read again from their start.</p>
+     * <p>Errors are reported to the {@link ErrorHandler}, just as with {@link JSONReader#parse()}.</p>
+     * @param chunk array containing the data.
+     * @param offset position in the array of the first byte of the data.
+     * @param length number of bytes of data.
+     * @return {@link Status#NEED_MORE_INPUT} if the data was processed and more is needed, or {@link Status#ERROR}
+     * if an error was found (the next call to a feed method starts a new document).
+     */
+    public Status feed(byte[] chunk, int offset, int length) {
+        verifyHandlersPresent();
+        feedInput().setChunk(chunk, offset, length);
+        return parseAvailable();
+    }
+
+    /**
+     * Same as {@link JSONReader#feed(byte[], int, int)} for a whole array.
+     * @param chunk array containing the data.
+     * @return {@link Status#NEED_MORE_INPUT} if the data was processed and more is needed, or {@link Status#ERROR}
+     * if an error was found.
+     */
+    public Status feed(byte[] chunk) {
+        return feed(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Same as {@link JSONReader#feed(byte[], int, int)} for the remaining bytes of a buffer. The position of the buffer
+     * is set to its limit, as all its bytes are consumed.
+     * @param chunk buffer containing the data.
+     * @return {@link Status#NEED_MORE_INPUT} if the data was processed and more is needed, or {@link Status#ERROR}
+     * if an error was found.
+     */
+    public Status feed(ByteBuffer chunk) {
+        verifyHandlersPresent();
+        feedInput().setChunk(chunk);
+        Status status = parseAvailable();
+        chunk.position(chunk.limit());
+        return status;
+    }
+
+    /**
+     * Signals that no more data will be fed (see {@link JSONReader#feed(byte[], int, int)}) and processes whatever is
+     * pending.
+     * @return {@link Status#FINISHED} if the document was complete, or {@link Status#ERROR} if an error was found.
+     */
+    public Status endOfInput() {
+        verifyHandlersPresent();
+        feedInput().end();
+        return parseAvailable();
+    }
+
+    /**
+     * <p>Reads the next token from the input. This is the pull alternative to {@link JSONReader#parse()}: instead of
+     * having the whole input processed in one go with events sent to a {@link ContentHandler}, the caller asks for one
+     * token at a time and can stop at any moment. No handlers need to be set to use this method.</p>
+     * <p>Tokens are the same as the events generated by {@link JSONReader#parse()}: the name of the field a value
+     * belongs to is not a token by itself but is available through {@link JSONReader#currentName()} while the value
+     * is the current token.</p>
+     * @return the next token, or null if the end of the input has been reached.
+     * @throws JSONReaderException if the input is not valid JSON or it can't be read.
+     */
+    public Token nextToken() throws JSONReaderException {
+        if(input == null)
+            throw new NullPointerException("An input has not been specified yet, set an input with setInput()");
+        try {
+            return readToken();
+        } catch (IOException e) {
+            throw new JSONReaderException(e);
+        }
+    }
+
+    /**
+     * Gets the token last returned by {@link JSONReader#nextToken()}.
+     * @return the current token, or null if no token has been read yet or the end of the input has been reached.
+     */
+    public Token currentToken() {
+        return currentToken;
+    }
+
+    /**
+     * Gets the name of the field whose value is the current token. Names are resolved through the
+     * {@link SymbolTable}, so the same canonical String is returned every time a name is found, without allocating.
+     * This can also be called from {@link ContentHandler} methods, to get the name of the value being reported.
+     * @return the name of the field if the current token is a value or the start of an object or array found inside
+     * an object; null otherwise.
+     */
+    public String currentName() {
+        if(fieldNameNull)
+            return null;
+        int symbol = currentSymbol();
+        return symbol != -1? symbols.symbol(symbol): fieldName.toString();
+    }
+
+    /**
+     * Gets the id in the {@link SymbolTable} of the name of the field whose value is the current token. As with
+     * {@link JSONReader#currentName()}, this can also be called from {@link ContentHandler} methods.
+     * @return the id of the name, or -1 if there is no name or it couldn't be added to the table (because it is full,
+     * sealed or the name is too long).
+     */
+    public int currentSymbol() {
+        if(fieldNameNull)
+            return -1;
+        if(fieldSymbol == UNRESOLVED)
+            fieldSymbol = symbols.resolve(fieldName);
+        return fieldSymbol;
+    }
+
+    /**
+     * Gets the text of the current token.
+     * @return the (unescaped) content of a string, the number exactly as found in the input, or the literal for
+     * {@link Token#TRUE}, {@link Token#FALSE} and {@link Token#NULL}; null for tokens delimiting objects and arrays.
+     */
+    public String getText() {
+        if(currentToken == null)
+            return null;
+        switch(currentToken) {
+            case STRING: return stringView != null? stringView.toString(): fieldValue.toString();
+            case NUMBER: return fieldValue.toString();
+            case TRUE: return "true";
+            case FALSE: return "false";
+            case NULL: return "null";
+            default: return null;
+        }
+    }
+
+    /**
+     * Gets the value of the current token as a long.
+     * @return the value of the current token.
+     * @throws JSONReaderException if the current token is not a {@link Token#NUMBER}, or it is not an integer that
+     * fits in a long.
+     */
+    public long getLong() throws JSONReaderException {
+        if(currentToken != Token.NUMBER)
+            throw new JSONReaderException("Current token is not a number: " + currentToken);
+        if(numberType == NUMBER_LONG)
+            return numberLong;
+        boolean negative = fieldValue.charAt(0) == '-';
+        long value = 0;
+        for(int index = negative? 1: 0; index < fieldValue.length(); index++) {
+            int digit = fieldValue.charAt(index) - '0';
+            if(digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10)
+                throw new JSONReaderException("Number can't be represented as a long: " + fieldValue);
+            value = value * 10 - digit;
+        }
+        if(!negative) {
+            if(value == Long.MIN_VALUE)
+                throw new JSONReaderException("Number can't be represented as a long: " + fieldValue);
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Gets the value of the current token as a double.
+     * @return the value of the current token, rounded to the nearest double.
+     * @throws JSONReaderException if the current token is not a {@link Token#NUMBER}.
+     */
+    public double getDouble() throws JSONReaderException {
+        if(currentToken != Token.NUMBER)
+            throw new JSONReaderException("Current token is not a number: " + currentToken);
+        switch(numberType) {
+            case NUMBER_LONG: return numberLong == 0 && numberNegative? -0.0: numberLong;
+            case NUMBER_DOUBLE: return numberDouble;
+            default: return Double.parseDouble(fieldValue.toString());
+        }
+    }
+
+    /* Exact value of the current number, equal to new BigDecimal(getText()) but built without going through text. */
+    BigDecimal currentDecimal() {
+        switch(numberType) {
+            case NUMBER_LONG: return BigDecimal.valueOf(numberLong);
+            case NUMBER_DOUBLE: case NUMBER_DECIMAL: return BigDecimal.valueOf(numberLong, numberScale);
+            default: return new BigDecimal(fieldValue.toString());
+        }
+    }
+
+    /**
+     * If the current token is {@link Token#START_OBJECT} or {@link Token#START_ARRAY}, reads until the matching
+     * {@link Token#END_OBJECT} or {@link Token#END_ARRAY}, which becomes the current token. Otherwise it does nothing.
+     * The skipped content is scanned only to find where it ends, without unescaping or validating it.
+     * @throws JSONReaderException if the end of the input is found before the end of the object or array, or the input
+     * can't be read.
+     */
+    public void skipChildren() throws JSONReaderException {
+        if(currentToken != Token.START_OBJECT && currentToken != Token.START_ARRAY)
+            return;
+        Token end = currentToken == Token.START_OBJECT? Token.END_OBJECT: Token.END_ARRAY;
+        startSkipping();
+        try {
+            skipContainer(null);
+        } catch (IOException e) {
+            throw new JSONReaderException(e);
+        }
+        currentToken = end;
+    }
+
+    private void startSkipping() {
+        state = STATE_SKIP;
+        skipDepth = 1;
+        skipInString = false;
+        skipEscaped = false;
+    }
+
+    // Consumes the rest of the object or array being skipped looking only at quotes, escapes and nesting. Progress is
+    // kept in fields, so when fed it is marked after every character and resumes from there when more data arrives.
+    private void skipContainer(FeedInput feedInput) throws IOException, JSONReaderException {
+        while(skipDepth > 0) {
+            int readChar = read();
+            if(skipInString) {
+                if(skipEscaped)
+                    skipEscaped = false;
+                else if(readChar == '"')
+                    skipInString = false;
+                else if(readChar == '\\')
+                    skipEscaped = true;
+            } else {
+                switch(readChar) {
+                    case '"': skipInString = true; break;
+                    case '{': case '[': skipDepth++; break;
+                    case '}': case ']': skipDepth--; break;
+                }
+            }
+            if(readChar == -1)
+                throw new JSONReaderException("Unexpected end of data at line " + getLineNumber()
+                        + ", column " + getColumnNumber());
+            if(readChar == '\n' && lineMode)
+                throw unexpectedEndOfLine();
+            if(skipDepth > 0 && !skipEscaped)
+                readRun(null, skipInString? JSONInput.RUN_STRING: JSONInput.RUN_STRUCTURE);
+            if(feedInput != null)
+                feedInput.mark();
+        }
+        charStack.delete(charStack.length() - 1, charStack.length());
+        fieldNameNull = true;
+        state = STATE_AFTER_VALUE;
+        if(documentHandler != null && charStack.length() == 0)
+            documentHandler.endDocument();
+    }
+
+    private void readToEndOfLine() throws IOException, JSONReaderException {
+        int readChar = pendingChar == NO_CHAR? read(): pendingChar;
+        while(readChar == ' ' || readChar == '\r' || readChar == '\t')
+            readChar = read();
+        if(readChar != '\n' && readChar != -1)
+            throw new JSONReaderException("Expected end of line, but still got a character: [" + (char)readChar
+                    + "], at line " + getLineNumber() + ", column " + getColumnNumber());
+    }
+
+    private JSONReaderException unexpectedEndOfLine() {
+        return new JSONReaderException("Unexpected end of line, at line " + (getLineNumber() - 1));
+    }
+
+    private void skipRestOfLine() throws IOException {
+        if(lastChar == '\n')
+            return;
+        int readChar;
+        do { readChar = read(); } while(readChar != '\n' && readChar != -1);
+    }
+
+    private FeedInput feedInput() {
+        if(!(input instanceof FeedInput))
+            replaceInput(new FeedInput());
+        return (FeedInput)input;
+    }
+
+    private Status parseAvailable() {
+        FeedInput feedInput = (FeedInput)input;
+        try {
+            while(true) {
+                if(state == STATE_SKIP) {
+                    feedInput.mark();
+                    try {
+                        skipContainer(feedInput);
+                    } catch (IOException e) {
+                        if(e != FeedInput.UNDERFLOW)
+                            throw e;
+                        feedInput.rewind();
+                        feedInput.releaseChunk();
+                        return Status.NEED_MORE_INPUT;
+                    }
+                }
+                int savedState = state;
+                int savedPendingChar = pendingChar;
+                int savedDepth = charStack.length();
+                char savedLast = savedDepth > 0? charStack.charAt(savedDepth - 1): 0;
+                int savedLineNumber = lineNumber;
+                int savedColumnNumber = columnNumber;
+                int savedLastChar = lastChar;
+                feedInput.mark();
+                Token token;
+                try {
+                    resumableInput = feedInput;
+                    token = partialToken != PARTIAL_NONE? resumeToken(): readToken();
+                    partialToken = PARTIAL_NONE;
+                } catch (IOException e) {
+                    if(e != FeedInput.UNDERFLOW)
+                        throw e;
+                    if(partialToken != PARTIAL_NONE) {
+                        // a string or number is incomplete, keep what has been read of it and wait for more data
+                        fieldValue.setLength(partialLength);
+                        lineNumber = partialLineNumber;
+                        columnNumber = partialColumnNumber;
+                        lastChar = partialLastChar;
+                    } else {
+                        // the token is incomplete, go back to where it started and wait for more data
+                        state = savedState;
+                        pendingChar = savedPendingChar;
+                        charStack.setLength(savedDepth);
+                        if(savedDepth > 0)
+                            charStack.setCharAt(savedDepth - 1, savedLast);
+                        lineNumber = savedLineNumber;
+                        columnNumber = savedColumnNumber;
+                        lastChar = savedLastChar;
+                    }
+                    feedInput.rewind();
+                    feedInput.releaseChunk();
+                    return Status.NEED_MORE_INPUT;
+                } finally {
+                    resumableInput = null;
+                }
+                if(token == null) {
+                    input = null;
+                    return Status.FINISHED;
+                }
+                fireEvent(token);
+            }
+        } catch (JSONReaderException e) {
+            input = null;
+            errorHandler.error(e);
+        } catch (IOException e) {
+            input = null;
+            errorHandler.error(new JSONReaderException(e));
+        }
+        return Status.ERROR;
+    }
+
+    // goes on with the string value or number left incomplete at the end of the previous chunk
+    private Token resumeToken() throws IOException, JSONReaderException {
+        if(partialToken == PARTIAL_STRING) {
+            readRestOfString(fieldValue);
+        } else {
+            pendingChar = readRestOfNumber(fieldValue, partialNumberStatus);
+            resolveNumber();
+        }
+        state = STATE_AFTER_VALUE;
+        return currentToken = partialToken == PARTIAL_STRING? Token.STRING: Token.NUMBER;
+    }
+
+    // records that the string value or number being read can be resumed from here if the current chunk runs out
+    private void markPartialToken(int kind, int numberStatus) {
+        if(!resumableInput.atCharacterBoundary())
+            return;
+        resumableInput.mark();
+        partialToken = kind;
+        partialLength = fieldValue.length();
+        partialNumberStatus = numberStatus;
+        partialLineNumber = lineNumber;
+        partialColumnNumber = columnNumber;
+        partialLastChar = lastChar;
+    }
+
+    private void fireEvent(Token token) throws JSONReaderException {
+        StringBuilder name = fieldNameNull? null: fieldName;
+        switch(token) {
+            case START_OBJECT:
+                if(acceptContainer(token, name))
+                    contentHandler.startObject(name);
+                break;
+            case END_OBJECT:
+                if(filter != null)
+                    filter.exit();
+                contentHandler.endObject();
+                break;
+            case START_ARRAY:
+                if(acceptContainer(token, name))
+                    contentHandler.startArray(name);
+                break;
+            case END_ARRAY:
+                if(filter != null)
+                    filter.exit();
+                contentHandler.endArray();
+                break;
+            case STRING:
+                if(!acceptValue(name))
+                    break;
+                if(stringViewHandler != null)
+                    stringViewHandler.stringValue(name, stringView != null? stringView: fieldValue);
+                else
+                    contentHandler.simpleValue(name, fieldValue, ContentHandler.ValueType.STRING);
+                break;
+            case NUMBER:
+                if(!acceptValue(name))
+                    break;
+                if(numberHandler != null && numberType == NUMBER_LONG)
+                    numberHandler.longValue(name, numberLong);
+                else if(numberHandler != null && numberType == NUMBER_DOUBLE)
+                    numberHandler.doubleValue(name, numberDouble);
+                else
+                    contentHandler.simpleValue(name, fieldValue, ContentHandler.ValueType.NUMBER);
+                break;
+            case TRUE:
+                if(acceptValue(name))
+                    contentHandler.simpleValue(name, null, ContentHandler.ValueType.TRUE);
+                break;
+            case FALSE:
+                if(acceptValue(name))
+                    contentHandler.simpleValue(name, null, ContentHandler.ValueType.FALSE);
+                break;
+            case NULL:
+                if(acceptValue(name))
+                    contentHandler.simpleValue(name, null, ContentHandler.ValueType.NULL);
+                break;
+        }
+        if(documentHandler != null && charStack.length() == 0)
+            documentHandler.endDocument();
+    }
+
+    private boolean acceptContainer(Token token, StringBuilder name) throws JSONReaderException {
+        int selection = filter != null? filter.select(name): PathFilter.MATCH;
+        if(selection == PathFilter.NONE || selectiveHandler != null && !(token == Token.START_OBJECT?
+                selectiveHandler.acceptObject(name): selectiveHandler.acceptArray(name))) {
+            startSkipping();
+            return false;
+        }
+        if(filter != null)
+            filter.enter(selection);
+        return true;
+    }
+
+    private boolean acceptValue(StringBuilder name) {
+        return filter == null || filter.select(name) == PathFilter.MATCH;
+    }
+
+    private Token readToken() throws IOException, JSONReaderException {
+        switch(state) {
+            case STATE_AFTER_VALUE:
+                int readChar = pendingChar;
+                pendingChar = NO_CHAR;
+                return currentToken = readToNextValue(readChar == NO_CHAR? read(): readChar);
+            case STATE_OBJECT_START:
+                if(!readFieldNameToNextValue()) {
+                    charStack.delete(charStack.length() - 1, charStack.length());
+                    return endToken(Token.END_OBJECT);
+                }
+                return currentToken = readValue(read());
+            case STATE_VALUE:
+                return currentToken = readValue(read());
+            case STATE_SKIP:
+                skipContainer(null);
+                return readToken();
+            default:
+                return currentToken = null;
+        }
+    }
+
+    private Token readValue(int readChar) throws IOException, JSONReaderException {
+        while(readChar == ' ' || readChar == '\n' || readChar == '\r' || readChar == '\t') {
+            if(readChar == '\n' && lineMode)
+                throw unexpectedEndOfLine();
+            readChar = read();
+        }
+
+        int lastCharPosition = charStack.length() - 1;
+        fieldNameNull = lastCharPosition < 0 || charStack.charAt(lastCharPosition) != '{';
+
+        switch(readChar) {
+            case -1:
+                if(lastCharPosition >= 0)
+                    throw new JSONReaderException(
+                            "Unexpected end of data at line " + getLineNumber() + ", column " + getColumnNumber());
+                state = STATE_END;
+                return null;
+            case '{':
+                charStack.append('{');
+                state = STATE_OBJECT_START;
+                return Token.START_OBJECT;
+            case '[':
+                charStack.append('[');
+                state = STATE_VALUE;
+                return Token.START_ARRAY;
+            case ']':
+                return readToNextValue(']');
+            case 'f':
+                verifyLiteral("false");
+                state = STATE_AFTER_VALUE;
+                return Token.FALSE;
+            case 't':
+                verifyLiteral("true");
+                state = STATE_AFTER_VALUE;
+                return Token.TRUE;
+            case 'n':
+                verifyLiteral("null");
+                state = STATE_AFTER_VALUE;
+                return Token.NULL;
+            case '"':
+                stringView = stringViewHandler != null? input.readPlainString(): null;
+                if(stringView != null) {
+                    columnNumber += stringView.length() + 1;
+                    lastChar = '"';
+                } else {
+                    fieldValue.delete(0, fieldValue.length());
+                    readRestOfString(fieldValue);
+                }
+                state = STATE_AFTER_VALUE;
+                return Token.STRING;
+            case '-': case '0': case '1': case '2': case '3': case '4':
+            case '5': case '6': case '7': case '8': case '9':
+                fieldValue.delete(0, fieldValue.length()).append((char)readChar);
+                pendingChar = readRestOfNumber(fieldValue, 0);
+                resolveNumber();
+                state = STATE_AFTER_VALUE;
+                return Token.NUMBER;
+            default:
+                throw new JSONReaderException(
+                        "Unexpected character: [" + (char)readChar + "], value expected, at line " + getLineNumber()
+                                + ", column " + getColumnNumber());
+        }
+    }
+
+    private Token endToken(Token token) {
+        fieldNameNull = true;
+        state = STATE_AFTER_VALUE;
+        return currentToken = token;
+    }
+
+    private void readRestOfString(StringBuilder builder) throws IOException, JSONReaderException {
+        int readChar = read();
+
+        stringLoop:
+        while(readChar != '"' && readChar > 31) {
+            if(readChar == '\\') {
+                readChar = read();
+                if(readChar < 32)
+                    break;
+                switch (readChar) {
+                    case '"': case '\\': case '/':  builder.append((char)readChar); break;
+                    case 'b':                       builder.append((char)8);        break;
+                    case 'f':                       builder.append((char)12);       break;
+                    case 'n':                       builder.append((char)10);       break;
+                    case 'r':                       builder.append((char)13);       break;
+                    case 't':                       builder.append((char)9);        break;
+                    case 'u':
+                        char hex = 0;
+                        for(int x = 0; x < 4; x++) {
+                            readChar = read();
+                            if(readChar < 32)
+                                break stringLoop;
+                            if(readChar >= '0' && readChar <= '9') {
+                                hex |= (readChar - 48) << (4 * (3 - x));
+                            } else if(readChar >= 'A' && readChar <= 'F') {
+                                hex |= (readChar - 55) << (4 * (3 - x));
+                            } else if(readChar >= 'a' && readChar <= 'f') {
+                                hex |= (readChar - 87) << (4 * (3 - x));
+                            } else {
+                                throw new JSONReaderException(
+                                        "Expected hexadecimal digit, found instead: [" + readChar + "], at line "
+                                                + getLineNumber() + ", column " + getColumnNumber());
+                            }
+                        }
+                        builder.append(hex);
+                        break;
+                    default:
+                        break stringLoop;
+                }
+            } else {
+                builder.append((char)readChar);
+                readRun(builder, JSONInput.RUN_STRING);
+            }
+            if(resumableInput != null && builder == fieldValue)
+                markPartialToken(PARTIAL_STRING, 0);
+            readChar = read();
+        }
+        if(readChar == -1)
+            throw new JSONReaderException("Unexpected end of data at line " + getLineNumber()
+                    + ", column " + getColumnNumber());
+        if(readChar < 32)
+            throw new JSONReaderException("Unexpected control character: [" + readChar + "] at line " + getLineNumber()
+                    + ", column " + getColumnNumber());
+        if(readChar != '"')
+            throw new JSONReaderException("Unexpected character: [" + (char)readChar + "] at line " + getLineNumber()
+                    + ", column " + getColumnNumber());
+    }
+
+    // status is 0 for a number whose first character is the only one in the builder, or the one kept to resume it
+    private int readRestOfNumber(StringBuilder builder, int status) throws IOException, JSONReaderException {
+        int readChar;
+
+        final int START_0       = 1, START_MINUS   = 2, START_1_9     = 3, DOT           = 4,
+                  FRACTION      = 5, E             = 6, EXPONENT_SIGN = 7, EXPONENT      = 8;
+
+        if(status == 0) {
+            readChar = builder.charAt(0);
+            numberNegative = readChar == '-';
+            numberSignificand = 0;
+            numberOverflow = false;
+            numberDecimal = false;
+            numberFractionDigits = 0;
+            numberExponent = 0;
+            numberExponentNegative = false;
+
+            switch(readChar) {
+                case '0': status = START_0; break;
+                case '-': status = START_MINUS; break;
+                case '1':case '2':case '3':case '4':case '5':
+                case '6':case '7':case '8':case '9': status = START_1_9; addDigit(readChar); break;
+                default: throw new JSONReaderException("unexpected character: [" + (char)readChar + "]");
+            }
+        }
+
+        while((readChar = read()) != -1) {
+            switch(status) {
+                case START_0:
+                    switch(readChar) {
+                        case '\r': return '\r';
+                        case '\n': return '\n';
+                        case '\t': return '\t';
+                        case ' ': return ' ';
+                        case ',': return ',';
+                        case '}': return '}';
+                        case ']': return ']';
+                        case '.': status = DOT; numberDecimal = true; break;
+                        case 'e': status = E; numberDecimal = true; break;
+                        case 'E': status = E; numberDecimal = true; break;
+                        default: return endOfNumber(readChar);
+                    }
+                    break;
+                case START_MINUS:
+                    switch(readChar) {
+                        case '0': status = START_0; break;
+                        case '1': case '2': case '3': case '4': case '5':
+                        case '6': case '7': case '8': case '9': status = START_1_9; addDigit(readChar); break;
+                        default: throw new JSONReaderException("Unexpected character: [" + (char)readChar + "] at line "
+                                + getLineNumber() + ", column " + getColumnNumber());
+                    }
+                    break;
+                case START_1_9:
+                    switch(readChar) {
+                        case '0': case '1': case '2': case '3': case '4':
+                        case '5': case '6': case '7': case '8': case '9': status = START_1_9; addDigit(readChar); break;
+                        case '\r': return '\r';
+                        case '\n': return '\n';
+                        case '\t': return '\t';
+                        case ' ': return ' ';
+                        case ',': return ',';
+                        case '}': return '}';
+                        case ']': return ']';
+                        case '.': status = DOT; numberDecimal = true; break;
+                        case 'e': status = E; numberDecimal = true; break;
+                        case 'E': status = E; numberDecimal = true; break;
+                        default: return endOfNumber(readChar);
+                    }
+                    break;
+                case DOT:
+                    if(readChar >= '0' && readChar <= '9') {
+                        status = FRACTION;
+                        addDigit(readChar);
+                        numberFractionDigits++;
+                    } else
+                        throw new JSONReaderException("Unexpected character: [" + (char)readChar + "], at line "
+                                + getLineNumber() + ", column " + getColumnNumber());
+                    break;
+                case FRACTION:
+                    switch(readChar) {
+                        case '\r': return '\r';
+                        case '\n': return '\n';
+                        case '\t': return '\t';
+                        case ' ': return ' ';
+                        case ',': return ',';
+                        case '}': return '}';
+                        case ']': return ']';
+                        case '0': case '1': case '2': case '3': case '4':
+                        case '5': case '6': case '7': case '8': case '9':
+                            status = FRACTION;
+                            addDigit(readChar);
+                            numberFractionDigits++;
+                            break;
+                        case 'e': status = E; break;
+                        case 'E': status = E; break;
+                        default: return endOfNumber(readChar);
+                    }
+                    break;
+                case E:
+                    switch(readChar) {
+                        case '+': status = EXPONENT_SIGN; break;
+                        case '-': status = EXPONENT_SIGN; numberExponentNegative = true; break;
+                        case '0': case '1': case '2': case '3': case '4':
+                        case '5': case '6': case '7': case '8': case '9':
+                            status = EXPONENT;
+                            addExponentDigit(readChar);
+                            break;
+                        default: throw new JSONReaderException("Unexpected character: [" + (char)readChar
+                                + "], at line " + getLineNumber() + ", column " + getColumnNumber());
+                    }
+                    break;
+                case EXPONENT_SIGN:
+                    if(readChar >= '0' && readChar <= '9') {
+                        status = EXPONENT;
+                        addExponentDigit(readChar);
+                    } else
+                        throw new JSONReaderException("Unexpected character: [" + (char)readChar
+                                + "], at line " + getLineNumber() + ", column " + getColumnNumber());
+                    break;
+                case EXPONENT:
+                    switch(readChar) {
+                        case '0': case '1': case '2': case '3': case '4':
+                        case '5': case '6': case '7': case '8': case '9':
+                            status = EXPONENT;
+                            addExponentDigit(readChar);
+                            break;
+                        case '\r': return '\r';
+                        case '\n': return '\n';
+                        case '\t': return '\t';
+                        case ' ': return ' ';
+                        case ',': return ',';
+                        case '}': return '}';
+                        case ']': return ']';
+                        default: return endOfNumber(readChar);
+                    }
+                    break;
+                default:
+                    throw new JSONReaderException("programming error parsing a number (debug this)");
+            }
+            builder.append((char)readChar);
+            if(resumableInput != null)
+                markPartialToken(PARTIAL_NUMBER, status);
+        }
+        return -1;
+    }
+
+    // a number ends with whitespace or with the end of its container; between concatenated documents it can also be
+    // followed right away by the start of the next one
+    private int endOfNumber(int readChar) throws JSONReaderException {
+        if((readChar == '{' || readChar == '[' || readChar == '"') && charStack.length() == 0
+                && (multipleDocuments || documentMode))
+            return readChar;
+        throw new JSONReaderException("Unexpected character: [" + (char)readChar + "], at line " + getLineNumber()
+                + ", column " + getColumnNumber());
+    }
+
+    // the significand is accumulated as a negative number, so Long.MIN_VALUE can be represented
+    private void addDigit(int digitChar) {
+        int digit = digitChar - '0';
+        if(numberOverflow || numberSignificand < (Long.MIN_VALUE + digit) / 10)
+            numberOverflow = true;
+        else
+            numberSignificand = numberSignificand * 10 - digit;
+    }
+
+    private void addExponentDigit(int digitChar) {
+        if(numberExponent < MAX_EXPONENT)
+            numberExponent = numberExponent * 10 + digitChar - '0';
+    }
+
+    /* Works out the value of the number just read, from what was accumulated while reading it. */
+    private void resolveNumber() {
+        numberType = NUMBER_TEXT;
+        if(numberOverflow || numberExponent >= MAX_EXPONENT || !numberNegative && numberSignificand == Long.MIN_VALUE)
+            return;
+        long unscaled = numberNegative? numberSignificand: -numberSignificand;
+        numberScale = numberFractionDigits - (numberExponentNegative? -numberExponent: numberExponent);
+        if(!numberDecimal) {
+            numberType = NUMBER_LONG;
+            numberLong = unscaled;
+        } else if(numberSignificand >= -MAX_EXACT_DOUBLE_INTEGER && numberScale >= -MAX_EXACT_POWER_OF_TEN
+                && numberScale <= MAX_EXACT_POWER_OF_TEN) {
+            // both the significand and the power of ten are exact doubles, so the result is correctly rounded
+            double value = -numberSignificand;
+            value = numberScale < 0? value * POWERS_OF_TEN[-numberScale]: value / POWERS_OF_TEN[numberScale];
+            numberType = NUMBER_DOUBLE;
+            numberLong = unscaled;
+            numberDouble = numberNegative? -value: value;
+        } else {
+            numberType = NUMBER_DECIMAL;
+            numberLong = unscaled;
+        }
+    }
+
+    private void verifyLiteral(String literal)
+            throws IOException, JSONReaderException {
+        for(int pos = 1; pos < literal.length(); pos++) {
+            char charAtPos = literal.charAt(pos);
+            int readChar = read();
+            if(readChar == -1)
+                throw new JSONReaderException(
+                        "Unexpected end of data, at line " + getLineNumber() + ", column " + getColumnNumber());
+            if(charAtPos != readChar)
+                throw new JSONReaderException("Unknown literal. Expected: \"" + literal + "\", at line "
+                        + getLineNumber() + ", column " + getColumnNumber());
+        }
+    }
+
+    // reads up to the beginning of the next value, or up to the end of the current object or array (in which case
+    // the corresponding token is returned)
+    private Token readToNextValue(int readChar) throws IOException, JSONReaderException {
+        char last;
+        int lastCharPosition = charStack.length() - 1;
+        while(true) {
+            switch(readChar) {
+                case '\n':
+                    if(lineMode)
+                        throw unexpectedEndOfLine();
+                    readChar = read();
+                    break;
+                case ' ': case '\r': case '\t':
+                    readChar = read();
+                    break;
+                case ',':
+                    if(lastCharPosition < 0) {
+                        throw new JSONReaderException("Expected end of data, but still got a character: [,], at line "
+                                + getLineNumber() + ", column " + getColumnNumber());
+                    }
+                    last = charStack.charAt(lastCharPosition);
+                    if(last == '{') {
+                        if(!readFieldNameToNextValue()) {
+                            readChar = '}';
+                            break;
+                        }
+                    }
+                    return readValue(read());
+                case '}':
+                    if(lastCharPosition < 0) {
+                        throw new JSONReaderException("Expected end of data, but still got a character: [}], at line "
+                                + getLineNumber() + ", column " + getColumnNumber());
+                    }
+                    last = charStack.charAt(lastCharPosition);
+                    charStack.delete(lastCharPosition, lastCharPosition + 1);
+                    if(last != '{')
+                        throw new JSONReaderException(
+                                "Expected [,] or \"]\", at line " + getLineNumber() + ", column " + getColumnNumber());
+                    return endToken(Token.END_OBJECT);
+                case ']':
+                    if(lastCharPosition < 0) {
+                        throw new JSONReaderException(
+                                "Expected end of data, but still got a character: \"]\", at line " + getLineNumber()
+                                + ", column " + getColumnNumber());
+                    }
+                    last = charStack.charAt(lastCharPosition);
+                    charStack.delete(lastCharPosition, lastCharPosition + 1);
+                    if(last != '[')
+                        throw new JSONReaderException(
+                                "Expected [,] or [}], at line " + getLineNumber() + ", column " + getColumnNumber());
+                    return endToken(Token.END_ARRAY);
+                case -1:
+                    if(lastCharPosition >= 0)
+                        throw new JSONReaderException(
+                                "Unexpected end of data at line " + getLineNumber() + ", column " + getColumnNumber());
+                    state = STATE_END;
+                    return null;
+                default:
+                    if(lastCharPosition < 0 && multipleDocuments) {
+                        if(filter != null)
+                            filter.reset();
+                        return readValue(readChar);
+                    }
+                    throw new JSONReaderException("Unexpected character: [" + (char)readChar + "], at line "
+                            + getLineNumber() + ", column " + getColumnNumber());
+            }
+        }
+    }
+
+    private boolean readFieldNameToNextValue() throws IOException, JSONReaderException {
+        int readChar = readSkippingWhites();
+        if(readChar == '}')
+            return false;
+        if(readChar != '"')
+            throw new JSONReaderException("expected: [\"], at line " + getLineNumber()
+                    + ", column " + getColumnNumber());
+        fieldName.delete(0, fieldName.length());
+        fieldSymbol = UNRESOLVED;
+        readRestOfString(fieldName);
+        readChar = readSkippingWhites();
+        if(readChar != ':')
+            throw new JSONReaderException("expected: [:], at line " + getLineNumber()
+                    + ", column " + getColumnNumber());
+        return true;
+    }
+
+    private int readSkippingWhites() throws IOException, JSONReaderException {
+        int readChar;
+        do {
+            readChar = read();
+            if(readChar == '\n' && lineMode)
+                throw unexpectedEndOfLine();
+        } while (readChar == ' ' || readChar == '\n' || readChar == '\r' || readChar == '\t');
+        if(readChar == -1)
+            throw new JSONReaderException("Unexpected end of data, at line " + getLineNumber()
+                    + ", column " + getColumnNumber());
+        return readChar;
+    }
+
+    private int read() throws IOException {
+
+        int read = input.read();
+        if(read == -1) return -1;
+
+        if(trackPositions) {
+            if(read == '\n' && lastChar != '\r' || read == '\r') {
+                lineNumber++;
+                columnNumber = 0;
+            } else {
+                columnNumber++;
+            }
+        }
+
+        lastChar = read;
+
+        return read;
+    }
+
+    // bulk version of read() for runs of characters that are neither line breaks nor otherwise relevant to the caller
+    private void readRun(StringBuilder builder, int kind) {
+        int count = input.readRun(builder, kind);
+        if(count > 0) {
+            columnNumber += count;
+            lastChar = -1;
+        }
+    }
+
+    private void replaceInput(JSONInput input) {
+        if(this.input != null) {
+            this.input.close();
+            if(this.input == readerInput)
+                readerInput.reuse(null);    // only the buffers are kept, not the user's source
+            else if(this.input == streamInput)
+                streamInput.reuse(null);
+        }
+        this.input = input;
+        resetState();
+    }
+
+    private void resetState() {
+        resetDocumentState();
+        lineNumber = 1;
+        columnNumber = 0;
+        lastChar = -1;
+        trackPositions = !lazyPositions || input == null || !input.countsPositions();
+        if(!trackPositions)
+            input.counter = new PositionCounter();
+    }
+
+    private void updatePosition() {
+        if(trackPositions || input == null)
+            return;
+        input.countPosition();
+        lineNumber = input.counter.getLine();
+        columnNumber = input.counter.getColumn();
+    }
+
+    private void resetDocumentState() {
+        charStack.delete(0, charStack.length());
+        fieldName.delete(0, fieldName.length());
+        fieldNameNull = true;
+        fieldSymbol = UNRESOLVED;
+        fieldValue.delete(0, fieldValue.length());
+        stringView = null;
+        partialToken = PARTIAL_NONE;
+        state = STATE_VALUE;
+        pendingChar = NO_CHAR;
+        currentToken = null;
+        if(filter != null)
+            filter.reset();
+    }
+
+    private void verifyInputAndHandlersPresent() {
+        if(input == null)
+            throw new NullPointerException("An input has not been specified yet, set an input with setInput()");
+        verifyHandlersPresent();
+    }
+
+    private void verifyHandlersPresent() {
+        if(contentHandler == null)
+            throw new NullPointerException(
+                    "A ContentHandler has not been specified yet, set a ContentHandler with setContentHandler()");
+        if(errorHandler == null)
+            throw new NullPointerException(
+                    "An ErrorHandler has not been specified yet, set an ErrorHandler with setErrorHandler()");
+
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>Keeps idle {@link JSONReader}s to be reused, so that parsing many small documents (e.g. one per request or
+ * message) doesn't allocate a new reader, with its buffers and symbol table, every time. Readers are taken with
+ * {@link JSONReaderPool#acquire()} and given back with {@link JSONReaderPool#release(JSONReader)}, which resets them
+ * (see {@link JSONReader#reset()}); a reader that is not given back is simply left to the garbage collector.</p>
+ * <p>On platform threads, each thread keeps one reader of its own, which is taken and given back without any
+ * synchronization. Virtual threads are usually too many and too short-lived for that, so they share a bounded number
+ * of readers, taken and given back without locking; when all of them are in use a new reader is created, and when the
+ * pool is full a reader given back is discarded. Instances of this class are thread safe.</p>
+ */
+public final class JSONReaderPool {
+
+    private static final MethodHandle IS_VIRTUAL = isVirtualMethod();
+
+    private final ThreadLocal<JSONReader[]> local = new ThreadLocal<JSONReader[]>() {
+        @Override
+        protected JSONReader[] initialValue() {
+            return new JSONReader[1];
+        }
+    };
+    private final AtomicReferenceArray<JSONReader> shared;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /** Creates a pool sharing up to twice the number of available processors readers among virtual threads. */
+    public JSONReaderPool() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates a pool.
+     * @param sharedReaders maximum number of idle readers kept for virtual threads.
+     */
+    public JSONReaderPool(int sharedReaders) {
+        if(sharedReaders <= 0)
+            throw new IllegalArgumentException("number of shared readers must be positive: " + sharedReaders);
+        this.shared = new AtomicReferenceArray<>(sharedReaders);
+    }
+
+    /**
+     * Takes an idle reader from the pool, or creates one if there is none. The reader is in the state of a newly
+     * created one.
+     * @return a reader to be used by the calling thread.
+     */
+    public JSONReader acquire() {
+        JSONReader reader;
+        if(isVirtual(Thread.currentThread())) {
+            int length = shared.length();
+            int start = cursor.get();
+            for(int index = 0; index < length; index++) {
+                int slot = (start + index) % length;
+                if(shared.get(slot) != null && (reader = shared.getAndSet(slot, null)) != null) {
+                    cursor.set(slot);
+                    return reader;
+                }
+            }
+        } else {
+            JSONReader[] holder = local.get();
+            reader = holder[0];
+            if(reader != null) {
+                holder[0] = null;
+                return reader;
+            }
+        }
+        return new JSONReader();
+    }
+
+    /**
+     * Resets a reader and gives it back to the pool. The reader must not be used after this call.
+     * @param reader a reader taken from this pool.
+     */
+    public void release(JSONReader reader) {
+        reader.reset();
+        if(isVirtual(Thread.currentThread())) {
+            int length = shared.length();
+            int start = cursor.get();
+            for(int index = 0; index < length; index++) {
+                int slot = (start + index) % length;
+                if(shared.get(slot) == null && shared.compareAndSet(slot, null, reader)) {
+                    cursor.set(slot);
+                    return;
+                }
+            }
+        } else {
+            JSONReader[] holder = local.get();
+            if(holder[0] == null)
+                holder[0] = reader;
+        }
+    }
+
+    // Thread.isVirtual() exists from Java 21 on; before that there are no virtual threads
+    private static boolean isVirtual(Thread thread) {
+        if(IS_VIRTUAL == null)
+            return false;
+        try {
+            return (boolean)IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle isVirtualMethod() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+                    MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,430 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Read-only view of a JSON object or array that keeps the raw (UTF-8 encoded) input instead of building a tree of
+ * maps, lists and values. Parsing only makes a structural pass over the input, recording where objects, arrays,
+ * commas and colons are (strings are skipped 8 bytes at a time). Values are decoded when they are accessed through
+ * {@link LazyDocument#get(String)} or {@link LazyDocument#get(int)}, and the result is kept so a value is decoded
+ * only once; nested objects and arrays are returned as LazyDocuments over the same input.</p>
+ * <p>Values are returned as with {@link ObjectDeserializer#getFromReader(Reader)}: Strings, BigDecimals, Booleans
+ * and null. The structure of the whole input is checked when it is parsed, but the content of strings, numbers and
+ * literals is only validated when they are decoded, so errors in them are reported by the accessor methods.</p>
+ * <p>A LazyDocument, and all those nested in it, are not thread safe.</p>
+ */
+public final class LazyDocument {
+
+    private static final Object UNREAD = new Object();
+
+    private final Source source;
+    private final int opening;      // index of the structural character opening this object or array
+    private int size = -1;          // -1 until the children are found
+    private int[] keyDelimiters;    // for objects, index of the structural character before every key
+    private int[] valueDelimiters;  // index of the structural character before every value
+    private int[] valueEnds;        // index of the structural character after every value
+    private Object[] values;
+
+    private LazyDocument(Source source, int opening) {
+        this.source = source;
+        this.opening = opening;
+    }
+
+    /**
+     * Parses UTF-8 encoded JSON data.
+     * @param json array containing the data; it is kept by the document and must not be modified.
+     * @param offset position in the array of the first byte of the data.
+     * @param length number of bytes of data.
+     * @return the top-level object or array.
+     * @throws JSONReaderException if the data is not a single object or array with its brackets balanced.
+     */
+    public static LazyDocument parse(byte[] json, int offset, int length) throws JSONReaderException {
+        return new LazyDocument(new Source(json, offset, offset + length), 0);
+    }
+
+    /**
+     * Same as {@link LazyDocument#parse(byte[], int, int)} for a whole array.
+     * @param json array containing the data; it is kept by the document and must not be modified.
+     * @return the top-level object or array.
+     * @throws JSONReaderException if the data is not a single object or array with its brackets balanced.
+     */
+    public static LazyDocument parse(byte[] json) throws JSONReaderException {
+        return parse(json, 0, json.length);
+    }
+
+    /**
+     * Same as {@link LazyDocument#parse(byte[], int, int)} for JSON text.
+     * @param json the JSON text.
+     * @return the top-level object or array.
+     * @throws JSONReaderException if the text is not a single object or array with its brackets balanced.
+     */
+    public static LazyDocument parse(String json) throws JSONReaderException {
+        return parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as {@link LazyDocument#parse(byte[], int, int)}, reading all the JSON text from a Reader.
+     * @param reader input containing the JSON text.
+     * @return the top-level object or array.
+     * @throws JSONReaderException if the text is not a single object or array with its brackets balanced, or it
+     * can't be read.
+     */
+    public static LazyDocument parse(Reader reader) throws JSONReaderException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            int read;
+            while((read = reader.read(buffer)) != -1)
+                builder.append(buffer, 0, read);
+        } catch (IOException e) {
+            throw new JSONReaderException(e);
+        }
+        return parse(builder.toString());
+    }
+
+    /**
+     * Same as {@link LazyDocument#parse(byte[], int, int)}, reading all the UTF-8 encoded data from a stream.
+     * @param stream input containing the JSON data.
+     * @return the top-level object or array.
+     * @throws JSONReaderException if the data is not a single object or array with its brackets balanced, or it
+     * can't be read.
+     */
+    public static LazyDocument parse(InputStream stream) throws JSONReaderException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while((read = stream.read(buffer)) != -1)
+                bytes.write(buffer, 0, read);
+        } catch (IOException e) {
+            throw new JSONReaderException(e);
+        }
+        return parse(bytes.toByteArray());
+    }
+
+    /**
+     * Tells whether this is an object.
+     * @return true for an object, false for an array.
+     */
+    public boolean isObject() {
+        return source.bytes[source.structurals[opening]] == '{';
+    }
+
+    /**
+     * Gets the number of fields of this object, or elements of this array.
+     * @return the number of fields or elements.
+     * @throws JSONReaderException if the content of this object or array is not well formed.
+     */
+    public int size() throws JSONReaderException {
+        findChildren();
+        return size;
+    }
+
+    /**
+     * Gets the value of a field of this object, decoding it if it hadn't been accessed before. If the field appears
+     * more than once, the value of the last one is returned.
+     * @param key name of the field.
+     * @return the value: a String, BigDecimal, Boolean, LazyDocument (for objects and arrays) or null; null is also
+     * returned if there is no such field, or if this is an array.
+     * @throws JSONReaderException if the value (or the content of this object) is not valid.
+     */
+    public Object get(String key) throws JSONReaderException {
+        int index = indexOf(key);
+        return index != -1? get(index): null;
+    }
+
+    /**
+     * Tells whether this object has a field.
+     * @param key name of the field.
+     * @return true if the field is found, false otherwise (always false for arrays).
+     * @throws JSONReaderException if the content of this object is not well formed.
+     */
+    public boolean has(String key) throws JSONReaderException {
+        return indexOf(key) != -1;
+    }
+
+    /**
+     * Gets an element of this array, or the value of a field of this object in the order the fields appear, decoding
+     * it if it hadn't been accessed before.
+     * @param index index of the element.
+     * @return the value: a String, BigDecimal, Boolean, LazyDocument (for objects and arrays) or null.
+     * @throws JSONReaderException if the value (or the content of this object or array) is not valid.
+     * @throws IndexOutOfBoundsException if there is no such element.
+     */
+    public Object get(int index) throws JSONReaderException {
+        findChildren();
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        Object value = values[index];
+        if(value == UNREAD) {
+            int[] structurals = source.structurals;
+            int start = source.skipWhitespace(structurals[valueDelimiters[index]] + 1);
+            byte first = source.bytes[start];
+            value = first == '{' || first == '['? new LazyDocument(source, valueDelimiters[index] + 1):
+                    source.decode(start, structurals[valueEnds[index]], false);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Gets the name of a field of this object.
+     * @param index index of the field, in the order they appear.
+     * @return the name of the field, or null if this is an array.
+     * @throws JSONReaderException if the name (or the content of this object) is not valid.
+     * @throws IndexOutOfBoundsException if there is no such field.
+     */
+    public String key(int index) throws JSONReaderException {
+        findChildren();
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        if(keyDelimiters == null)
+            return null;
+        int[] structurals = source.structurals;
+        return (String)source.decode(structurals[keyDelimiters[index]] + 1, structurals[valueDelimiters[index]], true);
+    }
+
+    /**
+     * Decodes this object or array completely, as {@link ObjectDeserializer#getFromReader(Reader)} does.
+     * @return a Map or a List with all the content.
+     * @throws JSONReaderException if the content is not valid.
+     */
+    public Object toObject() throws JSONReaderException {
+        int start = source.structurals[opening];
+        int end = source.structurals[source.matches[opening]] + 1;
+        return ObjectDeserializer.getFromStream(new ByteArrayInputStream(source.bytes, start, end - start));
+    }
+
+    /**
+     * Gets the JSON text of this object or array, exactly as found in the input.
+     * @return the JSON text.
+     */
+    @Override
+    public String toString() {
+        int start = source.structurals[opening];
+        int end = source.structurals[source.matches[opening]] + 1;
+        return new String(source.bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(String key) throws JSONReaderException {
+        findChildren();
+        if(keyDelimiters == null)
+            return -1;
+        byte[] wanted = key.getBytes(StandardCharsets.UTF_8);
+        for(int index = size - 1; index >= 0; index--)
+            if(keyEquals(index, key, wanted))
+                return index;
+        return -1;
+    }
+
+    // names without escapes are compared directly with the bytes of the input, without decoding them
+    private boolean keyEquals(int index, String key, byte[] wanted) throws JSONReaderException {
+        byte[] bytes = source.bytes;
+        int[] structurals = source.structurals;
+        int start = source.skipWhitespace(structurals[keyDelimiters[index]] + 1);
+        int end = structurals[valueDelimiters[index]];
+        while(end > start && isWhitespace(bytes[end - 1]))
+            end--;
+        if(end - start < 2 || bytes[start] != '"' || bytes[end - 1] != '"')
+            throw new JSONReaderException("Expected a field name at offset " + start);
+        start++;
+        end--;
+        for(int position = start; position < end; position++)
+            if(bytes[position] == '\\')
+                return key.equals(source.decode(start - 1, end + 1, true));
+        if(end - start != wanted.length)
+            return false;
+        for(int position = 0; position < wanted.length; position++)
+            if(bytes[start + position] != wanted[position])
+                return false;
+        return true;
+    }
+
+    private void findChildren() throws JSONReaderException {
+        if(size != -1)
+            return;
+        byte[] bytes = source.bytes;
+        int[] structurals = source.structurals;
+        int close = source.matches[opening];
+        boolean object = isObject();
+        int capacity = 8;
+        int[] keys = object? new int[capacity]: null;
+        int[] delimiters = new int[capacity];
+        int[] ends = new int[capacity];
+        int count = 0;
+        if(opening + 1 != close || source.skipWhitespace(structurals[opening] + 1) != structurals[close]) {
+            int index = opening + 1;
+            while(true) {
+                int delimiter = index - 1;
+                if(object) {
+                    if(bytes[structurals[index]] != ':')
+                        throw new JSONReaderException("Expected [:] after the field name at offset "
+                                + (structurals[delimiter] + 1));
+                    delimiter = index;
+                }
+                int next = delimiter + 1;
+                byte first = bytes[source.skipWhitespace(structurals[delimiter] + 1)];
+                if(first == '{' || first == '[')
+                    next = source.matches[next] + 1;
+                if(next != close && bytes[structurals[next]] != ',')
+                    throw new JSONReaderException("Unexpected character: [" + (char)bytes[structurals[next]]
+                            + "] at offset " + structurals[next]);
+                if(count == capacity) {
+                    capacity *= 2;
+                    if(object)
+                        keys = Arrays.copyOf(keys, capacity);
+                    delimiters = Arrays.copyOf(delimiters, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                }
+                if(object)
+                    keys[count] = index - 1;
+                delimiters[count] = delimiter;
+                ends[count++] = next;
+                if(next == close)
+                    break;
+                index = next + 1;
+            }
+        }
+        keyDelimiters = keys;
+        valueDelimiters = delimiters;
+        valueEnds = ends;
+        values = new Object[count];
+        Arrays.fill(values, UNREAD);
+        size = count;
+    }
+
+    private static boolean isWhitespace(int value) {
+        return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+    }
+
+    // the input and its structural index, shared by a document and all those nested in it
+    private static final class Source {
+
+        private final byte[] bytes;
+        private int[] structurals = new int[64];    // positions of brackets, commas and colons outside strings
+        private int[] matches = new int[64];        // for opening brackets, index of the closing one
+        private JSONReader reader;
+
+        Source(byte[] bytes, int start, int end) throws JSONReaderException {
+            this.bytes = bytes;
+            scan(start, end);
+        }
+
+        private void scan(int start, int end) throws JSONReaderException {
+            ByteBuffer words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            int[] stack = new int[16];
+            int depth = 0;
+            int count = 0;
+            for(int index = start; index < end; index++) {
+                int value = bytes[index] & 0xFF;
+                switch(value) {
+                    case '"':
+                        if(depth == 0)
+                            throw unexpected(value, index);
+                        index++;
+                        while(true) {
+                            index += Swar.runLength(words, index, end, JSONInput.RUN_STRING);
+                            if(index >= end)
+                                throw new JSONReaderException("Unexpected end of data inside a string");
+                            if(bytes[index] == '"')
+                                break;
+                            index += bytes[index] == '\\'? 2: 1;
+                        }
+                        break;
+                    case '{': case '[':
+                        if(depth == 0 && count > 0)
+                            throw unexpected(value, index);
+                        if(depth == stack.length)
+                            stack = Arrays.copyOf(stack, depth * 2);
+                        stack[depth++] = count;
+                        count = add(count, index);
+                        break;
+                    case '}': case ']':
+                        if(depth == 0 || bytes[structurals[stack[depth - 1]]] != (value == '}'? '{': '['))
+                            throw unexpected(value, index);
+                        matches[stack[--depth]] = count;
+                        count = add(count, index);
+                        break;
+                    case ',': case ':':
+                        if(depth == 0)
+                            throw unexpected(value, index);
+                        count = add(count, index);
+                        break;
+                    default:
+                        if(depth == 0 && !isWhitespace(value))
+                            throw unexpected(value, index);
+                }
+            }
+            if(count == 0 || depth > 0)
+                throw new JSONReaderException("Unexpected end of data, expected an object or an array");
+        }
+
+        private int add(int count, int position) {
+            if(count == structurals.length) {
+                structurals = Arrays.copyOf(structurals, count * 2);
+                matches = Arrays.copyOf(matches, count * 2);
+            }
+            structurals[count] = position;
+            return count + 1;
+        }
+
+        int skipWhitespace(int position) {
+            while(isWhitespace(bytes[position]))
+                position++;
+            return position;
+        }
+
+        Object decode(int start, int end, boolean name) throws JSONReaderException {
+            if(reader == null)
+                reader = new JSONReader();
+            reader.setInput(bytes, start, end - start);
+            JSONReader.Token token = reader.nextToken();
+            Object value;
+            if(token == null)
+                throw new JSONReaderException("Expected a value at offset " + start);
+            switch(token) {
+                case STRING: value = reader.getText(); break;
+                case NUMBER: value = reader.currentDecimal(); break;
+                case TRUE: value = Boolean.TRUE; break;
+                case FALSE: value = Boolean.FALSE; break;
+                case NULL: value = null; break;
+                default: throw new JSONReaderException("Expected a simple value at offset " + start);
+            }
+            if(name && token != JSONReader.Token.STRING)
+                throw new JSONReaderException("Expected a field name at offset " + start);
+            reader.nextToken();
+            return value;
+        }
+
+        private static JSONReaderException unexpected(int value, int position) {
+            return new JSONReaderException("Unexpected character: [" + (char)value + "] at offset " + position);
+        }
+    }
+
+}
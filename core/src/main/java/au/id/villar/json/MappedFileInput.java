@@ -0,0 +1,116 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link UTF8Input} reading a file through memory mapped windows. Only one window is mapped at a time; when it is
+ * exhausted the next one is mapped, so files bigger than what a single {@link java.nio.MappedByteBuffer} can address
+ * are read as well. Reading starts at the current position of the channel and ends at its size as it was when the
+ * first window was mapped.
+ */
+final class MappedFileInput extends UTF8Input {
+
+    static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int windowSize;
+    private long nextWindowPosition = -1;
+    private long end;
+    private MappedByteBuffer window;
+    private final AsciiSlice slice = new AsciiSlice();
+    private int countedIndex;
+
+    MappedFileInput(FileChannel channel, int windowSize) {
+        if(windowSize <= 0)
+            throw new IllegalArgumentException("window size must be positive: " + windowSize);
+        this.channel = channel;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    int nextByte() throws IOException {
+        if(window == null || !window.hasRemaining()) {
+            if(!mapNextWindow()) return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    boolean countsPositions() {
+        return true;
+    }
+
+    @Override
+    void countConsumedBytes() {
+        if(window == null)
+            return;
+        counter.countUTF8(window, countedIndex, window.position());
+        countedIndex = window.position();
+    }
+
+    @Override
+    int readByteRun(StringBuilder builder, int kind) {
+        if(window == null)
+            return 0;
+        int position = window.position();
+        int length = Swar.runLength(window, position, window.limit(), kind);
+        if(builder != null)
+            for(int index = position; index < position + length; index++)
+                builder.append((char)window.get(index));
+        window.position(position + length);
+        return length;
+    }
+
+    @Override
+    CharSequence readAsciiString() {
+        if(window == null)
+            return null;
+        int position = window.position();
+        int length = Swar.runLength(window, position, window.limit(), RUN_STRING);
+        int end = position + length;
+        if(end >= window.limit() || window.get(end) != '"')
+            return null;
+        window.position(end + 1);
+        return slice.reset(window, position, length);
+    }
+
+    private boolean mapNextWindow() throws IOException {
+        if(nextWindowPosition == -1) {
+            nextWindowPosition = channel.position();
+            end = channel.size();
+        }
+        if(nextWindowPosition >= end)
+            return false;
+        if(counter != null && window != null)
+            counter.countUTF8(window, countedIndex, window.limit());
+        countedIndex = 0;
+        long length = Math.min(windowSize, end - nextWindowPosition);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, nextWindowPosition, length);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        nextWindowPosition += length;
+        return true;
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+/**
+ * <p>Extension of {@link ContentHandler} for handlers that want numbers as values instead of text. The value is
+ * computed by {@link JSONReader} as the digits are read, so no intermediate String or re-parsing is needed.</p>
+ * <p>Integers that fit in a long are reported through {@link NumberContentHandler#longValue(StringBuilder, long)};
+ * other numbers whose value as a double can be computed exactly (a significand of up to 2<sup>53</sup> and a
+ * power of ten of up to 10<sup>22</sup>) through {@link NumberContentHandler#doubleValue(StringBuilder, double)}.
+ * Any other number (too big, or with too much precision) is still reported as text through
+ * {@link ContentHandler#simpleValue(StringBuilder, StringBuilder, ValueType)} with {@link ValueType#NUMBER}.</p>
+ */
+public interface NumberContentHandler extends ContentHandler {
+
+    /**
+     * Called by {@link JSONReader} when an integer number that fits in a long is read.
+     * @param name name of the field whose value is this number if this is inside an object; otherwise is null.
+     * @param value the number.
+     * @throws JSONReaderException
+     */
+    void longValue(StringBuilder name, long value) throws JSONReaderException;
+
+    /**
+     * Called by {@link JSONReader} when a number with fraction or exponent is read and its value as a double is
+     * exact (correctly rounded).
+     * @param name name of the field whose value is this number if this is inside an object; otherwise is null.
+     * @param value the number.
+     * @throws JSONReaderException
+     */
+    void doubleValue(StringBuilder name, double value) throws JSONReaderException;
+
+}
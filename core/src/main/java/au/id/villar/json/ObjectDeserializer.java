@@ -0,0 +1,1592 @@
+/*
+Copyright (c) 2012 Rafael Villar Villar
+
+This file is part of Morgano-json.
+
+Morgano-json is free software: you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the Free
+Software Foundation, either version 3 of the License, or any later version.
+
+Morgano-json is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public License
+along with Morgano-json.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class ObjectDeserializer {
+
+	private static final JSONReaderPool PARSERS = new JSONReaderPool();
+	private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS = new ClassValue<Enum<?>[]>() {
+		@Override
+		protected Enum<?>[] computeValue(Class<?> type) {
+			return (Enum<?>[])type.getEnumConstants();
+		}
+	};
+
+	public static Object getFromReader(Reader reader) throws JSONReaderException {
+		return internalGetFromReader(reader, null);
+	}
+
+	public static <T> T getFromReader(Reader reader, Class<T> clazz) throws JSONReaderException {
+		return bind(pooledParser(reader), clazz);
+	}
+
+	public static void mergeFromReader(Reader reader, Object object) throws JSONReaderException {
+		if(object == null)
+			throw new NullPointerException();
+		internalGetFromReader(reader, object);
+	}
+
+	public static Object getFromStream(InputStream stream) throws JSONReaderException {
+		return internalGet(pooledParser(stream), (Object)null);
+	}
+
+	public static <T> T getFromStream(InputStream stream, Class<T> clazz) throws JSONReaderException {
+		return bind(pooledParser(stream), clazz);
+	}
+
+	public static void mergeFromStream(InputStream stream, Object object) throws JSONReaderException {
+		if(object == null)
+			throw new NullPointerException();
+		internalGet(pooledParser(stream), object);
+	}
+
+	public static Object getFromFile(Path path) throws JSONReaderException {
+		return getFromFile(path, null);
+	}
+
+	public static <T> T getFromFile(Path path, Class<T> clazz) throws JSONReaderException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return getFromFile(channel, clazz);
+		} catch (IOException e) {
+			throw new JSONReaderException(e);
+		}
+	}
+
+	public static void mergeFromFile(Path path, Object object) throws JSONReaderException {
+		if(object == null)
+			throw new NullPointerException();
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			internalGet(pooledParser(channel), object);
+		} catch (IOException e) {
+			throw new JSONReaderException(e);
+		}
+	}
+
+	public static Object getFromFile(FileChannel channel) throws JSONReaderException {
+		return internalGet(pooledParser(channel), (Object)null);
+	}
+
+	public static <T> T getFromFile(FileChannel channel, Class<T> clazz) throws JSONReaderException {
+		return bind(pooledParser(channel), clazz);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getFromReader(Reader, Class)}, for a generic type given by a type token, e.g.
+	 * <code>getGenericFromReader(reader, new TypeToken&lt;List&lt;Order&gt;&gt;() {})</code>. The type arguments (and those
+	 * the classes involved give to their superclasses) are followed all the way down, so lists, maps and arrays of
+	 * generic types are bound to their declared element types.
+	 * @param reader input containing the JSON data.
+	 * @param type type of the result.
+	 * @param <T> type of the result.
+	 * @return the result.
+	 * @throws JSONReaderException if the input is not valid, can't be read or can't be bound to the type.
+	 */
+	public static <T> T getGenericFromReader(Reader reader, TypeToken<T> type) throws JSONReaderException {
+		return internalGet(pooledParser(reader), type);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getGenericFromReader(Reader, TypeToken)}, reading UTF-8 encoded data from a stream.
+	 * @param stream input containing the JSON data.
+	 * @param type type of the result.
+	 * @param <T> type of the result.
+	 * @return the result.
+	 * @throws JSONReaderException if the input is not valid, can't be read or can't be bound to the type.
+	 */
+	public static <T> T getGenericFromStream(InputStream stream, TypeToken<T> type) throws JSONReaderException {
+		return internalGet(pooledParser(stream), type);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getGenericFromReader(Reader, TypeToken)}, reading UTF-8 encoded data from a file.
+	 * @param path the file containing the JSON data.
+	 * @param type type of the result.
+	 * @param <T> type of the result.
+	 * @return the result.
+	 * @throws JSONReaderException if the input is not valid, can't be read or can't be bound to the type.
+	 */
+	public static <T> T getGenericFromFile(Path path, TypeToken<T> type) throws JSONReaderException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return internalGet(pooledParser(channel), type);
+		} catch (IOException e) {
+			throw new JSONReaderException(e);
+		}
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getFromReader(Reader, Class)}, but only the values found at the given paths
+	 * (see {@link JSONReader#setPaths(String...)}) are read; everything else in the input is skipped, so the memory
+	 * used depends on the selected data, not on the size of the input.
+	 * @param reader input containing the JSON data.
+	 * @param clazz type of the result, or null to get maps, lists and simple values.
+	 * @param paths paths of the values to read, e.g. <code>$.items[*].id</code>.
+	 * @param <T> type of the result.
+	 * @return a partial object containing only the selected values.
+	 * @throws JSONReaderException if the input is not valid or can't be read.
+	 */
+	public static <T> T getFromReader(Reader reader, Class<T> clazz, String... paths) throws JSONReaderException {
+		return internalGet(withPaths(pooledParser(reader), paths), clazz);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getFromReader(Reader, Class, String...)}, reading UTF-8 encoded data from a
+	 * stream.
+	 * @param stream input containing the JSON data.
+	 * @param clazz type of the result, or null to get maps, lists and simple values.
+	 * @param paths paths of the values to read.
+	 * @param <T> type of the result.
+	 * @return a partial object containing only the selected values.
+	 * @throws JSONReaderException if the input is not valid or can't be read.
+	 */
+	public static <T> T getFromStream(InputStream stream, Class<T> clazz, String... paths) throws JSONReaderException {
+		return internalGet(withPaths(pooledParser(stream), paths), clazz);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getFromReader(Reader, Class, String...)}, reading a UTF-8 encoded file.
+	 * @param path file containing the JSON data.
+	 * @param clazz type of the result, or null to get maps, lists and simple values.
+	 * @param paths paths of the values to read.
+	 * @param <T> type of the result.
+	 * @return a partial object containing only the selected values.
+	 * @throws JSONReaderException if the input is not valid or can't be read.
+	 */
+	public static <T> T getFromFile(Path path, Class<T> clazz, String... paths) throws JSONReaderException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return internalGet(withPaths(pooledParser(channel), paths), clazz);
+		} catch (IOException e) {
+			throw new JSONReaderException(e);
+		}
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getFromReader(Reader)}, but the result is kept in a compact form (see
+	 * {@link TapeDocument}) and the maps and lists returned are read-only views over it. Meant for data that is kept
+	 * in memory for a long time, as it uses a fraction of the memory of the usual maps and lists.
+	 * @param reader input containing the JSON data.
+	 * @return a read-only Map or List, or a simple value.
+	 * @throws JSONReaderException if the input is not valid or can't be read.
+	 */
+	public static Object getCompactFromReader(Reader reader) throws JSONReaderException {
+		return TapeDocument.parse(reader).getRoot();
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getCompactFromReader(Reader)}, reading UTF-8 encoded data from a stream.
+	 * @param stream input containing the JSON data.
+	 * @return a read-only Map or List, or a simple value.
+	 * @throws JSONReaderException if the input is not valid or can't be read.
+	 */
+	public static Object getCompactFromStream(InputStream stream) throws JSONReaderException {
+		return TapeDocument.parse(stream).getRoot();
+	}
+
+	/**
+	 * Reads a single element of the top-level array (or the value of a field of the top-level object) of a file,
+	 * seeking it through an index instead of parsing everything before it.
+	 * @param channel channel of the indexed file; its position is changed.
+	 * @param index index of the file (see {@link OffsetIndex}).
+	 * @param element index of the element.
+	 * @param clazz type of the element, or null to get maps, lists and simple values.
+	 * @param <T> type of the element.
+	 * @return the element.
+	 * @throws JSONReaderException if the element is not valid or can't be read.
+	 * @throws IndexOutOfBoundsException if there is no such element in the index.
+	 */
+	public static <T> T getElement(FileChannel channel, OffsetIndex index, int element, Class<T> clazz)
+			throws JSONReaderException {
+		return getElements(channel, index, element, element + 1, clazz).get(0);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#getElement(FileChannel, OffsetIndex, int, Class)} for a range of elements.
+	 * @param channel channel of the indexed file; its position is changed.
+	 * @param index index of the file (see {@link OffsetIndex}).
+	 * @param from index of the first element (inclusive).
+	 * @param to index of the last element (exclusive).
+	 * @param clazz type of the elements, or null to get maps, lists and simple values.
+	 * @param <T> type of the elements.
+	 * @return the elements, in order.
+	 * @throws JSONReaderException if an element is not valid or can't be read.
+	 * @throws IndexOutOfBoundsException if the range is not within the index.
+	 */
+	public static <T> List<T> getElements(FileChannel channel, OffsetIndex index, int from, int to, Class<T> clazz)
+			throws JSONReaderException {
+		if(from < 0 || to > index.size() || from > to)
+			throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", size " + index.size());
+		JSONReader parser = new JSONReader();
+		ErrorKeeper errors = new ErrorKeeper();
+		Records<T> records = new Records<>(parser, clazz, errors, true);
+		List<T> elements = new ArrayList<>(to - from);
+		try {
+			for(int element = from; element < to; element++) {
+				channel.position(index.offset(element));
+				parser.setInput(channel);
+				records.restart();
+				if(!records.hasNext())
+					throw errors.exception != null? errors.exception:
+							new JSONReaderException("No value found at offset " + index.offset(element));
+				elements.add(records.next());
+			}
+		} catch (IOException e) {
+			throw new JSONReaderException(e);
+		}
+		return elements;
+	}
+
+	/**
+	 * Reads the value of a field of the top-level object of a file, seeking it through an index.
+	 * @param channel channel of the indexed file; its position is changed.
+	 * @param index index of the file (see {@link OffsetIndex}).
+	 * @param key name of the field.
+	 * @param clazz type of the value, or null to get maps, lists and simple values.
+	 * @param <T> type of the value.
+	 * @return the value, or null if the field is not in the index.
+	 * @throws JSONReaderException if the value is not valid or can't be read.
+	 */
+	public static <T> T getField(FileChannel channel, OffsetIndex index, String key, Class<T> clazz)
+			throws JSONReaderException {
+		int element = index.indexOf(key);
+		return element != -1? getElement(channel, index, element, clazz): null;
+	}
+
+	/**
+	 * Reads newline-delimited JSON (NDJSON) records, one per line, sending each one to the given handler as soon as
+	 * it is read. A line that can't be read is reported to the handler and skipped. The same parser and buffers are
+	 * reused for all the records.
+	 * @param reader input containing the records.
+	 * @param clazz type of the records, or null to get them as maps, lists and simple values.
+	 * @param handler handler receiving the records and the errors.
+	 * @param <T> type of the records.
+	 */
+	public static <T> void readRecords(Reader reader, Class<T> clazz, RecordHandler<T> handler) {
+		readRecords(new Records<T>(newParser(reader), clazz, handler), handler);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#readRecords(Reader, Class, RecordHandler)}, reading UTF-8 encoded records
+	 * from a stream.
+	 * @param stream input containing the records.
+	 * @param clazz type of the records, or null to get them as maps, lists and simple values.
+	 * @param handler handler receiving the records and the errors.
+	 * @param <T> type of the records.
+	 */
+	public static <T> void readRecords(InputStream stream, Class<T> clazz, RecordHandler<T> handler) {
+		readRecords(new Records<T>(newParser(stream), clazz, handler), handler);
+	}
+
+	/**
+	 * Gives an iterator over newline-delimited JSON (NDJSON) records, one per line. Records are read lazily, as the
+	 * iterator advances. A line that can't be read is reported to the given error handler and skipped.
+	 * @param reader input containing the records.
+	 * @param clazz type of the records, or null to get them as maps, lists and simple values.
+	 * @param errorHandler handler receiving the errors.
+	 * @param <T> type of the records.
+	 * @return an iterator over the records.
+	 */
+	public static <T> Iterator<T> iterateRecords(Reader reader, Class<T> clazz, ErrorHandler errorHandler) {
+		return new Records<T>(newParser(reader), clazz, errorHandler);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#iterateRecords(Reader, Class, ErrorHandler)}, reading UTF-8 encoded records
+	 * from a stream.
+	 * @param stream input containing the records.
+	 * @param clazz type of the records, or null to get them as maps, lists and simple values.
+	 * @param errorHandler handler receiving the errors.
+	 * @param <T> type of the records.
+	 * @return an iterator over the records.
+	 */
+	public static <T> Iterator<T> iterateRecords(InputStream stream, Class<T> clazz, ErrorHandler errorHandler) {
+		return new Records<T>(newParser(stream), clazz, errorHandler);
+	}
+
+	/**
+	 * Reads a stream of JSON documents placed one after another, with or without whitespace between them (for
+	 * example <code>{"id": 1}{"id": 2}</code>), sending each one to the given handler as soon as it is read. The same
+	 * parser and buffers are reused for all the documents, so unbounded streams can be read in constant memory. An
+	 * invalid document is reported to the handler and ends the reading, as the start of the next one can't be found.
+	 * @param reader input containing the documents.
+	 * @param clazz type of the documents, or null to get them as maps, lists and simple values.
+	 * @param handler handler receiving the documents and the errors.
+	 * @param <T> type of the documents.
+	 */
+	public static <T> void readDocuments(Reader reader, Class<T> clazz, RecordHandler<T> handler) {
+		readRecords(new Records<T>(newParser(reader), clazz, handler, true), handler);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#readDocuments(Reader, Class, RecordHandler)}, reading UTF-8 encoded
+	 * documents from a stream.
+	 * @param stream input containing the documents.
+	 * @param clazz type of the documents, or null to get them as maps, lists and simple values.
+	 * @param handler handler receiving the documents and the errors.
+	 * @param <T> type of the documents.
+	 */
+	public static <T> void readDocuments(InputStream stream, Class<T> clazz, RecordHandler<T> handler) {
+		readRecords(new Records<T>(newParser(stream), clazz, handler, true), handler);
+	}
+
+	/**
+	 * Gives an iterator over a stream of JSON documents placed one after another, with or without whitespace between
+	 * them. Documents are read lazily, as the iterator advances, reusing the same parser and buffers. An invalid
+	 * document is reported to the given error handler and ends the iteration.
+	 * @param reader input containing the documents.
+	 * @param clazz type of the documents, or null to get them as maps, lists and simple values.
+	 * @param errorHandler handler receiving the errors.
+	 * @param <T> type of the documents.
+	 * @return an iterator over the documents.
+	 */
+	public static <T> Iterator<T> iterateDocuments(Reader reader, Class<T> clazz, ErrorHandler errorHandler) {
+		return new Records<T>(newParser(reader), clazz, errorHandler, true);
+	}
+
+	/**
+	 * Same as {@link ObjectDeserializer#iterateDocuments(Reader, Class, ErrorHandler)}, reading UTF-8 encoded
+	 * documents from a stream.
+	 * @param stream input containing the documents.
+	 * @param clazz type of the documents, or null to get them as maps, lists and simple values.
+	 * @param errorHandler handler receiving the errors.
+	 * @param <T> type of the documents.
+	 * @return an iterator over the documents.
+	 */
+	public static <T> Iterator<T> iterateDocuments(InputStream stream, Class<T> clazz, ErrorHandler errorHandler) {
+		return new Records<T>(newParser(stream), clazz, errorHandler, true);
+	}
+
+	private static <T> void readRecords(Records<T> records, RecordHandler<T> handler) {
+		while(records.hasNext())
+			handler.record(records.next());
+	}
+
+	// parsers for a single document, to be given back to the pool by internalGet()
+	private static JSONReader pooledParser(Reader reader) {
+		JSONReader parser = PARSERS.acquire();
+		parser.setInput(reader);
+		return parser;
+	}
+
+	private static JSONReader pooledParser(InputStream stream) {
+		JSONReader parser = PARSERS.acquire();
+		parser.setInput(stream);
+		return parser;
+	}
+
+	private static JSONReader pooledParser(FileChannel channel) {
+		JSONReader parser = PARSERS.acquire();
+		parser.setInput(channel);
+		return parser;
+	}
+
+	private static JSONReader newParser(Reader reader) {
+		JSONReader parser = new JSONReader();
+		parser.setInput(reader);
+		return parser;
+	}
+
+	private static JSONReader newParser(InputStream stream) {
+		JSONReader parser = new JSONReader();
+		parser.setInput(stream);
+		return parser;
+	}
+
+	private static JSONReader withPaths(JSONReader parser, String[] paths) {
+		parser.setPaths(paths);
+		return parser;
+	}
+
+	// classes marked with @CompiledJSON are read by their generated codec straight from the tokens of the reader; only
+	// the root value can be, EventHandler is fed by parse() and can't give the tokens of a nested value to a codec
+	private static <T> T bind(JSONReader parser, Class<T> clazz) throws JSONReaderException {
+		JSONCodec<T> codec = clazz != null? CodecSupport.find(clazz): null;
+		if(codec == null)
+			return internalGet(parser, clazz);
+		try {
+			parser.nextToken();
+			T object = codec.read(parser);
+			if(parser.nextToken() != null)
+				throw new JSONReaderException("unexpected content after the end of the document");
+			return object;
+		} finally {
+			PARSERS.release(parser);
+		}
+	}
+
+	private static <T> T internalGet(JSONReader parser, Class<T> clazz) throws JSONReaderException {
+		if(isDirectType(clazz))
+			return convert(internalGet(parser, (Object)null), clazz);
+		T object = null;
+		try {
+			object = clazz.newInstance();
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} finally {
+			// once the object is created, the parser is released by internalGet()
+			if(object == null)
+				PARSERS.release(parser);
+		}
+		internalGet(parser, object);
+		return object;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T internalGet(JSONReader parser, TypeToken<T> token) throws JSONReaderException {
+		TypeDescriptor type = TypeDescriptor.of(token.getType());
+		Class<?> clazz = type.rawClass();
+		if(type.type() instanceof Class)
+			return bind(parser, (Class<T>)clazz);
+		Object root;
+		try {
+			// arrays are created once read, when their length is known
+			root = clazz.isArray()? null: EventHandler.newInstance(clazz);
+		} catch (JSONReaderException e) {
+			PARSERS.release(parser);
+			throw e;
+		}
+		Object result = internalGet(parser, root, type);
+		if(result != null && !clazz.isInstance(result))
+			throw new JSONReaderException("value of type " + result.getClass().getName() + " cannot be casted to type " + type);
+		return (T)result;
+	}
+
+	private static boolean isDirectType(Class<?> clazz) {
+		return clazz == null || clazz == String.class || clazz == Boolean.class || clazz == Byte.class
+				|| clazz == Short.class || clazz == Integer.class || clazz == Long.class || clazz == Float.class
+				|| clazz == Double.class || clazz == BigInteger.class || clazz == BigDecimal.class;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T convert(Object value, Class<T> clazz) {
+		if(clazz == null || clazz == String.class) {
+			return (T)value;
+		} else if(clazz == Boolean.class) {
+			return (T)Boolean.valueOf(value.toString());
+		} else if(clazz == Byte.class) {
+			return (T)Byte.valueOf(value.toString());
+		} else if(clazz == Short.class) {
+			return (T)Short.valueOf(value.toString());
+		} else if(clazz == Integer.class) {
+			return (T)Integer.valueOf(value.toString());
+		} else if(clazz == Long.class) {
+			return (T)Long.valueOf(value.toString());
+		} else if(clazz == Float.class) {
+			return (T)Float.valueOf(value.toString());
+		} else if(clazz == Double.class) {
+			return (T)Double.valueOf(value.toString());
+		} else if(clazz == BigInteger.class) {
+			return (T)new BigInteger(value.toString());
+		} else {
+			return (T)new BigDecimal(value.toString());
+		}
+	}
+
+	private static Object internalGetFromReader(Reader reader, Object object) throws JSONReaderException {
+		return internalGet(pooledParser(reader), object);
+	}
+
+	private static Object internalGet(JSONReader parser, Object object) throws JSONReaderException {
+		return internalGet(parser, object, object == null? null: TypeDescriptor.of(object.getClass()));
+	}
+
+	private static Object internalGet(JSONReader parser, Object object, TypeDescriptor type) throws JSONReaderException {
+		try {
+			EventHandler handler = type == null? new EventHandler(parser): new EventHandler(parser, object, type);
+			parser.setContentHandler(handler);
+			parser.setErrorHandler(handler);
+			parser.parse();
+			JSONReaderException error = handler.getException();
+			if(error != null) {
+				throw error;
+			}
+			return handler.getResult();
+		} finally {
+			PARSERS.release(parser);
+		}
+	}
+
+	private static class ErrorKeeper implements ErrorHandler {
+
+		private JSONReaderException exception;
+
+		@Override
+		public void error(JSONReaderException exception) {
+			if(this.exception == null)
+				this.exception = exception;
+		}
+	}
+
+	static class Records<T> implements Iterator<T> {
+
+		private final JSONReader parser;
+		private final Class<T> clazz;
+		private final ErrorHandler errorHandler;
+		private final EventHandler handler;
+		private final boolean directType;
+		private final boolean documents;	// concatenated documents instead of one per line
+		private T next;
+		private boolean nextRead;
+		private boolean finished;
+
+		Records(JSONReader parser, Class<T> clazz, ErrorHandler errorHandler) {
+			this(parser, clazz, errorHandler, false);
+		}
+
+		Records(JSONReader parser, Class<T> clazz, ErrorHandler errorHandler, boolean documents) {
+			this.parser = parser;
+			this.documents = documents;
+			this.clazz = clazz;
+			this.errorHandler = errorHandler;
+			this.directType = isDirectType(clazz);
+			this.handler = new EventHandler(parser, null);
+			parser.setContentHandler(handler);
+			parser.setErrorHandler(handler);
+		}
+
+		// to be called after a new input has been set to the parser
+		void restart() {
+			next = null;
+			nextRead = false;
+			finished = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while(!nextRead && !finished) {
+				try {
+					T object = directType? null: clazz.newInstance();
+					handler.reset(object);
+					if(!(documents? parser.parseDocument(): parser.parseLine())) {
+						finished = true;
+						JSONReaderException error = handler.getException();
+						if(error != null)
+							errorHandler.error(error);
+						break;
+					}
+					JSONReaderException error = handler.getException();
+					if(error != null) {
+						errorHandler.error(error);
+						continue;
+					}
+					Object result = handler.getResult();
+					next = directType? convert(result, clazz): object;
+					nextRead = true;
+				} catch (JSONReaderException e) {
+					errorHandler.error(e);
+				} catch (RuntimeException e) {
+					errorHandler.error(new JSONReaderException(e));
+				} catch (InstantiationException e) {
+					throw new RuntimeException(e);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			return nextRead;
+		}
+
+		@Override
+		public T next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			T result = next;
+			next = null;
+			nextRead = false;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/*
+	 * Binds values as they are parsed, with a stack of frames: one for every object or array being read, knowing what
+	 * it is being bound to (a bean, list, collection, map or array, with the type of its elements). Objects and arrays
+	 * bound to Object, or not matching what they are bound to, are built as maps and lists and then given to their
+	 * enclosing frame as a whole, which binds them as match() does. Binding errors don't stop the parser: the rest
+	 * of the document is skipped and the error is thrown by getResult(), once the document has been read.
+	 */
+	private static class EventHandler implements NumberContentHandler, StringViewContentHandler,
+			SelectiveContentHandler, ErrorHandler {
+
+		private final JSONReader parser;    // names are taken from it, as canonical Strings
+		private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+		private final Frame resultFrame = new ResultFrame();
+		private Object result;
+		private Object rootJson;            // a root value that has to be bound with match()
+		private JSONReaderException exception;
+		private Exception failure;          // binding error, JSONReaderException or RuntimeException
+		private Object root;
+		private TypeDescriptor rootType;
+
+		public EventHandler(JSONReader parser, Object root) {
+			this(parser, root, root == null? null: TypeDescriptor.of(root.getClass()));
+		}
+
+		public EventHandler(JSONReader parser, Object root, TypeDescriptor rootType) {
+			this.parser = parser;
+			this.root = root;
+			this.rootType = rootType;
+			frames.addLast(resultFrame);
+		}
+
+		public EventHandler(JSONReader parser) {
+			this(parser, null);
+			result = new HashMap<String, Object>();
+		}
+
+		public void reset(Object root) {
+			frames.clear();
+			frames.addLast(resultFrame);
+			result = null;
+			rootJson = null;
+			exception = null;
+			failure = null;
+			this.root = root;
+			this.rootType = root == null? null: TypeDescriptor.of(root.getClass());
+		}
+
+		public Object getResult() throws JSONReaderException {
+			if(failure instanceof JSONReaderException)
+				throw (JSONReaderException)failure;
+			if(failure != null)
+				throw (RuntimeException)failure;
+			if(root != null && !root.equals("") && result != null) {
+				if(rootJson != null)
+					match(root, rootJson, rootType);
+				result = root;
+			}
+			return result;
+		}
+
+		@Override
+		public boolean acceptObject(StringBuilder name) {
+			return failure == null;
+		}
+
+		@Override
+		public boolean acceptArray(StringBuilder name) {
+			return failure == null;
+		}
+
+		@Override
+		public void startObject(StringBuilder name) {
+			start(true);
+		}
+
+		@Override
+		public void endObject() {
+			end();
+		}
+
+		@Override
+		public void startArray(StringBuilder name) {
+			start(false);
+		}
+
+		@Override
+		public void endArray() {
+			end();
+		}
+
+		@Override
+		public void simpleValue(StringBuilder name, StringBuilder strValue, ValueType type) {
+			switch(type) {
+				case FALSE: addValue(Boolean.FALSE); break;
+				case TRUE: addValue(Boolean.TRUE); break;
+				case NULL: addValue(null); break;
+				case NUMBER: addValue(parser.currentDecimal()); break;
+				case STRING: addValue(strValue.toString()); break;
+				default: throw new RuntimeException("programming error: type not known: " + type.name());
+			}
+		}
+
+		@Override
+		public void longValue(StringBuilder name, long value) {
+			if(failure != null)
+				return;
+			try {
+				frames.peekLast().longValue(parser.currentName(), value);
+			} catch (JSONReaderException | RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		@Override
+		public void doubleValue(StringBuilder name, double value) {
+			if(failure != null)
+				return;
+			try {
+				frames.peekLast().doubleValue(parser.currentName(), value);
+			} catch (JSONReaderException | RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		@Override
+		public void stringValue(StringBuilder name, CharSequence value) {
+			if(failure != null)
+				return;
+			try {
+				frames.peekLast().stringValue(parser.currentName(), value);
+			} catch (JSONReaderException | RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		@Override
+		public void error(JSONReaderException exception) {
+			this.exception = exception;
+		}
+
+		public JSONReaderException getException() {
+			return exception;
+		}
+
+		private void start(boolean object) {
+			if(failure != null)
+				return;
+			try {
+				Frame parent = frames.peekLast();
+				String name = parser.currentName();
+				Frame frame = parent.child(name, object);
+				frames.addLast(frame != null? frame: new JSONFrame(parent, name, object, true));
+			} catch (JSONReaderException | RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		private void end() {
+			if(failure != null)
+				return;
+			try {
+				frames.pollLast().end();
+			} catch (JSONReaderException | RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		private void addValue(Object value) {
+			if(failure != null)
+				return;
+			try {
+				frames.peekLast().value(parser.currentName(), value);
+			} catch (JSONReaderException | RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		// frame for the content of an object or array bound to the given instance, or null if it is not the kind of
+		// value the instance can take
+		@SuppressWarnings("unchecked")
+		private Frame frameFor(Object instance, TypeDescriptor type, boolean object) {
+			Class<?> clazz = instance.getClass();
+			type = typeOf(instance, type);
+			if(clazz.isArray())
+				return object? null: new ArrayFrame(instance, type, null, null);
+			if(List.class.isAssignableFrom(clazz))
+				return object? null: new ListFrame((List<Object>)instance, type.element());
+			if(Collection.class.isAssignableFrom(clazz))
+				return object? null: new CollectionFrame((Collection<Object>)instance, type.element());
+			if(Map.class.isAssignableFrom(clazz))
+				return object? new MapFrame((Map<String, Object>)instance, type.element()): null;
+			return object? new BeanFrame(instance, type): null;
+		}
+
+		// the declared type of an instance when it tells more than its class (List<Order> for an ArrayList), else its
+		// class; arrays are only bound as their exact class, as elements have to be stored in them
+		private TypeDescriptor typeOf(Object instance, TypeDescriptor declared) {
+			Class<?> clazz = instance.getClass();
+			if(declared != null && (clazz.isArray()? declared.rawClass() == clazz: declared.rawClass().isAssignableFrom(clazz)))
+				return declared;
+			return TypeDescriptor.of(clazz);
+		}
+
+		// type of a property, resolved from the declared type of the bean when it binds type variables of its class
+		private TypeDescriptor propertyType(Object bean, TypeDescriptor beanType, ClassBinding.Property property)
+				throws JSONReaderException {
+			if(beanType.rawClass() == bean.getClass() && !(beanType.type() instanceof Class))
+				return beanType.member(property.genericType());
+			return property.descriptor();
+		}
+
+		// class of the instances created for a property: its resolved type, unless the setter takes something else
+		private Class<?> instanceClass(ClassBinding.Property property, Class<?> propertyClass) throws JSONReaderException {
+			Class<?> writeType = property.writeType();
+			return writeType.isAssignableFrom(propertyClass)? propertyClass: writeType;
+		}
+
+		// whether objects and arrays bound to this class are built as maps and lists instead of being bound as read
+		private boolean boundAsJSON(Class<?> clazz) {
+			return clazz == Object.class || isBasicType(clazz);
+		}
+
+		private abstract class Frame {
+
+			/**
+			 * Binds a value: a simple one, or an object or array built as a map or list.
+			 * @param name name of the value, if it is in an object.
+			 * @param value the value.
+			 */
+			abstract void value(String name, Object value) throws JSONReaderException;
+
+			/**
+			 * Called when an object or array starts.
+			 * @param name name of the value, if it is in an object.
+			 * @param object true for an object, false for an array.
+			 * @return the frame binding its content, or null to have it built and then given to value().
+			 */
+			abstract Frame child(String name, boolean object) throws JSONReaderException;
+
+			/**
+			 * Binds an object or array bound by a frame returned by child() but only created once complete (arrays,
+			 * whose length is not known in advance).
+			 * @param slot what was given to the frame of the child to identify it.
+			 * @param value the value.
+			 */
+			void assign(Object slot, Object value) throws JSONReaderException {
+				throw new IllegalStateException("programming error: unexpected child value");
+			}
+
+			/**
+			 * Binds a string given as a view over the input, only valid during the call. Strings bound to enums are
+			 * looked up without making a String of them.
+			 * @param name name of the value, if it is in an object.
+			 * @param value the string.
+			 */
+			void stringValue(String name, CharSequence value) throws JSONReaderException {
+				Class<?> clazz = valueClass(name);
+				value(name, clazz != null && clazz.isEnum()? enumConstant(clazz, value): value.toString());
+			}
+
+			/**
+			 * Gets the class simple values are bound to.
+			 * @param name name of the value, if it is in an object.
+			 * @return the class, or null if it is not known in advance.
+			 */
+			Class<?> valueClass(String name) throws JSONReaderException {
+				return null;
+			}
+
+			void longValue(String name, long value) throws JSONReaderException {
+				value(name, BigDecimal.valueOf(value));
+			}
+
+			void doubleValue(String name, double value) throws JSONReaderException {
+				// the exact decimal is kept, as numbers bound to Object are BigDecimals with the scale found in the input
+				value(name, parser.currentDecimal());
+			}
+
+			void end() throws JSONReaderException {
+			}
+		}
+
+		private class ResultFrame extends Frame {
+
+			@Override
+			void value(String name, Object value) {
+				result = value;
+				rootJson = value;
+			}
+
+			@Override
+			Frame child(String name, boolean object) {
+				if(root == null || root.equals("")) {
+					// arrays are created once complete, and then given to assign()
+					if(!object && rootType != null && rootType.rawClass().isArray())
+						return new ArrayFrame(null, rootType, this, null);
+					return null;
+				}
+				Frame frame = frameFor(root, rootType, object);
+				if(frame != null)
+					result = root;
+				return frame;
+			}
+
+			@Override
+			void assign(Object slot, Object value) {
+				result = value;
+			}
+		}
+
+		// objects and arrays built as maps and lists
+		private class JSONFrame extends Frame {
+
+			private final Frame parent;
+			private final String name;
+			private final Object container;
+			private final boolean outermost;    // the parent is not a JSONFrame, the result is given to it at the end
+
+			JSONFrame(Frame parent, String name, boolean object, boolean outermost) {
+				this.parent = parent;
+				this.name = name;
+				this.container = object? new HashMap<String, Object>(10): new ArrayList<Object>(10);
+				this.outermost = outermost;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			void value(String name, Object value) {
+				if(container instanceof Map)
+					((Map<String, Object>)container).put(name, value);
+				else
+					((List<Object>)container).add(value);
+			}
+
+			@Override
+			Frame child(String name, boolean object) {
+				JSONFrame frame = new JSONFrame(this, name, object, false);
+				value(name, frame.container);
+				return frame;
+			}
+
+			@Override
+			void end() throws JSONReaderException {
+				if(outermost)
+					parent.value(name, container);
+			}
+		}
+
+		private class BeanFrame extends Frame {
+
+			private final Object bean;
+			private final TypeDescriptor type;
+			private final ClassBinding binding;
+
+			BeanFrame(Object bean, TypeDescriptor type) {
+				this.bean = bean;
+				this.type = type;
+				this.binding = ClassBinding.of(bean.getClass());
+			}
+
+			@Override
+			void value(String name, Object value) throws JSONReaderException {
+				ClassBinding.Property property = binding.property(name);
+				TypeDescriptor propertyType = propertyType(bean, type, property);
+				Class<?> propertyClass = propertyType.rawClass();
+				if(isBasicType(propertyClass)) {
+					property.set(bean, cast(value, propertyClass));
+				} else if(propertyClass == Object.class || value == null) {
+					property.set(bean, value);
+				} else {
+					Object current = property.get(bean);
+					if(current == null) {
+						current = newInstance(instanceClass(property, propertyClass),
+								propertyClass.isArray()? ((List)value).size(): -1);
+						property.set(bean, current);
+					}
+					match(current, value, propertyType);
+				}
+			}
+
+			@Override
+			Frame child(String name, boolean object) throws JSONReaderException {
+				ClassBinding.Property property = binding.property(name);
+				TypeDescriptor propertyType = propertyType(bean, type, property);
+				Class<?> propertyClass = propertyType.rawClass();
+				if(boundAsJSON(propertyClass))
+					return null;
+				Object current = property.get(bean);
+				if(current == null) {
+					Class<?> instanceClass = instanceClass(property, propertyClass);
+					if(propertyClass.isArray()) {
+						if(instanceClass != propertyClass)
+							propertyType = TypeDescriptor.of(instanceClass);
+						return object? null: new ArrayFrame(null, propertyType, this, property);
+					}
+					current = newInstance(instanceClass);
+					property.set(bean, current);
+				}
+				return frameFor(current, propertyType, object);
+			}
+
+			@Override
+			void assign(Object slot, Object value) throws JSONReaderException {
+				((ClassBinding.Property)slot).set(bean, value);
+			}
+
+			@Override
+			Class<?> valueClass(String name) throws JSONReaderException {
+				return propertyType(bean, type, binding.property(name)).rawClass();
+			}
+
+			// primitive properties are written without going through BigDecimal and boxing
+			@Override
+			void longValue(String name, long value) throws JSONReaderException {
+				ClassBinding.Property property = binding.property(name);
+				if(property.writesLong())
+					property.setLong(bean, value);
+				else if(property.writesDouble())
+					property.setDouble(bean, value);
+				else
+					super.longValue(name, value);
+			}
+
+			@Override
+			void doubleValue(String name, double value) throws JSONReaderException {
+				ClassBinding.Property property = binding.property(name);
+				if(property.writesDouble())
+					property.setDouble(bean, value);
+				else
+					super.doubleValue(name, value);
+			}
+		}
+
+		private class ListFrame extends Frame {
+
+			private final List<Object> list;
+			private final TypeDescriptor componentType;
+			private final Class<?> componentClass;
+			private int index;
+
+			ListFrame(List<Object> list, TypeDescriptor componentType) {
+				this.list = list;
+				this.componentType = componentType;
+				this.componentClass = componentType.rawClass();
+			}
+
+			@Override
+			void value(String name, Object value) throws JSONReaderException {
+				fill();
+				if(value == null) {
+					list.set(index, null);
+				} else if(componentClass == Object.class) {
+					list.set(index, value);
+				} else if(isBasicType(componentClass)) {
+					list.set(index, cast(value, componentClass));
+				} else {
+					Object current = list.get(index);
+					if(current == null) {
+						current = newInstance(componentClass);
+						list.set(index, current);
+					}
+					match(current, value, componentType);
+				}
+				index++;
+			}
+
+			@Override
+			Frame child(String name, boolean object) throws JSONReaderException {
+				if(componentClass.isArray() && !object) {
+					fill();
+					return new ArrayFrame(null, componentType, this, index++);
+				}
+				if(boundAsJSON(componentClass) || componentClass.isArray())
+					return null;
+				fill();
+				Object current = list.get(index);
+				if(current == null) {
+					current = newInstance(componentClass);
+					list.set(index, current);
+				}
+				Frame frame = frameFor(current, componentType, object);
+				if(frame != null)
+					index++;
+				return frame;
+			}
+
+			@Override
+			void assign(Object slot, Object value) {
+				list.set((Integer)slot, value);
+			}
+
+			@Override
+			Class<?> valueClass(String name) {
+				return componentClass;
+			}
+
+			private void fill() {
+				while(list.size() <= index)
+					list.add(null);
+			}
+		}
+
+		private class CollectionFrame extends Frame {
+
+			private final Collection<Object> collection;
+			private final TypeDescriptor componentType;
+			private final Class<?> componentClass;
+
+			CollectionFrame(Collection<Object> collection, TypeDescriptor componentType) {
+				this.collection = collection;
+				this.componentType = componentType;
+				this.componentClass = componentType.rawClass();
+			}
+
+			@Override
+			void value(String name, Object value) throws JSONReaderException {
+				if(value == null) {
+					collection.add(null);
+				} else if(componentClass == Object.class) {
+					collection.add(value);
+				} else if(isBasicType(componentClass)) {
+					collection.add(cast(value, componentClass));
+				} else {
+					match(newElement(), value, componentType);
+				}
+			}
+
+			@Override
+			Frame child(String name, boolean object) throws JSONReaderException {
+				if(componentClass.isArray() && !object)
+					return new ArrayFrame(null, componentType, this, null);
+				if(boundAsJSON(componentClass) || componentClass.isArray())
+					return null;
+				return frameFor(newElement(), componentType, object);
+			}
+
+			@Override
+			void assign(Object slot, Object value) {
+				collection.add(value);
+			}
+
+			@Override
+			Class<?> valueClass(String name) {
+				return componentClass;
+			}
+
+			// a new element, or the equal one already in the collection
+			private Object newElement() throws JSONReaderException {
+				Object element = newInstance(componentClass);
+				if(collection.contains(element)) {
+					for(Object o: collection) {
+						if(o != null && o.equals(element))
+							return o;
+					}
+				}
+				collection.add(element);
+				return element;
+			}
+		}
+
+		private class MapFrame extends Frame {
+
+			private final Map<String, Object> map;
+			private final TypeDescriptor componentType;
+			private final Class<?> componentClass;
+
+			MapFrame(Map<String, Object> map, TypeDescriptor componentType) {
+				this.map = map;
+				this.componentType = componentType;
+				this.componentClass = componentType.rawClass();
+			}
+
+			@Override
+			void value(String name, Object value) throws JSONReaderException {
+				if(value == null || componentClass == Object.class) {
+					map.put(name, value);
+				} else if(isBasicType(componentClass)) {
+					map.put(name, cast(value, componentClass));
+				} else {
+					match(current(name), value, componentType);
+				}
+			}
+
+			@Override
+			Frame child(String name, boolean object) throws JSONReaderException {
+				if(componentClass.isArray() && !object)
+					return new ArrayFrame(null, componentType, this, name);
+				if(boundAsJSON(componentClass) || componentClass.isArray())
+					return null;
+				return frameFor(current(name), componentType, object);
+			}
+
+			@Override
+			void assign(Object slot, Object value) {
+				map.put((String)slot, value);
+			}
+
+			@Override
+			Class<?> valueClass(String name) {
+				return componentClass;
+			}
+
+			private Object current(String name) throws JSONReaderException {
+				Object current = map.get(name);
+				if(current == null) {
+					current = newInstance(componentClass);
+					map.put(name, current);
+				}
+				return current;
+			}
+		}
+
+		// elements are kept until the end, as the length of the array is not known before
+		private class ArrayFrame extends Frame {
+
+			private final Object array;         // the array to fill, or null to create one at the end
+			private final TypeDescriptor componentType;
+			private final Class<?> componentClass;
+			private final Frame owner;          // to be given the array created
+			private final Object slot;
+			private final List<Object> elements = new ArrayList<>();
+
+			ArrayFrame(Object array, TypeDescriptor arrayType, Frame owner, Object slot) {
+				this.array = array;
+				this.componentType = arrayType.element();
+				this.componentClass = arrayType.rawClass().getComponentType();
+				this.owner = owner;
+				this.slot = slot;
+			}
+
+			@Override
+			void value(String name, Object value) throws JSONReaderException {
+				if(value == null || componentClass == Object.class) {
+					elements.add(value);
+				} else if(isBasicType(value.getClass()) || isBasicType(componentClass)) {
+					elements.add(cast(value, componentClass));
+				} else {
+					Object current = currentElement();
+					if(current == null) {
+						if(componentClass.isArray())
+							current = newInstance(componentClass, ((List)value).size());
+						else
+							current = newInstance(componentClass);
+					}
+					match(current, value, componentType);
+					elements.add(current);
+				}
+			}
+
+			@Override
+			Frame child(String name, boolean object) throws JSONReaderException {
+				if(boundAsJSON(componentClass))
+					return null;
+				Object current = currentElement();
+				if(current == null && componentClass.isArray()) {
+					if(object)
+						return null;
+					elements.add(null);
+					return new ArrayFrame(null, componentType, this, elements.size() - 1);
+				}
+				if(current == null)
+					current = newInstance(componentClass);
+				Frame frame = frameFor(current, componentType, object);
+				if(frame != null)
+					elements.add(current);
+				return frame;
+			}
+
+			@Override
+			void assign(Object slot, Object value) {
+				elements.set((Integer)slot, value);
+			}
+
+			@Override
+			Class<?> valueClass(String name) {
+				return componentClass;
+			}
+
+			@Override
+			void end() throws JSONReaderException {
+				Object target = array != null? array: Array.newInstance(componentClass, elements.size());
+				for(int index = 0; index < elements.size(); index++)
+					Array.set(target, index, elements.get(index));
+				if(array == null)
+					owner.assign(slot, target);
+			}
+
+			private Object currentElement() {
+				int index = elements.size();
+				return array != null && index < Array.getLength(array)? Array.get(array, index): null;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private void match(Object original, Object json, TypeDescriptor type) throws JSONReaderException {
+			Class<?> originalClass = original.getClass();
+			type = typeOf(original, type);
+			if(List.class.isAssignableFrom(originalClass)) {
+				List<Object> listJson = (List)json;
+				List<Object> list = (List)original;
+				TypeDescriptor compType = type.element();
+				Class<?> compClass = compType.rawClass();
+				for(int index = 0; index < listJson.size(); index++) {
+					Object value = listJson.get(index);
+					while(list.size() <= index)
+						list.add(null);
+					if(value == null) {
+						list.set(index, null);
+					} else if(compClass == Object.class) {
+						list.set(index, value);
+						if(!isBasicType(value.getClass())) // TODO do I really need these 2 lines?   (1)
+							match(value, value, compType); //                                        (2)
+					} else if(isBasicType(compClass)) {
+						list.set(index, cast(value, compClass));
+					} else {
+						Object originalValue = list.get(index);
+						if(originalValue == null) {
+							originalValue = newInstance(compClass);
+							list.set(index, originalValue);
+						}
+						match(originalValue, value, compType);
+					}
+				}
+			} else if(Collection.class.isAssignableFrom(originalClass)) {
+
+
+
+
+
+				List<Object> listJson = (List)json;
+				Collection<Object> collection = (Collection)original;
+				TypeDescriptor compType = type.element();
+				Class<?> compClass = compType.rawClass();
+				for(int index = 0; index < listJson.size(); index++) {
+					Object value = listJson.get(index);
+					if(value == null) {
+						collection.add(null);
+					} else if(compClass == Object.class) {
+						collection.add(value);
+						if(!isBasicType(value.getClass())) // TODO do I really need these 2 lines?   (1)
+							match(value, value, compType); //                                        (2)
+					} else if(isBasicType(compClass)) {
+						collection.add(cast(value, compClass));
+					} else {
+						Object originalValue = newInstance(compClass);
+						if(collection.contains(originalValue)) {
+							for(Object o: collection) {
+								if(o != null && o.equals(originalValue)) {
+									originalValue = o;
+									break;
+								}
+							}
+						} else {
+							collection.add(originalValue);
+						}
+						match(originalValue, value, compType);
+					}
+				}
+
+			} else if(Map.class.isAssignableFrom(originalClass)) {
+				Map<String, Object> mapJson = (Map)json;
+				Map<String, Object> map = (Map)original;
+				TypeDescriptor compType = type.element();
+				Class<?> compClass = compType.rawClass();
+				for(String strProperty: mapJson.keySet()) {
+					Object property = mapJson.get(strProperty);
+					if(property == null) {
+						map.put(strProperty, property);
+					} else if(compClass == Object.class) {
+						map.put(strProperty, property);
+						if(!isBasicType(property.getClass()))
+							match(property, property, compType);
+					} else if(isBasicType(compClass)) {
+						map.put(strProperty, cast(property, compClass));
+					} else {
+						Object originalValue = map.get(strProperty);
+						if(originalValue == null) {
+							originalValue = newInstance(compClass);
+							map.put(strProperty, originalValue);
+						}
+						match(originalValue, property, compType);
+					}
+				}
+			} else if(originalClass.isArray()) {
+				List<Object> listJson = (List)json;
+				Class<?> compClass = originalClass.getComponentType();
+				for(int index = 0; index < listJson.size(); index++) {
+					Object value = listJson.get(index);
+					Class<?> valueClass = value == null? null: value.getClass();
+					if(value == null || compClass == Object.class) {
+						Array.set(original, index, value);
+					} else if(isBasicType(valueClass) || isBasicType(compClass)) {
+						Array.set(original, index, cast(value, compClass));
+					} else {
+						Object[] array = ((Object[])original);
+						Object originalValue = array[index];
+						if(originalValue == null) {
+							if(compClass.isArray())
+								originalValue = newInstance(compClass, ((List)value).size());
+							else
+								originalValue = newInstance(compClass);
+							array[index] = originalValue;
+						}
+						match(originalValue, value, type.element());
+					}
+				}
+			} else if(Map.class.isAssignableFrom(json.getClass())) {
+				Map<String, Object> mapJson = (Map)json;
+				ClassBinding binding = ClassBinding.of(originalClass);
+				for(Map.Entry<String, Object> entry: mapJson.entrySet()) {
+					Object property = entry.getValue();
+					ClassBinding.Property info = binding.property(entry.getKey());
+					TypeDescriptor propertyType = propertyType(original, type, info);
+					Class<?> propertyClass = propertyType.rawClass();
+					if(isBasicType(propertyClass)) {
+						info.set(original, cast(property, propertyClass));
+					} else if(propertyClass == Object.class || property == null) {
+						info.set(original, property);
+					} else {
+						Object value = info.get(original);
+						if(value == null) {
+							value = newInstance(instanceClass(info, propertyClass),
+									propertyClass.isArray()? ((List)property).size(): -1);
+							info.set(original, value);
+						}
+						match(value, property, propertyType);
+					}
+				}
+			} else {
+				json = json;
+			}
+		}
+
+		private boolean isBasicType(Class<?> clazz) {
+			return clazz.isPrimitive() || Number.class.isAssignableFrom(clazz) || clazz == Boolean.class
+					|| clazz == Character.class || clazz == String.class || clazz == Date.class
+					|| Enum.class.isAssignableFrom(clazz);
+		}
+
+		// the constant of an enum with the given name, compared without making a String of it
+		private static Object enumConstant(Class<?> clazz, CharSequence name) {
+			for(Enum<?> constant: ENUM_CONSTANTS.get(clazz))
+				if(constant.name().contentEquals(name))
+					return constant;
+			throw new IllegalArgumentException("No enum constant " + clazz.getCanonicalName() + "." + name);
+		}
+
+		private static <T> T newInstance(Class<T> clazz) throws JSONReaderException {
+			return newInstance(clazz, -1);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T newInstance(Class<T> clazz, int arrayLength) throws JSONReaderException {
+			try {
+				if(clazz.isArray())
+					return (T)Array.newInstance(clazz.getComponentType(), arrayLength);
+				else if(clazz == List.class)
+					return (T)new ArrayList<Object>();
+				else if(clazz == Map.class)
+					return (T)new HashMap<String, Object>();
+				else
+					return clazz.newInstance();
+			} catch (InstantiationException e) {
+				throw new JSONReaderException("error trying to set object's property: can't create an instance of type " + clazz.getName(), e);
+			} catch (IllegalAccessException e) {
+				throw new JSONReaderException("error trying to set object's property: can't create an instance of type " + clazz.getName(), e);
+			}
+		}
+
+		private static void validateDate(String strDate) throws JSONReaderException {
+			boolean dateIsValid = strDate.length() == 19 || strDate.length() == 24;
+			for(int pos = 0; pos < strDate.length() && dateIsValid; pos ++) {
+				char ch = strDate.charAt(pos);
+				switch(ch) {
+					case '0':case '1':case '2':case '3':case '4':case '5':case '6':case '7':case '8':case '9':
+						if(pos == 4 || pos == 7 || pos == 10 || pos == 13 || pos == 16 || pos == 19 || pos == 23)
+							dateIsValid = false;
+						break;
+					case '-': if(pos != 4 && pos != 7) dateIsValid = false; break;
+					case ':': if(pos != 13 && pos != 16) dateIsValid = false; break;
+					case '.': if(pos != 19) dateIsValid = false; break;
+					case 'T': if(pos != 10) dateIsValid = false; break;
+					case 'Z': if(pos != 23) dateIsValid = false; break;
+					default: dateIsValid = false;
+				}
+			}
+			if(!dateIsValid)
+				throw new JSONReaderException("Invalid date format: \"" + strDate + "\"");
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T cast(Object value, Class<T> clazz) throws JSONReaderException {
+			try {
+				if(value == null)
+					return null;
+				Class<?> valueClass = value.getClass();
+				if(clazz.isAssignableFrom(valueClass))
+					return (T)value;
+				boolean isPrimitiveNumber = clazz == byte.class || clazz == short.class || clazz == int.class
+						|| clazz == long.class || clazz == float.class || clazz == double.class;
+				if(Number.class.isAssignableFrom(clazz) || isPrimitiveNumber) {
+					BigDecimal bigDecimal = value instanceof BigDecimal? (BigDecimal)value: new BigDecimal(value.toString());
+					if(clazz == Byte.class || clazz == byte.class) {
+						return (T)(Byte)bigDecimal.byteValueExact();
+					} else if(clazz == Short.class || clazz == short.class) {
+						return (T)(Short)bigDecimal.shortValueExact();
+					} else if(clazz == Integer.class || clazz == int.class) {
+						return (T)(Integer)bigDecimal.intValueExact();
+					} else if(clazz == Long.class || clazz == long.class) {
+						return (T)(Long)bigDecimal.longValueExact();
+					} else if(clazz == Float.class || clazz == float.class) {
+						return (T)(Float)bigDecimal.floatValue();
+					} else if(clazz == Double.class || clazz == double.class) {
+						return (T)(Double)bigDecimal.doubleValue();
+					} else if(clazz == BigDecimal.class) {
+						return (T)bigDecimal;
+					} else if(clazz == BigInteger.class) {
+						return (T)bigDecimal.toBigIntegerExact();
+					}
+				} else if(clazz == String.class) {
+					return (T)value.toString();
+				} else if(clazz == Date.class) {
+					String strDate = value.toString();
+					validateDate(strDate);
+					char[] chars = strDate.toCharArray();
+					long longTime = new GregorianCalendar(
+							/*year*/    chars[0] * 1000 + chars[1] * 100 + chars[2] * 10 + chars[3] - 53328,
+							/*month*/   chars[5] * 10 + chars[6] - 529,
+							/*day*/     chars[8] * 10 + chars[9] - 528,
+							/*hour*/    chars[11] * 10 + chars[12] - 528,
+							/*minute*/  chars[14] * 10 + chars[15] - 528,
+							/*seconds*/ chars[17] * 10 + chars[18] - 528
+					).getTimeInMillis();
+					if(strDate.length() == 24) {
+						longTime += chars[20] * 100 + chars[21] * 10 + chars[22] - 5328;
+					}
+					return (T)new Date(longTime);
+				} else if(clazz == Boolean.class || clazz == boolean.class) {
+					String strValue = value.toString().toUpperCase();
+					if(!strValue.equals("TRUE") && !strValue.equals("FALSE"))
+						throw new JSONReaderException("object of type " + valueClass.getName() + " cannot be casted to type " + clazz.getName());
+					return (T)(Boolean)Boolean.parseBoolean(strValue);
+				} else if(clazz == Character.class || clazz == char.class) {
+					String strValue = value.toString();
+					if(strValue.length() == 1) {
+						return (T)(Character)strValue.charAt(0);
+					}
+				} else if(Enum.class.isAssignableFrom(clazz)) {
+					if(valueClass == String.class) {
+						return (T)Enum.valueOf((Class<Enum>)clazz, value.toString());
+					} else if(valueClass == BigDecimal.class) {
+						return clazz.<T>getEnumConstants()[((BigDecimal)value).intValue()];
+					}
+				}
+				throw new JSONReaderException("object of type " + valueClass.getName() + " cannot be casted to type " + clazz.getName());
+			} catch(NumberFormatException e) {
+				throw new JSONReaderException("value \"" + value.toString() + "\" cannot be casted to type " + clazz.getName());
+			} catch(ArithmeticException e) {
+				throw new JSONReaderException("value \"" + value.toString() + "\" cannot be casted to type " + clazz.getName());
+			}
+		}
+	}
+}
@@ -30,6 +30,14 @@ public class ObjectSerializer {
 
 	private static final long INITIAL_DIVISOR = getInitialDivisor();
 
+	// properties written for every class, worked out once
+	private static final ClassValue<PropertyWriter[]> PROPERTIES = new ClassValue<PropertyWriter[]>() {
+		@Override
+		protected PropertyWriter[] computeValue(Class<?> type) {
+			return getPropertyWriters(type);
+		}
+	};
+
 	/**
 	 *
 	 * @param object
@@ -65,7 +73,7 @@ public class ObjectSerializer {
 		return divisor;
 	}
 
-	private static void writeToStream(long number, Writer writer) throws IOException {
+	static void writeToStream(long number, Writer writer) throws IOException {
 		long divisor = INITIAL_DIVISOR;
 		if(number == 0) {
 			writer.write('0');
@@ -93,7 +101,7 @@ public class ObjectSerializer {
 	}
 
 	// parameter objectStack: if not null, then it looks for circular dependencies that would cause this method never return
-	private static void writeArrayToStream(Object array, Writer writer, LinkedList<Object> objectStack) throws RecursiveException, IOException {
+	private static void writeArrayToStream(Object array, Writer writer, Deque<Object> objectStack) throws RecursiveException, IOException {
 		boolean prefixComa = false;
 		Class<?> compClass = array.getClass().getComponentType();
 		writer.write("[");
@@ -190,7 +198,7 @@ public class ObjectSerializer {
 	}
 
 	// parameter objectStack: if not null, then it looks for circular dependencies that would cause this method never return
-	private static void writeToStream(Object object, Writer writer, LinkedList<Object> objectStack) throws RecursiveException, IOException {
+	static void writeToStream(Object object, Writer writer, Deque<Object> objectStack) throws RecursiveException, IOException {
 
 		Class<?> clazz;
 
@@ -261,11 +269,39 @@ public class ObjectSerializer {
 			return;
 		}
 
+		// classes marked with @CompiledJSON, when their codec was generated
+		JSONCodec<Object> codec = CodecSupport.findForInstance(clazz);
+		if(codec != null) {
+			codec.write(object, writer, objectStack);
+			if(objectStack != null) {
+				objectStack.removeFirst();
+			}
+			return;
+		}
 
-		List<String> notIncluded = null;
 		boolean prefixComma = false;
-
 		writer.write("{");
+		for(PropertyWriter property: PROPERTIES.get(clazz)) {
+			if(prefixComma)
+				writer.write(",");
+			prefixComma = true;
+			writer.append("\"").append(property.escapedName).append("\":");
+			if(property.field)
+				writeFieldValueToStream(property.accessor, object, writer, objectStack);
+			else
+				writeMethodReturnToStream(property.accessor, object, writer, objectStack);
+		}
+
+		writer.write("}");
+		if(objectStack != null) {
+			objectStack.removeFirst();
+		}
+	}
+
+	// fields first, then getters, in the order given by reflection
+	private static PropertyWriter[] getPropertyWriters(Class<?> clazz) {
+		List<PropertyWriter> properties = new ArrayList<>();
+		List<String> notIncluded = null;
 		for(Annotation annotation: clazz.getAnnotations()) {
 			if(annotation instanceof TransientJSON) {
 				notIncluded = addToList(((TransientJSON) annotation).value(), notIncluded);
@@ -280,11 +316,7 @@ public class ObjectSerializer {
 			for(Annotation annotation: field.getAnnotations())
 				if(annotation instanceof TransientJSON)
 					continue field;
-			if(prefixComma)
-				writer.write(",");
-			prefixComma = true;
-			writer.append("\"").append(escapeString(field.getName())).append("\":");
-			writeFieldValueToStream(field, object, writer, objectStack);
+			properties.add(new PropertyWriter(field.getName(), Accessor.reader(field), true));
 		}
 
 		// Getters
@@ -309,18 +341,10 @@ public class ObjectSerializer {
 						+ methodName.substring(booleanGetter? 3: 4);
 				if(containsString(notIncluded, propertyName))
 					continue;
-				if(prefixComma)
-					writer.write(",");
-				prefixComma = true;
-				writer.append("\"").append(escapeString(propertyName)).append("\":");
-				writeMethodReturnToStream(method, object, writer, objectStack);
+				properties.add(new PropertyWriter(propertyName, Accessor.reader(method), false));
 			}
 		}
-
-		writer.write("}");
-		if(objectStack != null) {
-			objectStack.removeFirst();
-		}
+		return properties.toArray(new PropertyWriter[properties.size()]);
 	}
 
 	private static List<String> addToList(String[] strings, List<String> list) {
@@ -334,7 +358,7 @@ public class ObjectSerializer {
 		return strings != null && strings.contains(string);
 	}
 
-	private static boolean contains(List<Object> objects, Object object) {
+	private static boolean contains(Deque<Object> objects, Object object) {
 		if(objects == null)
 			return false;
 		for(Object item: objects)
@@ -343,14 +367,14 @@ public class ObjectSerializer {
 		return false;
 	}
 
-	private static void writeFieldValueToStream(Field field, Object object, Writer writer, LinkedList<Object> objectStack)
+	private static void writeFieldValueToStream(Accessor field, Object object, Writer writer, Deque<Object> objectStack)
 			throws RecursiveException, IOException {
-		Class<?> clazz = field.getType();
+		Class<?> clazz = field.type();
 		try {
 			if(clazz == boolean.class) {
 				writer.write(field.getBoolean(object) ? "true" : "false");
 			} else if(clazz == char.class) {
-				writer.append('"').append(field.getChar(object)).append('"');
+				writer.append('"').append((Character)field.get(object)).append('"');
 			} else if(clazz == byte.class || clazz == short.class || clazz == int.class || clazz == long.class) {
 				writeToStream(field.getLong(object), writer);
 			} else if(clazz == float.class || clazz == double.class) {
@@ -393,13 +417,15 @@ public class ObjectSerializer {
 			}
 		} catch(IllegalAccessException e) {
 			writer.write("null");
+		} catch(InvocationTargetException e) {
+			throw new RuntimeException(e);
 		}
 	}
 
-	private static void writeMethodReturnToStream(Method method, Object object, Writer writer, LinkedList<Object> objectStack)
+	private static void writeMethodReturnToStream(Accessor method, Object object, Writer writer, Deque<Object> objectStack)
 			throws RecursiveException, IOException {
 		try {
-			writeToStream(method.invoke(object), writer, objectStack);
+			writeToStream(method.get(object), writer, objectStack);
 		} catch(IllegalAccessException e) {
 			writer.write("null");
 		} catch(InvocationTargetException e) {
@@ -407,7 +433,20 @@ public class ObjectSerializer {
 		}
 	}
 
-	private static String escapeString(String string) {
+	private static class PropertyWriter {
+
+		final String escapedName;
+		final Accessor accessor;
+		final boolean field;	// fields of primitive types are written without boxing
+
+		PropertyWriter(String name, Accessor accessor, boolean field) {
+			this.escapedName = escapeString(name);
+			this.accessor = accessor;
+			this.field = field;
+		}
+	}
+
+	static String escapeString(String string) {
 		StringBuilder builder = new StringBuilder(string);
 		escapeString(builder);
 		return builder.toString();
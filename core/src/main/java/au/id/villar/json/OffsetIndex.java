@@ -0,0 +1,453 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Index of the byte offsets of the elements of a file containing a single, big, top-level JSON array (or of the
+ * values of the fields of a top-level object), so any of them can be read directly, seeking the file instead of
+ * parsing everything before it (see
+ * {@link ObjectDeserializer#getElement(FileChannel, OffsetIndex, int, Class)}).</p>
+ * <p>The index is built with a structural pass over the file: only quotes, escapes and the nesting of objects and
+ * arrays are tracked, and runs of other bytes are skipped 8 at a time. Elements themselves are not validated until
+ * they are read.</p>
+ * <p>Files that are only appended to (for instance, an export still being written, or one whose closing bracket is
+ * rewritten to add more elements) can be indexed incrementally: {@link OffsetIndex#update(FileChannel)} goes on from
+ * the end of the last element indexed. An element is only indexed once its end has been found.</p>
+ * <p>Indexes are saved to compact sidecar files (offsets are written as variable length deltas) with
+ * {@link OffsetIndex#save(Path)}; {@link OffsetIndex#forFile(Path)} takes care of loading, updating and saving the
+ * sidecar of a file.</p>
+ */
+public final class OffsetIndex {
+
+    /** Suffix added to the name of a file to get the name of its sidecar index. */
+    public static final String SIDECAR_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x4D4A4958;    // "MJIX"
+    private static final int VERSION = 1;
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int ROOT       = 0;    // before the top-level array or object
+    private static final int ELEMENT    = 1;    // expecting an element (or a key), or the end of the root
+    private static final int KEY        = 2;    // inside a key
+    private static final int COLON      = 3;    // after a key
+    private static final int VALUE      = 4;    // after the colon following a key
+    private static final int IN_VALUE   = 5;    // inside an element
+    private static final int SEPARATOR  = 6;    // after an element, expecting a comma or the end of the root
+    private static final int END        = 7;
+
+    private boolean object;
+    private boolean complete;
+    private long resume;        // where scanning goes on: after the opening bracket or after the last element
+    private long[] offsets = new long[1024];
+    private String[] keys;
+    private int size;
+    private Map<String, Integer> keyIndexes;
+    private int indexedKeys;    // elements whose keys are in keyIndexes (which can be smaller, keys can be repeated)
+
+    private OffsetIndex() {}
+
+    /**
+     * Builds the index of a file, scanning it from the beginning.
+     * @param channel channel of the file, it is read through memory mapping and its position is not changed.
+     * @return the index.
+     * @throws IOException if the file can't be read.
+     * @throws JSONReaderException if the file doesn't contain an array or an object at the top level.
+     */
+    public static OffsetIndex build(FileChannel channel) throws IOException, JSONReaderException {
+        OffsetIndex index = new OffsetIndex();
+        index.update(channel);
+        return index;
+    }
+
+    /**
+     * Reads an index previously saved with {@link OffsetIndex#save(Path)}.
+     * @param indexFile the sidecar file.
+     * @return the index.
+     * @throws IOException if the index can't be read or it is not a valid index.
+     */
+    public static OffsetIndex load(Path indexFile) throws IOException {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if(input.readInt() != MAGIC || input.readByte() != VERSION)
+                throw new IOException("Not an offset index: " + indexFile);
+            OffsetIndex index = new OffsetIndex();
+            index.object = input.readBoolean();
+            index.complete = input.readBoolean();
+            index.resume = readVarLong(input);
+            int size = (int)readVarLong(input);
+            index.offsets = new long[Math.max(size, 16)];
+            index.keys = index.object? new String[index.offsets.length]: null;
+            long offset = 0;
+            for(int element = 0; element < size; element++) {
+                offset += readVarLong(input);
+                index.offsets[element] = offset;
+                if(index.object) {
+                    byte[] key = new byte[(int)readVarLong(input)];
+                    input.readFully(key);
+                    index.keys[element] = new String(key, StandardCharsets.UTF_8);
+                }
+            }
+            index.size = size;
+            return index;
+        }
+    }
+
+    /**
+     * Gets the index of a file from its sidecar (the file with the same name plus {@link OffsetIndex#SIDECAR_SUFFIX}),
+     * updating it with whatever has been appended to the file since it was saved. If there is no sidecar, the index is
+     * built. The sidecar is saved whenever it has changed.
+     * @param file the JSON file.
+     * @return the index.
+     * @throws IOException if the file or the sidecar can't be read, or the sidecar can't be written.
+     * @throws JSONReaderException if the file doesn't contain an array or an object at the top level.
+     */
+    public static OffsetIndex forFile(Path file) throws IOException, JSONReaderException {
+        Path sidecar = file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+        OffsetIndex index = Files.exists(sidecar)? load(sidecar): new OffsetIndex();
+        long resume = index.resume;
+        boolean complete = index.complete;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            index.update(channel);
+        }
+        if(index.resume != resume || index.complete != complete || !Files.exists(sidecar))
+            index.save(sidecar);
+        return index;
+    }
+
+    /**
+     * Indexes the elements appended to the file since this index was built or last updated.
+     * @param channel channel of the file, it is read through memory mapping and its position is not changed.
+     * @throws IOException if the file can't be read.
+     * @throws JSONReaderException if the file doesn't contain an array or an object at the top level.
+     * @throws IllegalStateException if the file is now shorter than the part already indexed.
+     */
+    public void update(FileChannel channel) throws IOException, JSONReaderException {
+        long fileSize = channel.size();
+        if(fileSize < resume)
+            throw new IllegalStateException("The file is shorter than its indexed part (" + fileSize + " < " + resume
+                    + "), it has not only been appended to");
+        complete = false;
+        Scan scan = new Scan(resume == 0? ROOT: size == 0? ELEMENT: SEPARATOR);
+        long position = resume;
+        while(position < fileSize && scan.state != END) {
+            int length = (int)Math.min(WINDOW_SIZE, fileSize - position);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            scan.scan(window, position, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Saves this index to a (sidecar) file, replacing it if it exists.
+     * @param indexFile the file.
+     * @throws IOException if the file can't be written.
+     */
+    public void save(Path indexFile) throws IOException {
+        try(DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeBoolean(object);
+            output.writeBoolean(complete);
+            writeVarLong(output, resume);
+            writeVarLong(output, size);
+            long offset = 0;
+            for(int element = 0; element < size; element++) {
+                writeVarLong(output, offsets[element] - offset);
+                offset = offsets[element];
+                if(object) {
+                    byte[] key = keys[element].getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(output, key.length);
+                    output.write(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the top-level value of the file is an object, in which case elements are the values of its fields.
+     * @return true for an object, false for an array.
+     */
+    public boolean isObject() {
+        return object;
+    }
+
+    /**
+     * Tells whether the end of the top-level array or object has been found.
+     * @return true if the whole file has been indexed.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Gets the number of elements indexed.
+     * @return the number of elements (or fields, for an object).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the position in the file of the first byte of an element.
+     * @param element index of the element, in the order they appear in the file.
+     * @return the byte offset.
+     * @throws IndexOutOfBoundsException if there is no such element.
+     */
+    public long offset(int element) {
+        if(element < 0 || element >= size)
+            throw new IndexOutOfBoundsException("element " + element + ", size " + size);
+        return offsets[element];
+    }
+
+    /**
+     * Gets the name of the field whose value is the given element, when indexing a top-level object.
+     * @param element index of the element, in the order they appear in the file.
+     * @return the name of the field, or null if the top-level value is an array.
+     * @throws IndexOutOfBoundsException if there is no such element.
+     */
+    public String key(int element) {
+        if(element < 0 || element >= size)
+            throw new IndexOutOfBoundsException("element " + element + ", size " + size);
+        return object? keys[element]: null;
+    }
+
+    /**
+     * Finds the element that is the value of a field of the top-level object. If the field appears more than once,
+     * the last one is found.
+     * @param key name of the field.
+     * @return index of the element, or -1 if there is no such field (or the top-level value is an array).
+     */
+    public int indexOf(String key) {
+        if(!object)
+            return -1;
+        if(keyIndexes == null)
+            keyIndexes = new HashMap<>();
+        for(; indexedKeys < size; indexedKeys++)
+            keyIndexes.put(keys[indexedKeys], indexedKeys);
+        Integer element = keyIndexes.get(key);
+        return element != null? element: -1;
+    }
+
+    private void add(long offset, String key) {
+        if(size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            if(keys != null)
+                keys = Arrays.copyOf(keys, size * 2);
+        }
+        offsets[size] = offset;
+        if(object)
+            keys[size] = key;
+        size++;
+    }
+
+    private static void writeVarLong(OutputStream output, long value) throws IOException {
+        while((value & ~0x7FL) != 0) {
+            output.write((int)(value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write((int)value);
+    }
+
+    private static long readVarLong(InputStream input) throws IOException {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            int read = input.read();
+            if(read == -1)
+                throw new IOException("Unexpected end of the index");
+            value |= (long)(read & 0x7F) << shift;
+            if((read & 0x80) == 0)
+                return value;
+        }
+    }
+
+    private static boolean isWhitespace(int value) {
+        return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+    }
+
+    // state of a structural pass, kept across the windows of the file
+    private final class Scan {
+
+        private int state;
+        private long elementStart;
+        private int depth;
+        private boolean inString;
+        private boolean escaped;
+        private byte[] key = new byte[64];
+        private int keyLength;
+        private JSONReader keyReader;
+
+        Scan(int state) {
+            this.state = state;
+        }
+
+        void scan(ByteBuffer window, long base, int length) throws JSONReaderException {
+            int index = 0;
+            while(index < length && state != END) {
+                int value = window.get(index) & 0xFF;
+                long position = base + index;
+                switch(state) {
+                    case ROOT:
+                        if(value == '[' || value == '{') {
+                            object = value == '{';
+                            keys = object? new String[offsets.length]: null;
+                            resume = position + 1;
+                            state = ELEMENT;
+                        } else if(!isWhitespace(value)) {
+                            throw unexpected(value, position);
+                        }
+                        break;
+                    case ELEMENT:
+                        if(value == (object? '}': ']')) {
+                            complete = true;
+                            state = END;
+                        } else if(object && value == '"') {
+                            keyLength = 0;
+                            escaped = false;
+                            state = KEY;
+                        } else if(!object && !isWhitespace(value)) {
+                            startValue(value, position);
+                        } else if(!isWhitespace(value)) {
+                            throw unexpected(value, position);
+                        }
+                        break;
+                    case KEY:
+                        if(value == '"' && !escaped) {
+                            state = COLON;
+                            break;
+                        }
+                        escaped = !escaped && value == '\\';
+                        if(keyLength == key.length)
+                            key = Arrays.copyOf(key, keyLength * 2);
+                        key[keyLength++] = (byte)value;
+                        break;
+                    case COLON:
+                        if(value == ':')
+                            state = VALUE;
+                        else if(!isWhitespace(value))
+                            throw unexpected(value, position);
+                        break;
+                    case VALUE:
+                        if(!isWhitespace(value))
+                            startValue(value, position);
+                        break;
+                    case IN_VALUE:
+                        if(inString) {
+                            if(escaped)
+                                escaped = false;
+                            else if(value == '\\')
+                                escaped = true;
+                            else if(value == '"') {
+                                inString = false;
+                                if(depth == 0)
+                                    endValue(position + 1);
+                            }
+                        } else {
+                            switch(value) {
+                                case '"': inString = true; break;
+                                case '{': case '[': depth++; break;
+                                case '}': case ']':
+                                    if(depth == 0) {        // end of the root right after a number or literal
+                                        endValue(position);
+                                        continue;
+                                    }
+                                    if(--depth == 0)
+                                        endValue(position + 1);
+                                    break;
+                                case ',':
+                                    if(depth == 0) {
+                                        endValue(position);
+                                        continue;
+                                    }
+                                    break;
+                                case ' ': case '\n': case '\r': case '\t':
+                                    if(depth == 0)
+                                        endValue(position);
+                                    break;
+                            }
+                        }
+                        if(state == IN_VALUE && !escaped && (inString || depth > 0))
+                            index += Swar.runLength(window, index + 1, length,
+                                    inString? JSONInput.RUN_STRING: JSONInput.RUN_STRUCTURE);
+                        break;
+                    case SEPARATOR:
+                        if(value == ',') {
+                            state = ELEMENT;
+                        } else if(value == (object? '}': ']')) {
+                            complete = true;
+                            state = END;
+                        } else if(!isWhitespace(value)) {
+                            throw unexpected(value, position);
+                        }
+                        break;
+                }
+                index++;
+            }
+        }
+
+        private void startValue(int value, long position) {
+            elementStart = position;
+            depth = value == '{' || value == '['? 1: 0;
+            inString = value == '"';
+            escaped = false;
+            state = IN_VALUE;
+        }
+
+        private void endValue(long end) throws JSONReaderException {
+            add(elementStart, object? decodeKey(): null);
+            resume = end;
+            state = SEPARATOR;
+        }
+
+        private String decodeKey() throws JSONReaderException {
+            byte[] quoted = new byte[keyLength + 2];
+            quoted[0] = '"';
+            System.arraycopy(key, 0, quoted, 1, keyLength);
+            quoted[keyLength + 1] = '"';
+            if(keyReader == null)
+                keyReader = new JSONReader();
+            keyReader.setInput(quoted, 0, quoted.length);
+            keyReader.nextToken();
+            return keyReader.getText();
+        }
+
+        private JSONReaderException unexpected(int value, long position) {
+            return new JSONReaderException("Unexpected character: [" + (char)value + "] at offset " + position);
+        }
+    }
+
+}
@@ -0,0 +1,389 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * <p>Decompresses gzip data using several threads, to be read by a {@link JSONReader} (or as NDJSON records) when a
+ * single thread inflating the data can't keep up with parsing. A gzip file can be made of several members, one after
+ * another; when every member records its own size, as in the BGZF format written by <code>bgzip</code> (members of up
+ * to 64KB with a "BC" extra field), members are read from the source as they are found and inflated in parallel by
+ * tasks submitted to the given {@link ExecutorService}, each with an {@link Inflater} taken from a pool. Their data
+ * is returned in order.</p>
+ * <p>Members that don't record their size (the usual single-member files, or plain concatenations of them) can't be
+ * told apart without inflating what comes before them, so they are inflated sequentially, as they are read; the
+ * result is the same as with {@link java.util.zip.GZIPInputStream}. Both kinds of member can be mixed in the same
+ * input.</p>
+ * <p>The number of members read but not returned yet is bounded, so the memory used doesn't depend on the size of the
+ * input. Every member is checked against the CRC and size written in its trailer.</p>
+ */
+public final class ParallelGzipInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BGZF_DATA_SIZE = 64 * 1024;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final PushbackInputStream source;
+    private final ExecutorService executor;
+    private final int maxPendingMembers;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+    private final byte[] header = new byte[10];
+
+    private byte[] current = new byte[0];
+    private int currentIndex;
+    private int currentLength;
+
+    private int stashedFlags = -1;      // flags of a member without recorded size, found while reading ahead
+    private boolean sourceEnded;
+    private volatile boolean closed;    // inflaters given back after closing are ended by the tasks themselves
+
+    private Inflater inflater;          // for the member being inflated sequentially, if any
+    private boolean inflating;
+    private final CRC32 crc = new CRC32();
+    private long inflatedSize;
+    private byte[] compressed;
+    private int compressedLength;
+    private byte[] inflated;
+
+    /**
+     * Creates a stream decompressing the given gzip data, with up to twice the number of available processors members
+     * being inflated or waiting to be read.
+     * @param source gzip data; it is closed when this stream is closed.
+     * @param executor executor running the inflating tasks. It is never shut down by this object.
+     */
+    public ParallelGzipInputStream(InputStream source, ExecutorService executor) {
+        this(source, executor, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates a stream decompressing the given gzip data.
+     * @param source gzip data; it is closed when this stream is closed.
+     * @param executor executor running the inflating tasks. It is never shut down by this object.
+     * @param maxPendingMembers maximum number of members being inflated or waiting to be read.
+     */
+    public ParallelGzipInputStream(InputStream source, ExecutorService executor, int maxPendingMembers) {
+        if(maxPendingMembers <= 0)
+            throw new IllegalArgumentException("maximum of pending members must be positive: " + maxPendingMembers);
+        this.source = new PushbackInputStream(source, BUFFER_SIZE);
+        this.executor = executor;
+        this.maxPendingMembers = maxPendingMembers;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while(currentIndex >= currentLength)
+            if(!nextData())
+                return -1;
+        return current[currentIndex++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if(offset < 0 || length < 0 || length > buffer.length - offset)
+            throw new IndexOutOfBoundsException();
+        if(length == 0)
+            return 0;
+        while(currentIndex >= currentLength)
+            if(!nextData())
+                return -1;
+        int count = Math.min(length, currentLength - currentIndex);
+        System.arraycopy(current, currentIndex, buffer, offset, count);
+        currentIndex += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return currentLength - currentIndex;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for(Future<byte[]> future: pending)
+            future.cancel(true);
+        pending.clear();
+        Inflater pooled;
+        while((pooled = inflaters.poll()) != null)
+            pooled.end();
+        if(inflater != null)
+            inflater.end();
+        source.close();
+    }
+
+    // makes the next chunk of data the current one; false at the end of the input
+    private boolean nextData() throws IOException {
+        while(true) {
+            if(inflating) {
+                if(inflateSequentially())
+                    return true;
+                continue;
+            }
+            if(pending.isEmpty() && stashedFlags != -1) {
+                startSequential(stashedFlags);
+                stashedFlags = -1;
+                continue;
+            }
+            while(!sourceEnded && stashedFlags == -1 && pending.size() < maxPendingMembers)
+                readMember();
+            if(pending.isEmpty()) {
+                if(stashedFlags != -1)
+                    continue;
+                return false;
+            }
+            current = take(pending.poll());
+            currentIndex = 0;
+            currentLength = current.length;
+            if(currentLength > 0)
+                return true;
+        }
+    }
+
+    // reads the header of the next member and, if it records its size, the whole member, submitting it to be inflated
+    private void readMember() throws IOException {
+        int first = source.read();
+        if(first == -1) {
+            sourceEnded = true;
+            return;
+        }
+        header[0] = (byte)first;
+        readFully(header, 1, 9);
+        if((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B)
+            throw new ZipException("Not in GZIP format");
+        if(header[2] != 8)
+            throw new ZipException("Unsupported compression method");
+        int flags = header[3] & 0xFF;
+        if((flags & FEXTRA) == 0) {
+            stashedFlags = flags;
+            return;
+        }
+        byte[] lengthBytes = new byte[2];
+        readFully(lengthBytes, 0, 2);
+        int extraLength = (lengthBytes[0] & 0xFF) | (lengthBytes[1] & 0xFF) << 8;
+        byte[] extra = new byte[extraLength];
+        readFully(extra, 0, extraLength);
+        int blockSize = bgzfBlockSize(extra);
+        if(blockSize == -1) {
+            stashedFlags = flags & ~FEXTRA;     // the extra field has already been skipped
+            return;
+        }
+        int rest = blockSize - 12 - extraLength;
+        if(rest < 8)
+            throw new ZipException("Invalid BGZF block size: " + blockSize);
+        final byte[] member = new byte[rest];
+        readFully(member, 0, rest);
+        final int memberFlags = flags;
+        pending.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return inflateMember(member, memberFlags);
+            }
+        }));
+    }
+
+    // size of the whole member recorded in a BGZF extra field, or -1
+    private static int bgzfBlockSize(byte[] extra) {
+        int index = 0;
+        while(index + 4 <= extra.length) {
+            int length = (extra[index + 2] & 0xFF) | (extra[index + 3] & 0xFF) << 8;
+            if(extra[index] == 'B' && extra[index + 1] == 'C' && length == 2 && index + 6 <= extra.length)
+                return ((extra[index + 4] & 0xFF) | (extra[index + 5] & 0xFF) << 8) + 1;
+            index += 4 + length;
+        }
+        return -1;
+    }
+
+    // inflates a member recording its size, given from the end of the extra field up to the end of its trailer
+    private byte[] inflateMember(byte[] member, int flags) throws IOException {
+        int start = 0;
+        if((flags & FNAME) != 0)
+            start = skipZeroTerminated(member, start);
+        if((flags & FCOMMENT) != 0)
+            start = skipZeroTerminated(member, start);
+        if((flags & FHCRC) != 0)
+            start += 2;
+        int end = member.length - 8;
+        if(start > end)
+            throw new ZipException("Invalid BGZF block");
+        int dataSize = readInt(member, end + 4);
+        if(dataSize < 0 || dataSize > MAX_BGZF_DATA_SIZE)
+            throw new ZipException("Invalid BGZF data size: " + (dataSize & 0xFFFFFFFFL));
+        byte[] data = new byte[dataSize];
+        Inflater pooled = inflaters.poll();
+        if(pooled == null)
+            pooled = new Inflater(true);
+        try {
+            pooled.setInput(member, start, end - start);
+            int size = 0;
+            while(size < data.length && !pooled.finished()) {
+                int count = pooled.inflate(data, size, data.length - size);
+                if(count == 0 && (pooled.needsInput() || pooled.needsDictionary()))
+                    break;
+                size += count;
+            }
+            if(size == data.length && !pooled.finished() && pooled.inflate(new byte[1]) != 0)
+                size++;
+            if(size != data.length || !pooled.finished())
+                throw new ZipException("Corrupt GZIP member (wrong size)");
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            pooled.reset();
+            inflaters.offer(pooled);
+            if(closed && inflaters.remove(pooled))
+                pooled.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if((int)crc.getValue() != readInt(member, end))
+            throw new ZipException("Corrupt GZIP member (wrong CRC)");
+        return data;
+    }
+
+    private static int skipZeroTerminated(byte[] bytes, int index) throws ZipException {
+        while(index < bytes.length && bytes[index] != 0)
+            index++;
+        if(index == bytes.length)
+            throw new ZipException("Invalid GZIP header");
+        return index + 1;
+    }
+
+    private void startSequential(int flags) throws IOException {
+        if((flags & FEXTRA) != 0) {
+            byte[] lengthBytes = new byte[2];
+            readFully(lengthBytes, 0, 2);
+            skipFully((lengthBytes[0] & 0xFF) | (lengthBytes[1] & 0xFF) << 8);
+        }
+        if((flags & FNAME) != 0)
+            while(readByte() != 0);
+        if((flags & FCOMMENT) != 0)
+            while(readByte() != 0);
+        if((flags & FHCRC) != 0)
+            skipFully(2);
+        if(inflater == null) {
+            inflater = new Inflater(true);
+            compressed = new byte[BUFFER_SIZE];
+            inflated = new byte[BUFFER_SIZE];
+        }
+        inflater.reset();
+        crc.reset();
+        inflatedSize = 0;
+        inflating = true;
+    }
+
+    // inflates the next chunk of the member being read sequentially; false once the member has ended
+    private boolean inflateSequentially() throws IOException {
+        try {
+            while(!inflater.finished()) {
+                if(inflater.needsInput()) {
+                    int read = source.read(compressed, 0, compressed.length);
+                    if(read == -1)
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    inflater.setInput(compressed, 0, read);
+                    compressedLength = read;
+                }
+                int count = inflater.inflate(inflated, 0, inflated.length);
+                if(count > 0) {
+                    crc.update(inflated, 0, count);
+                    inflatedSize += count;
+                    current = inflated;
+                    currentIndex = 0;
+                    currentLength = count;
+                    return true;
+                }
+                if(inflater.needsDictionary())
+                    throw new ZipException("Corrupt GZIP member (dictionary needed)");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+        int remaining = inflater.getRemaining();
+        if(remaining > 0)
+            source.unread(compressed, compressedLength - remaining, remaining);
+        byte[] trailer = new byte[8];
+        readFully(trailer, 0, 8);
+        if((int)crc.getValue() != readInt(trailer, 0) || (int)inflatedSize != readInt(trailer, 4))
+            throw new ZipException("Corrupt GZIP member (wrong CRC or size)");
+        inflating = false;
+        currentLength = 0;
+        return false;
+    }
+
+    private byte[] take(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a member to be inflated");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException)cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private int readByte() throws IOException {
+        int read = source.read();
+        if(read == -1)
+            throw new EOFException("Unexpected end of GZIP header");
+        return read;
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while(length > 0) {
+            int read = source.read(buffer, offset, length);
+            if(read == -1)
+                throw new EOFException("Unexpected end of GZIP input");
+            offset += read;
+            length -= read;
+        }
+    }
+
+    private void skipFully(int length) throws IOException {
+        while(length-- > 0)
+            readByte();
+    }
+
+    private static int readInt(byte[] bytes, int index) {
+        return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8 | (bytes[index + 2] & 0xFF) << 16
+                | (bytes[index + 3] & 0xFF) << 24;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Reads newline-delimited JSON (NDJSON) records using several threads. The input is split on line boundaries into
+ * batches of bytes, and every batch is parsed by a task submitted to the given {@link ExecutorService} (e.g. a
+ * {@link java.util.concurrent.ForkJoinPool}). Every thread of the executor gets its own {@link JSONReader} and
+ * record binding, reused for all the batches it parses.</p>
+ * <p>Records and errors are delivered to the {@link RecordHandler} from the thread calling
+ * {@link ParallelRecordReader#read(InputStream, RecordHandler)}, so the handler doesn't need to be thread safe. They
+ * are delivered either in the same order they have in the input, or as soon as their batch is parsed.</p>
+ * <p>The number of batches read but not delivered yet is bounded (see
+ * {@link ParallelRecordReader#setMaxPendingBatches(int)}): when the limit is reached, reading waits for the oldest
+ * (or, unordered, any) batch to be delivered, so the memory used doesn't depend on the size of the input. Batch
+ * buffers are recycled.</p>
+ * <p>Positions given in error messages are relative to the batch where the error was found.</p>
+ * @param <T> type of the records.
+ */
+public class ParallelRecordReader<T> {
+
+    private static final int DEFAULT_BATCH_SIZE = 1024 * 1024;
+
+    private final Class<T> clazz;
+    private final ExecutorService executor;
+    private final Queue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxPendingBatches = Runtime.getRuntime().availableProcessors() * 2;
+    private boolean ordered = true;
+
+    /**
+     * Creates a reader of records of the given type, parsed by tasks submitted to the given executor.
+     * @param clazz type of the records, or null to get them as maps, lists and simple values.
+     * @param executor executor running the parsing tasks. It is never shut down by this object.
+     */
+    public ParallelRecordReader(Class<T> clazz, ExecutorService executor) {
+        this.clazz = clazz;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the approximate size in bytes of the batches the input is split into. A batch ends at the last line that
+     * fits; a line longer than this size makes a batch by itself. The default is 1MB.
+     * @param batchSize size in bytes of a batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if(batchSize <= 0)
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the maximum number of batches that can be read from the input and not yet delivered to the handler. The
+     * default is twice the number of available processors.
+     * @param maxPendingBatches maximum number of batches being parsed or waiting to be delivered.
+     */
+    public void setMaxPendingBatches(int maxPendingBatches) {
+        if(maxPendingBatches <= 0)
+            throw new IllegalArgumentException("maximum of pending batches must be positive: " + maxPendingBatches);
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    /**
+     * Sets whether records are delivered in the same order they have in the input (the default) or as soon as the
+     * batch they belong to has been parsed.
+     * @param ordered true to deliver the records in order.
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Reads all the records from the given UTF-8 encoded input, sending them to the given handler. A line that can't
+     * be read is reported to the handler and skipped. The given {@link java.io.InputStream input} is never closed.
+     * @param input input containing the records.
+     * @param handler handler receiving the records and the errors.
+     * @throws IOException if the input can't be read, or the thread is interrupted while waiting for a batch.
+     */
+    public void read(InputStream input, RecordHandler<T> handler) throws IOException {
+        ArrayDeque<Future<List<Object>>> pending = new ArrayDeque<>();
+        CompletionService<List<Object>> completionService = ordered? null:
+                new ExecutorCompletionService<List<Object>>(executor);
+        byte[] buffer = takeBuffer(0);
+        int used = 0;
+        try {
+            while(true) {
+                int read = input.read(buffer, used, buffer.length - used);
+                if(read == -1) {
+                    if(used > 0)
+                        pending.add(submit(buffer, used, completionService));
+                    break;
+                }
+                used += read;
+                if(used < buffer.length)
+                    continue;
+                int end = used;
+                while(end > 0 && buffer[end - 1] != '\n')
+                    end--;
+                if(end == 0) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+                byte[] next = takeBuffer(used - end);
+                System.arraycopy(buffer, end, next, 0, used - end);
+                pending.add(submit(buffer, end, completionService));
+                buffer = next;
+                used -= end;
+                while(pending.size() >= maxPendingBatches)
+                    deliver(pending, completionService, handler);
+            }
+            while(!pending.isEmpty())
+                deliver(pending, completionService, handler);
+        } finally {
+            for(Future<List<Object>> future: pending)
+                future.cancel(false);
+        }
+    }
+
+    private byte[] takeBuffer(int minimumLength) {
+        byte[] buffer = freeBuffers.poll();
+        if(buffer == null || buffer.length < minimumLength)
+            buffer = new byte[Math.max(batchSize, minimumLength)];
+        return buffer;
+    }
+
+    private Future<List<Object>> submit(final byte[] batch, final int length,
+            CompletionService<List<Object>> completionService) {
+        Callable<List<Object>> task = new Callable<List<Object>>() {
+            @Override
+            public List<Object> call() {
+                try {
+                    return workers.get().parse(batch, length);
+                } finally {
+                    if(batch.length == batchSize)
+                        freeBuffers.add(batch);
+                }
+            }
+        };
+        return completionService != null? completionService.submit(task): executor.submit(task);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(ArrayDeque<Future<List<Object>>> pending, CompletionService<List<Object>> completionService,
+            RecordHandler<T> handler) throws IOException {
+        List<Object> items;
+        try {
+            if(completionService != null) {
+                Future<List<Object>> future = completionService.take();
+                pending.remove(future);
+                items = future.get();
+            } else {
+                items = pending.peek().get();
+                pending.poll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a batch to be parsed");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        for(Object item: items) {
+            if(item instanceof Failure)
+                handler.error(((Failure)item).exception);
+            else
+                handler.record((T)item);
+        }
+    }
+
+    private static final class Failure {
+
+        private final JSONReaderException exception;
+
+        private Failure(JSONReaderException exception) {
+            this.exception = exception;
+        }
+    }
+
+    private final class Worker implements ErrorHandler {
+
+        private final JSONReader parser = new JSONReader();
+        private final ObjectDeserializer.Records<T> records = new ObjectDeserializer.Records<>(parser, clazz, this);
+        private List<Object> items;
+
+        private List<Object> parse(byte[] batch, int length) {
+            items = new ArrayList<>();
+            parser.setInput(batch, 0, length);
+            records.restart();
+            while(records.hasNext())
+                items.add(records.next());
+            List<Object> result = items;
+            items = null;
+            return result;
+        }
+
+        @Override
+        public void error(JSONReaderException exception) {
+            items.add(new Failure(exception));
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Set of paths (a subset of JSONPath) compiled into a trie whose nodes are the steps of the paths. While parsing, the
+ * set of nodes reached by the enclosing containers is kept for every nesting level, so deciding whether a value is
+ * selected only requires looking at the transitions of the nodes of the current level.
+ */
+final class PathFilter {
+
+    static final int NONE = 0;      // the value is not in any path, it can be skipped
+    static final int PARTIAL = 1;   // the value is a container that can contain selected values
+    static final int MATCH = 2;     // the value is selected, with everything it contains
+
+    private static final int WILDCARD = -1;
+
+    // compiled trie, node 0 is the root ("$")
+    private final boolean[] accepting;
+    private final String[][] names;
+    private final int[][] nameTargets;
+    private final int[][] indexes;
+    private final int[][] indexTargets;
+    private final int[] wildcardTargets;
+
+    // nodes reached at every nesting level, level 0 is outside the root value
+    private int[][] levels = new int[8][];
+    private int[] levelSizes = new int[8];
+    private int[] elementIndexes = new int[8];
+    private int depth;
+    private int matchDepth = -1;
+
+    private int[] selected = new int[4];
+    private int selectedSize;
+
+    PathFilter(String... paths) {
+        List<Step[]> compiledPaths = new ArrayList<>(paths.length);
+        for(String path: paths)
+            compiledPaths.add(parse(path));
+
+        List<List<Step>> nodeSteps = new ArrayList<>();
+        List<List<Integer>> nodeTargets = new ArrayList<>();
+        List<Boolean> nodeAccepting = new ArrayList<>();
+        nodeSteps.add(new ArrayList<Step>());
+        nodeTargets.add(new ArrayList<Integer>());
+        nodeAccepting.add(false);
+        for(Step[] steps: compiledPaths) {
+            int node = 0;
+            stepLoop:
+            for(Step step: steps) {
+                List<Step> existing = nodeSteps.get(node);
+                for(int i = 0; i < existing.size(); i++) {
+                    if(existing.get(i).equals(step)) {
+                        node = nodeTargets.get(node).get(i);
+                        continue stepLoop;
+                    }
+                }
+                int target = nodeSteps.size();
+                nodeSteps.add(new ArrayList<Step>());
+                nodeTargets.add(new ArrayList<Integer>());
+                nodeAccepting.add(false);
+                existing.add(step);
+                nodeTargets.get(node).add(target);
+                node = target;
+            }
+            nodeAccepting.set(node, true);
+        }
+
+        int size = nodeSteps.size();
+        accepting = new boolean[size];
+        names = new String[size][];
+        nameTargets = new int[size][];
+        indexes = new int[size][];
+        indexTargets = new int[size][];
+        wildcardTargets = new int[size];
+        for(int node = 0; node < size; node++) {
+            accepting[node] = nodeAccepting.get(node);
+            wildcardTargets[node] = -1;
+            List<String> nodeNames = new ArrayList<>();
+            List<Integer> nodeNameTargets = new ArrayList<>();
+            List<Integer> nodeIndexes = new ArrayList<>();
+            List<Integer> nodeIndexTargets = new ArrayList<>();
+            List<Step> steps = nodeSteps.get(node);
+            for(int i = 0; i < steps.size(); i++) {
+                Step step = steps.get(i);
+                int target = nodeTargets.get(node).get(i);
+                if(step.name != null) {
+                    nodeNames.add(step.name);
+                    nodeNameTargets.add(target);
+                } else if(step.index == WILDCARD) {
+                    wildcardTargets[node] = target;
+                } else {
+                    nodeIndexes.add(step.index);
+                    nodeIndexTargets.add(target);
+                }
+            }
+            names[node] = nodeNames.toArray(new String[nodeNames.size()]);
+            nameTargets[node] = toArray(nodeNameTargets);
+            indexes[node] = toArray(nodeIndexes);
+            indexTargets[node] = toArray(nodeIndexTargets);
+        }
+        reset();
+    }
+
+    void reset() {
+        depth = 0;
+        matchDepth = -1;
+    }
+
+    /*
+     * Decides what to do with the next value of the current container, whose field name is given (null for elements
+     * of arrays and for the root value). If the value is an object or array that is not skipped, enter() must be
+     * called next.
+     */
+    int select(CharSequence name) {
+        if(matchDepth >= 0)
+            return MATCH;
+        selectedSize = 0;
+        if(depth == 0) {
+            addSelected(0);
+        } else {
+            int[] nodes = levels[depth];
+            int size = levelSizes[depth];
+            int index = name == null? elementIndexes[depth]++: -1;
+            for(int n = 0; n < size; n++) {
+                int node = nodes[n];
+                if(name != null) {
+                    String[] nodeNames = names[node];
+                    for(int i = 0; i < nodeNames.length; i++)
+                        if(contentEquals(nodeNames[i], name))
+                            addSelected(nameTargets[node][i]);
+                } else {
+                    int[] nodeIndexes = indexes[node];
+                    for(int i = 0; i < nodeIndexes.length; i++)
+                        if(nodeIndexes[i] == index)
+                            addSelected(indexTargets[node][i]);
+                }
+                if(wildcardTargets[node] != -1)
+                    addSelected(wildcardTargets[node]);
+            }
+        }
+        if(selectedSize == 0)
+            return NONE;
+        for(int n = 0; n < selectedSize; n++)
+            if(accepting[selected[n]])
+                return MATCH;
+        return PARTIAL;
+    }
+
+    /* Enters the object or array just selected with the given result. */
+    void enter(int selection) {
+        depth++;
+        if(selection == MATCH) {
+            if(matchDepth < 0)
+                matchDepth = depth;
+            return;
+        }
+        if(depth == levels.length) {
+            levels = Arrays.copyOf(levels, depth * 2);
+            levelSizes = Arrays.copyOf(levelSizes, depth * 2);
+            elementIndexes = Arrays.copyOf(elementIndexes, depth * 2);
+        }
+        int[] nodes = levels[depth];
+        if(nodes == null || nodes.length < selectedSize)
+            nodes = levels[depth] = new int[Math.max(selectedSize, 4)];
+        System.arraycopy(selected, 0, nodes, 0, selectedSize);
+        levelSizes[depth] = selectedSize;
+        elementIndexes[depth] = 0;
+    }
+
+    /* Leaves the current object or array. */
+    void exit() {
+        if(matchDepth == depth)
+            matchDepth = -1;
+        depth--;
+    }
+
+    private void addSelected(int node) {
+        for(int n = 0; n < selectedSize; n++)
+            if(selected[n] == node)
+                return;
+        if(selectedSize == selected.length)
+            selected = Arrays.copyOf(selected, selectedSize * 2);
+        selected[selectedSize++] = node;
+    }
+
+    private static boolean contentEquals(String string, CharSequence sequence) {
+        int length = string.length();
+        if(length != sequence.length())
+            return false;
+        for(int i = 0; i < length; i++)
+            if(string.charAt(i) != sequence.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for(int i = 0; i < array.length; i++)
+            array[i] = list.get(i);
+        return array;
+    }
+
+    private static Step[] parse(String path) {
+        if(path == null || !path.startsWith("$"))
+            throw invalidPath(path, "paths must start with '$'");
+        List<Step> steps = new ArrayList<>();
+        int pos = 1;
+        int length = path.length();
+        while(pos < length) {
+            char ch = path.charAt(pos);
+            if(ch == '.') {
+                int end = pos + 1;
+                while(end < length && path.charAt(end) != '.' && path.charAt(end) != '[')
+                    end++;
+                String name = path.substring(pos + 1, end);
+                if(name.isEmpty())
+                    throw invalidPath(path, "empty field name at position " + pos);
+                steps.add(name.equals("*")? new Step(null, WILDCARD): new Step(name, 0));
+                pos = end;
+            } else if(ch == '[') {
+                int end = path.indexOf(']', pos);
+                if(end == -1)
+                    throw invalidPath(path, "missing ']' after position " + pos);
+                String content = path.substring(pos + 1, end).trim();
+                if(content.equals("*")) {
+                    steps.add(new Step(null, WILDCARD));
+                } else if(content.length() >= 2 && (content.charAt(0) == '\'' || content.charAt(0) == '"')
+                        && content.charAt(content.length() - 1) == content.charAt(0)) {
+                    steps.add(new Step(content.substring(1, content.length() - 1), 0));
+                } else {
+                    try {
+                        int index = Integer.parseInt(content);
+                        if(index < 0)
+                            throw invalidPath(path, "negative index at position " + pos);
+                        steps.add(new Step(null, index));
+                    } catch (NumberFormatException e) {
+                        throw invalidPath(path, "invalid subscript at position " + pos);
+                    }
+                }
+                pos = end + 1;
+            } else {
+                throw invalidPath(path, "unexpected character [" + ch + "] at position " + pos);
+            }
+        }
+        return steps.toArray(new Step[steps.size()]);
+    }
+
+    private static IllegalArgumentException invalidPath(String path, String reason) {
+        return new IllegalArgumentException("Invalid path: " + path + ", " + reason);
+    }
+
+    private static class Step {
+
+        private final String name;
+        private final int index;
+
+        private Step(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Step))
+                return false;
+            Step step = (Step)o;
+            return index == step.index && (name != null? name.equals(step.name): step.name == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (name != null? name.hashCode(): 0) + index;
+        }
+    }
+
+}
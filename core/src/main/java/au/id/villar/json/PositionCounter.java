@@ -0,0 +1,87 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Line and column of the last character consumed from a {@link JSONInput}, worked out in bulk over the characters
+ * of its buffers instead of one character at a time as they are read. It follows exactly the same rules as
+ * {@link JSONReader} does when it tracks positions by itself: '\r', '\n' and "\r\n" are line breaks, and columns are
+ * counted in UTF-16 code units.
+ */
+final class PositionCounter {
+
+    private int line = 1;
+    private int column = 0;
+    private int last = -1;
+    private boolean splitSurrogate;
+
+    int getLine() {
+        return line;
+    }
+
+    int getColumn() {
+        return splitSurrogate? column - 1: column;
+    }
+
+    /* Set when only the high surrogate of a pair whose bytes have been counted has been returned so far. */
+    void setSplitSurrogate(boolean splitSurrogate) {
+        this.splitSurrogate = splitSurrogate;
+    }
+
+    void count(char[] chars, int from, int to) {
+        for(int index = from; index < to; index++)
+            count(chars[index]);
+    }
+
+    /* Counts UTF-8 encoded characters, whole ASCII words without line breaks are counted 8 bytes at a time. */
+    void countUTF8(ByteBuffer littleEndianBytes, int from, int to) {
+        int index = from;
+        while(index < to) {
+            if(index + 8 <= to && Swar.lineStops(littleEndianBytes.getLong(index)) == 0) {
+                column += 8;
+                last = littleEndianBytes.get(index + 7);
+                index += 8;
+                continue;
+            }
+            int value = littleEndianBytes.get(index++) & 0xFF;
+            if(value < 0x80) {
+                count(value);
+            } else {
+                if(value >= 0xF0)
+                    column += 2;    // a supplementary character, read as two surrogates
+                else if(value >= 0xC0)
+                    column++;
+                last = value;       // continuation bytes don't count by themselves
+            }
+        }
+    }
+
+    private void count(int ch) {
+        if(ch == '\n' && last != '\r' || ch == '\r') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+        last = ch;
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link UTF8Input} reading from an {@link java.io.InputStream} in a background thread. A fixed set of buffers goes
+ * round between the two threads: the background one fills free buffers and queues them, while the parser consumes
+ * them in order and gives each one back once it moves to the next. Reading from the stream (and whatever decompression
+ * or waiting it involves) thus overlaps with parsing.
+ * <p>Closing this input interrupts the background thread only while it waits for a buffer; a read from the stream in
+ * progress is left to return on its own, as interrupting it would close streams over interruptible channels (e.g.
+ * {@link java.nio.channels.Channels#newInputStream(java.nio.channels.ReadableByteChannel)}).</p>
+ */
+final class ReadAheadInput extends UTF8Input implements Runnable {
+
+    private static final Buffer END = new Buffer(0);
+
+    private final InputStream stream;
+    private final BlockingQueue<Buffer> filled;
+    private final BlockingQueue<Buffer> free;
+    private final Object lock = new Object();
+    private final AsciiSlice slice = new AsciiSlice();
+    private volatile boolean closed;
+    private Thread reader;          // thread running run(), guarded by lock
+    private boolean waiting;        // the reader is blocked on a queue, not reading the stream; guarded by lock
+    private Buffer current;
+    private boolean finished;
+    private int countedIndex;
+    private int bufferIndex;
+    private int bufferUsed;
+
+    ReadAheadInput(InputStream stream, int bufferSize, int buffers, Executor executor) {
+        if(bufferSize <= 0)
+            throw new IllegalArgumentException("buffer size must be positive: " + bufferSize);
+        if(buffers < 2)
+            throw new IllegalArgumentException("at least two buffers are needed: " + buffers);
+        this.stream = stream;
+        this.filled = new ArrayBlockingQueue<>(buffers + 1);
+        this.free = new ArrayBlockingQueue<>(buffers);
+        for(int count = 0; count < buffers; count++)
+            free.add(new Buffer(bufferSize));
+        if(executor != null) {
+            executor.execute(this);
+        } else {
+            Thread thread = new Thread(this, "JSONReader read-ahead");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // background reading
+    @Override
+    public void run() {
+        synchronized(lock) {
+            if(closed)
+                return;
+            reader = Thread.currentThread();
+        }
+        try {
+            while(!closed) {
+                startWaiting();
+                Buffer buffer;
+                try {
+                    buffer = free.take();
+                } finally {
+                    stopWaiting();
+                }
+                if(closed)
+                    return;
+                int read;
+                try {
+                    do { read = stream.read(buffer.bytes); } while(read == 0);
+                } catch (IOException e) {
+                    buffer.error = e;
+                    put(buffer);
+                    return;
+                }
+                put(read == -1? END: buffer.setLength(read));
+                if(read == -1)
+                    return;
+            }
+        } catch (InterruptedException e) {
+            // closed while waiting
+        } finally {
+            synchronized(lock) {
+                reader = null;
+                Thread.interrupted();   // don't leave a pooled thread interrupted
+            }
+        }
+    }
+
+    private void put(Buffer buffer) throws InterruptedException {
+        startWaiting();
+        try {
+            filled.put(buffer);
+        } finally {
+            stopWaiting();
+        }
+    }
+
+    private void startWaiting() throws InterruptedException {
+        synchronized(lock) {
+            if(closed)
+                throw new InterruptedException();
+            waiting = true;
+        }
+    }
+
+    private void stopWaiting() {
+        synchronized(lock) {
+            waiting = false;
+            if(closed)
+                Thread.interrupted();   // close() may have interrupted the thread just as it stopped waiting
+        }
+    }
+
+    @Override
+    int nextByte() throws IOException {
+        if(bufferIndex >= bufferUsed && !nextBuffer())
+            return -1;
+        return current.bytes[bufferIndex++] & 0xFF;
+    }
+
+    @Override
+    void close() {
+        synchronized(lock) {
+            closed = true;
+            if(reader != null && waiting)
+                reader.interrupt();
+        }
+        finished = true;
+    }
+
+    @Override
+    boolean countsPositions() {
+        return true;
+    }
+
+    @Override
+    void countConsumedBytes() {
+        if(current == null)
+            return;
+        counter.countUTF8(current.words, countedIndex, bufferIndex);
+        countedIndex = bufferIndex;
+    }
+
+    @Override
+    int readByteRun(StringBuilder builder, int kind) {
+        if(current == null)
+            return 0;
+        int length = Swar.runLength(current.words, bufferIndex, bufferUsed, kind);
+        if(builder != null)
+            for(int index = bufferIndex; index < bufferIndex + length; index++)
+                builder.append((char)current.bytes[index]);
+        bufferIndex += length;
+        return length;
+    }
+
+    @Override
+    CharSequence readAsciiString() {
+        if(current == null)
+            return null;
+        int length = Swar.runLength(current.words, bufferIndex, bufferUsed, RUN_STRING);
+        int end = bufferIndex + length;
+        if(end >= bufferUsed || current.bytes[end] != '"')
+            return null;
+        slice.reset(current.words, bufferIndex, length);
+        bufferIndex = end + 1;
+        return slice;
+    }
+
+    private boolean nextBuffer() throws IOException {
+        if(finished)
+            return false;
+        if(current != null) {
+            if(counter != null)
+                counter.countUTF8(current.words, countedIndex, bufferIndex);
+            free.add(current);
+            current = null;
+        }
+        Buffer buffer;
+        try {
+            buffer = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for input");
+        }
+        if(buffer == END || buffer.error != null) {
+            finished = true;
+            bufferIndex = 0;
+            bufferUsed = 0;
+            if(buffer.error != null)
+                throw buffer.error;
+            return false;
+        }
+        current = buffer;
+        bufferIndex = 0;
+        countedIndex = 0;
+        bufferUsed = buffer.length;
+        return true;
+    }
+
+    private static final class Buffer {
+
+        final byte[] bytes;
+        final ByteBuffer words;
+        int length;
+        IOException error;
+
+        Buffer(int size) {
+            bytes = new byte[size];
+            words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        Buffer setLength(int length) {
+            this.length = length;
+            return this;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/** {@link JSONInput} reading characters from a {@link java.io.Reader}. */
+final class ReaderInput extends JSONInput {
+
+    private static final int BUFFER_LENGTH = 2048;
+
+    private Reader reader;
+    private final char[] buffer = new char[BUFFER_LENGTH];
+    private int bufferIndex = 0;
+    private int bufferUsed = 0;
+    private final CharArraySlice slice = new CharArraySlice();
+    private int countedIndex;
+
+    ReaderInput(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Makes this input read from another reader, from its start, keeping the buffer.
+     * @param reader the new source of characters, or null to just let go of the previous one.
+     */
+    void reuse(Reader reader) {
+        this.reader = reader;
+        bufferIndex = 0;
+        bufferUsed = 0;
+        countedIndex = 0;
+        counter = null;
+    }
+
+    @Override
+    int read() throws IOException {
+        if(bufferIndex >= bufferUsed) {
+            if(counter != null)
+                counter.count(buffer, countedIndex, bufferIndex);
+            countedIndex = bufferIndex;
+            bufferUsed = reader.read(buffer);
+            if (bufferUsed == -1) return -1;
+            bufferIndex = 0;
+            countedIndex = 0;
+        }
+        return buffer[bufferIndex++];
+    }
+
+    @Override
+    int readRun(StringBuilder builder, int kind) {
+        int length = runLength(kind);
+        if(builder != null)
+            builder.append(buffer, bufferIndex, length);
+        bufferIndex += length;
+        return length;
+    }
+
+    @Override
+    CharSequence readPlainString() {
+        int length = runLength(RUN_STRING);
+        int end = bufferIndex + length;
+        if(end >= bufferUsed || buffer[end] != '"')
+            return null;
+        slice.reset(buffer, bufferIndex, length);
+        bufferIndex = end + 1;
+        return slice;
+    }
+
+    @Override
+    boolean countsPositions() {
+        return true;
+    }
+
+    @Override
+    void countPosition() {
+        counter.count(buffer, countedIndex, bufferIndex);
+        countedIndex = bufferIndex;
+    }
+
+    // characters are already decoded, so unlike UTF-8 input, runs go on through non-ASCII ones
+    private int runLength(int kind) {
+        int index = bufferIndex;
+        while(index < bufferUsed) {
+            char ch = buffer[index];
+            if(ch < 0x20 || ch == '"')
+                break;
+            if(kind == RUN_STRING? ch == '\\': ch == '[' || ch == ']' || ch == '{' || ch == '}')
+                break;
+            index++;
+        }
+        return index - bufferIndex;
+    }
+
+}
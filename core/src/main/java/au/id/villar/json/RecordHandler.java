@@ -0,0 +1,36 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+/**
+ * Interface to be implemented by handlers receiving the records read by
+ * {@link ObjectDeserializer#readRecords(java.io.Reader, Class, RecordHandler)}. A record that can't be read is
+ * reported through {@link ErrorHandler#error(JSONReaderException)} and skipped; reading then continues with the next
+ * record.
+ * @param <T> type of the records.
+ */
+public interface RecordHandler<T> extends ErrorHandler {
+
+    /**
+     * Method executed for every record successfully read.
+     * @param record the record.
+     */
+    void record(T record);
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+/**
+ * <p>Extension of {@link ContentHandler} for handlers that are only interested in part of the input. Before
+ * reporting the beginning of an object or array, {@link JSONReader} asks the handler whether it wants it; if it
+ * doesn't, the whole object or array is skipped and no event at all is generated for it (not even
+ * {@link ContentHandler#startObject(StringBuilder)} or {@link ContentHandler#endObject()}).</p>
+ * <p>Skipped content is scanned only to find where it ends: strings are not unescaped and their content is not
+ * validated.</p>
+ */
+public interface SelectiveContentHandler extends ContentHandler {
+
+    /**
+     * Called by {@link JSONReader} when the beginning of an object is detected, before
+     * {@link ContentHandler#startObject(StringBuilder)}.
+     * @param name name of the field whose value is represented by this object if this is inside another object;
+     *             otherwise is null.
+     * @return true to get the events for this object, false to skip it.
+     * @throws JSONReaderException
+     */
+    boolean acceptObject(StringBuilder name) throws JSONReaderException;
+
+    /**
+     * Called by {@link JSONReader} when the beginning of an array is detected, before
+     * {@link ContentHandler#startArray(StringBuilder)}.
+     * @param name name of the field whose value is represented by this array if this is inside an object; otherwise is
+     *             null.
+     * @return true to get the events for this array, false to skip it.
+     * @throws JSONReaderException
+     */
+    boolean acceptArray(StringBuilder name) throws JSONReaderException;
+
+}
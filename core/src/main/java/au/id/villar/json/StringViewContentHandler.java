@@ -0,0 +1,40 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+/**
+ * <p>Extension of {@link ContentHandler} for handlers that can work with string values without owning them. Strings
+ * are reported through {@link StringViewContentHandler#stringValue(StringBuilder, CharSequence)} instead of
+ * {@link ContentHandler#simpleValue(StringBuilder, StringBuilder, ValueType)}.</p>
+ * <p>When a string has no escape sequences (and, for UTF-8 input, only ASCII characters) and is already in the input
+ * buffer of {@link JSONReader}, the value given is a view over that buffer: nothing is copied. Handlers that only
+ * compare or hash values (e.g. to look up an enum constant or filter records) don't allocate at all.</p>
+ */
+public interface StringViewContentHandler extends ContentHandler {
+
+    /**
+     * Called by {@link JSONReader} when a string value is read.
+     * @param name name of the field whose value is this string if this is inside an object; otherwise is null.
+     * @param value content of the string (already unescaped). It is only valid during this call: it is reused, and it
+     *              may be backed by a buffer that is overwritten as soon as parsing continues.
+     * @throws JSONReaderException
+     */
+    void stringValue(StringBuilder name, CharSequence value) throws JSONReaderException;
+
+}
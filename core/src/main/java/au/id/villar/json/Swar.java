@@ -0,0 +1,113 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SIMD within a register: classification of the bytes of UTF-8 JSON input 8 at a time. Each 8-byte word read from the
+ * input is turned into a mask with the high bit set in every byte that is a stop character of the requested kind;
+ * the position of the first stop is then found with a single count of trailing zeros. Words are read in little endian
+ * order, so the lowest byte of the mask is the first byte in the input.
+ */
+final class Swar {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    private static final long QUOTES = ONES * '"';
+    private static final long BACKSLASHES = ONES * '\\';
+    private static final long SPACES = ONES * ' ';
+    private static final long CARRIAGE_RETURNS = ONES * '\r';
+    private static final long LINE_FEEDS = ONES * '\n';
+    private static final long CASE_BITS = ONES * 0x20;
+    private static final long OPENINGS = ONES * '{';     // '[' or '{' once the 0x20 bit is set
+    private static final long CLOSINGS = ONES * '}';     // ']' or '}' once the 0x20 bit is set
+
+    private Swar() {}
+
+    /**
+     * Counts the bytes from <code>index</code> (inclusive) to <code>limit</code> (exclusive) before the first stop
+     * character of the given kind.
+     * @param buffer buffer with little endian order, only read through absolute gets.
+     * @param index position of the first byte to check.
+     * @param limit position after the last byte to check.
+     * @param kind {@link JSONInput#RUN_STRING} or {@link JSONInput#RUN_STRUCTURE}.
+     * @return number of bytes that are not stops.
+     */
+    static int runLength(ByteBuffer buffer, int index, int limit, int kind) {
+        int start = index;
+        if(kind == JSONInput.RUN_STRING) {
+            for(; index + 8 <= limit; index += 8) {
+                long mask = stringStops(buffer.getLong(index));
+                if(mask != 0)
+                    return index - start + (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+        } else {
+            for(; index + 8 <= limit; index += 8) {
+                long mask = structureStops(buffer.getLong(index));
+                if(mask != 0)
+                    return index - start + (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+        }
+        while(index < limit && !isStop(buffer.get(index) & 0xFF, kind))
+            index++;
+        return index - start;
+    }
+
+    /** Scalar classification, equivalent to the masks computed for whole words. */
+    static boolean isStop(int value, int kind) {
+        if(value < 0x20 || value >= 0x80 || value == '"')
+            return true;
+        if(kind == JSONInput.RUN_STRING)
+            return value == '\\';
+        return value == '[' || value == ']' || value == '{' || value == '}';
+    }
+
+    /* '"', '\\', control characters and bytes of multi-byte sequences */
+    static long stringStops(long word) {
+        return zeroBytes(word ^ QUOTES) | zeroBytes(word ^ BACKSLASHES) | lessThanSpace(word) | (word & HIGHS);
+    }
+
+    /* '"', '[', ']', '{', '}', control characters and bytes of multi-byte sequences */
+    static long structureStops(long word) {
+        long folded = word | CASE_BITS;
+        return zeroBytes(word ^ QUOTES) | zeroBytes(folded ^ OPENINGS) | zeroBytes(folded ^ CLOSINGS)
+                | lessThanSpace(word) | (word & HIGHS);
+    }
+
+    /* '\r', '\n' and bytes of multi-byte sequences */
+    static long lineStops(long word) {
+        return zeroBytes(word ^ CARRIAGE_RETURNS) | zeroBytes(word ^ LINE_FEEDS) | (word & HIGHS);
+    }
+
+    /*
+     * High bit set for bytes that are zero. Bytes after a zero one may be flagged too because of the borrow, but never
+     * bytes before it, so the lowest flagged byte is always exact.
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    /* High bit set for bytes lower than 0x20, with the same caveat as zeroBytes() */
+    private static long lessThanSpace(long word) {
+        return (word - SPACES) & ~word & HIGHS;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.util.Arrays;
+
+/**
+ * <p>Table of field names, so the same name found over and over while parsing is represented by a single canonical
+ * {@link String} and an integer id, instead of a new String each time. Lookups are made directly over the characters
+ * of the name (an open addressing hash table with linear probing), without allocating.</p>
+ * <p>The table is bounded: once it holds its maximum number of symbols (or for names longer than
+ * {@link SymbolTable#MAX_SYMBOL_LENGTH}) new names are not added and a lookup simply finds nothing.</p>
+ * <p>A table is not thread safe and is meant to be confined to the thread using its {@link JSONReader}. To share a
+ * table between readers in different threads, add the expected names first and then {@link SymbolTable#seal()} it:
+ * a sealed table is never modified, so once safely published it can be used concurrently.</p>
+ */
+public final class SymbolTable {
+
+    /** Default maximum number of symbols. */
+    public static final int DEFAULT_MAX_SYMBOLS = 4096;
+
+    /** Names longer than this are never added. */
+    public static final int MAX_SYMBOL_LENGTH = 256;
+
+    private final int maxSymbols;
+    private String[] symbols = new String[16];
+    private int[] hashes = new int[16];
+    private int[] slots = new int[32];      // id + 1 of the symbol in every slot, 0 for empty slots
+    private int size;
+    private volatile boolean sealed;
+
+    /** Creates a table holding up to {@link SymbolTable#DEFAULT_MAX_SYMBOLS} symbols. */
+    public SymbolTable() {
+        this(DEFAULT_MAX_SYMBOLS);
+    }
+
+    /**
+     * Creates a table holding up to the given number of symbols.
+     * @param maxSymbols maximum number of symbols.
+     */
+    public SymbolTable(int maxSymbols) {
+        if(maxSymbols <= 0)
+            throw new IllegalArgumentException("maximum number of symbols must be positive: " + maxSymbols);
+        this.maxSymbols = maxSymbols;
+    }
+
+    /**
+     * Adds a symbol, if it's not present already.
+     * @param symbol the name to add.
+     * @return the id of the symbol, or -1 if the table is full or the name is too long.
+     * @throws IllegalStateException if the table is sealed and the symbol is not present.
+     */
+    public int add(String symbol) {
+        int id = find(symbol);
+        if(id != -1)
+            return id;
+        if(sealed)
+            throw new IllegalStateException("The symbol table is sealed");
+        return insert(symbol);
+    }
+
+    /**
+     * Finds the id of a symbol.
+     * @param name the characters of the name.
+     * @return the id of the symbol, or -1 if it is not present.
+     */
+    public int find(CharSequence name) {
+        int hash = hash(name);
+        int mask = slots.length - 1;
+        for(int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if(hashes[id] == hash && equals(symbols[id], name))
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the canonical String of a symbol.
+     * @param id the id of the symbol.
+     * @return the symbol.
+     */
+    public String symbol(int id) {
+        if(id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("id: " + id);
+        return symbols[id];
+    }
+
+    /**
+     * Gets the number of symbols in this table; ids go from 0 to this number (exclusive).
+     * @return the number of symbols.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Makes this table read only. Names not present are not added anymore when parsing. */
+    public void seal() {
+        sealed = true;
+    }
+
+    /**
+     * Tells whether {@link SymbolTable#seal()} has been called.
+     * @return true if this table is read only.
+     */
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    /* Finds the id of a name, adding it if possible. */
+    int resolve(CharSequence name) {
+        int id = find(name);
+        if(id == -1 && !sealed && size < maxSymbols && name.length() <= MAX_SYMBOL_LENGTH)
+            id = insert(name.toString());
+        return id;
+    }
+
+    private int insert(String symbol) {
+        if(size == maxSymbols || symbol.length() > MAX_SYMBOL_LENGTH)
+            return -1;
+        if(size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        if(size * 2 >= slots.length)
+            rehash(slots.length * 2);
+        int id = size++;
+        symbols[id] = symbol;
+        hashes[id] = hash(symbol);
+        place(id);
+        return id;
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        for(int id = 0; id < size; id++)
+            place(id);
+    }
+
+    private void place(int id) {
+        int mask = slots.length - 1;
+        int slot = hashes[id] & mask;
+        while(slots[slot] != 0)
+            slot = (slot + 1) & mask;
+        slots[slot] = id + 1;
+    }
+
+    // same as String.hashCode(), spread so that close values don't end up in consecutive slots
+    private static int hash(CharSequence name) {
+        int hash = 0;
+        for(int i = 0; i < name.length(); i++)
+            hash = 31 * hash + name.charAt(i);
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String symbol, CharSequence name) {
+        int length = symbol.length();
+        if(length != name.length())
+            return false;
+        for(int i = 0; i < length; i++)
+            if(symbol.charAt(i) != name.charAt(i))
+                return false;
+        return true;
+    }
+
+}
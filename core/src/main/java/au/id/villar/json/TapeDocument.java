@@ -0,0 +1,636 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>Compact, immutable representation of a JSON document, for data that is kept in memory for a long time. Instead
+ * of a tree of maps, lists and boxed values, the whole document is stored in a few flat arrays:</p>
+ * <ul>
+ *     <li>a <code>long[]</code> tape with one entry per value (two for objects, arrays, decimals and integers that
+ *     don't fit in 56 bits), in document order; objects and arrays point to their end so they can be stepped over,</li>
+ *     <li>a <code>byte[]</code> pool with the UTF-8 bytes of strings,</li>
+ *     <li>a <code>String[]</code> with the field names found in the {@link SymbolTable} of the parser, the same
+ *     instances the table holds, so every distinct name is kept once,</li>
+ *     <li>for objects with many fields, an <code>int[]</code> hash index of their names.</li>
+ * </ul>
+ * <p>The content is accessed through read-only {@link Map} and {@link java.util.List} views holding the same values
+ * as the tree built by {@link ObjectDeserializer#getFromReader(Reader)} (Strings, BigDecimals, Booleans and null), so
+ * it can replace that tree for existing code. Values are decoded from the arrays on every access, and views over
+ * nested objects and arrays are created as they are reached. If a field appears more than once in an object, only the
+ * last one is kept, as in the tree.</p>
+ * <p>A TapeDocument is immutable and can be shared between threads once safely published.</p>
+ */
+public final class TapeDocument {
+
+    private static final int TYPE_SHIFT = 56;
+    private static final long PAYLOAD = (1L << TYPE_SHIFT) - 1;
+    private static final long SHADOWED = 1L << 55;      // flag of keys overridden by a later one with the same name
+
+    private static final int OBJECT         = 1;    // payload: index of the end; next entry: size and hash index
+    private static final int ARRAY          = 2;    // payload: index of the end; next entry: size
+    private static final int END            = 3;
+    private static final int KEY_SYMBOL     = 4;    // payload: index in names
+    private static final int KEY            = 5;    // payload: offset in the pool
+    private static final int STRING         = 6;    // payload: offset in the pool
+    private static final int LONG           = 7;    // payload: the value (56 bits, sign extended)
+    private static final int WIDE_LONG      = 8;    // next entry: the value
+    private static final int DECIMAL        = 9;    // payload: scale; next entry: unscaled value
+    private static final int NUMBER_TEXT    = 10;   // payload: offset in the pool
+    private static final int TRUE           = 11;
+    private static final int FALSE          = 12;
+    private static final int NULL           = 13;
+
+    private static final int HASHED_SIZE = 8;   // objects with more fields than this get a hash index
+
+    private final long[] tape;
+    private final byte[] pool;
+    private final int[] hashes;
+    private final String[] names;
+
+    private TapeDocument(long[] tape, byte[] pool, int[] hashes, String[] names) {
+        this.tape = tape;
+        this.pool = pool;
+        this.hashes = hashes;
+        this.names = names;
+    }
+
+    /**
+     * Reads a JSON document into a compact representation.
+     * @param reader input containing the JSON text.
+     * @return the document.
+     * @throws JSONReaderException if the input is not valid JSON or it can't be read.
+     */
+    public static TapeDocument parse(Reader reader) throws JSONReaderException {
+        JSONReader parser = new JSONReader();
+        parser.setInput(reader);
+        return parse(parser);
+    }
+
+    /**
+     * Same as {@link TapeDocument#parse(Reader)}, reading UTF-8 encoded data from a stream.
+     * @param stream input containing the JSON data.
+     * @return the document.
+     * @throws JSONReaderException if the input is not valid JSON or it can't be read.
+     */
+    public static TapeDocument parse(InputStream stream) throws JSONReaderException {
+        JSONReader parser = new JSONReader();
+        parser.setInput(stream);
+        return parse(parser);
+    }
+
+    /**
+     * Reads a JSON document into a compact representation, from the input already set to a parser. Field names found
+     * in the {@link SymbolTable} of the parser are taken from it: sharing a table between documents with the same
+     * names keeps those names only once for all of them. The document doesn't keep a reference to the table, which
+     * can change afterwards.
+     * @param parser parser with the input set.
+     * @return the document.
+     * @throws JSONReaderException if the input is not valid JSON or it can't be read.
+     */
+    public static TapeDocument parse(JSONReader parser) throws JSONReaderException {
+        Builder builder = new Builder(parser);
+        parser.setContentHandler(builder);
+        parser.setErrorHandler(builder);
+        parser.parse();
+        if(builder.exception != null)
+            throw builder.exception;
+        if(builder.tapeSize == 0)
+            throw new JSONReaderException("No value found in the input");
+        return builder.build();
+    }
+
+    /**
+     * Gets the top-level value of the document.
+     * @return a read-only {@link Map} for an object, a read-only {@link java.util.List} for an array, or a String,
+     * BigDecimal, Boolean or null.
+     */
+    public Object getRoot() {
+        return value(0);
+    }
+
+    /**
+     * Gets the approximate number of bytes used by the arrays holding this document (the field names taken from the
+     * {@link SymbolTable} are not included, only the references to them).
+     * @return the number of bytes.
+     */
+    public long getRetainedBytes() {
+        return tape.length * 8L + pool.length + hashes.length * 4L + names.length * 4L;
+    }
+
+    private static int type(long entry) {
+        return (int)(entry >>> TYPE_SHIFT);
+    }
+
+    private Object value(int index) {
+        long entry = tape[index];
+        switch(type(entry)) {
+            case OBJECT: return new ObjectView(index);
+            case ARRAY: return new ArrayView(index);
+            case STRING: return string((int)(entry & PAYLOAD));
+            case LONG: return BigDecimal.valueOf(entry << 8 >> 8);
+            case WIDE_LONG: return BigDecimal.valueOf(tape[index + 1]);
+            case DECIMAL: return BigDecimal.valueOf(tape[index + 1], (int)(entry & PAYLOAD));
+            case NUMBER_TEXT: return new BigDecimal(string((int)(entry & PAYLOAD)));
+            case TRUE: return Boolean.TRUE;
+            case FALSE: return Boolean.FALSE;
+            default: return null;
+        }
+    }
+
+    // index of the entry following the value starting at the given index
+    private int next(int index) {
+        long entry = tape[index];
+        switch(type(entry)) {
+            case OBJECT: case ARRAY: return (int)(entry & PAYLOAD) + 1;
+            case WIDE_LONG: case DECIMAL: return index + 2;
+            default: return index + 1;
+        }
+    }
+
+    private String key(int index) {
+        long entry = tape[index];
+        int payload = (int)(entry & PAYLOAD & ~SHADOWED);
+        return type(entry) == KEY_SYMBOL? names[payload]: string(payload);
+    }
+
+    private String string(int offset) {
+        int length = 0;
+        int shift = 0;
+        int read;
+        do {
+            read = pool[offset++];
+            length |= (read & 0x7F) << shift;
+            shift += 7;
+        } while((read & 0x80) != 0);
+        return new String(pool, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private final class ObjectView extends AbstractMap<String, Object> {
+
+        private final int start;
+
+        ObjectView(int start) {
+            this.start = start;
+        }
+
+        @Override
+        public int size() {
+            return (int)tape[start + 1];
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = find(key);
+            return index != -1? value(index + 1): null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) != -1;
+        }
+
+        // index of the key entry of a field, or -1
+        private int find(Object key) {
+            if(!(key instanceof String))
+                return -1;
+            int table = (int)(tape[start + 1] >>> 32) - 1;
+            if(table >= 0) {
+                int mask = hashes[table] - 1;
+                for(int slot = spread(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+                    int index = hashes[table + 1 + slot] - 1;
+                    if(index == -1)
+                        return -1;
+                    if(key.equals(key(index)))
+                        return index;
+                }
+            }
+            int end = (int)(tape[start] & PAYLOAD);
+            for(int index = start + 2; index < end; index = next(index + 1))
+                if((tape[index] & SHADOWED) == 0 && key.equals(key(index)))
+                    return index;
+            return -1;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+
+                        private final int end = (int)(tape[start] & PAYLOAD);
+                        private int index = skipShadowed(start + 2);
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < end;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if(index >= end)
+                                throw new NoSuchElementException();
+                            Entry<String, Object> entry =
+                                    new SimpleImmutableEntry<>(key(index), value(index + 1));
+                            index = skipShadowed(TapeDocument.this.next(index + 1));
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+
+                        private int skipShadowed(int index) {
+                            while(index < end && (tape[index] & SHADOWED) != 0)
+                                index = TapeDocument.this.next(index + 1);
+                            return index;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ObjectView.this.size();
+                }
+            };
+        }
+    }
+
+    private final class ArrayView extends AbstractList<Object> {
+
+        private final int start;
+        private volatile long last = -1;   // last element reached through get(int) (high half) and its index in the
+                                           // tape, so that going through the list in order doesn't start over
+
+        ArrayView(int start) {
+            this.start = start;
+        }
+
+        @Override
+        public int size() {
+            return (int)tape[start + 1];
+        }
+
+        @Override
+        public Object get(int position) {
+            if(position < 0 || position >= size())
+                throw new IndexOutOfBoundsException("index " + position + ", size " + size());
+            int current = 0;
+            int index = start + 2;
+            long last = this.last;
+            if(last != -1 && (int)(last >>> 32) <= position) {
+                current = (int)(last >>> 32);
+                index = (int)last;
+            }
+            for(; current < position; current++)
+                index = next(index);
+            this.last = (long)position << 32 | index;
+            return value(index);
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+
+                private final int end = (int)(tape[start] & PAYLOAD);
+                private int index = start + 2;
+
+                @Override
+                public boolean hasNext() {
+                    return index < end;
+                }
+
+                @Override
+                public Object next() {
+                    if(index >= end)
+                        throw new NoSuchElementException();
+                    Object value = value(index);
+                    index = TapeDocument.this.next(index);
+                    return value;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    private static final class Builder implements NumberContentHandler, StringViewContentHandler, ErrorHandler {
+
+        private final JSONReader parser;
+        private final SymbolTable symbols;
+        private long[] tape = new long[256];
+        private int tapeSize;
+        private byte[] pool = new byte[1024];
+        private int poolSize;
+        private int[] hashes = new int[0];
+        private int hashesSize;
+        private String[] names = new String[16];
+        private int namesSize;
+        private int[] nameIndexes = new int[0];     // index in names + 1 of the symbols of the table, by symbol id
+        private int[] open = new int[16];       // tape index of the objects and arrays not yet closed
+        private int depth;
+        private JSONReaderException exception;
+
+        Builder(JSONReader parser) {
+            this.parser = parser;
+            this.symbols = parser.getSymbolTable();
+        }
+
+        TapeDocument build() {
+            return new TapeDocument(Arrays.copyOf(tape, tapeSize), Arrays.copyOf(pool, poolSize),
+                    Arrays.copyOf(hashes, hashesSize), Arrays.copyOf(names, namesSize));
+        }
+
+        @Override
+        public void startObject(StringBuilder name) {
+            startContainer(name, OBJECT);
+        }
+
+        @Override
+        public void endObject() throws JSONReaderException {
+            int start = endContainer();
+            int end = (int)(tape[start] & PAYLOAD);
+            int size = (int)tape[start + 1];
+            if(size > HASHED_SIZE) {
+                int table = hashesSize;
+                size -= hashFields(start, end, size);
+                tape[start + 1] = size | (long)(table + 1) << 32;
+            } else {
+                for(int index = start + 2; index < end; index = next(index + 1)) {
+                    for(int other = next(index + 1); other < end; other = next(other + 1)) {
+                        if(sameKey(index, other)) {
+                            tape[index] |= SHADOWED;
+                            size--;
+                            break;
+                        }
+                    }
+                }
+                tape[start + 1] = size;
+            }
+        }
+
+        @Override
+        public void startArray(StringBuilder name) {
+            startContainer(name, ARRAY);
+        }
+
+        @Override
+        public void endArray() {
+            endContainer();
+        }
+
+        @Override
+        public void simpleValue(StringBuilder name, StringBuilder value, ValueType type) {
+            switch(type) {
+                case TRUE: add(name, (long)TRUE << TYPE_SHIFT); break;
+                case FALSE: add(name, (long)FALSE << TYPE_SHIFT); break;
+                case NULL: add(name, (long)NULL << TYPE_SHIFT); break;
+                case NUMBER: addDecimal(name, parser.currentDecimal(), value); break;
+                default: add(name, (long)STRING << TYPE_SHIFT | addString(value));
+            }
+        }
+
+        @Override
+        public void stringValue(StringBuilder name, CharSequence value) {
+            add(name, (long)STRING << TYPE_SHIFT | addString(value));
+        }
+
+        @Override
+        public void longValue(StringBuilder name, long value) {
+            if(value << 8 >> 8 == value) {
+                add(name, (long)LONG << TYPE_SHIFT | value & PAYLOAD);
+            } else {
+                add(name, (long)WIDE_LONG << TYPE_SHIFT);
+                append(value);
+            }
+        }
+
+        @Override
+        public void doubleValue(StringBuilder name, double value) {
+            addDecimal(name, parser.currentDecimal(), null);
+        }
+
+        @Override
+        public void error(JSONReaderException exception) {
+            this.exception = exception;
+        }
+
+        private void addDecimal(StringBuilder name, BigDecimal value, StringBuilder text) {
+            if(value.unscaledValue().bitLength() < 64) {
+                add(name, (long)DECIMAL << TYPE_SHIFT | value.scale() & 0xFFFFFFFFL);
+                append(value.unscaledValue().longValue());
+            } else {
+                add(name, (long)NUMBER_TEXT << TYPE_SHIFT | addString(text != null? text: value.toString()));
+            }
+        }
+
+        private void startContainer(StringBuilder name, int type) {
+            add(name, (long)type << TYPE_SHIFT);
+            append(0);
+            if(depth == open.length)
+                open = Arrays.copyOf(open, depth * 2);
+            open[depth++] = tapeSize - 2;
+        }
+
+        private int endContainer() {
+            int start = open[--depth];
+            tape[start] |= tapeSize;
+            append((long)END << TYPE_SHIFT);
+            return start;
+        }
+
+        // adds a value (and its name if it is inside an object) to the tape, counting it in its container
+        private void add(StringBuilder name, long entry) {
+            if(depth > 0) {
+                int container = open[depth - 1];
+                tape[container + 1]++;
+                if(type(tape[container]) == OBJECT) {
+                    int symbol = parser.currentSymbol();
+                    append(symbol != -1? (long)KEY_SYMBOL << TYPE_SHIFT | nameIndex(symbol):
+                            (long)KEY << TYPE_SHIFT | addString(name));
+                }
+            }
+            append(entry);
+        }
+
+        private int nameIndex(int symbol) {
+            if(symbol >= nameIndexes.length)
+                nameIndexes = Arrays.copyOf(nameIndexes, Math.max(symbol + 1, nameIndexes.length * 2));
+            int index = nameIndexes[symbol] - 1;
+            if(index == -1) {
+                if(namesSize == names.length)
+                    names = Arrays.copyOf(names, namesSize * 2);
+                index = namesSize++;
+                names[index] = symbols.symbol(symbol);
+                nameIndexes[symbol] = index + 1;
+            }
+            return index;
+        }
+
+        private void append(long entry) {
+            if(tapeSize == tape.length)
+                tape = Arrays.copyOf(tape, tapeSize * 2);
+            tape[tapeSize++] = entry;
+        }
+
+        private int addString(CharSequence value) {
+            int offset = poolSize;
+            int length = 0;
+            for(int index = 0; index < value.length(); index++) {
+                char c = value.charAt(index);
+                if(c < 0x80) {
+                    length++;
+                } else if(c < 0x800) {
+                    length += 2;
+                } else if(Character.isHighSurrogate(c) && index + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    length += 4;
+                    index++;
+                } else {
+                    length += Character.isSurrogate(c)? 1: 3;
+                }
+            }
+            ensurePool(5 + length);
+            int prefix = length;
+            while(prefix >= 0x80) {
+                pool[poolSize++] = (byte)(prefix & 0x7F | 0x80);
+                prefix >>>= 7;
+            }
+            pool[poolSize++] = (byte)prefix;
+            for(int index = 0; index < value.length(); index++) {
+                char c = value.charAt(index);
+                if(c < 0x80) {
+                    pool[poolSize++] = (byte)c;
+                } else if(c < 0x800) {
+                    pool[poolSize++] = (byte)(0xC0 | c >> 6);
+                    pool[poolSize++] = (byte)(0x80 | c & 0x3F);
+                } else if(Character.isHighSurrogate(c) && index + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++index));
+                    pool[poolSize++] = (byte)(0xF0 | codePoint >> 18);
+                    pool[poolSize++] = (byte)(0x80 | codePoint >> 12 & 0x3F);
+                    pool[poolSize++] = (byte)(0x80 | codePoint >> 6 & 0x3F);
+                    pool[poolSize++] = (byte)(0x80 | codePoint & 0x3F);
+                } else if(Character.isSurrogate(c)) {
+                    pool[poolSize++] = '?';     // unpaired surrogate, as String.getBytes() does
+                } else {
+                    pool[poolSize++] = (byte)(0xE0 | c >> 12);
+                    pool[poolSize++] = (byte)(0x80 | c >> 6 & 0x3F);
+                    pool[poolSize++] = (byte)(0x80 | c & 0x3F);
+                }
+            }
+            return offset;
+        }
+
+        private void ensurePool(int extra) {
+            if(poolSize + extra > pool.length)
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + extra));
+        }
+
+        // builds the hash index of an object, marking repeated names; returns the number of names repeated
+        private int hashFields(int start, int end, int size) {
+            int tableSize = tableSize(size);
+            if(hashesSize + tableSize > hashes.length)
+                hashes = Arrays.copyOf(hashes, Math.max(hashes.length * 2, hashesSize + tableSize));
+            int table = hashesSize;
+            hashesSize += tableSize;
+            int mask = tableSize - 2;
+            hashes[table] = mask + 1;
+            int repeated = 0;
+            for(int index = start + 2; index < end; index = next(index + 1)) {
+                int slot = spread(keyString(index).hashCode()) & mask;
+                while(true) {
+                    int other = hashes[table + 1 + slot] - 1;
+                    if(other == -1) {
+                        hashes[table + 1 + slot] = index + 1;
+                        break;
+                    }
+                    if(sameKey(other, index)) {
+                        tape[other] |= SHADOWED;
+                        hashes[table + 1 + slot] = index + 1;
+                        repeated++;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+            return repeated;
+        }
+
+        // a power of two at least twice the number of fields, plus one entry to keep that power
+        private static int tableSize(int size) {
+            return Integer.highestOneBit(size * 2 - 1) * 2 + 1;
+        }
+
+        private boolean sameKey(int index, int other) {
+            long first = tape[index] & ~SHADOWED;
+            long second = tape[other] & ~SHADOWED;
+            if(type(first) == KEY_SYMBOL && type(second) == KEY_SYMBOL)
+                return first == second;
+            return keyString(index).equals(keyString(other));
+        }
+
+        private String keyString(int index) {
+            long entry = tape[index];
+            int payload = (int)(entry & PAYLOAD & ~SHADOWED);
+            if(type(entry) == KEY_SYMBOL)
+                return names[payload];
+            int length = 0;
+            int shift = 0;
+            int read;
+            do {
+                read = pool[payload++];
+                length |= (read & 0x7F) << shift;
+                shift += 7;
+            } while((read & 0x80) != 0);
+            return new String(pool, payload, length, StandardCharsets.UTF_8);
+        }
+
+        private int next(int index) {
+            long entry = tape[index];
+            switch(type(entry)) {
+                case OBJECT: case ARRAY: return (int)(entry & PAYLOAD) + 1;
+                case WIDE_LONG: case DECIMAL: return index + 2;
+                default: return index + 1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>A type values are bound to, resolved: type variables are replaced by what they are bound to (or by their bound
+ * when they are not bound), wildcards by their bound, and generic arrays of classes by array classes. What binding
+ * needs from a type is worked out once and kept: its class, the type of its elements for arrays, collections and
+ * maps, and the types of the members of the class as seen from this type, so
+ * <code>class Page&lt;T&gt; { public List&lt;T&gt; items; }</code> gives <code>List&lt;Order&gt;</code> for
+ * <code>items</code> when seen from <code>Page&lt;Order&gt;</code> or from <code>class OrderPage extends
+ * Page&lt;Order&gt;</code>.</p>
+ * <p>Descriptors of classes are kept for as long as their class (see {@link ClassValue}), and a bounded number of
+ * descriptors of generic types is kept too. They are thread safe.</p>
+ */
+final class TypeDescriptor {
+
+    private static final int MAX_GENERIC_TYPES = 1024;
+    private static final TypeVariable<?> COLLECTION_ELEMENT = Collection.class.getTypeParameters()[0];
+    private static final TypeVariable<?> MAP_VALUE = Map.class.getTypeParameters()[1];
+
+    private static final ClassValue<TypeDescriptor> CLASSES = new ClassValue<TypeDescriptor>() {
+        @Override
+        protected TypeDescriptor computeValue(Class<?> type) {
+            return new TypeDescriptor(type, type);
+        }
+    };
+    private static final ConcurrentMap<Type, TypeDescriptor> GENERIC_TYPES = new ConcurrentHashMap<>();
+
+    private final Type type;
+    private final Class<?> rawClass;
+    private final ConcurrentMap<Type, TypeDescriptor> members = new ConcurrentHashMap<>();
+    private volatile Map<TypeVariable<?>, Type> variables;
+    private volatile TypeDescriptor element;
+
+    private TypeDescriptor(Type type, Class<?> rawClass) {
+        this.type = type;
+        this.rawClass = rawClass;
+    }
+
+    /**
+     * Gets the descriptor of a type.
+     * @param type the type.
+     * @return its descriptor.
+     */
+    static TypeDescriptor of(Type type) {
+        if(type instanceof Class)
+            return CLASSES.get((Class<?>)type);
+        TypeDescriptor descriptor = GENERIC_TYPES.get(type);
+        if(descriptor != null)
+            return descriptor;
+        Type resolved = resolve(type, new HashMap<TypeVariable<?>, Type>());
+        if(resolved instanceof Class)
+            return CLASSES.get((Class<?>)resolved);
+        descriptor = new TypeDescriptor(resolved, ClassBinding.rawClass(resolved));
+        if(GENERIC_TYPES.size() < MAX_GENERIC_TYPES) {
+            TypeDescriptor previous = GENERIC_TYPES.putIfAbsent(type, descriptor);
+            if(previous != null)
+                descriptor = previous;
+        }
+        return descriptor;
+    }
+
+    /**
+     * Gets the resolved type.
+     * @return a class, or a parameterized or generic array type with no type variables or wildcards in it.
+     */
+    Type type() {
+        return type;
+    }
+
+    Class<?> rawClass() {
+        return rawClass;
+    }
+
+    /**
+     * Gets the type of the elements: the component type of arrays, the type of the elements of collections, the type
+     * of the values of maps, as declared by this type or by the classes and interfaces it extends.
+     * @return the type of the elements, or the descriptor of Object for other types or when it is not known.
+     */
+    TypeDescriptor element() {
+        TypeDescriptor element = this.element;
+        if(element == null) {
+            if(rawClass.isArray())
+                element = of(type instanceof GenericArrayType?
+                        ((GenericArrayType)type).getGenericComponentType(): rawClass.getComponentType());
+            else if(Collection.class.isAssignableFrom(rawClass))
+                element = member(COLLECTION_ELEMENT);
+            else if(Map.class.isAssignableFrom(rawClass))
+                element = member(MAP_VALUE);
+            else
+                element = of(Object.class);
+            this.element = element;
+        }
+        return element;
+    }
+
+    /**
+     * Gets the type of a member of the class (or of a class or interface it extends) as seen from this type.
+     * @param declaredType the type as declared, for instance the generic type of a field.
+     * @return the type, with the type variables of the class and its supertypes replaced by what this type binds them
+     * to.
+     */
+    TypeDescriptor member(Type declaredType) {
+        if(declaredType instanceof Class)
+            return of(declaredType);
+        TypeDescriptor descriptor = members.get(declaredType);
+        if(descriptor == null) {
+            descriptor = of(resolve(declaredType, variables()));
+            TypeDescriptor previous = members.putIfAbsent(declaredType, descriptor);
+            if(previous != null)
+                descriptor = previous;
+        }
+        return descriptor;
+    }
+
+    private Map<TypeVariable<?>, Type> variables() {
+        Map<TypeVariable<?>, Type> variables = this.variables;
+        if(variables == null) {
+            variables = new HashMap<>();
+            bind(type, variables);
+            this.variables = variables;
+        }
+        return variables;
+    }
+
+    // binds the type variables of a type and of the types it extends, following the way each binds the next one's
+    private static void bind(Type type, Map<TypeVariable<?>, Type> variables) {
+        Class<?> rawClass = ClassBinding.rawClass(type);
+        if(type instanceof ParameterizedType) {
+            TypeVariable<?>[] parameters = rawClass.getTypeParameters();
+            Type[] arguments = ((ParameterizedType)type).getActualTypeArguments();
+            for(int index = 0; index < parameters.length && index < arguments.length; index++)
+                if(!variables.containsKey(parameters[index]))
+                    variables.put(parameters[index], resolve(arguments[index], variables));
+        }
+        if(rawClass.getGenericSuperclass() != null)
+            bind(rawClass.getGenericSuperclass(), variables);
+        for(Type implemented: rawClass.getGenericInterfaces())
+            bind(implemented, variables);
+    }
+
+    private static Type resolve(Type type, Map<TypeVariable<?>, Type> variables) {
+        if(type instanceof Class) {
+            return type;
+        } else if(type instanceof TypeVariable) {
+            Type bound = variables.get(type);
+            // not bound: erased, as its bound may refer to the variable itself (T extends Comparable<T>)
+            return bound != null? bound: ClassBinding.rawClass(type);
+        } else if(type instanceof WildcardType) {
+            Type[] lowerBounds = ((WildcardType)type).getLowerBounds();
+            return resolve(lowerBounds.length > 0? lowerBounds[0]: ((WildcardType)type).getUpperBounds()[0], variables);
+        } else if(type instanceof GenericArrayType) {
+            Type component = resolve(((GenericArrayType)type).getGenericComponentType(), variables);
+            return component instanceof Class? Array.newInstance((Class<?>)component, 0).getClass():
+                    new ResolvedArrayType(component);
+        } else if(type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType)type;
+            Type[] arguments = parameterized.getActualTypeArguments().clone();
+            for(int index = 0; index < arguments.length; index++)
+                arguments[index] = resolve(arguments[index], variables);
+            Type owner = parameterized.getOwnerType() != null? resolve(parameterized.getOwnerType(), variables): null;
+            return new ResolvedParameterizedType((Class<?>)parameterized.getRawType(), arguments, owner);
+        }
+        return Object.class;
+    }
+
+    @Override
+    public String toString() {
+        return type instanceof Class? ((Class<?>)type).getName(): type.toString();
+    }
+
+    // equal to the JDK's own implementations, so resolved and declared types can be used interchangeably as keys
+    private static final class ResolvedParameterizedType implements ParameterizedType {
+
+        private final Class<?> rawType;
+        private final Type[] arguments;
+        private final Type owner;
+
+        ResolvedParameterizedType(Class<?> rawType, Type[] arguments, Type owner) {
+            this.rawType = rawType;
+            this.arguments = arguments;
+            this.owner = owner;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return owner;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if(!(object instanceof ParameterizedType))
+                return false;
+            ParameterizedType other = (ParameterizedType)object;
+            return rawType.equals(other.getRawType()) && Objects.equals(owner, other.getOwnerType())
+                    && Arrays.equals(arguments, other.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arguments) ^ Objects.hashCode(owner) ^ rawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(rawType.getName()).append('<');
+            for(int index = 0; index < arguments.length; index++) {
+                if(index > 0)
+                    builder.append(", ");
+                builder.append(arguments[index] instanceof Class? ((Class<?>)arguments[index]).getName():
+                        arguments[index].toString());
+            }
+            return builder.append('>').toString();
+        }
+    }
+
+    private static final class ResolvedArrayType implements GenericArrayType {
+
+        private final Type component;
+
+        ResolvedArrayType(Type component) {
+            this.component = component;
+        }
+
+        @Override
+        public Type getGenericComponentType() {
+            return component;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof GenericArrayType
+                    && component.equals(((GenericArrayType)object).getGenericComponentType());
+        }
+
+        @Override
+        public int hashCode() {
+            return component.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return component + "[]";
+        }
+    }
+
+}
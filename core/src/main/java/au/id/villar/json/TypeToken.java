@@ -0,0 +1,74 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Captures a generic type, which can't be given as a class literal, to tell {@link ObjectDeserializer} the type of
+ * the result. Type tokens are created as anonymous subclasses, the type being their type argument:
+ * <pre>
+ * List&lt;Order&gt; orders = ObjectDeserializer.getGenericFromReader(reader,
+ *         new TypeToken&lt;List&lt;Order&gt;&gt;() {});
+ * </pre>
+ * Tokens are equal when their types are, and can be kept in constants and reused.
+ * @param <T> the type captured.
+ */
+public abstract class TypeToken<T> {
+
+    private final Type type;
+
+    /**
+     * Captures the type argument of the subclass being created.
+     * @throws IllegalStateException if the subclass doesn't give the type argument of TypeToken directly.
+     */
+    protected TypeToken() {
+        Type superclass = getClass().getGenericSuperclass();
+        if(!(superclass instanceof ParameterizedType)
+                || ((ParameterizedType)superclass).getRawType() != TypeToken.class)
+            throw new IllegalStateException("the type has to be given as the type argument of TypeToken,"
+                    + " e.g. new TypeToken<List<String>>() {}");
+        this.type = ((ParameterizedType)superclass).getActualTypeArguments()[0];
+    }
+
+    /**
+     * Gets the type captured.
+     * @return the type, as written in the type argument.
+     */
+    public final Type getType() {
+        return type;
+    }
+
+    @Override
+    public final boolean equals(Object object) {
+        return object instanceof TypeToken && type.equals(((TypeToken<?>)object).type);
+    }
+
+    @Override
+    public final int hashCode() {
+        return type.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "TypeToken<" + (type instanceof Class? ((Class<?>)type).getName(): type.toString()) + ">";
+    }
+
+}
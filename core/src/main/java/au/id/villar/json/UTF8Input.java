@@ -0,0 +1,141 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.nio.charset.MalformedInputException;
+
+/**
+ * {@link JSONInput} reading raw UTF-8 bytes. ASCII bytes are handed out as they are, only multi-byte sequences
+ * (which in valid JSON can only appear inside string literals) go through decoding. Code points outside the BMP are
+ * returned as two consecutive surrogates.
+ */
+abstract class UTF8Input extends JSONInput {
+
+    private int pendingLowSurrogate = -1;
+
+    @Override
+    final int read() throws IOException {
+        if(pendingLowSurrogate != -1) {
+            int low = pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+            return low;
+        }
+        int first = nextByte();
+        if(first < 0x80)
+            return first;
+        return decode(first);
+    }
+
+    @Override
+    final int readRun(StringBuilder builder, int kind) {
+        return pendingLowSurrogate != -1? 0: readByteRun(builder, kind);
+    }
+
+    /**
+     * Same as {@link JSONInput#readRun(StringBuilder, int)}, called only between characters. As runs are made of ASCII
+     * characters, every byte consumed is a character.
+     * @param builder where the consumed characters are appended, or null if they are to be discarded.
+     * @param kind {@link JSONInput#RUN_STRING} or {@link JSONInput#RUN_STRUCTURE}.
+     * @return the number of bytes consumed.
+     */
+    int readByteRun(StringBuilder builder, int kind) {
+        return 0;
+    }
+
+    @Override
+    final CharSequence readPlainString() {
+        return pendingLowSurrogate != -1? null: readAsciiString();
+    }
+
+    /**
+     * Same as {@link JSONInput#readPlainString()}, called only between characters.
+     * @return a view of the content of the string, or null.
+     */
+    CharSequence readAsciiString() {
+        return null;
+    }
+
+    @Override
+    final void countPosition() {
+        countConsumedBytes();
+        counter.setSplitSurrogate(pendingLowSurrogate != -1);
+    }
+
+    /** Same as {@link JSONInput#countPosition()}, for inputs that return true from countsPositions(). */
+    void countConsumedBytes() {
+    }
+
+    /**
+     * Tells whether the last character returned was a whole one, not the high half of a surrogate pair.
+     * @return true if the next call to {@link UTF8Input#read()} starts a new character.
+     */
+    final boolean atCharacterBoundary() {
+        return pendingLowSurrogate == -1;
+    }
+
+    /** Discards any state kept between two calls to {@link UTF8Input#read()} (the low half of a surrogate pair). */
+    final void resetDecoder() {
+        pendingLowSurrogate = -1;
+    }
+
+    /**
+     * Reads the next raw byte.
+     * @return the next byte as a value between 0 and 255, or -1 if the end of the input has been reached.
+     * @throws IOException if the underlying source fails.
+     */
+    abstract int nextByte() throws IOException;
+
+    private int decode(int first) throws IOException {
+        int codePoint;
+        int remaining;
+        int minimum;
+        if((first & 0xE0) == 0xC0) {
+            codePoint = first & 0x1F;
+            remaining = 1;
+            minimum = 0x80;
+        } else if((first & 0xF0) == 0xE0) {
+            codePoint = first & 0x0F;
+            remaining = 2;
+            minimum = 0x800;
+        } else if((first & 0xF8) == 0xF0) {
+            codePoint = first & 0x07;
+            remaining = 3;
+            minimum = 0x10000;
+        } else {
+            throw new MalformedInputException(1);
+        }
+        for(int count = 1; count <= remaining; count++) {
+            int next = nextByte();
+            if((next & 0xC0) != 0x80)
+                throw new MalformedInputException(count);
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        if(codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                || codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)
+            throw new MalformedInputException(remaining + 1);
+        if(codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return codePoint;
+    }
+
+}
@@ -34,6 +34,9 @@ along with Morgano-json.  If not, see <http://www.gnu.org/licenses/>.
  *     <li>Invoke parse() in the JSONReader object</li>
  * </ul>
  *
+ * <p>Alternatively, a {@link au.id.villar.json.JSONReader} can be used as a pull parser: set only the input and call
+ * {@link au.id.villar.json.JSONReader#nextToken()} repeatedly, stopping whenever the wanted data has been found.</p>
+ *
  * <p>To get an object serialized and written in a {@link java.io.Writer},
  * use {@link au.id.villar.json.ObjectSerializer#write(Object, java.io.Writer)}</p>
  *
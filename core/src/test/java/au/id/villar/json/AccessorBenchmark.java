@@ -0,0 +1,149 @@
+package au.id.villar.json;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares reading and writing properties through core reflection ({@link Field#get(Object)},
+ * {@link Field#set(Object, Object)}, {@link Method#invoke(Object, Object...)}, with boxed values) against
+ * {@link Accessor}s, for a few shapes of objects. Not run as part of the tests; run the <code>main</code> method,
+ * optionally giving the number of objects to use.
+ */
+public class AccessorBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int REPETITIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int objects = args.length > 0? Integer.parseInt(args[0]): 100000;
+        for(Class<?> shape: new Class<?>[] {Point.class, Person.class, Wide.class}) {
+            List<Object> beans = new ArrayList<>(objects);
+            for(int i = 0; i < objects; i++)
+                beans.add(shape.newInstance());
+            List<Property> properties = properties(shape);
+            for(int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                long reflective = 0;
+                for(int repetition = 0; repetition < REPETITIONS; repetition++)
+                    reflective += reflective(beans, properties);
+                long middle = System.nanoTime();
+                long handles = 0;
+                for(int repetition = 0; repetition < REPETITIONS; repetition++)
+                    handles += handles(beans, properties);
+                long end = System.nanoTime();
+                if(reflective != handles)
+                    throw new IllegalStateException("different results: " + reflective + " and " + handles);
+                long accesses = 2L * objects * properties.size() * REPETITIONS;
+                System.out.printf("%s, round %d: reflection %.1f ns/access, handles %.1f ns/access%n",
+                        shape.getSimpleName(), round, (middle - start) / (double)accesses,
+                        (end - middle) / (double)accesses);
+            }
+        }
+    }
+
+    // writes and reads every property of every object, returning a checksum
+    private static long reflective(List<Object> beans, List<Property> properties) throws Exception {
+        long sum = 0;
+        int value = 0;
+        for(Object bean: beans) {
+            for(Property property: properties) {
+                value++;
+                Object boxed = property.type == int.class? (Object)value: property.type == long.class? (Object)(long)value:
+                        property.type == double.class? (Object)(double)value: String.valueOf(value & 0xFF);
+                if(property.field != null) {
+                    property.field.set(bean, boxed);
+                    sum += property.field.get(bean).hashCode();
+                } else {
+                    property.setter.invoke(bean, boxed);
+                    sum += property.getter.invoke(bean).hashCode();
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static long handles(List<Object> beans, List<Property> properties) throws Exception {
+        long sum = 0;
+        int value = 0;
+        for(Object bean: beans) {
+            for(Property property: properties) {
+                value++;
+                if(property.type == int.class || property.type == long.class) {
+                    property.writer.setLong(bean, value);
+                    long read = property.reader.getLong(bean);
+                    sum += property.type == int.class? Integer.valueOf((int)read).hashCode(): Long.valueOf(read).hashCode();
+                } else if(property.type == double.class) {
+                    property.writer.setDouble(bean, value);
+                    sum += Double.valueOf(property.reader.getDouble(bean)).hashCode();
+                } else {
+                    property.writer.set(bean, String.valueOf(value & 0xFF));
+                    sum += property.reader.get(bean).hashCode();
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static List<Property> properties(Class<?> shape) throws NoSuchMethodException {
+        List<Property> properties = new ArrayList<>();
+        for(Field field: shape.getFields())
+            properties.add(new Property(field.getType(), field, null, null, Accessor.reader(field),
+                    Accessor.writer(field)));
+        for(Method method: shape.getMethods()) {
+            if(!method.getName().startsWith("get") || method.getName().equals("getClass"))
+                continue;
+            Method setter = shape.getMethod("set" + method.getName().substring(3), method.getReturnType());
+            properties.add(new Property(method.getReturnType(), null, method, setter, Accessor.reader(method),
+                    Accessor.writer(setter)));
+        }
+        return properties;
+    }
+
+    private static class Property {
+
+        final Class<?> type;
+        final Field field;
+        final Method getter;
+        final Method setter;
+        final Accessor reader;
+        final Accessor writer;
+
+        Property(Class<?> type, Field field, Method getter, Method setter, Accessor reader, Accessor writer) {
+            this.type = type;
+            this.field = field;
+            this.getter = getter;
+            this.setter = setter;
+            this.reader = reader;
+            this.writer = writer;
+        }
+    }
+
+    public static class Point {
+        public int x;
+        public int y;
+        public int z;
+    }
+
+    public static class Person {
+
+        private String name;
+        private int age;
+        private double score;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getAge() { return age; }
+        public void setAge(int age) { this.age = age; }
+        public double getScore() { return score; }
+        public void setScore(double score) { this.score = score; }
+    }
+
+    public static class Wide {
+        public long a1, a2, a3, a4, a5, a6, a7, a8;
+        public long b1, b2, b3, b4, b5, b6, b7, b8;
+        public String c1, c2, c3, c4;
+    }
+
+}
@@ -0,0 +1,87 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static junit.framework.Assert.*;
+
+public class AccessorTest {
+
+    @Test
+    public void fields() throws Exception {
+        Bean bean = new Bean();
+        Accessor count = Accessor.writer(Bean.class.getField("count"));
+        assertTrue(count.writesLong());
+        assertFalse(count.writesDouble());
+        count.setLong(bean, 12);
+        assertEquals(12, bean.count);
+        count.set(bean, 13);
+        assertEquals(13L, Accessor.reader(Bean.class.getField("count")).getLong(bean));
+        assertEquals(13, Accessor.reader(Bean.class.getField("count")).get(bean));
+
+        Accessor ratio = Accessor.writer(Bean.class.getField("ratio"));
+        assertTrue(ratio.writesDouble());
+        ratio.setDouble(bean, 0.5);
+        assertEquals(0.5, Accessor.reader(Bean.class.getField("ratio")).getDouble(bean));
+
+        bean.active = true;
+        assertTrue(Accessor.reader(Bean.class.getField("active")).getBoolean(bean));
+        Accessor name = Accessor.writer(Bean.class.getField("name"));
+        assertFalse(name.writesLong());
+        name.set(bean, "x");
+        assertEquals("x", bean.name);
+        try {
+            name.set(bean, 1);
+            fail("wrong type");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            count.set(bean, null);
+            fail("null for a primitive");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void methods() throws Exception {
+        Bean bean = new Bean();
+        Accessor setter = Accessor.writer(Bean.class.getMethod("setSize", short.class));
+        assertEquals(short.class, setter.type());
+        setter.setLong(bean, 300);
+        assertEquals(300, Accessor.reader(Bean.class.getMethod("getSize")).getLong(bean));
+        assertEquals("shared", Accessor.reader(Bean.class.getMethod("getShared")).get(bean));
+        try {
+            setter.setLong(bean, -1);
+            fail("exception not wrapped");
+        } catch (InvocationTargetException e) {
+            assertEquals("negative", e.getCause().getMessage());
+        }
+    }
+
+    public static class Bean {
+
+        public int count;
+        public double ratio;
+        public boolean active;
+        public String name;
+        private short size;
+
+        public short getSize() {
+            return size;
+        }
+
+        public void setSize(short size) {
+            if(size < 0)
+                throw new IllegalArgumentException("negative");
+            this.size = size;
+        }
+
+        public static String getShared() {
+            return "shared";
+        }
+    }
+
+}
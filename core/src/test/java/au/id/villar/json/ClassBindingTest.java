@@ -0,0 +1,105 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.*;
+
+public class ClassBindingTest {
+
+    @Test
+    public void accessors() throws JSONReaderException {
+        ClassBinding binding = ClassBinding.of(Bean.class);
+        assertSame(binding, ClassBinding.of(Bean.class));
+        Bean bean = new Bean();
+
+        ClassBinding.Property field = binding.property("field");
+        assertSame(field, binding.property("field"));
+        field.set(bean, "a");
+        assertEquals("a", field.get(bean));
+        assertEquals(String.class, field.type());
+
+        ClassBinding.Property name = binding.property("name");
+        name.set(bean, "b");
+        assertEquals("b", bean.getName());
+        assertEquals("b", name.get(bean));
+
+        ClassBinding.Property active = binding.property("active");
+        assertEquals(boolean.class, active.type());
+        active.set(bean, true);
+        assertEquals(Boolean.TRUE, active.get(bean));
+
+        ClassBinding.Property constant = binding.property("constant");
+        assertEquals(Integer.valueOf(7), constant.get(bean));
+        constant.set(bean, 8);     // a final field is written through its setter
+        assertEquals(8, bean.other);
+
+        assertFalse(binding.property("count").readable());    // an "is" getter must return a boolean
+        assertFalse(binding.property("missing").writable());
+        try {
+            binding.property("missing").get(bean);
+            fail("unknown property");
+        } catch (JSONReaderException e) {
+            assertEquals("neither a proper field or getter found to get object's property: missing", e.getMessage());
+        }
+        try {
+            binding.property("").set(bean, 1);
+            fail("unknown property");
+        } catch (JSONReaderException e) {
+            assertEquals("error trying to set object's property: ", e.getMessage());
+        }
+    }
+
+    @Test
+    public void genericTypes() throws JSONReaderException {
+        ClassBinding binding = ClassBinding.of(Bean.class);
+        Type list = binding.property("values").genericType();
+        assertEquals(List.class, ClassBinding.rawClass(list));
+        assertEquals(Integer.class, TypeDescriptor.of(list).element().rawClass());
+        Type map = binding.property("nested").genericType();
+        assertEquals(Map.class, ClassBinding.rawClass(map));
+        TypeDescriptor value = TypeDescriptor.of(map).element();
+        assertEquals(List.class, value.rawClass());
+        assertEquals(Number.class, value.element().rawClass());
+        assertEquals(Object.class, TypeDescriptor.of(String.class).element().rawClass());
+    }
+
+    public static class Bean {
+
+        public String field;
+        public final int constant = 7;
+        public List<Integer> values;
+        public Map<String, List<? extends Number>> nested;
+        private String name;
+        private boolean active;
+        private int other;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public void setConstant(int other) {
+            this.other = other;
+        }
+
+        public int isCount() {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+
+import static junit.framework.Assert.*;
+
+public class CodecSupportTest {
+
+    @CompiledJSON
+    public static class Point {
+        public int x;
+        public String label;
+    }
+
+    @CompiledJSON
+    public static class NotGenerated {
+        public int x;
+    }
+
+    public enum Size { SMALL, LARGE }
+
+    @Test
+    public void find() {
+        assertTrue(CodecSupport.find(Point.class) instanceof CodecSupportTest_Point_JSONCodec);
+        assertSame(CodecSupport.find(Point.class), CodecSupport.find(Point.class));
+        assertNull(CodecSupport.find(NotGenerated.class));
+        assertNull(CodecSupport.find(String.class));
+        assertEquals("a.b.Outer_Inner_JSONCodec", CodecSupport.codecName("a.b.Outer$Inner"));
+        assertEquals("Top_JSONCodec", CodecSupport.codecName("Top"));
+    }
+
+    @Test
+    public void serializerAndDeserializerUseCodecs() throws Exception {
+        Point point = new Point();
+        point.x = 3;
+        point.label = "a\"b";
+        int uses = CodecSupportTest_Point_JSONCodec.uses;
+        StringWriter writer = new StringWriter();
+        ObjectSerializer.write(Collections.singletonList(point), writer);
+        assertEquals("[{\"x\":3,\"label\":\"a\\\"b\"}]", writer.toString());
+        assertEquals(uses + 1, CodecSupportTest_Point_JSONCodec.uses);
+
+        String json = writer.toString();
+        Point read = ObjectDeserializer.getFromReader(new StringReader(json.substring(1, json.length() - 1)), Point.class);
+        assertEquals(3, read.x);
+        assertEquals("a\"b", read.label);
+        assertEquals(uses + 2, CodecSupportTest_Point_JSONCodec.uses);
+
+        try {
+            ObjectDeserializer.getFromReader(new StringReader("{\"x\":1} {"), Point.class);
+            fail("content after the document");
+        } catch (JSONReaderException e) {
+            // expected
+        }
+
+        // the reflective path is still used where codecs can't be
+        read = ObjectDeserializer.getFromReader(new StringReader("{\"x\":4,\"label\":\"c\"}"), Point.class, "$.x");
+        assertEquals(4, read.x);
+        assertNull(read.label);
+        NotGenerated notGenerated = ObjectDeserializer.getFromReader(new StringReader("{\"x\":5}"), NotGenerated.class);
+        assertEquals(5, notGenerated.x);
+    }
+
+    @Test
+    public void write() throws Exception {
+        String text = "plain \u00e9/\"\\\n\u0001";
+        StringWriter expected = new StringWriter();
+        ObjectSerializer.write(text, expected);
+        StringWriter writer = new StringWriter();
+        CodecSupport.writeString(text, writer);
+        CodecSupport.writeString("plain", writer);
+        CodecSupport.writeString(null, writer);
+        CodecSupport.writeChar('\t', writer);
+        CodecSupport.writeChar('c', writer);
+        CodecSupport.writeLong(-120, writer);
+        CodecSupport.writeDouble(Double.NaN, writer);
+        CodecSupport.writeFloat(1.5f, writer);
+        assertEquals(expected + "\"plain\"null\"\\t\"\"c\"-120\"NaN\"1.5", writer.toString());
+    }
+
+    @Test
+    public void circularReferences() {
+        Deque<Object> stack = new ArrayDeque<>();
+        Object object = new Object();
+        CodecSupport.enter(stack, object);
+        try {
+            CodecSupport.enter(stack, object);
+            fail("circular reference");
+        } catch (RecursiveException e) {
+            // expected
+        }
+        CodecSupport.exit(stack);
+        assertTrue(stack.isEmpty());
+        CodecSupport.enter(null, object);
+        CodecSupport.exit(null);
+    }
+
+    @Test
+    public void read() throws Exception {
+        assertEquals(12, CodecSupport.readInt(reader("12")));
+        assertEquals(12, CodecSupport.readInt(reader("1.2e1")));
+        assertEquals(-7, CodecSupport.readByte(reader("\"-7\"")));
+        assertEquals(Long.MIN_VALUE, CodecSupport.readLong(reader("-9223372036854775808")));
+        assertEquals(0.25, CodecSupport.readDouble(reader("0.25")));
+        assertEquals(0.1f, CodecSupport.readFloat(reader("\"0.1\"")));
+        assertTrue(CodecSupport.readBoolean(reader("true")));
+        assertFalse(CodecSupport.readBoolean(reader("\"False\"")));
+        assertEquals('x', CodecSupport.readChar(reader("\"x\"")));
+        assertEquals("1.50", CodecSupport.readString(reader("1.50")));
+        assertNull(CodecSupport.readString(reader("null")));
+        assertEquals(new BigInteger("123456789012345678901"), CodecSupport.readBigInteger(reader("123456789012345678901")));
+        assertEquals(new BigDecimal("1.50"), CodecSupport.readBigDecimal(reader("1.50")));
+        assertEquals(Size.LARGE, CodecSupport.readEnum(reader("\"LARGE\""), Size.class, Size.values()));
+        assertEquals(Size.SMALL, CodecSupport.readEnum(reader("0"), Size.class, Size.values()));
+        assertNull(CodecSupport.readEnum(reader("null"), Size.class, Size.values()));
+
+        assertReadError("128", "byte");
+        assertReadError("1.5", "int");
+        assertReadError("\"a\"", "long");
+        assertReadError("true", "double");
+        assertReadError("\"yes\"", "boolean");
+        assertReadError("\"xy\"", "char");
+        assertReadError("{}", "java.lang.String");
+        assertReadError("1.5", "java.math.BigInteger");
+        assertReadError("2", Size.class.getName());
+    }
+
+    @Test
+    public void objectsAndArrays() throws Exception {
+        JSONReader reader = reader("{\"a\":[1,2],\"b\":null}");
+        assertTrue(CodecSupport.beginObject(reader, "T"));
+        assertTrue(CodecSupport.nextProperty(reader));
+        assertEquals("a", reader.currentName());
+        assertTrue(CodecSupport.beginArray(reader, "int[]"));
+        assertTrue(CodecSupport.nextElement(reader));
+        assertTrue(CodecSupport.nextElement(reader));
+        assertFalse(CodecSupport.nextElement(reader));
+        assertTrue(CodecSupport.nextProperty(reader));
+        assertFalse(CodecSupport.beginArray(reader, "int[]"));
+        assertEquals("error trying to set object's property: b", CodecSupport.notWritable(reader).getMessage());
+        assertFalse(CodecSupport.nextProperty(reader));
+
+        try {
+            CodecSupport.beginObject(reader("[]"), "T");
+            fail("not an object");
+        } catch (JSONReaderException e) {
+            assertEquals("value \"START_ARRAY\" cannot be casted to type T", e.getMessage());
+        }
+    }
+
+    private static JSONReader reader(String json) throws JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader(json));
+        reader.nextToken();
+        return reader;
+    }
+
+    private static void assertReadError(String json, String type) throws JSONReaderException {
+        JSONReader reader = reader(json);
+        try {
+            if(type.equals("byte")) CodecSupport.readByte(reader);
+            else if(type.equals("int")) CodecSupport.readInt(reader);
+            else if(type.equals("long")) CodecSupport.readLong(reader);
+            else if(type.equals("double")) CodecSupport.readDouble(reader);
+            else if(type.equals("boolean")) CodecSupport.readBoolean(reader);
+            else if(type.equals("char")) CodecSupport.readChar(reader);
+            else if(type.equals("java.lang.String")) CodecSupport.readString(reader);
+            else if(type.equals("java.math.BigInteger")) CodecSupport.readBigInteger(reader);
+            else CodecSupport.readEnum(reader, Size.class, Size.values());
+            fail("error expected reading " + json + " as " + type);
+        } catch (JSONReaderException e) {
+            String value = json.startsWith("\"")? json.substring(1, json.length() - 1): json.equals("{}")? "START_OBJECT": json;
+            assertEquals("value \"" + value + "\" cannot be casted to type " + type, e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package au.id.villar.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Deque;
+
+// what the processor generates for CodecSupportTest.Point, plus a count of its uses
+public final class CodecSupportTest_Point_JSONCodec implements JSONCodec<CodecSupportTest.Point> {
+
+    static int uses;
+
+    @Override
+    public void write(CodecSupportTest.Point object, Writer writer, Deque<Object> objectStack)
+            throws RecursiveException, IOException {
+        uses++;
+        writer.write("{\"x\":");
+        CodecSupport.writeLong(object.x, writer);
+        writer.write(",\"label\":");
+        CodecSupport.writeString(object.label, writer);
+        writer.write("}");
+    }
+
+    @Override
+    public CodecSupportTest.Point read(JSONReader reader) throws JSONReaderException {
+        uses++;
+        if(!CodecSupport.beginObject(reader, "au.id.villar.json.CodecSupportTest.Point"))
+            return null;
+        CodecSupportTest.Point object = new CodecSupportTest.Point();
+        while(CodecSupport.nextProperty(reader)) {
+            switch(reader.currentName()) {
+                case "x": {
+                    object.x = CodecSupport.readInt(reader);
+                    break;
+                }
+                case "label": {
+                    object.label = CodecSupport.readString(reader);
+                    break;
+                }
+                default:
+                    throw CodecSupport.notWritable(reader);
+            }
+        }
+        return object;
+    }
+
+}
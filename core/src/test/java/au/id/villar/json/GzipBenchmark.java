@@ -0,0 +1,69 @@
+package au.id.villar.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compares reading gzip-compressed NDJSON records with a {@link GZIPInputStream} against a
+ * {@link ParallelGzipInputStream} over the same data written as BGZF members. Not run as part of the tests; run the
+ * <code>main</code> method, optionally giving the number of copies of the test records to use.
+ */
+public class GzipBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int copies = args.length > 0? Integer.parseInt(args[0]): 50;
+        byte[] records = ParallelGzipInputStreamTest.createInput();
+        ByteArrayOutputStream builder = new ByteArrayOutputStream();
+        for(int copy = 0; copy < copies; copy++)
+            builder.write(records);
+        byte[] data = builder.toByteArray();
+        byte[] single = ParallelGzipInputStreamTest.gzip(data, 0, data.length);
+        byte[] bgzf = ParallelGzipInputStreamTest.bgzf(data);
+        System.out.printf("%d bytes of records, %d bytes as a single member, %d bytes as BGZF%n", data.length,
+                single.length, bgzf.length);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for(int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                int sequential = countRecords(new GZIPInputStream(new ByteArrayInputStream(bgzf), 64 * 1024));
+                long middle = System.nanoTime();
+                int parallel = countRecords(new ParallelGzipInputStream(new ByteArrayInputStream(bgzf), executor));
+                long end = System.nanoTime();
+                if(sequential != parallel)
+                    throw new IllegalStateException("different results: " + sequential + " and " + parallel);
+                System.out.printf("round %d: %d records, GZIPInputStream %d ms, ParallelGzipInputStream %d ms%n",
+                        round, parallel, (middle - start) / 1000000, (end - middle) / 1000000);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int countRecords(InputStream input) throws IOException {
+        final int[] count = {0};
+        try(InputStream in = input) {
+            ObjectDeserializer.readRecords(in, null, new RecordHandler<Object>() {
+
+                @Override
+                public void record(Object record) {
+                    count[0]++;
+                }
+
+                @Override
+                public void error(JSONReaderException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            });
+        }
+        return count[0];
+    }
+
+}
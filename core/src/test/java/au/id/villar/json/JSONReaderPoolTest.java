@@ -0,0 +1,133 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static junit.framework.Assert.*;
+
+public class JSONReaderPoolTest {
+
+    @Test
+    public void platformThreads() throws Exception {
+        final JSONReaderPool pool = new JSONReaderPool(2);
+        final JSONReader reader = pool.acquire();
+        JSONReader nested = pool.acquire();
+        assertNotSame(reader, nested);
+        reader.setInput(new StringReader("[1]"));
+        assertEquals(JSONReader.Token.START_ARRAY, reader.nextToken());
+        pool.release(reader);
+        pool.release(nested);
+        assertSame(reader, pool.acquire());
+        try {
+            reader.nextToken();
+            fail("the input should have been released");
+        } catch (NullPointerException e) {
+            // expected
+        }
+        assertNotSame(reader, pool.acquire());
+        pool.release(reader);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JSONReader other = executor.submit(new Callable<JSONReader>() {
+                @Override
+                public JSONReader call() {
+                    JSONReader other = pool.acquire();
+                    pool.release(other);
+                    return other;
+                }
+            }).get();
+            assertNotSame(reader, other);
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(reader, pool.acquire());
+    }
+
+    @Test
+    public void deserializerReusesReaders() throws JSONReaderException {
+        for(int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), ObjectDeserializer.getFromReader(new StringReader(String.valueOf(i)),
+                    Integer.class));
+            try {
+                ObjectDeserializer.getFromReader(new StringReader("[" + i));
+                fail("error not reported");
+            } catch (JSONReaderException e) {
+                // expected, the reader is given back to the pool anyway
+            }
+        }
+    }
+
+    @Test
+    public void releasedInputsCanBeCollected() throws Exception {
+        JSONReaderPool pool = new JSONReaderPool(1);
+
+        byte[] bytes = "[\"abc\"]".getBytes("UTF-8");
+        Reference<byte[]> array = new WeakReference<>(bytes);
+        JSONReader reader = pool.acquire();
+        setHandlers(reader);
+        reader.setInput(bytes, 0, bytes.length);
+        reader.parse();
+        bytes = null;
+        pool.release(reader);
+        assertCollected(array);
+
+        StringReader text = new StringReader("[\"abc\"]");
+        Reference<StringReader> textReference = new WeakReference<>(text);
+        assertSame(reader, pool.acquire());
+        setHandlers(reader);
+        reader.setInput(text);
+        reader.parse();
+        text = null;
+        pool.release(reader);
+        assertCollected(textReference);
+
+        ByteArrayInputStream stream = new ByteArrayInputStream("[\"abc\"]".getBytes("UTF-8"));
+        Reference<ByteArrayInputStream> streamReference = new WeakReference<>(stream);
+        assertSame(reader, pool.acquire());
+        setHandlers(reader);
+        reader.setInput(stream);
+        reader.parse();
+        stream = null;
+        pool.release(reader);
+        assertCollected(streamReference);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new JSONReaderPool(0);
+    }
+
+    private static void setHandlers(JSONReader reader) {
+        reader.setContentHandler(new StringViewContentHandler() {
+            @Override public void stringValue(StringBuilder name, CharSequence value) {}
+            @Override public void startObject(StringBuilder name) {}
+            @Override public void endObject() {}
+            @Override public void startArray(StringBuilder name) {}
+            @Override public void endArray() {}
+            @Override public void simpleValue(StringBuilder name, StringBuilder value, ValueType type) {}
+        });
+        reader.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void error(JSONReaderException e) {
+                fail(e.getMessage());
+            }
+        });
+    }
+
+    private static void assertCollected(Reference<?> reference) throws InterruptedException {
+        for(int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("the input is still reachable from the released reader", reference.get());
+    }
+
+}
@@ -0,0 +1,1131 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static junit.framework.Assert.*;
+
+public class JSONReaderTest {
+
+    @Test
+    public void test() throws IOException, JSONReaderException {
+        List<Event> result = parse("{\"fieldFalse\": false, \"fieldTrue\": true, \"myObject\": {}, \"myString\":\"testing...\", \"myOtherObject\": {\"uno\": null, \"myArray\":[true, true, true], \"myNumber\":200}}");
+        assertEquals(new Event(null, null, null, EventType.START_OBJECT), result.get(0));
+        assertEquals(new Event("fieldFalse", ContentHandler.ValueType.FALSE, null, EventType.SIMPLE_VALUE), result.get(1));
+        assertEquals(new Event("fieldTrue", ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), result.get(2));
+        assertEquals(new Event("myObject", null, null, EventType.START_OBJECT), result.get(3));
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT), result.get(4));
+        assertEquals(new Event("myString", ContentHandler.ValueType.STRING, "testing...", EventType.SIMPLE_VALUE), result.get(5));
+        assertEquals(new Event("myOtherObject", null, null, EventType.START_OBJECT), result.get(6));
+        assertEquals(new Event("uno", ContentHandler.ValueType.NULL, null, EventType.SIMPLE_VALUE), result.get(7));
+        assertEquals(new Event("myArray", null, null, EventType.START_ARRAY), result.get(8));
+        assertEquals(new Event(null, ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), result.get(9));
+        assertEquals(new Event(null, ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), result.get(10));
+        assertEquals(new Event(null, ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), result.get(11));
+        assertEquals(new Event(null, null, null, EventType.END_ARRAY), result.get(12));
+        assertEquals(new Event("myNumber", ContentHandler.ValueType.NUMBER, "200", EventType.SIMPLE_VALUE), result.get(13));
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT), result.get(14));
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT), result.get(15));
+    }
+
+    @Test
+    public void emptyTest() throws IOException, JSONReaderException {
+        List<Event> result = parse("");
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void emptyObjectsTest() throws IOException, JSONReaderException {
+        List<Event> result = parse("{}");
+        assertEquals(2, result.size());
+        assertEquals(new Event(null, null, null, EventType.START_OBJECT), result.get(0));
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT), result.get(1));
+        result = parse("[]");
+        assertEquals(2, result.size());
+        assertEquals(new Event(null, null, null, EventType.START_ARRAY), result.get(0));
+        assertEquals(new Event(null, null, null, EventType.END_ARRAY), result.get(1));
+    }
+
+    @Test
+    public void blanksTest() throws IOException, JSONReaderException {
+        List<Event> result = parse("    \t     {    \r    \"myVar\"  \n    :   \t    -56.78  \n   ,\t\"myArray\"  " +
+                "  \n\r\t    :  \n  [ \t  1  \r  , \n   2  \t  , \r  3    \n   ] \t  , \r   \"myObj\" \t  : \n  { \n " +
+                "  }  \r ,  \t  \"myOtherArray\"  \n  :  \r  [   \t  ]  \n  }  \t  ");
+
+
+        assertEquals(new Event(null, null, null, EventType.START_OBJECT), result.get(0));
+        assertEquals(new Event("myVar", ContentHandler.ValueType.NUMBER, "-56.78", EventType.SIMPLE_VALUE), result.get(1));
+        assertEquals(new Event("myArray", null, null, EventType.START_ARRAY), result.get(2));
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "1", EventType.SIMPLE_VALUE), result.get(3));
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "2", EventType.SIMPLE_VALUE), result.get(4));
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "3", EventType.SIMPLE_VALUE), result.get(5));
+        assertEquals(new Event(null, null, null, EventType.END_ARRAY), result.get(6));
+        assertEquals(new Event("myObj", null, null, EventType.START_OBJECT), result.get(7));
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT), result.get(8));
+        assertEquals(new Event("myOtherArray", null, null, EventType.START_ARRAY), result.get(9));
+        assertEquals(new Event(null, null, null, EventType.END_ARRAY), result.get(10));
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT), result.get(11));
+        assertEquals(12, result.size());
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void error1Test() throws IOException, JSONReaderException {
+        parse("{\"uno\" : 1}}");
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void error2Test() throws IOException, JSONReaderException {
+        parse("{\"uno\" : 1} {}");
+    }
+
+    @Test
+    public void rootSingleRootValues() throws IOException, JSONReaderException {
+        List<Event> result;
+        result = parse("\"Hello world\"");
+        assertEquals(new Event(null, ContentHandler.ValueType.STRING, "Hello world", EventType.SIMPLE_VALUE), result.get(0));
+        result = parse("32.45");
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "32.45", EventType.SIMPLE_VALUE), result.get(0));
+        result = parse("true");
+        assertEquals(new Event(null, ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), result.get(0));
+    }
+
+    @Test
+    public void rootNull() throws IOException, JSONReaderException {
+        List<Event> result = parse("null");
+        assertEquals(new Event(null, ContentHandler.ValueType.NULL, null, EventType.SIMPLE_VALUE), result.get(0));
+    }
+
+    @Test
+    public void rootSingleRootValuesWithSpaces() throws IOException, JSONReaderException {
+        List<Event> result;
+        result = parse("   \n \"Hello world\"   \r");
+        assertEquals(new Event(null, ContentHandler.ValueType.STRING, "Hello world", EventType.SIMPLE_VALUE), result.get(0));
+        result = parse("   32.45   \t   ");
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "32.45", EventType.SIMPLE_VALUE), result.get(0));
+        result = parse(" \n true   \n");
+        assertEquals(new Event(null, ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), result.get(0));
+    }
+
+    @Test
+    public void lineAndColumnNumber() {
+
+        JSONReader reader = new JSONReader();
+        StringReader input = new StringReader("{\n\t\"uno\": 1,\n\t\"dos\": whatever\n\nneto llego aqui?");
+        TestContentHandler handler = new TestContentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setInput(input);
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        reader.parse();
+        JSONReaderException exception = errorHandler.getException();
+        assertNotNull(exception);
+        assertEquals(3, reader.getLineNumber());
+        assertEquals(9, reader.getColumnNumber());
+    }
+
+    @Test
+    public void utf8InputsProduceSameEvents() throws IOException, JSONReaderException {
+        String json = "{\"name\": \"ni\u00f1o \u20ac \ud83d\ude00\", \"esc\\u00e9\": [1.5e3, -0, true, null, \"\\n\"], \"o\": {}}";
+        List<Event> expected = parse(json);
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        assertEquals(expected, parse(new ByteArrayInputStream(bytes)));
+        byte[] padded = new byte[bytes.length + 6];
+        System.arraycopy(bytes, 0, padded, 3, bytes.length);
+        assertEquals(expected, parse(padded, 3, bytes.length));
+        assertEquals(expected, parse(ByteBuffer.wrap(bytes)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertEquals(expected, parse(direct));
+        assertEquals("ni\u00f1o \u20ac \ud83d\ude00", expected.get(1).value);
+    }
+
+    @Test
+    public void bulkScanningProducesSameOutput() throws IOException {
+        // Reader input is read one character at a time, byte inputs scan runs 8 bytes at a time
+        Random random = new Random(42);
+        for(int doc = 0; doc < 300; doc++) {
+            StringBuilder builder = new StringBuilder();
+            randomValue(random, builder, 0);
+            String json = builder.toString();
+            if(doc % 3 == 0)
+                json = json.substring(0, random.nextInt(json.length() + 1));
+            byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+            for(int mode = 0; mode < 4; mode++) {
+                boolean skipping = (mode & 1) != 0;
+                JSONReader reader = new JSONReader();
+                String expected = feedToString(reader, bytes, skipping);
+                reader.setLazyPositions(mode > 1);
+                reader.setInput(new StringReader(json));
+                assertEquals(json, expected, parseToString(reader, skipping));
+                reader.setInput(bytes, 0, bytes.length);
+                assertEquals(json, expected, parseToString(reader, skipping));
+                reader.setInput(new ByteArrayInputStream(bytes));
+                assertEquals(json, expected, parseToString(reader, skipping));
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+                direct.put(bytes).flip();
+                reader.setInput(direct);
+                assertEquals(json, expected, parseToString(reader, skipping));
+                reader.setInput(new ByteArrayInputStream(bytes), 7 + mode, 2 + mode, null);
+                assertEquals(json, expected, parseToString(reader, skipping));
+            }
+        }
+    }
+
+    @Test
+    public void lazyPositions() throws IOException, JSONReaderException {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 399; i++)
+            builder.append(i % 3 == 0? "{\"k\u00f1\": \"\ud83d\ude00 \u20ac\",\r\n": i % 3 == 1? "\"x\": [1,\r 2],": "\"y\": 3},\n");
+        String json = "[" + builder + "null]";
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        File file = File.createTempFile("JSONReaderTest", ".json");
+        try {
+            Files.write(file.toPath(), bytes);
+            String expected = null;
+            for(int inputType = 0; inputType < 4; inputType++) {
+                for(boolean lazy: new boolean[] {false, true}) {
+                    JSONReader reader = new JSONReader();
+                    reader.setLazyPositions(lazy);
+                    try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                        switch(inputType) {
+                            case 0: reader.setInput(new StringReader(json)); break;
+                            case 1: reader.setInput(bytes, 0, bytes.length); break;
+                            case 2: reader.setInput(new ByteArrayInputStream(bytes)); break;
+                            default: reader.setInput(channel, 64);
+                        }
+                        StringBuilder positions = new StringBuilder();
+                        int count = 0;
+                        while(reader.nextToken() != null) {
+                            if(count++ % 7 == 0)
+                                positions.append(reader.getLineNumber()).append(':')
+                                        .append(reader.getColumnNumber()).append(' ');
+                        }
+                        positions.append(reader.getLineNumber()).append(':').append(reader.getColumnNumber());
+                        if(expected == null)
+                            expected = positions.toString();
+                        assertEquals("input " + inputType + (lazy? " lazy": ""), expected, positions.toString());
+                    }
+                }
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void readAhead() throws Exception {
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < 5000; i++)
+            builder.append(i > 0? ", ": "").append("{\"id\": ").append(i).append(", \"name\": \"item ").append(i).append("\"}");
+        String json = builder.append(']').toString();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try(GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json.getBytes(Charset.forName("UTF-8")));
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JSONReader reader = new JSONReader();
+            reader.setInput(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())), 4096, 3, executor);
+            assertEquals(parse(json), parse(reader));
+
+            reader.setInput(new InputStream() {
+                private int count;
+                @Override
+                public int read() throws IOException {
+                    if(count++ < 100)
+                        return count == 1? '[': ' ';
+                    throw new IOException("broken");
+                }
+            }, 16, 2, executor);
+            TestErrorHandler errorHandler = new TestErrorHandler();
+            reader.setContentHandler(new TestContentHandler());
+            reader.setErrorHandler(errorHandler);
+            reader.parse();
+            assertEquals("broken", errorHandler.getException().getCause().getMessage());
+
+            // an endless input is abandoned: its background reading must stop and leave the thread free
+            reader.setInput(new InputStream() {
+                @Override
+                public int read() {
+                    return ' ';
+                }
+            }, 16, 2, executor);
+            reader.setInput(new StringReader("[]"));
+            assertEquals(Boolean.TRUE, executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return !Thread.currentThread().isInterrupted();
+                }
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readAheadLeavesChannelsOpen() throws Exception {
+        Pipe pipe = Pipe.open();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JSONReader reader = new JSONReader();
+            pipe.sink().write(ByteBuffer.wrap("[1, ".getBytes(Charset.forName("UTF-8"))));
+            reader.setInput(Channels.newInputStream(pipe.source()), 16, 2, executor);
+            Thread.sleep(100);
+
+            // the background thread is blocked reading the pipe: interrupting it would close the channel
+            reader.setInput(new StringReader("[]"));
+            assertTrue(pipe.source().isOpen());
+            pipe.sink().write(ByteBuffer.wrap("2]".getBytes(Charset.forName("UTF-8"))));
+            assertEquals(Boolean.TRUE, executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return !Thread.currentThread().isInterrupted();
+                }
+            }).get(10, TimeUnit.SECONDS));
+            assertTrue(pipe.source().isOpen());
+        } finally {
+            executor.shutdownNow();
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void typedNumbers() {
+        String[] numbers = {"0", "-0", "123", "-9223372036854775808", "9223372036854775807", "9223372036854775808",
+                "1.5", "-0.0", "1e22", "1E+23", "0.1", "123456789012345678901", "2.5E-3", "9007199254740993.0",
+                "-12.3400e-2", "1e100000"};
+        String[] expected = {"L0", "L0", "L123", "L-9223372036854775808", "L9223372036854775807",
+                "T9223372036854775808", "D1.5", "D-0.0", "D1.0E22", "T1E+23", "D0.1", "T123456789012345678901",
+                "D0.0025", "T9007199254740993.0", "D-0.1234", "T1e100000"};
+        StringBuilder json = new StringBuilder("[");
+        for(String number: numbers)
+            json.append(json.length() > 1? ", ": "").append(number);
+        JSONReader reader = new JSONReader();
+        NumberHandler handler = new NumberHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(new TestErrorHandler());
+        reader.setInput(new StringReader(json.append("]").toString()));
+        reader.parse();
+        assertEquals(Arrays.asList(expected), handler.values);
+    }
+
+    @Test
+    public void typedNumbersAreExact() throws JSONReaderException {
+        Random random = new Random(11);
+        for(int i = 0; i < 5000; i++) {
+            StringBuilder number = new StringBuilder();
+            if(random.nextBoolean())
+                number.append('-');
+            number.append(random.nextInt(10) == 0? 0: random.nextInt(1000000));
+            if(random.nextBoolean()) {
+                number.append('.');
+                for(int digits = random.nextInt(12) + 1; digits > 0; digits--)
+                    number.append(random.nextInt(10));
+            }
+            if(random.nextInt(3) == 0)
+                number.append(random.nextBoolean()? 'e': 'E').append(random.nextInt(50) - 25);
+            JSONReader reader = new JSONReader();
+            reader.setInput(new StringReader(number.toString()));
+            assertEquals(JSONReader.Token.NUMBER, reader.nextToken());
+            assertEquals(number.toString(), Double.parseDouble(number.toString()), reader.getDouble());
+            assertEquals(number.toString(), new BigDecimal(number.toString()), reader.currentDecimal());
+        }
+    }
+
+    @Test
+    public void stringViews() throws IOException, JSONReaderException {
+        StringBuilder builder = new StringBuilder("[");
+        for(int i = 0; i < 300; i++)
+            builder.append("\"value").append(i).append("\", \"esc\\taped\", \"ni\u00f1o\", ");
+        String json = builder.append("\"last\"]").toString();
+        List<Event> expected = parse(json);
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+
+        JSONReader reader = new JSONReader();
+        StringViewHandler handler = new StringViewHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(new TestErrorHandler());
+        reader.setInput(new FilterReader(new StringReader(json)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 13));
+            }
+        });
+        reader.parse();
+        assertEquals(expected, handler.getEvents());
+        assertTrue(handler.views > 0);
+        assertTrue(handler.views < 301);    // strings spanning a refill of the buffer are copied
+
+        handler = new StringViewHandler();
+        reader.setContentHandler(handler);
+        reader.setInput(new ByteArrayInputStream(bytes));
+        reader.parse();
+        assertEquals(expected, handler.getEvents());
+        assertTrue(handler.views > 0);
+
+        handler = new StringViewHandler();
+        reader.setContentHandler(handler);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        reader.setInput(direct);
+        reader.parse();
+        assertEquals(expected, handler.getEvents());
+        assertEquals(301, handler.views);
+
+        handler = new StringViewHandler();
+        reader.setContentHandler(handler);
+        reader.setInput(new StringReader("[\"ni\u00f1o\", \"\u20ac \ud83d\ude00\", \"d\\\"e\"]"));
+        reader.parse();
+        assertEquals(2, handler.views);     // characters from a Reader are decoded, non-ASCII ones are viewed too
+
+        reader.setInput(new StringReader("[\"abc\", \"d\\\"e\"]"));
+        assertEquals(JSONReader.Token.START_ARRAY, reader.nextToken());
+        assertEquals(JSONReader.Token.STRING, reader.nextToken());
+        assertEquals("abc", reader.getText());
+        assertEquals(JSONReader.Token.STRING, reader.nextToken());
+        assertEquals("d\"e", reader.getText());
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void utf8MalformedInput() throws IOException, JSONReaderException {
+        parse(new byte[] {'"', (byte)0xC3, '"'}, 0, 3);
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void utf8OverlongInput() throws IOException, JSONReaderException {
+        parse(new byte[] {'"', (byte)0xC0, (byte)0xAF, '"'}, 0, 4);
+    }
+
+    @Test
+    public void mappedFileAcrossWindows() throws IOException, JSONReaderException {
+        String json = "{\"name\": \"ni\u00f1o \u20ac \ud83d\ude00\",\n \"list\": [1.5e3, -0, true, null, \"\\n\"],\r\n \"o\": {}}";
+        File file = File.createTempFile("JSONReaderTest", ".json");
+        try {
+            Files.write(file.toPath(), json.getBytes(Charset.forName("UTF-8")));
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                for(int windowSize = 1; windowSize < 9; windowSize++) {
+                    channel.position(0);
+                    JSONReader reader = new JSONReader();
+                    reader.setInput(channel, windowSize);
+                    assertEquals(parse(json), parse(reader));
+                }
+            }
+
+            Files.write(file.toPath(), "{\n\t\"uno\": 1,\n\t\"dos\": whatever\n}".getBytes(Charset.forName("UTF-8")));
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                JSONReader reader = new JSONReader();
+                reader.setInput(channel, 4);
+                TestErrorHandler errorHandler = new TestErrorHandler();
+                reader.setContentHandler(new TestContentHandler());
+                reader.setErrorHandler(errorHandler);
+                reader.parse();
+                assertNotNull(errorHandler.getException());
+                assertEquals(3, reader.getLineNumber());
+                assertEquals(9, reader.getColumnNumber());
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void pullTokens() throws JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("{\"id\": -9223372036854775808, \"tags\": [\"a\", null], \"ok\": true}"));
+        assertEquals(JSONReader.Token.START_OBJECT, reader.nextToken());
+        assertNull(reader.currentName());
+        assertEquals(JSONReader.Token.NUMBER, reader.nextToken());
+        assertEquals("id", reader.currentName());
+        assertEquals(Long.MIN_VALUE, reader.getLong());
+        assertEquals(JSONReader.Token.START_ARRAY, reader.nextToken());
+        assertEquals("tags", reader.currentName());
+        assertEquals(JSONReader.Token.STRING, reader.nextToken());
+        assertNull(reader.currentName());
+        assertEquals("a", reader.getText());
+        assertEquals(JSONReader.Token.NULL, reader.nextToken());
+        assertEquals("null", reader.getText());
+        assertEquals(JSONReader.Token.END_ARRAY, reader.nextToken());
+        assertEquals(JSONReader.Token.TRUE, reader.nextToken());
+        assertEquals("ok", reader.currentName());
+        assertEquals(JSONReader.Token.END_OBJECT, reader.nextToken());
+        assertNull(reader.nextToken());
+        assertNull(reader.nextToken());
+    }
+
+    @Test
+    public void pullSkipChildren() throws JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("{\"skip\": {\"a\": [1, {\"b\": []}], \"c\": {}}, \"keep\": 7, \"rest\": [1, 2"));
+        assertEquals(JSONReader.Token.START_OBJECT, reader.nextToken());
+        assertEquals(JSONReader.Token.START_OBJECT, reader.nextToken());
+        reader.skipChildren();
+        assertEquals(JSONReader.Token.END_OBJECT, reader.currentToken());
+        assertEquals(JSONReader.Token.NUMBER, reader.nextToken());
+        assertEquals("keep", reader.currentName());
+        assertEquals(7, reader.getLong());
+        // stopping here: the unfinished rest of the input is never read
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void pullLongOverflow() throws JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("9223372036854775808"));
+        assertEquals(JSONReader.Token.NUMBER, reader.nextToken());
+        reader.getLong();
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void pullLongFraction() throws JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("[1.5]"));
+        reader.nextToken();
+        reader.nextToken();
+        reader.getLong();
+    }
+
+    @Test
+    public void valueInArrayAfterNestedObjectHasNoName() throws IOException, JSONReaderException {
+        List<Event> result = parse("[{\"a\": {}}, 5]");
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "5", EventType.SIMPLE_VALUE), result.get(5));
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void unterminatedArray() throws IOException, JSONReaderException {
+        parse("[1, 2");
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void unterminatedObject() throws IOException, JSONReaderException {
+        parse("{\"a\": 1");
+    }
+
+    @Test
+    public void feedAtEverySplitPoint() throws IOException, JSONReaderException {
+        String json = " {\"name\": \"ni\u00f1o \u20ac \ud83d\ude00\", \"esc\\u00e9\": [1.5e3, -0, true, null, \"\\n\"],\n \"o\": {}} ";
+        List<Event> expected = parse(json);
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        for(int split = 0; split <= bytes.length; split++) {
+            JSONReader reader = new JSONReader();
+            TestContentHandler handler = new TestContentHandler();
+            TestErrorHandler errorHandler = new TestErrorHandler();
+            reader.setContentHandler(handler);
+            reader.setErrorHandler(errorHandler);
+            byte[] chunk = new byte[bytes.length];
+            System.arraycopy(bytes, 0, chunk, 0, split);
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(chunk, 0, split));
+            System.arraycopy(bytes, split, chunk, 0, bytes.length - split);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length - split);
+            direct.put(chunk, 0, bytes.length - split).flip();
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(direct));
+            assertEquals(0, direct.remaining());
+            assertEquals(JSONReader.Status.FINISHED, reader.endOfInput());
+            assertNull(errorHandler.getException());
+            assertEquals(expected, handler.getEvents());
+        }
+    }
+
+    @Test
+    public void feedOneByteAtATime() throws IOException, JSONReaderException {
+        String json = "[123, \"abc\", {\"x\": [false, 4.5e-1]}, \"\\u00e9\u00e9\"]";
+        List<Event> expected = parse(json);
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        JSONReader reader = new JSONReader();
+        TestContentHandler handler = new TestContentHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(new TestErrorHandler());
+        int eventsBefore = 0;
+        for(byte b: bytes) {
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(new byte[] {b}));
+            assertTrue(handler.getEvents().size() >= eventsBefore);
+            eventsBefore = handler.getEvents().size();
+        }
+        assertEquals(expected, handler.getEvents());
+        assertEquals(JSONReader.Status.FINISHED, reader.endOfInput());
+    }
+
+    @Test
+    public void feedLongValuesInSmallChunks() throws IOException, JSONReaderException {
+        StringBuilder builder = new StringBuilder("{\"text\": \"");
+        while(builder.length() < 3 * 1024 * 1024)
+            builder.append("abcdefg \u00e9\\n\\u20ac\ud83d\ude00");
+        builder.append("\", \"number\": -");
+        for(int i = 0; i < 256 * 1024; i++)
+            builder.append(i % 9 + 1);
+        builder.append(".25e-3,\n \"small\": [12345678901234, \"x\"]}");
+        String json = builder.toString();
+        JSONReader expectedReader = new JSONReader();
+        expectedReader.setInput(new StringReader(json));
+        List<Event> expected = parse(expectedReader);
+
+        // with values read again from their start on every chunk, this would take hours
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        JSONReader reader = new JSONReader();
+        TestContentHandler handler = new TestContentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        int offset = 0;
+        for(int size = 1; offset < bytes.length; size = size % 5 + 1) {
+            int length = Math.min(size, bytes.length - offset);
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(bytes, offset, length));
+            offset += length;
+        }
+        assertEquals(JSONReader.Status.FINISHED, reader.endOfInput());
+        assertNull(errorHandler.getException());
+        assertEquals(expected, handler.getEvents());
+        assertEquals(expectedReader.getLineNumber(), reader.getLineNumber());
+        assertEquals(expectedReader.getColumnNumber(), reader.getColumnNumber());
+    }
+
+    @Test
+    public void feedErrors() {
+        JSONReader reader = new JSONReader();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(new TestContentHandler());
+        reader.setErrorHandler(errorHandler);
+        assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed("{\"a\": [1, ".getBytes()));
+        assertEquals(JSONReader.Status.ERROR, reader.feed("}".getBytes()));
+        assertNotNull(errorHandler.getException());
+        assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed("[1, 2".getBytes()));
+        assertEquals(JSONReader.Status.ERROR, reader.endOfInput());
+    }
+
+    @Test
+    public void multipleDocuments() {
+        String json = "{\"a\": 1}{\"a\": [2]} [3]\n\"x\"12 true{}";
+        List<Integer> boundaries = Arrays.asList(3, 8, 11, 12, 13, 14, 16);
+
+        JSONReader reader = new JSONReader();
+        DocumentHandler handler = new DocumentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        reader.setInput(new StringReader(json));
+        reader.parse();
+        assertNotNull(errorHandler.getException());
+        assertEquals(Arrays.asList(3), handler.boundaries);
+
+        reader.setMultipleDocuments(true);
+        handler = new DocumentHandler();
+        errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        reader.setInput(new StringReader(json));
+        reader.parse();
+        assertNull(errorHandler.getException());
+        assertEquals(boundaries, handler.boundaries);
+        List<Event> expected = handler.getEvents();
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "12", EventType.SIMPLE_VALUE), expected.get(12));
+
+        handler = new DocumentHandler();
+        reader.setContentHandler(handler);
+        byte[] bytes = json.getBytes();
+        for(int i = 0; i < bytes.length; i++)
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(bytes, i, 1));
+        assertEquals(JSONReader.Status.FINISHED, reader.endOfInput());
+        assertEquals(expected, handler.getEvents());
+        assertEquals(boundaries, handler.boundaries);
+
+        reader.setMultipleDocuments(false);
+        handler = new DocumentHandler();
+        reader.setContentHandler(handler);
+        reader.setInput(new ByteArrayInputStream(bytes));
+        int documents = 0;
+        while(reader.parseDocument()) {
+            documents++;
+            assertEquals(boundaries.subList(0, documents), handler.boundaries);
+        }
+        assertEquals(7, documents);
+        assertEquals(expected, handler.getEvents());
+        assertFalse(reader.parseDocument());
+
+        errorHandler = new TestErrorHandler();
+        reader.setErrorHandler(errorHandler);
+        reader.setInput(new StringReader("[1] {\"a\" 2} [3]"));
+        assertTrue(reader.parseDocument());
+        assertFalse(reader.parseDocument());
+        assertNotNull(errorHandler.getException());
+        assertFalse(reader.parseDocument());
+    }
+
+    @Test
+    public void parseLines() {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("{\"a\": 1}\r\n\n  [true] \n\"unterminated\n{\"b\": 2} x\n12\n{\"c\": [null]}"));
+        TestContentHandler handler = new TestContentHandler();
+        final List<JSONReaderException> errors = new ArrayList<>();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void error(JSONReaderException exception) {
+                errors.add(exception);
+            }
+        });
+
+        assertTrue(reader.parseLine());
+        assertEquals(3, handler.getEvents().size());
+        assertTrue(reader.parseLine());
+        assertEquals(6, handler.getEvents().size());
+        assertEquals(new Event(null, ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE), handler.getEvents().get(4));
+        assertTrue(errors.isEmpty());
+
+        assertTrue(reader.parseLine());
+        assertEquals(1, errors.size());
+        assertEquals(6, handler.getEvents().size());
+
+        assertTrue(reader.parseLine());
+        assertEquals(2, errors.size());
+
+        assertTrue(reader.parseLine());
+        assertEquals(new Event(null, ContentHandler.ValueType.NUMBER, "12", EventType.SIMPLE_VALUE),
+                handler.getEvents().get(handler.getEvents().size() - 1));
+
+        assertTrue(reader.parseLine());
+        assertEquals(new Event(null, null, null, EventType.END_OBJECT),
+                handler.getEvents().get(handler.getEvents().size() - 1));
+        assertEquals(new Event("c", null, null, EventType.START_ARRAY),
+                handler.getEvents().get(handler.getEvents().size() - 4));
+        assertFalse(reader.parseLine());
+        assertEquals(2, errors.size());
+    }
+
+    @Test
+    public void skipSubtrees() throws IOException, JSONReaderException {
+        String json = "{\"skip\": {\"a\": \"} ] \\\" {\", \"b\": [[], {}]}, \"keep\": [1, {\"x\": true}], "
+                + "\"skipAlso\": [\"\\\\\", [{]}], \"last\": null}";
+        List<Event> expected = Arrays.asList(
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("keep", null, null, EventType.START_ARRAY),
+                new Event(null, ContentHandler.ValueType.NUMBER, "1", EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("x", ContentHandler.ValueType.TRUE, null, EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.END_ARRAY),
+                new Event("last", ContentHandler.ValueType.NULL, null, EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_OBJECT));
+
+        JSONReader reader = new JSONReader();
+        TestContentHandler handler = new SkippingContentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        reader.setInput(new StringReader(json));
+        reader.parse();
+        assertNull(errorHandler.getException());
+        assertEquals(expected, handler.getEvents());
+
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        for(int split = 0; split <= bytes.length; split++) {
+            handler = new SkippingContentHandler();
+            reader.setContentHandler(handler);
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(bytes, 0, split));
+            assertEquals(JSONReader.Status.NEED_MORE_INPUT, reader.feed(bytes, split, bytes.length - split));
+            assertEquals(JSONReader.Status.FINISHED, reader.endOfInput());
+            assertNull(errorHandler.getException());
+            assertEquals(expected, handler.getEvents());
+        }
+    }
+
+    @Test
+    public void skipUnterminated() {
+        JSONReader reader = new JSONReader();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(new SkippingContentHandler());
+        reader.setErrorHandler(errorHandler);
+        reader.setInput(new StringReader("{\"skip\": [1, \"]\"}"));
+        reader.parse();
+        assertNotNull(errorHandler.getException());
+    }
+
+    @Test
+    public void skipLines() {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("{\"skip\": [1,\n]}\n{\"skip\": {}, \"n\": 3}\n"));
+        TestContentHandler handler = new SkippingContentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        assertTrue(reader.parseLine());
+        assertNotNull(errorHandler.getException());
+        assertTrue(reader.parseLine());
+        assertTrue(reader.parseLine());
+        assertEquals(Arrays.asList(
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("n", ContentHandler.ValueType.NUMBER, "3", EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_OBJECT)), handler.getEvents());
+        assertFalse(reader.parseLine());
+    }
+
+    @Test
+    public void paths() throws IOException, JSONReaderException {
+        String json = "{\"items\": [{\"id\": 1, \"tags\": [\"x\"]}, {\"tags\": {}, \"id\": {\"n\": [2]}}], "
+                + "\"meta\": {\"version\": 3, \"items\": [4]}, \"other\": [[5]]}";
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader(json));
+        reader.setPaths("$.items[*].id", "$.meta.version");
+        assertEquals(Arrays.asList(
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("items", null, null, EventType.START_ARRAY),
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("id", ContentHandler.ValueType.NUMBER, "1", EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("id", null, null, EventType.START_OBJECT),
+                new Event("n", null, null, EventType.START_ARRAY),
+                new Event(null, ContentHandler.ValueType.NUMBER, "2", EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_ARRAY),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.END_ARRAY),
+                new Event("meta", null, null, EventType.START_OBJECT),
+                new Event("version", ContentHandler.ValueType.NUMBER, "3", EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.END_OBJECT)), parse(reader));
+
+        reader.setInput(new StringReader(json));
+        reader.setPaths("$.other[0][0]", "$['items'][1].tags");
+        assertEquals(Arrays.asList(
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("items", null, null, EventType.START_ARRAY),
+                new Event(null, null, null, EventType.START_OBJECT),
+                new Event("tags", null, null, EventType.START_OBJECT),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.END_OBJECT),
+                new Event(null, null, null, EventType.END_ARRAY),
+                new Event("other", null, null, EventType.START_ARRAY),
+                new Event(null, null, null, EventType.START_ARRAY),
+                new Event(null, ContentHandler.ValueType.NUMBER, "5", EventType.SIMPLE_VALUE),
+                new Event(null, null, null, EventType.END_ARRAY),
+                new Event(null, null, null, EventType.END_ARRAY),
+                new Event(null, null, null, EventType.END_OBJECT)), parse(reader));
+
+        reader.setInput(new StringReader(json));
+        reader.setPaths("$");
+        assertEquals(parse(json), parse(reader));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPath() {
+        new JSONReader().setPaths("$.items[");
+    }
+
+    @Test
+    public void reset() {
+        String big = "{\"a\": \"" + new String(new char[100000]).replace('\0', 'x') + "\", \"b\": [1, \"\u00e9\"]}";
+        String small = "{\"c\": {\"d\": null}, \"e\": \"\u00f1\"}";
+        JSONReader fresh = new JSONReader();
+        fresh.setInput(new StringReader(big));
+        String bigEvents = parseToString(fresh, false);
+        fresh = new JSONReader();
+        fresh.setInput(new StringReader(small));
+        String smallEvents = parseToString(fresh, false);
+
+        JSONReader reader = new JSONReader();
+        reader.setPaths("$.b");
+        reader.setInput(new ByteArrayInputStream(big.getBytes(Charset.forName("UTF-8"))));
+        assertFalse(bigEvents.equals(parseToString(reader, false)));
+        for(int round = 0; round < 3; round++) {
+            reader.reset();
+            try {
+                reader.parse();
+                fail("input and handlers should have been cleared");
+            } catch (NullPointerException e) {
+                // expected
+            }
+            reader.setInput(new StringReader(big));
+            assertEquals(bigEvents, parseToString(reader, false));
+
+            reader.reset();
+            reader.setInput(new ByteArrayInputStream(small.getBytes(Charset.forName("UTF-8"))));
+            reader.setContentHandler(new TestContentHandler());
+            reader.setErrorHandler(new TestErrorHandler());
+            reader.setInput(new ByteArrayInputStream(small.getBytes(Charset.forName("UTF-8"))));
+            assertEquals(smallEvents, parseToString(reader, false));
+            reader.setInput(new StringReader(small.substring(0, 10)));
+            parseToString(reader, false);
+            reader.setInput(new StringReader(small));
+            assertEquals(smallEvents, parseToString(reader, false));
+        }
+    }
+
+    private String parseToString(JSONReader reader, boolean skipping) {
+        TestContentHandler handler = skipping? new SkippingContentHandler(): new StringViewHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        reader.parse();
+        JSONReaderException exception = errorHandler.getException();
+        return handler.getEvents() + (exception != null? " " + exception.getMessage(): "")
+                + " " + reader.getLineNumber() + ":" + reader.getColumnNumber();
+    }
+
+    // fed input is always read one character at a time, so it serves as reference for the bulk paths
+    private String feedToString(JSONReader reader, byte[] json, boolean skipping) {
+        TestContentHandler handler = skipping? new SkippingContentHandler(): new TestContentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        if(reader.feed(json) == JSONReader.Status.NEED_MORE_INPUT)
+            reader.endOfInput();
+        JSONReaderException exception = errorHandler.getException();
+        return handler.getEvents() + (exception != null? " " + exception.getMessage(): "")
+                + " " + reader.getLineNumber() + ":" + reader.getColumnNumber();
+    }
+
+    private void randomValue(Random random, StringBuilder builder, int depth) {
+        int type = random.nextInt(depth > 4? 4: 6);
+        switch(type) {
+            case 0: builder.append(random.nextInt(2000) - 1000); break;
+            case 1: builder.append(random.nextBoolean()? "true": "null"); break;
+            case 2: case 3: randomString(random, builder); break;
+            case 4: case 5:
+                boolean object = type == 4;
+                builder.append(object? '{': '[');
+                int count = random.nextInt(5);
+                for(int i = 0; i < count; i++) {
+                    if(i > 0)
+                        builder.append(random.nextInt(4) == 0? ",\n  ": ", ");
+                    if(object) {
+                        builder.append(random.nextInt(3) == 0? "\"skip": "\"");
+                        builder.append(random.nextInt(3)).append("\": ");
+                    }
+                    randomValue(random, builder, depth + 1);
+                }
+                builder.append(object? '}': ']');
+        }
+    }
+
+    private void randomString(Random random, StringBuilder builder) {
+        String[] pieces = {"a", "bcdefgh", " ", "{", "}", "[", "]", ",", ":", "\\\"", "\\\\", "\\n", "\\u00e9",
+                "\u00f1", "\u20ac", "\ud83d\ude00", "0123456789abcdef", "\t"};
+        builder.append('"');
+        int count = random.nextInt(12);
+        for(int i = 0; i < count; i++)
+            builder.append(pieces[random.nextInt(pieces.length)]);
+        builder.append('"');
+    }
+
+    private List<Event> parse(String json) throws IOException, JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader(json));
+        return parse(reader);
+    }
+
+    private List<Event> parse(ByteArrayInputStream json) throws IOException, JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(json);
+        return parse(reader);
+    }
+
+    private List<Event> parse(byte[] json, int offset, int length) throws IOException, JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(json, offset, length);
+        return parse(reader);
+    }
+
+    private List<Event> parse(ByteBuffer json) throws IOException, JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(json);
+        return parse(reader);
+    }
+
+    private List<Event> parse(JSONReader reader) throws IOException, JSONReaderException {
+        TestContentHandler handler = new TestContentHandler();
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(errorHandler);
+        reader.parse();
+        JSONReaderException exception = errorHandler.getException();
+        if(exception != null) {
+            throw errorHandler.getException();
+        }
+        return handler.getEvents();
+    }
+
+    private enum EventType {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        SIMPLE_VALUE
+    }
+
+    private class Event {
+
+        private Event(String name, ContentHandler.ValueType valueType, String value, EventType eventType) {
+            this.name = name;
+            this.valueType = valueType;
+            this.value = value;
+            this.eventType = eventType;
+        }
+
+        public String name;
+        public ContentHandler.ValueType valueType;
+        public String value;
+        public EventType eventType;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Event event = (Event) o;
+
+            return eventType == event.eventType
+                    && (name != null ? name.equals(event.name) : event.name == null)
+                    && (value != null ? value.equals(event.value) : event.value == null)
+                    && valueType == event.valueType;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = name != null ? name.hashCode() : 0;
+            result = 31 * result + (valueType != null ? valueType.hashCode() : 0);
+            result = 31 * result + (value != null ? value.hashCode() : 0);
+            result = 31 * result + (eventType != null ? eventType.hashCode() : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Event{" +
+                    "name='" + name + '\'' +
+                    ", valueType=" + valueType +
+                    ", value='" + value + '\'' +
+                    ", eventType=" + eventType +
+                    '}';
+        }
+    }
+
+    private class TestErrorHandler implements ErrorHandler {
+
+        private JSONReaderException exception;
+
+        public JSONReaderException getException() {
+            return exception;
+        }
+
+        @Override
+        public void error(JSONReaderException exception) {
+            this.exception = exception;
+        }
+    }
+
+    private class TestContentHandler implements ContentHandler {
+
+        private ArrayList<Event> events = new ArrayList<>();
+
+        @Override
+        public void startObject(StringBuilder name) {
+            events.add(new Event(name == null? null: name.toString(), null, null, EventType.START_OBJECT));
+        }
+
+        @Override
+        public void endObject() {
+            events.add(new Event(null, null, null, EventType.END_OBJECT));
+        }
+
+        @Override
+        public void startArray(StringBuilder name) {
+            events.add(new Event(name == null? null: name.toString(), null, null, EventType.START_ARRAY));
+        }
+
+        @Override
+        public void endArray() {
+            events.add(new Event(null, null, null, EventType.END_ARRAY));
+        }
+
+        @Override
+        public void simpleValue(StringBuilder name, StringBuilder value, ValueType type) {
+            events.add(new Event(name == null? null: name.toString(), type, value == null? null: value.toString(),
+                    EventType.SIMPLE_VALUE));
+        }
+
+        public ArrayList<Event> getEvents() {
+            return events;
+        }
+    }
+
+    private class DocumentHandler extends TestContentHandler implements DocumentContentHandler {
+
+        private List<Integer> boundaries = new ArrayList<>();
+
+        @Override
+        public void endDocument() {
+            boundaries.add(getEvents().size());
+        }
+    }
+
+    private class SkippingContentHandler extends TestContentHandler implements SelectiveContentHandler {
+
+        @Override
+        public boolean acceptObject(StringBuilder name) {
+            return name == null || !name.toString().startsWith("skip");
+        }
+
+        @Override
+        public boolean acceptArray(StringBuilder name) {
+            return name == null || !name.toString().startsWith("skip");
+        }
+    }
+
+    private class NumberHandler extends TestContentHandler implements NumberContentHandler {
+
+        private List<String> values = new ArrayList<>();
+
+        @Override
+        public void simpleValue(StringBuilder name, StringBuilder value, ValueType type) {
+            values.add("T" + value);
+        }
+
+        @Override
+        public void longValue(StringBuilder name, long value) {
+            values.add("L" + value);
+        }
+
+        @Override
+        public void doubleValue(StringBuilder name, double value) {
+            values.add("D" + value);
+        }
+    }
+
+    private class StringViewHandler extends TestContentHandler implements StringViewContentHandler {
+
+        private int views;
+
+        @Override
+        public void stringValue(StringBuilder name, CharSequence value) {
+            if(!(value instanceof StringBuilder))
+                views++;
+            simpleValue(name, new StringBuilder(value), ValueType.STRING);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.*;
+
+public class LazyDocumentTest {
+
+    private static final String JSON = "{\"id\": 95, \"name\": \"ni\\u00f1o \\\"}\\\" \u20ac\", \"active\" : true,\n"
+            + " \"info\": {\"updated\": \"1980-07-25\", \"tags\": [\"a\", [], {}, null, -1.5e2]},\r\n"
+            + " \"es\\u0063aped\": false, \"id\": 96, \"empty\": { }}";
+
+    @Test
+    public void accessValues() throws JSONReaderException {
+        LazyDocument document = LazyDocument.parse(JSON);
+        assertTrue(document.isObject());
+        assertEquals(7, document.size());
+        assertEquals(new BigDecimal(96), document.get("id"));
+        assertEquals("ni\u00f1o \"}\" \u20ac", document.get("name"));
+        assertEquals(Boolean.TRUE, document.get("active"));
+        assertEquals(Boolean.FALSE, document.get("escaped"));
+        assertEquals("escaped", document.key(4));
+        assertNull(document.get("missing"));
+        assertFalse(document.has("missing"));
+        assertTrue(document.has("empty"));
+
+        LazyDocument info = (LazyDocument)document.get("info");
+        assertSame(info, document.get("info"));
+        assertEquals("1980-07-25", info.get("updated"));
+        LazyDocument tags = (LazyDocument)info.get("tags");
+        assertFalse(tags.isObject());
+        assertEquals(5, tags.size());
+        assertEquals("a", tags.get(0));
+        assertEquals(0, ((LazyDocument)tags.get(1)).size());
+        assertEquals(0, ((LazyDocument)tags.get(2)).size());
+        assertNull(tags.get(3));
+        assertEquals(new BigDecimal("-1.5e2"), tags.get(4));
+        assertNull(tags.get("a"));
+        assertNull(tags.key(0));
+        assertEquals("[\"a\", [], {}, null, -1.5e2]", tags.toString());
+        assertEquals(0, ((LazyDocument)document.get("empty")).size());
+        try {
+            tags.get(5);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void sameAsEagerTree() throws JSONReaderException {
+        Object expected = ObjectDeserializer.getFromReader(new StringReader(JSON));
+        assertEquals(expected, LazyDocument.parse(new StringReader(JSON)).toObject());
+        LazyDocument document = LazyDocument.parse(new ByteArrayInputStream(JSON.getBytes(Charset.forName("UTF-8"))));
+        Map map = (Map)expected;
+        assertEquals(map.get("info"), ((LazyDocument)document.get("info")).toObject());
+        List list = (List)((Map)map.get("info")).get("tags");
+        assertEquals(list, ((LazyDocument)((LazyDocument)document.get("info")).get("tags")).toObject());
+
+        LazyDocument array = LazyDocument.parse("  [1, \"two\", [3]]  ");
+        assertEquals(Arrays.asList(new BigDecimal(1), "two", Collections.singletonList(new BigDecimal(3))),
+                array.toObject());
+    }
+
+    @Test
+    public void structuralErrors() {
+        String[] invalid = {"", "  ", "12", "\"text\"", "{\"a\": 1", "[1, 2]]", "{\"a\": [1}", "[1] [2]",
+                "[\"unterminated]", "{\"a\": 1} x"};
+        for(String json: invalid) {
+            try {
+                LazyDocument.parse(json);
+                fail(json);
+            } catch (JSONReaderException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void valueErrors() throws JSONReaderException {
+        LazyDocument document = LazyDocument.parse("[1, tru, 2 3, , \"ok\"]");
+        assertEquals(5, document.size());
+        assertEquals(new BigDecimal(1), document.get(0));
+        assertEquals("ok", document.get(4));
+        for(int index = 1; index < 4; index++) {
+            try {
+                document.get(index);
+                fail("element " + index);
+            } catch (JSONReaderException e) {
+                // expected
+            }
+        }
+
+        document = LazyDocument.parse("{\"a\": 1, \"b\" 2}");
+        try {
+            document.get("a");
+            fail();
+        } catch (JSONReaderException e) {
+            // expected
+        }
+    }
+
+}
@@ -2,9 +2,14 @@ package au.id.villar.json;
 
 import org.junit.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.*;
 
 import static junit.framework.Assert.*;
@@ -17,6 +22,190 @@ public class ObjectDeserializerTest {
 		assertEquals("HOLA MUNDO", myClass.myString);
 	}
 
+	@Test
+	public void streamTest() throws JSONReaderException {
+		MyClass myClass = ObjectDeserializer.getFromStream(new ByteArrayInputStream(
+				"{\"myString\": \"Hola se\u00f1or\", \"myIntegerList\": [2, 4]}".getBytes(Charset.forName("UTF-8"))),
+				MyClass.class);
+		assertEquals("Hola se\u00f1or", myClass.myString);
+		assertEquals(4, (int)myClass.myIntegerList.get(1));
+	}
+
+	@Test
+	public void fileTest() throws JSONReaderException, IOException {
+		File file = File.createTempFile("ObjectDeserializerTest", ".json");
+		try {
+			Files.write(file.toPath(), "{\"myString\": \"HOLA MUNDO\", \"myInteger\": 7}".getBytes(Charset.forName("UTF-8")));
+			MyClass myClass = ObjectDeserializer.getFromFile(file.toPath(), MyClass.class);
+			assertEquals("HOLA MUNDO", myClass.myString);
+			assertEquals(7, myClass.myInteger);
+			Map map = (Map)ObjectDeserializer.getFromFile(file.toPath());
+			assertEquals(new BigDecimal(7), map.get("myInteger"));
+		} finally {
+			assertTrue(file.delete());
+		}
+	}
+
+	@Test
+	public void pathsTest() throws JSONReaderException {
+		String json = "{\"myString\": \"skipped\", \"myObjList\": [{\"myInteger\": 1, \"myString\": \"a\"}, "
+				+ "{\"myString\": \"b\", \"myInteger\": 2}], \"myInternalClass\": {\"myString\": \"HI\", \"myInteger\": 3}}";
+		MyClass myClass = ObjectDeserializer.getFromReader(new StringReader(json), MyClass.class,
+				"$.myObjList[*].myInteger", "$.myInternalClass.myString");
+		assertNull(myClass.myString);
+		assertEquals(2, myClass.myObjList.size());
+		assertEquals(2, myClass.myObjList.get(1).myInteger);
+		assertNull(myClass.myObjList.get(1).myString);
+		assertEquals("HI", myClass.myInternalClass.myString);
+		assertEquals(0, myClass.myInternalClass.myInteger);
+
+		Map map = (Map)ObjectDeserializer.getFromStream(new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8"))),
+				null, "$['myObjList'][1]");
+		assertEquals(1, map.size());
+		List list = (List)map.get("myObjList");
+		assertEquals(1, list.size());
+		assertEquals("b", ((Map)list.get(0)).get("myString"));
+	}
+
+	@Test
+	public void canonicalKeysTest() {
+		Iterator<Object> records = ObjectDeserializer.iterateRecords(
+				new StringReader("{\"timestamp\": 1}\n{\"timestamp\": 2}"), null, null);
+		String first = (String)((Map)records.next()).keySet().iterator().next();
+		String second = (String)((Map)records.next()).keySet().iterator().next();
+		assertEquals("timestamp", first);
+		assertSame(first, second);
+	}
+
+	@Test
+	public void recordsTest() {
+		final List<JSONReaderException> errors = new ArrayList<>();
+		Iterator<MyClass> records = ObjectDeserializer.iterateRecords(new StringReader(
+				"{\"myInteger\": 1}\n{\"myInteger\": 2, }\n{\"myInteger\": \"three\"}\n{\"myInteger\": \n\n{\"myString\": \"x\"}\n"),
+				MyClass.class, new ErrorHandler() {
+					@Override
+					public void error(JSONReaderException exception) {
+						errors.add(exception);
+					}
+				});
+		assertEquals(1, records.next().myInteger);
+		assertEquals(2, records.next().myInteger);
+		assertTrue(records.hasNext());
+		assertEquals("x", records.next().myString);
+		assertFalse(records.hasNext());
+		assertEquals(2, errors.size());
+	}
+
+	@Test
+	public void documentsTest() {
+		final List<JSONReaderException> errors = new ArrayList<>();
+		Iterator<MyClass> documents = ObjectDeserializer.iterateDocuments(new ByteArrayInputStream(
+				"{\"myInteger\": 1}{\"myInteger\": 2}\n\n  {\"myString\": \"x\"}{\"myInteger\": }{\"myInteger\": 5}".getBytes()),
+				MyClass.class, new ErrorHandler() {
+					@Override
+					public void error(JSONReaderException exception) {
+						errors.add(exception);
+					}
+				});
+		assertEquals(1, documents.next().myInteger);
+		assertEquals(2, documents.next().myInteger);
+		assertEquals("x", documents.next().myString);
+		assertFalse(documents.hasNext());
+		assertEquals(1, errors.size());
+
+		final List<Object> received = new ArrayList<>();
+		ObjectDeserializer.readDocuments(new StringReader("12[1, 2] {\"a\": true}\"b\""), null,
+				new RecordHandler<Object>() {
+					@Override
+					public void record(Object record) {
+						received.add(record);
+					}
+
+					@Override
+					public void error(JSONReaderException exception) {
+						fail(exception.getMessage());
+					}
+				});
+		assertEquals(Arrays.asList(new BigDecimal(12), Arrays.asList(new BigDecimal(1), new BigDecimal(2)),
+				Collections.singletonMap("a", true), "b"), received);
+	}
+
+	@Test
+	public void mergeTest() throws JSONReaderException {
+		MyClass myClass = new MyClass();
+		myClass.myObjList = new ArrayList<>();
+		myClass.myObjList.add(new MyClass());
+		myClass.myObjList.get(0).myInteger = 9;
+		myClass.myIntegerArray = new int[3];
+		ObjectDeserializer.mergeFromReader(new StringReader("{\"myObjList\": [{\"myString\": \"a\"}, {\"myInteger\": 5}], "
+				+ "\"myObjArray\": [{\"myInteger\": 1}, null, {\"myInternalClass\": {\"myEnum\": \"ONE\"}}], "
+				+ "\"myIntegerArray\": [7, 8], \"myObject\": {\"x\": [1, {\"y\": null}]}, "
+				+ "\"myComplexMap\": {\"a\": {\"b\": [1, 2]}}, \"myInteger\": 4}"), myClass);
+		assertEquals(2, myClass.myObjList.size());
+		assertEquals(9, myClass.myObjList.get(0).myInteger);
+		assertEquals("a", myClass.myObjList.get(0).myString);
+		assertEquals(5, myClass.myObjList.get(1).myInteger);
+		assertEquals(3, myClass.myObjArray.length);
+		assertEquals(1, myClass.myObjArray[0].myInteger);
+		assertNull(myClass.myObjArray[1]);
+		assertEquals(MyEnum.ONE, myClass.myObjArray[2].myInternalClass.myEnum);
+		assertTrue(Arrays.equals(new int[] {7, 8, 0}, myClass.myIntegerArray));
+		Map<?, ?> myObject = (Map<?, ?>)myClass.myObject;
+		assertEquals(Arrays.asList(new BigDecimal(1), Collections.singletonMap("y", null)), myObject.get("x"));
+		assertEquals(Arrays.asList((byte)1, (byte)2), myClass.myComplexMap.get("a").get("b"));
+		assertEquals(4, myClass.myInteger);
+
+		try {
+			ObjectDeserializer.mergeFromReader(new StringReader("{\"myIntegerArray\": [1, 2, 3, 4]}"), myClass);
+			fail("array bigger than the existing one");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void bindingErrorsTest() {
+		final List<JSONReaderException> errors = new ArrayList<>();
+		Iterator<MyClass> documents = ObjectDeserializer.iterateDocuments(new StringReader(
+				"{\"myInteger\": \"x\", \"myObjList\": [{}]}{\"myEnum\": \"FOUR\"}{\"myInteger\": 3}"), MyClass.class,
+				new ErrorHandler() {
+					@Override
+					public void error(JSONReaderException exception) {
+						errors.add(exception);
+					}
+				});
+		assertEquals(3, documents.next().myInteger);
+		assertFalse(documents.hasNext());
+		assertEquals(2, errors.size());
+		try {
+			parseMyClass("{\"myInternalClass\": {\"unknown\": [1]}, \"myString\": \"x\"}");
+			fail("unknown property");
+		} catch (JSONReaderException e) {
+			assertEquals("neither a proper field or getter found to get object's property: unknown", e.getMessage());
+		}
+	}
+
+	@Test
+	public void recordHandlerTest() {
+		final List<Object> received = new ArrayList<>();
+		ObjectDeserializer.readRecords(new ByteArrayInputStream("12\n[1, 2]\n{\"a\": true}".getBytes()), null,
+				new RecordHandler<Object>() {
+					@Override
+					public void record(Object record) {
+						received.add(record);
+					}
+
+					@Override
+					public void error(JSONReaderException exception) {
+						fail(exception.getMessage());
+					}
+				});
+		assertEquals(3, received.size());
+		assertEquals(new BigDecimal(12), received.get(0));
+		assertEquals(Arrays.asList(new BigDecimal(1), new BigDecimal(2)), received.get(1));
+		assertEquals(true, ((Map)received.get(2)).get("a"));
+	}
+
 	@Test
 	public void mapTest() throws JSONReaderException {
 		Object myObject = ObjectDeserializer.getFromReader(new StringReader("{\"myString\": \"HOLA MUNDO\"}"));
@@ -313,4 +502,128 @@ public class ObjectDeserializerTest {
 		result = ObjectDeserializer.getFromReader(new StringReader("\"Hello world\""));
 		assertTrue(result.getClass() == String.class);
 	}
+
+	public static class Item {
+		public String name;
+		public int count;
+	}
+
+	public static class Page<T> {
+		public List<T> items;
+		public Map<String, T[]> groups;
+		private T first;
+		public T getFirst() { return first; }
+		public void setFirst(T first) { this.first = first; }
+	}
+
+	public static class ItemPage extends Page<Item> {
+	}
+
+	public static class ItemList extends ArrayList<Item> {
+	}
+
+	public static class Catalog {
+		public Page<Item> page;
+		public List<? extends Item> wildcards;
+		public List<List<Item>> nested;
+		public ItemList itemList;
+	}
+
+	@Test
+	public void typeVariables() throws JSONReaderException {
+		String json = "{\"items\":[{\"name\":\"a\",\"count\":1}],\"groups\":{\"g\":[{\"name\":\"b\"}]},"
+				+ "\"first\":{\"name\":\"c\"}}";
+		ItemPage page = ObjectDeserializer.getFromReader(new StringReader(json), ItemPage.class);
+		assertEquals("a", page.items.get(0).name);
+		assertEquals(1, page.items.get(0).count);
+		assertEquals(Item[].class, page.groups.get("g").getClass());
+		assertEquals("b", page.groups.get("g")[0].name);
+		assertEquals("c", page.getFirst().name);
+
+		Catalog catalog = ObjectDeserializer.getFromReader(new StringReader("{\"page\":" + json + ","
+				+ "\"wildcards\":[{\"name\":\"d\"}],\"nested\":[[{\"name\":\"e\"}]],\"itemList\":[{\"name\":\"f\"}]}"),
+				Catalog.class);
+		assertEquals("a", catalog.page.items.get(0).name);
+		assertEquals("b", catalog.page.groups.get("g")[0].name);
+		assertEquals("c", catalog.page.getFirst().name);
+		assertEquals("d", catalog.wildcards.get(0).name);
+		assertEquals("e", catalog.nested.get(0).get(0).name);
+		assertEquals("f", catalog.itemList.get(0).name);
+	}
+
+	@Test
+	public void typeTokens() throws JSONReaderException, IOException {
+		List<Item> items = ObjectDeserializer.getGenericFromReader(new StringReader("[{\"name\":\"a\"},null,{\"count\":2}]"),
+				new TypeToken<List<Item>>() {});
+		assertEquals(3, items.size());
+		assertEquals("a", items.get(0).name);
+		assertNull(items.get(1));
+		assertEquals(2, items.get(2).count);
+
+		Map<String, List<Integer>> map = ObjectDeserializer.getGenericFromStream(
+				new ByteArrayInputStream("{\"x\":[1,2]}".getBytes("UTF-8")), new TypeToken<Map<String, List<Integer>>>() {});
+		assertEquals(Arrays.asList(1, 2), map.get("x"));
+
+		List<Item>[] arrays = ObjectDeserializer.getGenericFromReader(new StringReader("[[{\"name\":\"b\"}],[]]"),
+				new TypeToken<List<Item>[]>() {});
+		assertEquals(2, arrays.length);
+		assertEquals("b", arrays[0].get(0).name);
+		assertTrue(arrays[1].isEmpty());
+
+		Page<Item> page = ObjectDeserializer.getGenericFromReader(new StringReader("{\"first\":{\"name\":\"c\"}}"),
+				new TypeToken<Page<Item>>() {});
+		assertEquals("c", page.getFirst().name);
+
+		Integer number = ObjectDeserializer.getGenericFromReader(new StringReader("12"), new TypeToken<Integer>() {});
+		assertEquals(12, number.intValue());
+
+		File file = File.createTempFile("typeTokens", ".json");
+		try {
+			Files.write(file.toPath(), "[\"x\"]".getBytes("UTF-8"));
+			assertEquals(Collections.singletonList("x"),
+					ObjectDeserializer.getGenericFromFile(file.toPath(), new TypeToken<List<String>>() {}));
+		} finally {
+			file.delete();
+		}
+
+		try {
+			ObjectDeserializer.getGenericFromReader(new StringReader("{}"), new TypeToken<List<Item>[]>() {});
+			fail("an object can't be bound to an array");
+		} catch(JSONReaderException e) {
+			// expected
+		}
+	}
+
+	public static class Enums {
+		public MyEnum single;
+		public List<MyEnum> list;
+		public HashSet<MyEnum> set;
+		public Map<String, MyEnum> map;
+		public MyEnum[] array;
+	}
+
+	@Test
+	public void enumViewsTest() throws JSONReaderException {
+		String json = "{\"single\": \"TWO\", \"list\": [\"ONE\", \"THREE\"], \"set\": [\"TWO\"],"
+				+ " \"map\": {\"a\": \"THREE\"}, \"array\": [\"ONE\", 1]}";
+		for(Enums enums: Arrays.asList(
+				ObjectDeserializer.getFromReader(new StringReader(json), Enums.class),
+				ObjectDeserializer.getFromStream(new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8"))),
+						Enums.class))) {
+			assertEquals(MyEnum.TWO, enums.single);
+			assertEquals(Arrays.asList(MyEnum.ONE, MyEnum.THREE), enums.list);
+			assertEquals(Collections.singleton(MyEnum.TWO), enums.set);
+			assertEquals(Collections.singletonMap("a", MyEnum.THREE), enums.map);
+			assertTrue(Arrays.equals(new MyEnum[] {MyEnum.ONE, MyEnum.TWO}, enums.array));
+		}
+		try {
+			ObjectDeserializer.getFromStream(new ByteArrayInputStream("{\"list\": [\"ONE\", \"FOUR\"]}".getBytes()),
+					Enums.class);
+			fail("unknown constant");
+		} catch (IllegalArgumentException e) {
+			assertEquals("No enum constant " + MyEnum.class.getCanonicalName() + ".FOUR", e.getMessage());
+		} catch (JSONReaderException e) {
+			fail(e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,156 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.*;
+
+public class OffsetIndexTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("OffsetIndexTest", ".json").toPath();
+    }
+
+    @After
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + OffsetIndex.SIDECAR_SUFFIX));
+    }
+
+    @Test
+    public void arrayElements() throws IOException, JSONReaderException {
+        StringBuilder json = new StringBuilder("[\n");
+        for(int i = 0; i < 200; i++) {
+            if(i > 0)
+                json.append(i % 2 == 0? ",\n  ": ",");
+            switch(i % 5) {
+                case 0: json.append(i); break;
+                case 1: json.append("\"s\\\"]}, ").append(i).append(" \u00f1\""); break;
+                case 2: json.append("{\"n\": [").append(i).append(", {\"x\": \"[\"}]}"); break;
+                case 3: json.append(i % 3 == 0? "true": "null"); break;
+                default: json.append("[[], {}, ").append(i).append("]");
+            }
+        }
+        json.append("\n]\n");
+        write(json.toString());
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OffsetIndex index = OffsetIndex.build(channel);
+            assertFalse(index.isObject());
+            assertTrue(index.isComplete());
+            assertEquals(200, index.size());
+            Object all = ObjectDeserializer.getFromFile(channel.position(0), null);
+            List<Object> elements = ObjectDeserializer.getElements(channel, index, 0, 200, null);
+            assertEquals(all, elements);
+            assertEquals(new BigDecimal(195), ObjectDeserializer.getElement(channel, index, 195, null));
+            assertEquals("s\"]}, 151 \u00f1", ObjectDeserializer.getElement(channel, index, 151, String.class));
+            assertEquals(Arrays.asList(Collections.emptyList(), Collections.emptyMap(), new BigDecimal(199)),
+                    ObjectDeserializer.getElement(channel, index, 199, null));
+            try {
+                ObjectDeserializer.getElement(channel, index, 200, null);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void objectFields() throws IOException, JSONReaderException {
+        write("{\"a\": 1, \"b\\u0022\\\\\": {\"c\": [2]}, \"\u20ac\":\"x\"}");
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OffsetIndex index = OffsetIndex.build(channel);
+            assertTrue(index.isObject());
+            assertEquals(3, index.size());
+            assertEquals("b\"\\", index.key(1));
+            assertEquals(1, index.indexOf("b\"\\"));
+            assertEquals(-1, index.indexOf("c"));
+            Map value = (Map)ObjectDeserializer.getField(channel, index, "b\"\\", null);
+            assertEquals(Collections.singletonList(new BigDecimal(2)), value.get("c"));
+            assertEquals("x", ObjectDeserializer.getField(channel, index, "\u20ac", String.class));
+            assertNull(ObjectDeserializer.getField(channel, index, "c", null));
+        }
+    }
+
+    @Test
+    public void repeatedFields() throws IOException, JSONReaderException {
+        write("{\"a\": 1, \"b\": 2, \"a\": 3, ");
+        OffsetIndex index;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            index = OffsetIndex.build(channel);
+            assertEquals(3, index.size());
+            assertEquals(2, index.indexOf("a"));
+            assertEquals(-1, index.indexOf("c"));
+        }
+        write("{\"a\": 1, \"b\": 2, \"a\": 3, \"c\": 4, \"b\": 5}");
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            index.update(channel);
+            assertEquals(5, index.size());
+            assertEquals(2, index.indexOf("a"));
+            assertEquals(4, index.indexOf("b"));
+            assertEquals(3, index.indexOf("c"));
+        }
+    }
+
+    @Test
+    public void incrementalUpdates() throws IOException, JSONReaderException {
+        write("[1, {\"a\": [2]}, 12");
+        OffsetIndex index = OffsetIndex.forFile(file);
+        assertEquals(2, index.size());
+        assertFalse(index.isComplete());
+
+        write("[1, {\"a\": [2]}, 123, \"x\"]");
+        index = OffsetIndex.forFile(file);
+        assertEquals(4, index.size());
+        assertTrue(index.isComplete());
+
+        write("[1, {\"a\": [2]}, 123, \"x\", [5]]");
+        index = OffsetIndex.forFile(file);
+        assertEquals(5, index.size());
+        assertTrue(index.isComplete());
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(new BigDecimal(123), ObjectDeserializer.getElement(channel, index, 2, null));
+            assertEquals(Collections.singletonList(new BigDecimal(5)),
+                    ObjectDeserializer.getElement(channel, index, 4, null));
+        }
+
+        OffsetIndex loaded = OffsetIndex.load(file.resolveSibling(file.getFileName() + OffsetIndex.SIDECAR_SUFFIX));
+        assertEquals(5, loaded.size());
+        for(int element = 0; element < 5; element++)
+            assertEquals(index.offset(element), loaded.offset(element));
+
+        write("[1]");
+        try {
+            OffsetIndex.forFile(file);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void notAContainer() throws IOException, JSONReaderException {
+        write("  \"text\"");
+        OffsetIndex.forFile(file);
+    }
+
+    private void write(String json) throws IOException {
+        Files.write(file, json.getBytes(Charset.forName("UTF-8")));
+    }
+
+}
@@ -0,0 +1,199 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static junit.framework.Assert.*;
+
+public class ParallelGzipInputStreamTest {
+
+    private static final int RECORDS = 20000;
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void stopExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void bgzfMembers() throws IOException {
+        byte[] data = createInput();
+        byte[] compressed = bgzf(data);
+        assertTrue(Arrays.equals(data, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(compressed),
+                executor, 3), 1000)));
+        assertTrue(Arrays.equals(data, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(compressed),
+                executor, 1), 1)));
+    }
+
+    @Test
+    public void sequentialMembers() throws IOException {
+        byte[] data = createInput();
+        byte[] single = gzip(data, 0, data.length);
+        assertTrue(Arrays.equals(data, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(single),
+                executor), 777)));
+
+        ByteArrayOutputStream mixed = new ByteArrayOutputStream();
+        int third = data.length / 3;
+        mixed.write(gzip(data, 0, third));
+        mixed.write(bgzf(Arrays.copyOfRange(data, third, 2 * third)));
+        mixed.write(gzip(data, 2 * third, data.length - 2 * third));
+        assertTrue(Arrays.equals(data, readAll(new ParallelGzipInputStream(
+                new ByteArrayInputStream(mixed.toByteArray()), executor, 2), 4096)));
+
+        assertEquals(0, readAll(new ParallelGzipInputStream(new ByteArrayInputStream(new byte[0]), executor),
+                10).length);
+    }
+
+    @Test
+    public void corruptedInput() throws IOException {
+        byte[] data = createInput();
+        byte[] compressed = bgzf(data);
+        compressed[compressed.length - 28 - 8] ^= 1;    // CRC of the last block with data
+        try {
+            readAll(new ParallelGzipInputStream(new ByteArrayInputStream(compressed), executor), 4096);
+            fail("corrupted CRC not detected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("CRC"));
+        }
+
+        byte[] single = gzip(data, 0, data.length);
+        try {
+            readAll(new ParallelGzipInputStream(new ByteArrayInputStream(Arrays.copyOf(single, single.length - 3)),
+                    executor), 4096);
+            fail("truncated input not detected");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            readAll(new ParallelGzipInputStream(new ByteArrayInputStream(data), executor), 4096);
+            fail("input not in gzip format not detected");
+        } catch (IOException e) {
+            assertEquals("Not in GZIP format", e.getMessage());
+        }
+
+        for(int sizeByte: new int[] {0x7F, 0x80}) {
+            byte[] oversized = bgzf(data);
+            oversized[oversized.length - 1] = (byte)sizeByte;    // ISIZE of the last (empty) block
+            try {
+                readAll(new ParallelGzipInputStream(new ByteArrayInputStream(oversized), executor), 4096);
+                fail("invalid size not detected");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Invalid BGZF data size"));
+            }
+        }
+    }
+
+    @Test
+    public void records() throws IOException {
+        final List<Record> records = new ArrayList<>();
+        try(InputStream input = new ParallelGzipInputStream(new ByteArrayInputStream(bgzf(createInput())), executor)) {
+            ObjectDeserializer.readRecords(input, Record.class, new RecordHandler<Record>() {
+
+                @Override
+                public void record(Record record) {
+                    records.add(record);
+                }
+
+                @Override
+                public void error(JSONReaderException exception) {
+                    fail(exception.getMessage());
+                }
+            });
+        }
+        assertEquals(RECORDS, records.size());
+        for(int index = 0; index < RECORDS; index++)
+            assertEquals(index, records.get(index).id);
+        assertEquals("r\u00e9cord 123", records.get(123).name);
+    }
+
+    static byte[] createInput() {
+        StringBuilder builder = new StringBuilder();
+        for(int index = 0; index < RECORDS; index++)
+            builder.append("{\"id\": ").append(index).append(", \"name\": \"r\u00e9cord ").append(index).append("\"}\n");
+        return builder.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    static byte[] gzip(byte[] data, int offset, int length) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try(GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(data, offset, length);
+        }
+        return output.toByteArray();
+    }
+
+    // writes the data as BGZF blocks, as bgzip does, ending with an empty block
+    static byte[] bgzf(byte[] data) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        for(int offset = 0; offset < data.length; offset += 0xFF00)
+            writeBlock(output, deflater, data, offset, Math.min(0xFF00, data.length - offset));
+        writeBlock(output, deflater, data, 0, 0);
+        deflater.end();
+        return output.toByteArray();
+    }
+
+    private static void writeBlock(ByteArrayOutputStream output, Deflater deflater, byte[] data, int offset,
+            int length) {
+        byte[] compressed = new byte[0x10000];
+        deflater.reset();
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        int size = 0;
+        while(!deflater.finished())
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        int blockSize = 18 + size + 8 - 1;
+        output.write(new byte[] {0x1F, (byte)0x8B, 8, 4, 0, 0, 0, 0, 0, (byte)0xFF, 6, 0, 'B', 'C', 2, 0,
+                (byte)blockSize, (byte)(blockSize >> 8)}, 0, 18);
+        output.write(compressed, 0, size);
+        writeInt(output, (int)crc.getValue());
+        writeInt(output, length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+        for(int shift = 0; shift < 32; shift += 8)
+            output.write(value >> shift);
+    }
+
+    private static byte[] readAll(InputStream input, int bufferSize) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try(InputStream in = input) {
+            byte[] buffer = new byte[bufferSize];
+            int read;
+            if(bufferSize == 1)
+                while((read = in.read()) != -1)
+                    output.write(read);
+            else
+                while((read = in.read(buffer)) != -1)
+                    output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    public static class Record {
+        public int id;
+        public String name;
+    }
+
+}
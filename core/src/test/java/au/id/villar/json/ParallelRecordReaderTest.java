@@ -0,0 +1,110 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static junit.framework.Assert.*;
+
+public class ParallelRecordReaderTest {
+
+	private static final int RECORDS = 5000;
+
+	private static ExecutorService executor;
+
+	@BeforeClass
+	public static void startExecutor() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterClass
+	public static void stopExecutor() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void orderedTest() throws IOException {
+		ParallelRecordReader<Record> reader = new ParallelRecordReader<>(Record.class, executor);
+		reader.setBatchSize(200);
+		reader.setMaxPendingBatches(3);
+		CollectingHandler handler = new CollectingHandler();
+		reader.read(new ByteArrayInputStream(createInput()), handler);
+		assertEquals(RECORDS - RECORDS / 100, handler.records.size());
+		assertEquals(RECORDS / 100, handler.errors.size());
+		int expected = 0;
+		for(Record record: handler.records) {
+			if(expected % 100 == 50)
+				expected++;
+			assertEquals(expected++, record.id);
+		}
+	}
+
+	@Test
+	public void unorderedTest() throws IOException {
+		ParallelRecordReader<Record> reader = new ParallelRecordReader<>(Record.class, executor);
+		reader.setBatchSize(64);
+		reader.setOrdered(false);
+		CollectingHandler handler = new CollectingHandler();
+		reader.read(new ByteArrayInputStream(createInput()), handler);
+		assertEquals(RECORDS / 100, handler.errors.size());
+		Set<Integer> ids = new HashSet<>();
+		for(Record record: handler.records)
+			ids.add(record.id);
+		assertEquals(RECORDS - RECORDS / 100, ids.size());
+	}
+
+	@Test
+	public void longLinesTest() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for(int index = 0; index < 10; index++)
+			builder.append("{\"id\": ").append(index).append(", \"name\": \"").append(new String(new char[100]).replace('\0', 'x')).append("\"}\n");
+		builder.append("{\"id\": 10}");
+		ParallelRecordReader<Record> reader = new ParallelRecordReader<>(Record.class, executor);
+		reader.setBatchSize(16);
+		CollectingHandler handler = new CollectingHandler();
+		reader.read(new ByteArrayInputStream(builder.toString().getBytes(Charset.forName("UTF-8"))), handler);
+		assertEquals(11, handler.records.size());
+		assertEquals(10, handler.records.get(10).id);
+		assertEquals(100, handler.records.get(3).name.length());
+	}
+
+	private byte[] createInput() {
+		StringBuilder builder = new StringBuilder();
+		for(int index = 0; index < RECORDS; index++) {
+			if(index % 100 == 50)
+				builder.append("{\"id\": broken}\n");
+			else
+				builder.append("{\"id\": ").append(index).append(", \"name\": \"r\u00e9cord ").append(index).append("\"}\n");
+		}
+		return builder.toString().getBytes(Charset.forName("UTF-8"));
+	}
+
+	public static class Record {
+		public int id;
+		public String name;
+	}
+
+	private static class CollectingHandler implements RecordHandler<Record> {
+
+		private final List<Record> records = new ArrayList<>();
+		private final List<JSONReaderException> errors = new ArrayList<>();
+
+		@Override
+		public void record(Record record) {
+			records.add(record);
+		}
+
+		@Override
+		public void error(JSONReaderException exception) {
+			errors.add(exception);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static junit.framework.Assert.*;
+
+public class SwarTest {
+
+    @Test
+    public void sameRunsAsScalar() {
+        Random random = new Random(7);
+        byte[] interesting = {'"', '\\', '[', ']', '{', '}', '\n', '\t', 0, 0x1F, ' ', 'a', ';', '{' ^ 0x20,
+                '}' ^ 0x20, (byte)0x80, (byte)0xC3, (byte)0xFF, 0x7F};
+        for(int round = 0; round < 2000; round++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            for(int i = 0; i < bytes.length; i++)
+                bytes[i] = random.nextInt(4) == 0? interesting[random.nextInt(interesting.length)]: (byte)('a' + i % 26);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            for(int start = 0; start <= bytes.length; start++) {
+                for(int kind: new int[] {JSONInput.RUN_STRING, JSONInput.RUN_STRUCTURE}) {
+                    int expected = 0;
+                    while(start + expected < bytes.length && !Swar.isStop(bytes[start + expected] & 0xFF, kind))
+                        expected++;
+                    assertEquals(expected, Swar.runLength(buffer, start, bytes.length, kind));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyByteValue() {
+        for(int value = 0; value < 256; value++) {
+            long word = 0x6161616161616100L | value;
+            boolean stringStop = value < 0x20 || value >= 0x80 || value == '"' || value == '\\';
+            boolean structureStop = value < 0x20 || value >= 0x80 || value == '"' || value == '['
+                    || value == ']' || value == '{' || value == '}';
+            assertEquals(stringStop, Swar.stringStops(word) != 0);
+            assertEquals(structureStop, Swar.structureStops(word) != 0);
+        }
+    }
+
+}
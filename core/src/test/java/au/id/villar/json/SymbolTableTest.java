@@ -0,0 +1,84 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.StringReader;
+
+import static junit.framework.Assert.*;
+
+public class SymbolTableTest {
+
+    @Test
+    public void findAndAdd() {
+        SymbolTable table = new SymbolTable();
+        for(int i = 0; i < 1000; i++)
+            assertEquals(i, table.add("name" + i));
+        assertEquals(1000, table.size());
+        for(int i = 0; i < 1000; i++) {
+            assertEquals(i, table.find(new StringBuilder("name").append(i)));
+            assertEquals(i, table.add("name" + i));
+        }
+        assertEquals(-1, table.find("name1000"));
+        assertEquals(-1, table.find(""));
+        assertEquals(1000, table.add(""));
+        assertEquals("", table.symbol(1000));
+    }
+
+    @Test
+    public void bounded() {
+        SymbolTable table = new SymbolTable(2);
+        assertEquals(0, table.add("a"));
+        assertEquals(1, table.add("b"));
+        assertEquals(-1, table.add("c"));
+        assertEquals(-1, table.add(new String(new char[SymbolTable.MAX_SYMBOL_LENGTH + 1])));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void canonicalNames() throws JSONReaderException {
+        JSONReader reader = new JSONReader();
+        reader.setInput(new StringReader("[{\"id\": 1}, {\"id\": 2, \"other\": 3}]"));
+        assertEquals(JSONReader.Token.START_ARRAY, reader.nextToken());
+        assertNull(reader.currentName());
+        assertEquals(-1, reader.currentSymbol());
+        reader.nextToken();
+        reader.nextToken();
+        String first = reader.currentName();
+        int symbol = reader.currentSymbol();
+        assertEquals("id", first);
+        reader.nextToken();
+        reader.nextToken();
+        reader.nextToken();
+        assertSame(first, reader.currentName());
+        assertEquals(symbol, reader.currentSymbol());
+        reader.nextToken();
+        assertEquals("other", reader.currentName());
+        assertFalse(symbol == reader.currentSymbol());
+    }
+
+    @Test
+    public void sealedTable() throws JSONReaderException {
+        SymbolTable table = new SymbolTable();
+        String id = new String("id");
+        table.add(id);
+        table.seal();
+        JSONReader reader = new JSONReader();
+        reader.setSymbolTable(table);
+        reader.setInput(new StringReader("{\"id\": 1, \"other\": 3}"));
+        reader.nextToken();
+        reader.nextToken();
+        assertSame(id, reader.currentName());
+        reader.nextToken();
+        assertEquals("other", reader.currentName());
+        assertEquals(-1, reader.currentSymbol());
+        assertEquals(1, table.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addToSealedTable() {
+        SymbolTable table = new SymbolTable();
+        table.seal();
+        table.add("id");
+    }
+
+}
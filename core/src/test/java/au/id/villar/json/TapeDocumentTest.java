@@ -0,0 +1,153 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static junit.framework.Assert.*;
+
+public class TapeDocumentTest {
+
+    @Test
+    public void sameAsTree() throws JSONReaderException {
+        String json = "{\"id\": 95, \"active\": true, \"off\": false, \"none\": null, \"name\": \"ni\u00f1o \u20ac \ud83d\ude00\","
+                + " \"numbers\": [0, -1, 36028797018963967, -36028797018963968, 36028797018963968, 9223372036854775807,"
+                + " -9223372036854775808, 123456789012345678901234, 1.5, -0.0, 1e22, 2.5E-3, 1e400, 12345678901234567890.5],"
+                + " \"nested\": [[], {}, [{\"a\": [1, {\"b\": \"c\"}]}]], \"escaped\\\"key\": \"\\u0000\\n\"}";
+        Object tree = ObjectDeserializer.getFromReader(new StringReader(json));
+        Object compact = ObjectDeserializer.getCompactFromReader(new StringReader(json));
+        assertEquals(tree, compact);
+        assertEquals(compact, tree);
+        assertEquals(tree.hashCode(), compact.hashCode());
+
+        Map map = (Map)compact;
+        assertEquals(new BigDecimal(95), map.get("id"));
+        assertEquals("ni\u00f1o \u20ac \ud83d\ude00", map.get("name"));
+        assertTrue(map.containsKey("none"));
+        assertNull(map.get("none"));
+        assertFalse(map.containsKey("missing"));
+        assertNull(map.get(1));
+        List numbers = (List)map.get("numbers");
+        assertEquals(14, numbers.size());
+        assertEquals(new BigDecimal("-0.0"), numbers.get(9));
+        assertEquals(new BigDecimal("36028797018963968"), numbers.get(4));
+        assertEquals(new BigDecimal("1e400"), numbers.get(12));
+        assertEquals(new BigDecimal(0), numbers.get(0));
+        assertEquals(new BigDecimal("1.5"), numbers.get(8));
+
+        for(String simple: new String[] {"12", "\"text\"", "true", "null"})
+            assertEquals(ObjectDeserializer.getFromReader(new StringReader(simple)),
+                    ObjectDeserializer.getCompactFromStream(new ByteArrayInputStream(simple.getBytes())));
+    }
+
+    @Test
+    public void randomDocuments() throws JSONReaderException {
+        Random random = new Random(7);
+        for(int doc = 0; doc < 200; doc++) {
+            StringBuilder builder = new StringBuilder();
+            randomValue(random, builder, 0);
+            String json = builder.toString();
+            assertEquals(json, ObjectDeserializer.getFromReader(new StringReader(json)),
+                    TapeDocument.parse(new StringReader(json)).getRoot());
+        }
+    }
+
+    @Test
+    public void repeatedNames() throws JSONReaderException {
+        StringBuilder big = new StringBuilder("{");
+        for(int i = 0; i < 40; i++)
+            big.append("\"k").append(i % 30).append("\": ").append(i).append(", ");
+        big.append("\"last\": {\"x\": 1, \"x\": 2}}");
+        Map tree = (Map)ObjectDeserializer.getFromReader(new StringReader(big.toString()));
+        Map compact = (Map)TapeDocument.parse(new StringReader(big.toString())).getRoot();
+        assertEquals(31, compact.size());
+        assertEquals(tree, compact);
+        assertEquals(new BigDecimal(35), compact.get("k5"));
+        assertEquals(new BigDecimal(29), compact.get("k29"));
+        assertEquals(1, ((Map)compact.get("last")).size());
+        assertEquals(new BigDecimal(2), ((Map)compact.get("last")).get("x"));
+        int entries = 0;
+        for(Iterator iterator = compact.entrySet().iterator(); iterator.hasNext(); iterator.next())
+            entries++;
+        assertEquals(31, entries);
+    }
+
+    @Test
+    public void sharedSymbolTable() throws JSONReaderException {
+        SymbolTable symbols = new SymbolTable();
+        JSONReader parser = new JSONReader();
+        parser.setSymbolTable(symbols);
+        parser.setInput(new StringReader("{\"b\": 1, \"a\": {\"b\": 2}}"));
+        Map first = (Map)TapeDocument.parse(parser).getRoot();
+        parser.setInput(new StringReader("{\"c\": 3, \"a\": 4}"));
+        Map second = (Map)TapeDocument.parse(parser).getRoot();
+        assertEquals(3, symbols.size());
+
+        Iterator iterator = first.keySet().iterator();
+        assertSame(symbols.symbol(symbols.find("b")), iterator.next());
+        assertSame(symbols.symbol(symbols.find("a")), iterator.next());
+        assertSame(second.keySet().iterator().next(), symbols.symbol(symbols.find("c")));
+        assertEquals(new BigDecimal(2), ((Map)first.get("a")).get("b"));
+        assertEquals(new BigDecimal(4), second.get("a"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnly() throws JSONReaderException {
+        Map map = (Map)ObjectDeserializer.getCompactFromReader(new StringReader("{\"a\": 1}"));
+        map.put("b", 2);
+    }
+
+    @Test
+    public void compactSize() throws JSONReaderException {
+        StringBuilder json = new StringBuilder("[");
+        for(int i = 0; i < 2000; i++) {
+            if(i > 0)
+                json.append(", ");
+            json.append("{\"sku\": \"SKU-").append(100000 + i).append("\", \"name\": \"Product number ").append(i)
+                    .append("\", \"price\": ").append(i % 100).append('.').append(i % 7 + 10)
+                    .append(", \"stock\": ").append(i * 3).append(", \"tags\": [\"tag").append(i % 5)
+                    .append("\", \"sale\"], \"active\": ").append(i % 2 == 0).append('}');
+        }
+        json.append(']');
+        byte[] bytes = json.toString().getBytes(Charset.forName("UTF-8"));
+        TapeDocument document = TapeDocument.parse(new ByteArrayInputStream(bytes));
+        assertTrue(document.getRetainedBytes() + " for " + bytes.length,
+                document.getRetainedBytes() <= bytes.length * 2L);
+        assertEquals(ObjectDeserializer.getFromReader(new StringReader(json.toString())), document.getRoot());
+    }
+
+    @Test(expected = JSONReaderException.class)
+    public void invalid() throws JSONReaderException {
+        TapeDocument.parse(new StringReader("{\"a\": [1, 2}"));
+    }
+
+    private void randomValue(Random random, StringBuilder builder, int depth) {
+        int type = random.nextInt(depth > 3? 4: 6);
+        switch(type) {
+            case 0: builder.append(random.nextLong() >> random.nextInt(64)); break;
+            case 1: builder.append(random.nextBoolean()? "true": random.nextBoolean()? "false": "null"); break;
+            case 2: builder.append(random.nextInt(2000) - 1000).append('.').append(random.nextInt(1000)); break;
+            case 3: builder.append("\"s").append(random.nextInt(100)).append(" \u00e9\\t\""); break;
+            default:
+                boolean object = type == 4;
+                builder.append(object? '{': '[');
+                int count = random.nextInt(object? 14: 5);
+                for(int i = 0; i < count; i++) {
+                    if(i > 0)
+                        builder.append(", ");
+                    if(object)
+                        builder.append("\"f").append(random.nextInt(12)).append("\": ");
+                    randomValue(random, builder, depth + 1);
+                }
+                builder.append(object? '}': ']');
+        }
+    }
+
+}
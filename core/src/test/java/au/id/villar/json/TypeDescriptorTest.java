@@ -0,0 +1,116 @@
+package au.id.villar.json;
+
+import org.junit.*;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+
+import static junit.framework.Assert.*;
+
+public class TypeDescriptorTest {
+
+    public static class Box<T> {
+        public T value;
+        public List<T> values;
+        public Map<String, T[]> arrays;
+        public List<? extends T> wildcards;
+    }
+
+    public static class Pair<A, B> extends Box<B> {
+        public A left;
+    }
+
+    public static class NumberPair extends Pair<String, Integer> {
+    }
+
+    public static class Numbers extends ArrayList<Long> {
+    }
+
+    public static class NumbersByName extends HashMap<String, List<Double>> {
+    }
+
+    public static class Sorted<T extends Comparable<T>> {
+        public T value;
+    }
+
+    public List<Map<String, Integer>> declared;
+
+    @Test
+    public void classes() {
+        TypeDescriptor string = TypeDescriptor.of(String.class);
+        assertSame(string, TypeDescriptor.of(String.class));
+        assertEquals(String.class, string.type());
+        assertEquals(String.class, string.rawClass());
+        assertEquals(Object.class, string.element().rawClass());
+        assertEquals(int.class, TypeDescriptor.of(int[].class).element().type());
+        assertEquals(Object.class, TypeDescriptor.of(List.class).element().type());
+    }
+
+    @Test
+    public void parameterizedTypes() throws Exception {
+        Type declared = TypeDescriptorTest.class.getField("declared").getGenericType();
+        TypeDescriptor list = TypeDescriptor.of(declared);
+        assertSame(list, TypeDescriptor.of(declared));
+        assertEquals(declared, list.type());
+        assertEquals(List.class, list.rawClass());
+        TypeDescriptor map = list.element();
+        assertSame(map, list.element());
+        assertEquals(Map.class, map.rawClass());
+        assertEquals(Integer.class, map.element().type());
+    }
+
+    @Test
+    public void typeVariables() throws Exception {
+        TypeDescriptor pair = TypeDescriptor.of(NumberPair.class);
+        assertEquals(String.class, pair.member(Pair.class.getField("left").getGenericType()).type());
+        assertEquals(Integer.class, pair.member(Box.class.getField("value").getGenericType()).type());
+        TypeDescriptor values = pair.member(Box.class.getField("values").getGenericType());
+        assertSame(values, pair.member(Box.class.getField("values").getGenericType()));
+        assertEquals(List.class, values.rawClass());
+        assertEquals(Integer.class, values.element().type());
+        TypeDescriptor arrays = pair.member(Box.class.getField("arrays").getGenericType());
+        assertEquals(Integer[].class, arrays.element().type());
+        assertEquals(Integer.class, pair.member(Box.class.getField("wildcards").getGenericType()).element().type());
+
+        // unbound variables are erased to their bounds
+        TypeDescriptor box = TypeDescriptor.of(Box.class);
+        assertEquals(Object.class, box.member(Box.class.getField("value").getGenericType()).type());
+        assertEquals(Object[].class, box.member(Box.class.getField("arrays").getGenericType()).element().type());
+        assertEquals(Comparable.class, TypeDescriptor.of(Sorted.class)
+                .member(Sorted.class.getField("value").getGenericType()).type());
+    }
+
+    @Test
+    public void elementsOfSubclasses() {
+        assertEquals(Long.class, TypeDescriptor.of(Numbers.class).element().type());
+        TypeDescriptor element = TypeDescriptor.of(NumbersByName.class).element();
+        assertEquals(List.class, element.rawClass());
+        assertEquals(Double.class, element.element().type());
+    }
+
+    @Test
+    public void typeTokens() {
+        TypeToken<Box<List<String>>[]> token = new TypeToken<Box<List<String>>[]>() {};
+        assertEquals(token, new TypeToken<Box<List<String>>[]>() {});
+        TypeDescriptor array = TypeDescriptor.of(token.getType());
+        assertEquals(Box[].class, array.rawClass());
+        TypeDescriptor box = array.element();
+        assertEquals(Box.class, box.rawClass());
+        TypeDescriptor value = box.member(Box.class.getTypeParameters()[0]);
+        assertEquals(List.class, value.rawClass());
+        assertTrue(value.type() instanceof ParameterizedType);
+        assertEquals(String.class, value.element().type());
+        assertEquals(new TypeToken<List<String>>() {}.getType(), value.type());
+        assertEquals(value.type(), new TypeToken<List<String>>() {}.getType());
+        assertEquals(value.type().hashCode(), new TypeToken<List<String>>() {}.getType().hashCode());
+
+        try {
+            new TypeToken() {};
+            fail("no type argument");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+}
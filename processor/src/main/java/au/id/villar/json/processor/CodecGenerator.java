@@ -0,0 +1,580 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json.processor;
+
+import au.id.villar.json.CodecSupport;
+import au.id.villar.json.CompiledJSON;
+import au.id.villar.json.TransientJSON;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+/*
+ * Writes the source of the codec of one class. Properties are found the same way ObjectSerializer and ClassBinding
+ * find them through reflection: public fields and getters (fields first) are written, and public fields or setters
+ * (a field is preferred unless it is final) are read. Every value is converted by straight-line code chosen from its
+ * declared type, so only the types listed in typeKind() are supported.
+ */
+final class CodecGenerator {
+
+    private static final int BOXED = 0;
+    private static final int STRING = 1;
+    private static final int BIG_NUMBER = 2;
+    private static final int ENUM = 3;
+    private static final int COMPILED = 4;
+    private static final int COLLECTION = 5;
+    private static final int ARRAY = 6;
+
+    private static final Set<String> BIG_NUMBERS = new HashSet<>(Arrays.asList(
+            "java.math.BigInteger", "java.math.BigDecimal"));
+    private static final Set<String> COLLECTIONS = new HashSet<>(Arrays.asList(
+            "java.util.List", "java.util.Collection", "java.util.ArrayList"));
+
+    private final Elements elements;
+    private final Types types;
+    private final TypeElement type;
+    private final String typeName;
+
+    // static fields of the codec (nested codecs and enum constants), by the type they're for
+    private final Map<String, String> staticFields = new LinkedHashMap<>();
+    private final StringBuilder staticFieldsCode = new StringBuilder();
+    private int locals;
+
+    CodecGenerator(ProcessingEnvironment environment, TypeElement type) {
+        this.elements = environment.getElementUtils();
+        this.types = environment.getTypeUtils();
+        this.type = type;
+        this.typeName = type.getQualifiedName().toString();
+    }
+
+    /* Binary name of the codec, which is also its canonical name as codecs are top level classes. */
+    String codecName() {
+        return codecName(type);
+    }
+
+    String generate() throws CodecException {
+        verifyInstantiable();
+        StringBuilder write = new StringBuilder();
+        writeMethodBody(write);
+        StringBuilder read = new StringBuilder();
+        readMethodBody(read);
+
+        String codecName = codecName();
+        int simpleNameStart = codecName.lastIndexOf('.') + 1;
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by ").append(CodecProcessor.class.getName()).append(" from ").append(typeName)
+                .append(", do not edit.\n");
+        if(simpleNameStart > 0)
+            source.append("package ").append(codecName, 0, simpleNameStart - 1).append(";\n\n");
+        source.append("import au.id.villar.json.CodecSupport;\n")
+                .append("import au.id.villar.json.JSONCodec;\n")
+                .append("import au.id.villar.json.JSONReader;\n")
+                .append("import au.id.villar.json.JSONReaderException;\n")
+                .append("import au.id.villar.json.RecursiveException;\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.io.Writer;\n")
+                .append("import java.util.Deque;\n\n")
+                .append("public final class ").append(codecName.substring(simpleNameStart))
+                .append(" implements JSONCodec<").append(typeName).append("> {\n\n");
+        if(staticFieldsCode.length() > 0)
+            source.append(staticFieldsCode).append('\n');
+        source.append("    @Override\n")
+                .append("    public void write(").append(typeName)
+                .append(" object, Writer writer, Deque<Object> objectStack)\n")
+                .append("            throws RecursiveException, IOException {\n")
+                .append(write)
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(typeName)
+                .append(" read(JSONReader reader) throws JSONReaderException {\n")
+                .append(read)
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private void verifyInstantiable() throws CodecException {
+        if(!type.getTypeParameters().isEmpty())
+            throw new CodecException("@CompiledJSON can't be used on generic classes", type);
+        if(type.getModifiers().contains(Modifier.ABSTRACT))
+            throw new CodecException("@CompiledJSON can't be used on abstract classes", type);
+        for(Element element = type; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            TypeElement enclosing = (TypeElement)element;
+            boolean nested = enclosing.getNestingKind() != NestingKind.TOP_LEVEL;
+            if(!enclosing.getModifiers().contains(Modifier.PUBLIC)
+                    || enclosing.getNestingKind() == NestingKind.LOCAL
+                    || enclosing.getNestingKind() == NestingKind.ANONYMOUS
+                    || nested && enclosing == type && !type.getModifiers().contains(Modifier.STATIC))
+                throw new CodecException("classes marked with @CompiledJSON must be public, and static if nested",
+                        type);
+        }
+        for(ExecutableElement constructor: ElementFilter.constructorsIn(type.getEnclosedElements()))
+            if(constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC))
+                return;
+        throw new CodecException("classes marked with @CompiledJSON need a public constructor without parameters",
+                type);
+    }
+
+    // --- properties ---
+
+    /* A property of the class, either a field or an accessor method. */
+    private static final class Property {
+
+        final String name;
+        final Element element;
+        final TypeMirror type;
+        final String access;
+
+        Property(String name, Element element, TypeMirror type, String access) {
+            this.name = name;
+            this.element = element;
+            this.type = type;
+            this.access = access;
+        }
+    }
+
+    // fields first, then getters, subclasses before superclasses, as in ObjectSerializer
+    private List<Property> writtenProperties() {
+        List<String> notIncluded = transientNames();
+        List<Property> properties = new ArrayList<>();
+        Set<String> fields = new HashSet<>();
+        for(TypeElement current = type; current != null; current = superclass(current)) {
+            for(VariableElement field: ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                String name = field.getSimpleName().toString();
+                if(isPublicMember(field) && field.getAnnotation(TransientJSON.class) == null
+                        && !notIncluded.contains(name) && fields.add(name))
+                    properties.add(new Property(name, field, memberType(field), "object." + name));
+            }
+        }
+        Set<String> methods = new HashSet<>();
+        for(TypeElement current = type; current != null; current = superclass(current)) {
+            for(ExecutableElement method: ElementFilter.methodsIn(current.getEnclosedElements())) {
+                String methodName = method.getSimpleName().toString();
+                if(!isPublicMember(method) || !method.getParameters().isEmpty() || !methods.add(methodName)
+                        || method.getAnnotation(TransientJSON.class) != null)
+                    continue;
+                TypeMirror returnType = ((ExecutableType)memberType(method)).getReturnType();
+                boolean returnsBoolean = returnType.getKind() == TypeKind.BOOLEAN
+                        || isDeclared(returnType, "java.lang.Boolean");
+                boolean booleanGetter = methodName.startsWith("is") && methodName.length() > 2 && returnsBoolean;
+                boolean getter = methodName.startsWith("get") && methodName.length() > 3 || booleanGetter;
+                if(!getter || returnType.getKind() == TypeKind.VOID)
+                    continue;
+                String name = decapitalized(methodName.substring(booleanGetter? 2: 3));
+                if(!notIncluded.contains(name))
+                    properties.add(new Property(name, method, returnType, "object." + methodName + "()"));
+            }
+        }
+        return properties;
+    }
+
+    // assignments by property name: fields unless they're final, then setters, as in ClassBinding
+    private Map<String, Property> readProperties() {
+        Map<String, Property> properties = new LinkedHashMap<>();
+        Set<String> fields = new HashSet<>();
+        for(TypeElement current = type; current != null; current = superclass(current)) {
+            for(VariableElement field: ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                String name = field.getSimpleName().toString();
+                if(isPublicMember(field) && fields.add(name) && !field.getModifiers().contains(Modifier.FINAL))
+                    properties.put(name, new Property(name, field, memberType(field), "object." + name + " = %s;"));
+            }
+        }
+        for(TypeElement current = type; current != null; current = superclass(current)) {
+            for(ExecutableElement method: ElementFilter.methodsIn(current.getEnclosedElements())) {
+                String methodName = method.getSimpleName().toString();
+                if(!isPublicMember(method) || method.getParameters().size() != 1
+                        || method.getReturnType().getKind() != TypeKind.VOID
+                        || !methodName.startsWith("set") || methodName.length() == 3)
+                    continue;
+                String name = decapitalized(methodName.substring(3));
+                if(!properties.containsKey(name)) {
+                    TypeMirror parameterType = ((ExecutableType)memberType(method)).getParameterTypes().get(0);
+                    properties.put(name, new Property(name, method, parameterType, "object." + methodName + "(%s);"));
+                }
+            }
+        }
+        return properties;
+    }
+
+    private List<String> transientNames() {
+        for(TypeElement current = type; current != null; current = superclass(current)) {
+            TransientJSON annotation = current.getAnnotation(TransientJSON.class);
+            if(annotation != null)
+                return Arrays.asList(annotation.value());
+        }
+        return Collections.emptyList();
+    }
+
+    private TypeElement superclass(TypeElement current) {
+        TypeMirror superclass = current.getSuperclass();
+        if(superclass.getKind() != TypeKind.DECLARED)
+            return null;
+        TypeElement element = (TypeElement)types.asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object")? null: element;
+    }
+
+    private boolean isPublicMember(Element member) {
+        Set<Modifier> modifiers = member.getModifiers();
+        return modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.STATIC);
+    }
+
+    // type of a member as seen from the class, with type variables of generic superclasses resolved
+    private TypeMirror memberType(Element member) {
+        return types.asMemberOf((DeclaredType)type.asType(), member);
+    }
+
+    private static String decapitalized(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    // --- writing ---
+
+    private void writeMethodBody(StringBuilder code) throws CodecException {
+        // names are escaped here, and written along with the punctuation around them in one go
+        StringBuilder text = new StringBuilder("{");
+        for(Property property: writtenProperties()) {
+            if(text.length() == 0)
+                text.append(',');
+            text.append('"').append(escapeJSON(property.name)).append("\":");
+            line(code, 2, "writer.write(\"" + escapeJava(text.toString()) + "\");");
+            text.setLength(0);
+            writeValue(code, 2, property.type, property.access, property);
+        }
+        text.append('}');
+        line(code, 2, "writer.write(\"" + escapeJava(text.toString()) + "\");");
+    }
+
+    private void writeValue(StringBuilder code, int indent, TypeMirror valueType, String value, Property property)
+            throws CodecException {
+        switch(valueType.getKind()) {
+            case BOOLEAN:
+                line(code, indent, "writer.write(" + value + "? \"true\": \"false\");");
+                return;
+            case BYTE: case SHORT: case INT: case LONG:
+                line(code, indent, "CodecSupport.writeLong(" + value + ", writer);");
+                return;
+            case CHAR:
+                line(code, indent, "CodecSupport.writeChar(" + value + ", writer);");
+                return;
+            case FLOAT:
+                line(code, indent, "CodecSupport.writeFloat(" + value + ", writer);");
+                return;
+            case DOUBLE:
+                line(code, indent, "CodecSupport.writeDouble(" + value + ", writer);");
+                return;
+        }
+        int kind = typeKind(valueType, property);
+        if(kind == STRING) {
+            line(code, indent, "CodecSupport.writeString(" + value + ", writer);");
+            return;
+        }
+        String local = local();
+        line(code, indent, valueType + " " + local + " = " + value + ";");
+        if(kind == ENUM) {
+            line(code, indent, "CodecSupport.writeString(" + local + " == null? null: " + local
+                    + ".toString(), writer);");
+            return;
+        }
+        line(code, indent, "if(" + local + " == null) {");
+        line(code, indent + 1, "writer.write(\"null\");");
+        line(code, indent, "} else {");
+        switch(kind) {
+            case BOXED:
+                writeValue(code, indent + 1, types.unboxedType(valueType), local, property);
+                break;
+            case BIG_NUMBER:
+                line(code, indent + 1, "writer.write(" + local + ".toString());");
+                break;
+            case COMPILED:
+                // instances of subclasses have properties the codec of the declared type doesn't know about
+                line(code, indent + 1, "if(" + local + ".getClass() == " + types.erasure(valueType) + ".class) {");
+                line(code, indent + 2, "CodecSupport.enter(objectStack, " + local + ");");
+                line(code, indent + 2, codecField(valueType) + ".write(" + local + ", writer, objectStack);");
+                line(code, indent + 2, "CodecSupport.exit(objectStack);");
+                line(code, indent + 1, "} else {");
+                line(code, indent + 2, "CodecSupport.writeObject(" + local + ", writer, objectStack);");
+                line(code, indent + 1, "}");
+                break;
+            case COLLECTION:
+                TypeMirror elementType = ((DeclaredType)valueType).getTypeArguments().get(0);
+                String element = local();
+                String first = local();
+                line(code, indent + 1, "boolean " + first + " = true;");
+                line(code, indent + 1, "writer.write('[');");
+                line(code, indent + 1, "for(" + elementType + " " + element + ": " + local + ") {");
+                line(code, indent + 2, "if(!" + first + ") writer.write(',');");
+                line(code, indent + 2, first + " = false;");
+                writeValue(code, indent + 2, elementType, element, property);
+                line(code, indent + 1, "}");
+                line(code, indent + 1, "writer.write(']');");
+                break;
+            default:
+                TypeMirror componentType = ((ArrayType)valueType).getComponentType();
+                String index = local();
+                line(code, indent + 1, "writer.write('[');");
+                line(code, indent + 1, "for(int " + index + " = 0; " + index + " < " + local + ".length; " + index
+                        + "++) {");
+                line(code, indent + 2, "if(" + index + " > 0) writer.write(',');");
+                writeValue(code, indent + 2, componentType, local + "[" + index + "]", property);
+                line(code, indent + 1, "}");
+                line(code, indent + 1, "writer.write(']');");
+        }
+        line(code, indent, "}");
+    }
+
+    // --- reading ---
+
+    private void readMethodBody(StringBuilder code) throws CodecException {
+        line(code, 2, "if(!CodecSupport.beginObject(reader, \"" + escapeJava(typeName) + "\"))");
+        line(code, 3, "return null;");
+        line(code, 2, typeName + " object = new " + typeName + "();");
+        line(code, 2, "while(CodecSupport.nextProperty(reader)) {");
+        line(code, 3, "switch(reader.currentName()) {");
+        for(Property property: readProperties().values()) {
+            line(code, 4, "case \"" + escapeJava(property.name) + "\": {");
+            String value = readValue(code, 5, property.type, property);
+            line(code, 5, String.format(property.access, value));
+            line(code, 5, "break;");
+            line(code, 4, "}");
+        }
+        line(code, 4, "default:");
+        line(code, 5, "throw CodecSupport.notWritable(reader);");
+        line(code, 3, "}");
+        line(code, 2, "}");
+        line(code, 2, "return object;");
+    }
+
+    // adds the statements needed to read a value, if any, and returns the expression giving the value
+    private String readValue(StringBuilder code, int indent, TypeMirror valueType, Property property)
+            throws CodecException {
+        switch(valueType.getKind()) {
+            case BOOLEAN: return "CodecSupport.readBoolean(reader)";
+            case BYTE: return "CodecSupport.readByte(reader)";
+            case SHORT: return "CodecSupport.readShort(reader)";
+            case INT: return "CodecSupport.readInt(reader)";
+            case LONG: return "CodecSupport.readLong(reader)";
+            case CHAR: return "CodecSupport.readChar(reader)";
+            case FLOAT: return "CodecSupport.readFloat(reader)";
+            case DOUBLE: return "CodecSupport.readDouble(reader)";
+        }
+        switch(typeKind(valueType, property)) {
+            case BOXED:
+                String unboxed = readValue(code, indent, types.unboxedType(valueType), property);
+                return "CodecSupport.isNull(reader)? null: " + valueType + ".valueOf(" + unboxed + ")";
+            case STRING:
+                return "CodecSupport.readString(reader)";
+            case BIG_NUMBER:
+                return "CodecSupport.read" + types.asElement(valueType).getSimpleName() + "(reader)";
+            case ENUM:
+                return "CodecSupport.readEnum(reader, " + valueType + ".class, " + constantsField(valueType) + ")";
+            case COMPILED:
+                return codecField(valueType) + ".read(reader)";
+            case COLLECTION: {
+                TypeMirror elementType = ((DeclaredType)valueType).getTypeArguments().get(0);
+                String local = local();
+                line(code, indent, valueType + " " + local + " = null;");
+                line(code, indent, "if(CodecSupport.beginArray(reader, \"" + escapeJava(valueType.toString())
+                        + "\")) {");
+                line(code, indent + 1, local + " = new java.util.ArrayList<" + elementType + ">();");
+                line(code, indent + 1, "while(CodecSupport.nextElement(reader)) {");
+                String element = readValue(code, indent + 2, elementType, property);
+                line(code, indent + 2, local + ".add(" + element + ");");
+                line(code, indent + 1, "}");
+                line(code, indent, "}");
+                return local;
+            }
+            default: {
+                String local = local();
+                String size = local();
+                line(code, indent, valueType + " " + local + " = null;");
+                line(code, indent, "if(CodecSupport.beginArray(reader, \"" + escapeJava(valueType.toString())
+                        + "\")) {");
+                line(code, indent + 1, local + " = " + newArray((ArrayType)valueType, "8") + ";");
+                line(code, indent + 1, "int " + size + " = 0;");
+                line(code, indent + 1, "while(CodecSupport.nextElement(reader)) {");
+                String element = readValue(code, indent + 2, ((ArrayType)valueType).getComponentType(), property);
+                line(code, indent + 2, "if(" + size + " == " + local + ".length) "
+                        + local + " = java.util.Arrays.copyOf(" + local + ", " + size + " * 2);");
+                line(code, indent + 2, local + "[" + size + "++] = " + element + ";");
+                line(code, indent + 1, "}");
+                line(code, indent + 1, "if(" + size + " < " + local + ".length) "
+                        + local + " = java.util.Arrays.copyOf(" + local + ", " + size + ");");
+                line(code, indent, "}");
+                return local;
+            }
+        }
+    }
+
+    private String newArray(ArrayType arrayType, String size) {
+        TypeMirror elementType = arrayType;
+        StringBuilder dimensions = new StringBuilder("[").append(size).append(']');
+        while((elementType = ((ArrayType)elementType).getComponentType()).getKind() == TypeKind.ARRAY)
+            dimensions.append("[]");
+        return "new " + types.erasure(elementType) + dimensions;
+    }
+
+    // --- types ---
+
+    /* Kind of conversion for a type that is neither primitive nor void. */
+    private int typeKind(TypeMirror valueType, Property property) throws CodecException {
+        if(valueType.getKind() == TypeKind.ARRAY) {
+            TypeMirror elementType = valueType;
+            while(elementType.getKind() == TypeKind.ARRAY)
+                elementType = ((ArrayType)elementType).getComponentType();
+            // arrays of generic types can't be created
+            if(elementType.getKind() != TypeKind.DECLARED
+                    || ((DeclaredType)elementType).getTypeArguments().isEmpty())
+                return ARRAY;
+        } else if(valueType.getKind() == TypeKind.DECLARED) {
+            TypeElement element = (TypeElement)types.asElement(valueType);
+            String name = element.getQualifiedName().toString();
+            List<? extends TypeMirror> arguments = ((DeclaredType)valueType).getTypeArguments();
+            if(name.equals("java.lang.String"))
+                return STRING;
+            if(BIG_NUMBERS.contains(name))
+                return BIG_NUMBER;
+            if(element.getKind() == ElementKind.ENUM)
+                return ENUM;
+            if(element.getAnnotation(CompiledJSON.class) != null)
+                return COMPILED;
+            if(COLLECTIONS.contains(name) && arguments.size() == 1
+                    && arguments.get(0).getKind() == TypeKind.DECLARED)
+                return COLLECTION;
+            try {
+                types.unboxedType(valueType);
+                return BOXED;
+            } catch (IllegalArgumentException e) {
+                // not a boxed primitive
+            }
+        }
+        throw new CodecException("the type " + valueType + " of property \"" + property.name + "\" is not supported"
+                + " by generated codecs: only primitives and their boxes, String, BigInteger, BigDecimal, enums,"
+                + " classes marked with @CompiledJSON, and arrays and Lists of those are", property.element);
+    }
+
+    private boolean isDeclared(TypeMirror mirror, String name) {
+        return mirror.getKind() == TypeKind.DECLARED
+                && ((TypeElement)types.asElement(mirror)).getQualifiedName().contentEquals(name);
+    }
+
+    private String codecField(TypeMirror compiledType) {
+        String codec = codecName((TypeElement)types.asElement(compiledType));
+        return staticField("CODEC", codec, "new " + codec + "()");
+    }
+
+    private String constantsField(TypeMirror enumType) {
+        return staticField("VALUES", enumType + "[]", enumType + ".values()");
+    }
+
+    private String staticField(String prefix, String fieldType, String initializer) {
+        String field = staticFields.get(fieldType);
+        if(field == null) {
+            field = prefix + "_" + (staticFields.size() + 1);
+            staticFields.put(fieldType, field);
+            line(staticFieldsCode, 1, "private static final " + fieldType + " " + field + " = " + initializer + ";");
+        }
+        return field;
+    }
+
+    private String codecName(TypeElement element) {
+        return CodecSupport.codecName(elements.getBinaryName(element).toString());
+    }
+
+    private String local() {
+        return "v" + ++locals;
+    }
+
+    // --- text ---
+
+    private static void line(StringBuilder code, int indent, String line) {
+        for(int count = 0; count < indent; count++)
+            code.append("    ");
+        code.append(line).append('\n');
+    }
+
+    // the same escaping ObjectSerializer uses for strings
+    private static String escapeJSON(String string) {
+        StringBuilder escaped = new StringBuilder();
+        for(char ch: string.toCharArray()) {
+            switch(ch) {
+                case '\b': escaped.append("\\b"); break;
+                case '\f': escaped.append("\\f"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                case '\t': escaped.append("\\t"); break;
+                case '\\': escaped.append("\\\\"); break;
+                case '/': escaped.append("\\/"); break;
+                case '"': escaped.append("\\\""); break;
+                default:
+                    if(ch < 32 || ch > 126)
+                        escaped.append(String.format("\\u%04X", (int)ch));
+                    else
+                        escaped.append(ch);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // contents of a Java string literal; line terminators can't be given as unicode escapes, so octal ones are used
+    private static String escapeJava(String string) {
+        StringBuilder escaped = new StringBuilder();
+        for(char ch: string.toCharArray()) {
+            if(ch == '"' || ch == '\\')
+                escaped.append('\\').append(ch);
+            else if(ch < 32)
+                escaped.append(String.format("\\%03o", (int)ch));
+            else if(ch > 126)
+                escaped.append(String.format("\\u%04x", (int)ch));
+            else
+                escaped.append(ch);
+        }
+        return escaped.toString();
+    }
+
+    /* A class or one of its properties can't get a codec. */
+    static final class CodecException extends Exception {
+
+        private final Element element;
+
+        CodecException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+
+        Element getElement() {
+            return element;
+        }
+    }
+
+}
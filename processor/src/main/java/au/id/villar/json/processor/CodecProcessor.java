@@ -0,0 +1,79 @@
+/*
+ * Morgano-json library to convert between POJOs and JSON
+ * Copyright (c) 2016 Rafael Villar Villar
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package au.id.villar.json.processor;
+
+import au.id.villar.json.CompiledJSON;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Generates a {@link au.id.villar.json.JSONCodec} for every class marked with {@link CompiledJSON}. The processor is
+ * found by the compiler when this module is in the classpath (or the processor path), and generated codecs are then
+ * used automatically by {@link au.id.villar.json.ObjectSerializer} and {@link au.id.villar.json.ObjectDeserializer}.
+ * Classes that can't get a codec (because they are not public, have no public constructor without parameters or
+ * have a property of a type codecs don't handle) are reported as compilation errors.
+ */
+@SupportedAnnotationTypes("au.id.villar.json.CompiledJSON")
+public class CodecProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for(Element element: roundEnv.getElementsAnnotatedWith(CompiledJSON.class)) {
+            if(element.getKind() != ElementKind.CLASS) {
+                error("@CompiledJSON can only be used on classes", element);
+                continue;
+            }
+            TypeElement type = (TypeElement)element;
+            try {
+                CodecGenerator generator = new CodecGenerator(processingEnv, type);
+                String source = generator.generate();
+                JavaFileObject file = processingEnv.getFiler().createSourceFile(generator.codecName(), type);
+                try(Writer writer = file.openWriter()) {
+                    writer.write(source);
+                }
+            } catch (CodecGenerator.CodecException e) {
+                error(e.getMessage(), e.getElement());
+            } catch (IOException e) {
+                error("can't write the codec of " + type.getQualifiedName() + ": " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
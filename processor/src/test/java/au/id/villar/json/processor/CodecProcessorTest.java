@@ -0,0 +1,244 @@
+package au.id.villar.json.processor;
+
+import au.id.villar.json.*;
+import org.junit.Test;
+
+import javax.tools.*;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.*;
+
+import static junit.framework.Assert.*;
+
+public class CodecProcessorTest {
+
+    public enum Status { OPEN, CLOSED }
+
+    public static class Base {
+        public long id;
+    }
+
+    @CompiledJSON
+    public static class Order extends Base {
+        public String customer;
+        public Status status;
+        public List<Line> lines;
+        public int[] codes;
+        public Double discount;
+        public String[][] tags;
+        @TransientJSON public String note;
+        private boolean paid;
+
+        public boolean isPaid() {
+            return paid;
+        }
+
+        public void setPaid(boolean paid) {
+            this.paid = paid;
+        }
+    }
+
+    @CompiledJSON
+    public static class Line {
+        public String product;
+        public int quantity;
+        public BigDecimal price;
+        public char size;
+    }
+
+    @CompiledJSON
+    public static class Node {
+        public String name;
+        public Node next;
+    }
+
+    public static class DiscountedLine extends Line {
+        public BigDecimal discount;
+    }
+
+    @CompiledJSON
+    public static class LastNode extends Node {
+        public boolean last;
+    }
+
+    public static class Customer {
+        public String name;
+    }
+
+    @Test
+    public void codecsAreGenerated() {
+        assertEquals("au.id.villar.json.processor.CodecProcessorTest_Order_JSONCodec",
+                CodecSupport.find(Order.class).getClass().getName());
+        assertNotNull(CodecSupport.find(Line.class));
+        assertNull(CodecSupport.find(Base.class));
+    }
+
+    @Test
+    public void write() throws Exception {
+        StringWriter writer = new StringWriter();
+        ObjectSerializer.write(order(), writer);
+        assertEquals("{\"customer\":\"Ann \\/ \\u00E9\",\"status\":\"OPEN\",\"lines\":[{\"product\":\"tea\",\"quantity\":2,"
+                + "\"price\":1.50,\"size\":\"L\"},null],\"codes\":[1,-2],\"discount\":null,\"tags\":[[\"a\"],[]],"
+                + "\"id\":7,\"paid\":true}", writer.toString());
+    }
+
+    @Test
+    public void writeSubclasses() throws Exception {
+        DiscountedLine line = new DiscountedLine();
+        line.product = "tea";
+        line.discount = new BigDecimal("0.25");
+        line.size = 'M';
+        Order order = new Order();
+        order.lines = Collections.<Line>singletonList(line);
+        StringWriter writer = new StringWriter();
+        ObjectSerializer.write(order, writer);
+        assertTrue(writer.toString(), writer.toString().contains(
+                "\"lines\":[{\"discount\":0.25,\"product\":\"tea\",\"quantity\":0,\"price\":null,\"size\":\"M\"}]"));
+
+        Node node = new Node();
+        node.name = "a";
+        node.next = new LastNode();
+        node.next.name = "b";
+        ((LastNode)node.next).last = true;
+        writer = new StringWriter();
+        ObjectSerializer.write(node, writer);
+        assertEquals("{\"name\":\"a\",\"next\":{\"last\":true,\"name\":\"b\",\"next\":null}}", writer.toString());
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        StringWriter writer = new StringWriter();
+        ObjectSerializer.write(order(), writer);
+        Order order = ObjectDeserializer.getFromReader(new StringReader(writer.toString()), Order.class);
+
+        assertEquals(7, order.id);
+        assertEquals("Ann / \u00e9", order.customer);
+        assertEquals(Status.OPEN, order.status);
+        assertEquals(2, order.lines.size());
+        assertEquals("tea", order.lines.get(0).product);
+        assertEquals(2, order.lines.get(0).quantity);
+        assertEquals(new BigDecimal("1.50"), order.lines.get(0).price);
+        assertEquals('L', order.lines.get(0).size);
+        assertNull(order.lines.get(1));
+        assertTrue(Arrays.equals(new int[] {1, -2}, order.codes));
+        assertNull(order.discount);
+        assertTrue(Arrays.deepEquals(new String[][] {{"a"}, {}}, order.tags));
+        assertTrue(order.isPaid());
+        assertNull(order.note);
+    }
+
+    @Test
+    public void readConversions() throws Exception {
+        Order order = ObjectDeserializer.getFromReader(new StringReader(
+                "{\"id\":\"12\",\"status\":1,\"discount\":0.5,\"codes\":[1.0,2e1],\"note\":\"x\",\"paid\":\"TRUE\"}"),
+                Order.class);
+        assertEquals(12, order.id);
+        assertEquals(Status.CLOSED, order.status);
+        assertEquals(0.5, order.discount);
+        assertTrue(Arrays.equals(new int[] {1, 20}, order.codes));
+        assertEquals("x", order.note);
+        assertTrue(order.isPaid());
+        assertNull(ObjectDeserializer.getFromReader(new StringReader("null"), Order.class));
+    }
+
+    @Test
+    public void numbersAsStrings() throws Exception {
+        String[][] numbers = {{"1e3", "1E+3"}, {"1.50", "1.50"}, {"-0", "0"},
+                {"12345678901234567890", "12345678901234567890"}};
+        for(String[] number : numbers) {
+            String json = "{\"name\":" + number[0] + "}";
+            assertEquals(number[1], ObjectDeserializer.getFromReader(new StringReader(json), Customer.class).name);
+            assertEquals(number[1], ObjectDeserializer.getFromReader(new StringReader(json), Node.class).name);
+        }
+    }
+
+    @Test
+    public void readErrors() {
+        assertReadError("{\"unknown\":1}", "error trying to set object's property: unknown");
+        assertReadError("{\"codes\":[3000000000]}", "value \"3000000000\" cannot be casted to type int");
+        assertReadError("{\"codes\":[1.5]}", "value \"1.5\" cannot be casted to type int");
+        assertReadError("{\"status\":\"PENDING\"}", "value \"PENDING\" cannot be casted to type "
+                + Status.class.getName());
+        assertReadError("[]", "value \"START_ARRAY\" cannot be casted to type " + Order.class.getCanonicalName());
+    }
+
+    @Test
+    public void circularReferences() throws Exception {
+        Node node = new Node();
+        node.name = "a";
+        node.next = new Node();
+        node.next.name = "b";
+        StringWriter writer = new StringWriter();
+        ObjectSerializer.write(node, writer);
+        assertEquals("{\"name\":\"a\",\"next\":{\"name\":\"b\",\"next\":null}}", writer.toString());
+
+        node.next.next = node;
+        try {
+            ObjectSerializer.write(node, new StringWriter());
+            fail("RecursiveException expected");
+        } catch(RecursiveException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void unsupportedClasses() {
+        assertCompileError("@CompiledJSON public class Sample { public java.util.Map<String, String> values; }",
+                "the type java.util.Map<java.lang.String,java.lang.String> of property \"values\" is not supported");
+        assertCompileError("@CompiledJSON public class Sample { public Sample(int value) { } }",
+                "need a public constructor without parameters");
+        assertCompileError("@CompiledJSON class Sample { }", "must be public");
+        assertCompileError("@CompiledJSON public class Sample<T> { public T value; }", "generic classes");
+        assertCompileError("@CompiledJSON public interface Sample { }", "can only be used on classes");
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.id = 7;
+        order.customer = "Ann / \u00e9";
+        order.status = Status.OPEN;
+        Line line = new Line();
+        line.product = "tea";
+        line.quantity = 2;
+        line.price = new BigDecimal("1.50");
+        line.size = 'L';
+        order.lines = Arrays.asList(line, null);
+        order.codes = new int[] {1, -2};
+        order.tags = new String[][] {{"a"}, {}};
+        order.note = "not written";
+        order.setPaid(true);
+        return order;
+    }
+
+    private static void assertReadError(String json, String message) {
+        try {
+            ObjectDeserializer.getFromReader(new StringReader(json), Order.class);
+            fail("JSONReaderException expected for " + json);
+        } catch(JSONReaderException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static void assertCompileError(final String source, String message) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Sample.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return "import au.id.villar.json.*; " + source;
+            }
+        };
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path")), null,
+                Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new CodecProcessor()));
+        assertFalse(task.call());
+        for(Diagnostic<? extends JavaFileObject> diagnostic: diagnostics.getDiagnostics())
+            if(diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getMessage(null).contains(message))
+                return;
+        fail("no error containing \"" + message + "\" in " + diagnostics.getDiagnostics());
+    }
+
+}